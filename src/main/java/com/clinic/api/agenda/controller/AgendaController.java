@@ -4,24 +4,39 @@ import com.clinic.api.agenda.domain.BloqueioAgenda;
 import com.clinic.api.agenda.domain.ConfiguracaoAgenda;
 import com.clinic.api.agenda.dto.AgendaConfigRequest;
 import com.clinic.api.agenda.dto.BloqueioRequest;
+import com.clinic.api.agenda.dto.CacheOcupacaoEstatisticas;
+import com.clinic.api.agenda.dto.DisponibilidadeDiaResponse;
+import com.clinic.api.agenda.dto.PrimeiroHorarioResponse;
 import com.clinic.api.agenda.service.AgendaService;
+import com.clinic.api.agenda.service.PrimeiroHorarioService;
+import com.clinic.api.medico.enun.Especialidade;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.validation.Valid;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @RestController
 @RequestMapping("/agenda")
 public class AgendaController {
 
     private final AgendaService service;
+    private final PrimeiroHorarioService primeiroHorarioService;
+    private final ObjectMapper objectMapper;
 
-    public AgendaController(AgendaService service) {
+    public AgendaController(AgendaService service, PrimeiroHorarioService primeiroHorarioService, ObjectMapper objectMapper) {
         this.service = service;
+        this.primeiroHorarioService = primeiroHorarioService;
+        this.objectMapper = objectMapper;
     }
 
     // 1. Configurar Horário (Recurso: Configuração)
@@ -38,6 +53,13 @@ public class AgendaController {
         return ResponseEntity.ok(service.criarBloqueio(request));
     }
 
+    // URL: DELETE /agenda/bloqueios/{id}
+    @DeleteMapping("/bloqueios/{id}")
+    public ResponseEntity<Void> removerBloqueio(@PathVariable UUID id) {
+        service.removerBloqueio(id);
+        return ResponseEntity.noContent().build();
+    }
+
     // 3. Buscar Disponibilidade
     // URL: GET /agenda/disponibilidade?medicoId=...&data=...
     @GetMapping("/disponibilidade")
@@ -46,4 +68,46 @@ public class AgendaController {
             @RequestParam LocalDate data) {
         return ResponseEntity.ok(service.listarHorariosDisponiveis(medicoId, data));
     }
+
+    // 4. Disponibilidade por Período (Calendário de 30/60 dias)
+    // URL: GET /agenda/disponibilidade/periodo?medicoId=...&inicio=...&fim=...
+    // Resposta: array JSON escrito dia a dia, o front já renderiza o primeiro dia antes do último ser calculado
+    @GetMapping(value = "/disponibilidade/periodo", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> buscarDisponibilidadePeriodo(
+            @RequestParam UUID medicoId,
+            @RequestParam LocalDate inicio,
+            @RequestParam LocalDate fim) {
+        // Validações e consultas acontecem aqui, antes do primeiro byte (erros viram resposta normal)
+        Stream<DisponibilidadeDiaResponse> dias = service.listarDisponibilidadePeriodo(medicoId, inicio, fim);
+
+        StreamingResponseBody corpo = saida -> {
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(saida)
+                    .disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET)) {
+                json.writeStartArray();
+                for (Iterator<DisponibilidadeDiaResponse> it = dias.iterator(); it.hasNext(); ) {
+                    json.writeObject(it.next());
+                    json.flush(); // Empurra cada dia para o cliente assim que fica pronto
+                }
+                json.writeEndArray();
+            }
+        };
+        return ResponseEntity.ok(corpo);
+    }
+
+    // 5. Primeiro Horário Livre por Especialidade
+    // URL: GET /agenda/primeiro-horario?especialidade=CARDIOLOGIA&limite=5&dias=30
+    @GetMapping("/primeiro-horario")
+    public ResponseEntity<List<PrimeiroHorarioResponse>> buscarPrimeiroHorario(
+            @RequestParam Especialidade especialidade,
+            @RequestParam(defaultValue = "5") int limite,
+            @RequestParam(defaultValue = "30") int dias) {
+        return ResponseEntity.ok(primeiroHorarioService.buscarPrimeirosHorarios(especialidade, limite, dias));
+    }
+
+    // 6. Métricas do Cache de Ocupação (para dimensionar agenda.cache.capacidade)
+    // URL: GET /agenda/cache/estatisticas
+    @GetMapping("/cache/estatisticas")
+    public ResponseEntity<CacheOcupacaoEstatisticas> estatisticasCache() {
+        return ResponseEntity.ok(service.estatisticasCache());
+    }
 }
\ No newline at end of file
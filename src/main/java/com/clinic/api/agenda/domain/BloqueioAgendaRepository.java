@@ -6,15 +6,49 @@ import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
 @Repository
 public interface BloqueioAgendaRepository extends JpaRepository<BloqueioAgenda, UUID> {
 
-    @Query("SELECT b FROM BloqueioAgenda b WHERE b.medico.id = :medicoId AND " +
-            "((b.inicioBloqueio <= :fim AND b.fimBloqueio >= :inicio))")
+    // Sobreposição com [inicio, fim) pela coluna tsrange 'periodo' (índice GiST, ver V2__bloqueio_agenda_periodo.sql)
+    @Query(value = "SELECT b.id, b.medico_id, b.inicio_bloqueio, b.fim_bloqueio, b.motivo " +
+            "FROM tb_bloqueio_agenda b WHERE b.medico_id = :medicoId " +
+            "AND b.periodo && tsrange(CAST(:inicio AS timestamp), CAST(:fim AS timestamp), '[)')",
+            nativeQuery = true)
     List<BloqueioAgenda> findBloqueiosNoIntervalo(@Param("medicoId") UUID medicoId,
                                                   @Param("inicio") LocalDateTime inicio,
                                                   @Param("fim") LocalDateTime fim);
-}
\ No newline at end of file
+
+    // Gravação de agendamento: a checagem vai ao banco, na transação do INSERT (o IndiceBloqueios é desta
+    // instância e pode não ter visto um bloqueio criado em outra)
+    @Query(value = "SELECT EXISTS (SELECT 1 FROM tb_bloqueio_agenda b WHERE b.medico_id = :medicoId " +
+            "AND b.periodo && tsrange(CAST(:inicio AS timestamp), CAST(:fim AS timestamp), '[)'))",
+            nativeQuery = true)
+    boolean existeBloqueioNoIntervalo(@Param("medicoId") UUID medicoId,
+                                      @Param("inicio") LocalDateTime inicio,
+                                      @Param("fim") LocalDateTime fim);
+
+    // Mesma checagem para o agendamento em lote: os bloqueios de todos os médicos na janela do lote, numa consulta
+    @Query(value = "SELECT b.medico_id AS \"medicoId\", b.inicio_bloqueio AS \"inicio\", b.fim_bloqueio AS \"fim\" " +
+            "FROM tb_bloqueio_agenda b WHERE b.medico_id IN (:medicoIds) " +
+            "AND b.periodo && tsrange(CAST(:inicio AS timestamp), CAST(:fim AS timestamp), '[)')",
+            nativeQuery = true)
+    List<BloqueioMedico> findBloqueiosDosMedicosNoIntervalo(@Param("medicoIds") Collection<UUID> medicoIds,
+                                                            @Param("inicio") LocalDateTime inicio,
+                                                            @Param("fim") LocalDateTime fim);
+
+    // Carga do IndiceBloqueios: tudo o que ainda não terminou a partir de 'desde'
+    @Query("SELECT new com.clinic.api.agenda.domain.Periodo(b.inicioBloqueio, b.fimBloqueio) " +
+            "FROM BloqueioAgenda b WHERE b.medico.id = :medicoId AND b.fimBloqueio > :desde")
+    List<Periodo> findPeriodosAPartirDe(@Param("medicoId") UUID medicoId,
+                                        @Param("desde") LocalDateTime desde);
+
+    // Mesma carga, em lote para vários médicos
+    @Query("SELECT new com.clinic.api.agenda.domain.IntervaloMedico(b.medico.id, b.inicioBloqueio, b.fimBloqueio) " +
+            "FROM BloqueioAgenda b WHERE b.medico.id IN :medicoIds AND b.fimBloqueio > :desde")
+    List<IntervaloMedico> findIntervalosDosMedicosAPartirDe(@Param("medicoIds") Collection<UUID> medicoIds,
+                                                            @Param("desde") LocalDateTime desde);
+}
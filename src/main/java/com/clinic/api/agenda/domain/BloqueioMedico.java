@@ -0,0 +1,11 @@
+package com.clinic.api.agenda.domain;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Bloqueio de um médico lido pela coluna tsrange (projeção da consulta nativa do agendamento em lote)
+public interface BloqueioMedico {
+    UUID getMedicoId();
+    LocalDateTime getInicio();
+    LocalDateTime getFim();
+}
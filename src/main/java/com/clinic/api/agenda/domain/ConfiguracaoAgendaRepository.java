@@ -3,10 +3,18 @@ package com.clinic.api.agenda.domain;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 import java.time.DayOfWeek;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
 @Repository
 public interface ConfiguracaoAgendaRepository extends JpaRepository<ConfiguracaoAgenda, UUID> {
     Optional<ConfiguracaoAgenda> findByMedicoIdAndDiaSemana(UUID medicoId, DayOfWeek diaSemana);
+
+    // Todos os dias da semana configurados do médico (no máximo 7 linhas)
+    List<ConfiguracaoAgenda> findByMedicoId(UUID medicoId);
+
+    // Busca em lote para vários médicos de uma vez
+    List<ConfiguracaoAgenda> findByMedicoIdIn(Collection<UUID> medicoIds);
 }
\ No newline at end of file
@@ -0,0 +1,81 @@
+package com.clinic.api.agenda.domain;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
+/**
+ * Grade de slots de um dia de atendimento, derivada da {@link ConfiguracaoAgenda}.
+ * Cada bit representa um slot: ligado = ocupado (bloqueio ou agendamento).
+ * Intervalos são tratados como semiabertos [início, fim).
+ * Um horário só é livre se a consulta inteira (duração do médico) cabe em slots livres e no expediente.
+ */
+public class GradeDisponibilidade {
+
+    private static final int INTERVALO_PADRAO = 30; // Proteção contra loop infinito / divisão por zero
+
+    private final LocalDateTime inicio;
+    private final int intervaloMinutos;
+    private final int totalSlots;
+    private final int slotsPorConsulta;
+    private final BitSet ocupados;
+
+    public GradeDisponibilidade(LocalDate data, ConfiguracaoAgenda config, int duracaoConsultaMinutos) {
+        this.intervaloMinutos = config.getIntervaloMinutos() > 0 ? config.getIntervaloMinutos() : INTERVALO_PADRAO;
+        this.inicio = LocalDateTime.of(data, config.getHoraInicio());
+
+        // Mesmo critério do loop antigo: todo slot que COMEÇA antes do fim do expediente entra na grade
+        long minutos = Duration.between(inicio, LocalDateTime.of(data, config.getHoraFim())).toMinutes();
+        this.totalSlots = (int) Math.max(0, (minutos + intervaloMinutos - 1) / intervaloMinutos);
+        this.slotsPorConsulta = Math.max(1, (duracaoConsultaMinutos + intervaloMinutos - 1) / intervaloMinutos);
+        this.ocupados = new BitSet(totalSlots);
+    }
+
+    // Marca todos os slots que se sobrepõem ao intervalo [de, ate)
+    public void ocuparIntervalo(LocalDateTime de, LocalDateTime ate) {
+        if (!de.isBefore(ate)) return;
+
+        int primeiro = (int) Math.max(0, Math.floorDiv(segundosDesdeInicio(de), passoSegundos()));
+        int ultimo = (int) Math.min(totalSlots, -Math.floorDiv(-segundosDesdeInicio(ate), passoSegundos()));
+
+        if (primeiro < ultimo) ocupados.set(primeiro, ultimo);
+    }
+
+    // Percorre a grade uma única vez devolvendo os slots livres posteriores a 'aPartirDe'
+    public List<LocalDateTime> listarLivres(LocalDateTime aPartirDe) {
+        List<LocalDateTime> livres = new ArrayList<>();
+        for (int i = ocupados.nextClearBit(0); i + slotsPorConsulta <= totalSlots; i = ocupados.nextClearBit(i + 1)) {
+            // A consulta começando em 'i' ocupa os slots [i, i + slotsPorConsulta)
+            int proximoOcupado = ocupados.nextSetBit(i);
+            if (proximoOcupado != -1 && proximoOcupado < i + slotsPorConsulta) continue;
+
+            LocalDateTime slot = inicioDoSlot(i);
+            if (slot.isAfter(aPartirDe)) livres.add(slot);
+        }
+        return livres;
+    }
+
+    public LocalDateTime inicioDoSlot(int indice) {
+        return inicio.plusMinutes((long) indice * intervaloMinutos);
+    }
+
+    // Início do primeiro slot
+    public LocalDateTime getInicio() { return inicio; }
+
+    // Fim do último slot (pode passar um pouco do horaFim quando o intervalo não divide o expediente)
+    public LocalDateTime getFim() { return inicioDoSlot(totalSlots); }
+
+    public int getIntervaloMinutos() { return intervaloMinutos; }
+    public int getTotalSlots() { return totalSlots; }
+
+    private long segundosDesdeInicio(LocalDateTime horario) {
+        return Duration.between(inicio, horario).getSeconds();
+    }
+
+    private long passoSegundos() {
+        return intervaloMinutos * 60L;
+    }
+}
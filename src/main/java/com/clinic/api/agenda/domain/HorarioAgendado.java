@@ -0,0 +1,12 @@
+package com.clinic.api.agenda.domain;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Projeção de um agendamento ativo (sem hidratar Agendamento/Medico/Paciente)
+public record HorarioAgendado(
+        UUID agendamentoId,
+        LocalDateTime inicio,
+        LocalDateTime fim,
+        LocalDateTime expiraEm // Reserva temporária; null = definitivo
+) {}
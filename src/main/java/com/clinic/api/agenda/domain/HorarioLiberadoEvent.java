@@ -0,0 +1,7 @@
+package com.clinic.api.agenda.domain;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Publicado quando um período da agenda volta a ficar livre (cancelamento, bloqueio removido)
+public record HorarioLiberadoEvent(UUID medicoId, LocalDateTime inicio, LocalDateTime fim) {}
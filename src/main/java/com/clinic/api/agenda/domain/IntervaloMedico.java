@@ -0,0 +1,14 @@
+package com.clinic.api.agenda.domain;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+/**
+ * Projeção leve (sem hidratar entidades) de um período ocupado de um médico.
+ * Usada nas consultas em lote por lista de médicos: bloqueios e agendamentos.
+ */
+public record IntervaloMedico(
+        UUID medicoId,
+        LocalDateTime inicio,
+        LocalDateTime fim
+) {}
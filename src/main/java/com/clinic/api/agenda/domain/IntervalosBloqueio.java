@@ -0,0 +1,63 @@
+package com.clinic.api.agenda.domain;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Períodos bloqueados de um médico, mantidos ordenados e já fundidos (sem sobreposição),
+ * de modo que "algo bloqueia [inicio, fim)?" é respondido em O(log n).
+ * Para a disponibilidade só importa a UNIÃO dos bloqueios, não cada registro isolado.
+ * Thread-safe.
+ */
+public class IntervalosBloqueio {
+
+    // início -> fim; os períodos guardados nunca se tocam
+    private final TreeMap<LocalDateTime, LocalDateTime> periodos = new TreeMap<>();
+
+    public synchronized void adicionar(LocalDateTime inicio, LocalDateTime fim) {
+        if (!inicio.isBefore(fim)) return; // Período vazio não bloqueia nada
+
+        // Funde com o período anterior que encosta ou sobrepõe
+        Map.Entry<LocalDateTime, LocalDateTime> anterior = periodos.floorEntry(inicio);
+        if (anterior != null && !anterior.getValue().isBefore(inicio)) {
+            inicio = anterior.getKey();
+            if (anterior.getValue().isAfter(fim)) fim = anterior.getValue();
+        }
+
+        // Absorve os seguintes que começam até o novo fim
+        Map.Entry<LocalDateTime, LocalDateTime> seguinte;
+        while ((seguinte = periodos.ceilingEntry(inicio)) != null && !seguinte.getKey().isAfter(fim)) {
+            if (seguinte.getValue().isAfter(fim)) fim = seguinte.getValue();
+            periodos.remove(seguinte.getKey());
+        }
+
+        periodos.put(inicio, fim);
+    }
+
+    public synchronized boolean sobrepoe(LocalDateTime inicio, LocalDateTime fim) {
+        if (!inicio.isBefore(fim)) return false;
+        // Único candidato: o último período que começa antes de 'fim'
+        Map.Entry<LocalDateTime, LocalDateTime> candidato = periodos.lowerEntry(fim);
+        return candidato != null && candidato.getValue().isAfter(inicio);
+    }
+
+    // Períodos que tocam [inicio, fim), em ordem
+    public synchronized List<Periodo> listar(LocalDateTime inicio, LocalDateTime fim) {
+        List<Periodo> resultado = new ArrayList<>();
+        if (!inicio.isBefore(fim)) return resultado;
+
+        LocalDateTime anterior = periodos.floorKey(inicio);
+        LocalDateTime desde = anterior != null ? anterior : inicio;
+        for (Map.Entry<LocalDateTime, LocalDateTime> p : periodos.subMap(desde, true, fim, false).entrySet()) {
+            if (p.getValue().isAfter(inicio)) resultado.add(new Periodo(p.getKey(), p.getValue()));
+        }
+        return resultado;
+    }
+
+    public synchronized int tamanho() {
+        return periodos.size();
+    }
+}
@@ -0,0 +1,107 @@
+package com.clinic.api.agenda.domain;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+
+/**
+ * Ocupação de um médico em um dia: configuração, bloqueios e agendamentos ativos,
+ * com a {@link GradeDisponibilidade} (bitmap) recalculada a cada alteração.
+ * Thread-safe: é a entrada do {@code CacheOcupacao}, lida e atualizada concorrentemente.
+ */
+public class OcupacaoDia {
+
+    private final LocalDate data;
+    private final int duracaoConsultaMinutos;
+    private ConfiguracaoAgenda config; // null = médico não atende neste dia
+    private final IntervalosBloqueio bloqueios = new IntervalosBloqueio();
+    private final Map<UUID, Periodo> agendamentos = new HashMap<>();
+    private final Map<UUID, LocalDateTime> reservas = new HashMap<>(); // Reservas temporárias -> expiração
+
+    // "Cancelou" que chegou ANTES do "agendou" do mesmo agendamento: o "agendou" atrasado é ignorado
+    // e consome o ID. Cancelar um agendamento que está na grade não deixa ID guardado, então o
+    // conjunto não cresce com os cancelamentos do dia (resta o TTL do cache para o caso raro de um
+    // "agendou" que chegue depois do "cancelou" do agendamento já removido)
+    private final Set<UUID> cancelados = new HashSet<>();
+
+    private GradeDisponibilidade grade;
+
+    public OcupacaoDia(LocalDate data, ConfiguracaoAgenda config, int duracaoConsultaMinutos) {
+        this.data = data;
+        this.duracaoConsultaMinutos = duracaoConsultaMinutos;
+        this.config = copiarSeAtiva(config);
+        recalcular();
+    }
+
+    public synchronized List<LocalDateTime> listarLivres(LocalDateTime aPartirDe) {
+        liberarReservasVencidas(LocalDateTime.now());
+        return grade == null ? new ArrayList<>() : grade.listarLivres(aPartirDe);
+    }
+
+    public void adicionarAgendamento(UUID agendamentoId, LocalDateTime inicio, LocalDateTime fim) {
+        adicionarAgendamento(agendamentoId, inicio, fim, null);
+    }
+
+    // expiraEm != null: reserva temporária, ocupa o horário só até expirar (sem depender da limpeza do banco)
+    public synchronized void adicionarAgendamento(UUID agendamentoId, LocalDateTime inicio, LocalDateTime fim,
+                                                  LocalDateTime expiraEm) {
+        if (cancelados.remove(agendamentoId)) return;
+        agendamentos.put(agendamentoId, new Periodo(inicio, fim));
+        if (expiraEm != null) reservas.put(agendamentoId, expiraEm);
+        else reservas.remove(agendamentoId); // Reserva confirmada
+        recalcular();
+    }
+
+    public synchronized void cancelarAgendamento(UUID agendamentoId) {
+        reservas.remove(agendamentoId);
+        if (agendamentos.remove(agendamentoId) != null) recalcular();
+        else cancelados.add(agendamentoId);
+    }
+
+    public synchronized void adicionarBloqueio(LocalDateTime inicio, LocalDateTime fim) {
+        bloqueios.adicionar(inicio, fim);
+        recalcular();
+    }
+
+    public synchronized void trocarConfiguracao(ConfiguracaoAgenda novaConfig) {
+        this.config = copiarSeAtiva(novaConfig);
+        recalcular();
+    }
+
+    public LocalDate getData() { return data; }
+
+    private void liberarReservasVencidas(LocalDateTime agora) {
+        if (reservas.isEmpty()) return;
+        boolean liberou = reservas.entrySet().removeIf(r -> {
+            if (r.getValue().isAfter(agora)) return false;
+            agendamentos.remove(r.getKey());
+            return true;
+        });
+        if (liberou) recalcular();
+    }
+
+    private void recalcular() {
+        if (config == null) {
+            grade = null;
+            return;
+        }
+        GradeDisponibilidade nova = new GradeDisponibilidade(data, config, duracaoConsultaMinutos);
+        bloqueios.listar(nova.getInicio(), nova.getFim()).forEach(p -> nova.ocuparIntervalo(p.inicio(), p.fim()));
+        agendamentos.values().forEach(p -> nova.ocuparIntervalo(p.inicio(), p.fim()));
+        grade = nova;
+    }
+
+    // A entidade pode continuar sendo alterada pelo JPA; o cache guarda uma cópia própria
+    private static ConfiguracaoAgenda copiarSeAtiva(ConfiguracaoAgenda origem) {
+        if (origem == null || !origem.isAtivo()) return null;
+        ConfiguracaoAgenda copia = new ConfiguracaoAgenda();
+        copia.setId(origem.getId());
+        copia.setMedicoId(origem.getMedicoId());
+        copia.setDiaSemana(origem.getDiaSemana());
+        copia.setHoraInicio(origem.getHoraInicio());
+        copia.setHoraFim(origem.getHoraFim());
+        copia.setIntervaloMinutos(origem.getIntervaloMinutos());
+        copia.setAtivo(true);
+        return copia;
+    }
+}
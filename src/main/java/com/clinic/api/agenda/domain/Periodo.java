@@ -0,0 +1,6 @@
+package com.clinic.api.agenda.domain;
+
+import java.time.LocalDateTime;
+
+// Intervalo semiaberto [inicio, fim)
+public record Periodo(LocalDateTime inicio, LocalDateTime fim) {}
@@ -0,0 +1,9 @@
+package com.clinic.api.agenda.dto;
+
+public record CacheOcupacaoEstatisticas(
+        long hits,
+        long misses,
+        long evictions,
+        int tamanho,
+        int capacidade
+) {}
@@ -0,0 +1,10 @@
+package com.clinic.api.agenda.dto;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+public record DisponibilidadeDiaResponse(
+        LocalDate data,
+        List<LocalDateTime> horarios
+) {}
@@ -0,0 +1,10 @@
+package com.clinic.api.agenda.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record PrimeiroHorarioResponse(
+        UUID medicoId,
+        String nomeMedico,
+        LocalDateTime horario
+) {}
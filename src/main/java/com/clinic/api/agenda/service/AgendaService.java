@@ -3,34 +3,55 @@ package com.clinic.api.agenda.service;
 import com.clinic.api.agenda.domain.*;
 import com.clinic.api.agenda.dto.AgendaConfigRequest;
 import com.clinic.api.agenda.dto.BloqueioRequest;
+import com.clinic.api.agenda.dto.CacheOcupacaoEstatisticas;
+import com.clinic.api.agenda.dto.DisponibilidadeDiaResponse;
+import com.clinic.api.agendamento.Agendamento;
 import com.clinic.api.agendamento.domain.AgendamentoRepository;
 import com.clinic.api.medico.Medico;
 import com.clinic.api.medico.domain.MedicoRepository;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 @Service
 public class AgendaService {
 
+    private static final int MAX_DIAS_PERIODO = 90;
+
     private final ConfiguracaoAgendaRepository configRepository;
     private final BloqueioAgendaRepository bloqueioRepository;
     private final MedicoRepository medicoRepository;
     private final AgendamentoRepository agendamentoRepository; // Injeção necessária
+    private final CacheOcupacao cacheOcupacao;
+    private final IndiceBloqueios indiceBloqueios;
+    private final ApplicationEventPublisher eventos;
 
     public AgendaService(ConfiguracaoAgendaRepository configRepository,
                          BloqueioAgendaRepository bloqueioRepository,
                          MedicoRepository medicoRepository,
-                         AgendamentoRepository agendamentoRepository) {
+                         AgendamentoRepository agendamentoRepository,
+                         CacheOcupacao cacheOcupacao,
+                         IndiceBloqueios indiceBloqueios,
+                         ApplicationEventPublisher eventos) {
         this.configRepository = configRepository;
         this.bloqueioRepository = bloqueioRepository;
         this.medicoRepository = medicoRepository;
         this.agendamentoRepository = agendamentoRepository;
+        this.cacheOcupacao = cacheOcupacao;
+        this.indiceBloqueios = indiceBloqueios;
+        this.eventos = eventos;
     }
 
     // --- 1. CONFIGURAR HORÁRIOS ---
@@ -63,7 +84,9 @@ public class AgendaService {
 
         config.setAtivo(true);
 
-        return configRepository.save(config);
+        ConfiguracaoAgenda salva = configRepository.save(config);
+        cacheOcupacao.atualizarConfiguracao(salva);
+        return salva;
     }
 
     // --- 2. BLOQUEIOS ---
@@ -83,57 +106,132 @@ public class AgendaService {
                 request.motivo()
         );
 
-        return bloqueioRepository.save(bloqueio);
+        BloqueioAgenda salvo = bloqueioRepository.save(bloqueio);
+        indiceBloqueios.registrar(salvo);
+        cacheOcupacao.registrarBloqueio(salvo);
+        return salvo;
+    }
+
+    // Remover um bloqueio devolve o período à agenda (e à lista de espera, via evento após o commit)
+    @Transactional
+    public void removerBloqueio(UUID id) {
+        BloqueioAgenda bloqueio = bloqueioRepository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Bloqueio não encontrado."));
+
+        bloqueioRepository.delete(bloqueio);
+        indiceBloqueios.remover(bloqueio);
+        cacheOcupacao.removerBloqueio(bloqueio);
+        eventos.publishEvent(new HorarioLiberadoEvent(
+                bloqueio.getMedico().getId(), bloqueio.getInicioBloqueio(), bloqueio.getFimBloqueio()));
     }
 
     // --- 3. DISPONIBILIDADE ---
+    // Consulta primeiro o cache de ocupação (médico/dia). Na falta, carrega o dia inteiro com
+    // o índice de bloqueios em memória e uma consulta para agendamentos (não mais duas por slot).
     public List<LocalDateTime> listarHorariosDisponiveis(UUID medicoId, LocalDate data) {
-        List<LocalDateTime> horariosLivres = new ArrayList<>();
-
         // Se a data já passou, não retorna nada
-        if (data.isBefore(LocalDate.now())) return horariosLivres;
+        if (data.isBefore(LocalDate.now())) return new ArrayList<>();
 
-        // Verifica médico
-        if (!medicoRepository.existsById(medicoId)) {
-            throw new RuntimeException("Médico não encontrado.");
-        }
+        OcupacaoDia ocupacao = cacheOcupacao.obter(medicoId, data, () -> carregarOcupacao(medicoId, data));
+
+        // Só retorna horários futuros
+        return ocupacao.listarLivres(LocalDateTime.now());
+    }
+
+    public CacheOcupacaoEstatisticas estatisticasCache() {
+        return cacheOcupacao.estatisticas();
+    }
+
+    // Carga do banco para o cache (também carrega bloqueios/agendamentos de dias sem expediente,
+    // para que a entrada continue correta se a configuração do dia for criada depois)
+    private OcupacaoDia carregarOcupacao(UUID medicoId, LocalDate data) {
+        // Verifica médico (e já traz a duração da consulta)
+        int duracao = duracaoConsulta(medicoId);
 
         // Busca configuração do dia
-        var configOpt = configRepository.findByMedicoIdAndDiaSemana(medicoId, data.getDayOfWeek());
+        var config = configRepository.findByMedicoIdAndDiaSemana(medicoId, data.getDayOfWeek()).orElse(null);
+        OcupacaoDia ocupacao = new OcupacaoDia(data, config, duracao);
+
+        LocalDateTime inicioDia = data.atStartOfDay();
+        LocalDateTime fimDia = data.plusDays(1).atStartOfDay();
 
-        // 4. Usar isAtivo() em vez de getAtivo()
-        if (configOpt.isEmpty() || !configOpt.get().isAtivo()) {
-            return horariosLivres;
+        indiceBloqueios.listar(medicoId, inicioDia, fimDia)
+                .forEach(p -> ocupacao.adicionarBloqueio(p.inicio(), p.fim()));
+        agendamentoRepository.findAgendamentosAtivos(medicoId, inicioDia, fimDia)
+                .forEach(a -> ocupacao.adicionarAgendamento(a.agendamentoId(), a.inicio(), a.fim(), a.expiraEm()));
+
+        return ocupacao;
+    }
+
+    // --- 4. DISPONIBILIDADE POR PERÍODO (Calendário) ---
+    // Carrega configurações, bloqueios e agendamentos do período inteiro uma única vez.
+    // O Stream devolvido é preguiçoso: cada dia só é calculado quando o consumidor pede o próximo.
+    public Stream<DisponibilidadeDiaResponse> listarDisponibilidadePeriodo(UUID medicoId, LocalDate inicio, LocalDate fim) {
+        if (fim.isBefore(inicio)) {
+            throw new RuntimeException("Data final deve ser igual ou posterior à data inicial.");
+        }
+        if (ChronoUnit.DAYS.between(inicio, fim) >= MAX_DIAS_PERIODO) {
+            throw new RuntimeException("O período máximo de consulta é de " + MAX_DIAS_PERIODO + " dias.");
         }
 
-        ConfiguracaoAgenda config = configOpt.get();
+        int duracao = duracaoConsulta(medicoId);
 
-        // Proteção contra loop infinito
-        if (config.getIntervaloMinutos() <= 0) config.setIntervaloMinutos(30);
+        // Dias passados não têm horário livre
+        LocalDate primeiroDia = inicio.isBefore(LocalDate.now()) ? LocalDate.now() : inicio;
+        if (primeiroDia.isAfter(fim)) return Stream.empty();
 
-        // 5. Usar getHoraInicio() da Entidade
-        LocalDateTime slotAtual = LocalDateTime.of(data, config.getHoraInicio());
-        LocalDateTime fimDoDia = LocalDateTime.of(data, config.getHoraFim());
+        LocalDateTime inicioPeriodo = primeiroDia.atStartOfDay();
+        LocalDateTime fimPeriodo = fim.plusDays(1).atStartOfDay();
 
-        // Loop para gerar os slots
-        while (slotAtual.isBefore(fimDoDia)) {
-            LocalDateTime fimSlot = slotAtual.plusMinutes(config.getIntervaloMinutos());
+        Map<DayOfWeek, ConfiguracaoAgenda> configPorDia = new EnumMap<>(DayOfWeek.class);
+        configRepository.findByMedicoId(medicoId).forEach(c -> configPorDia.put(c.getDiaSemana(), c));
 
-            // Só adiciona se o horário for futuro
-            if (slotAtual.isAfter(LocalDateTime.now())) {
+        // Um bloqueio (ex: férias) ou uma consulta que passa da meia-noite tocam mais de um dia
+        Map<LocalDate, List<Periodo>> bloqueiosPorDia = distribuirPorDia(
+                indiceBloqueios.listar(medicoId, inicioPeriodo, fimPeriodo), primeiroDia, fim);
+        Map<LocalDate, List<Periodo>> ocupadosPorDia = distribuirPorDia(
+                agendamentoRepository.findPeriodosOcupados(medicoId, inicioPeriodo, fimPeriodo), primeiroDia, fim);
 
-                // Validação de Bloqueios
-                boolean bloqueado = !bloqueioRepository.findBloqueiosNoIntervalo(medicoId, slotAtual, fimSlot).isEmpty();
+        LocalDateTime agora = LocalDateTime.now();
 
-                // Validação de Agendamentos (AGORA ATIVO)
-                boolean ocupado = agendamentoRepository.existsByMedicoIdAndDataConsulta(medicoId, slotAtual);
+        return primeiroDia.datesUntil(fim.plusDays(1)).map(dia -> {
+            ConfiguracaoAgenda config = configPorDia.get(dia.getDayOfWeek());
+            if (config == null || !config.isAtivo()) {
+                return new DisponibilidadeDiaResponse(dia, List.of());
+            }
+            GradeDisponibilidade grade = montarGrade(dia, config, duracao,
+                    bloqueiosPorDia.getOrDefault(dia, List.of()),
+                    ocupadosPorDia.getOrDefault(dia, List.of()));
+            return new DisponibilidadeDiaResponse(dia, grade.listarLivres(agora));
+        });
+    }
 
-                if (!bloqueado && !ocupado) {
-                    horariosLivres.add(slotAtual);
-                }
+    // Cada período entra em todos os dias que toca, dentro de [primeiroDia, ultimoDia]
+    private static Map<LocalDate, List<Periodo>> distribuirPorDia(List<Periodo> periodos,
+                                                                  LocalDate primeiroDia, LocalDate ultimoDia) {
+        Map<LocalDate, List<Periodo>> porDia = new HashMap<>();
+        for (Periodo p : periodos) {
+            LocalDate dia = p.inicio().toLocalDate().isBefore(primeiroDia) ? primeiroDia : p.inicio().toLocalDate();
+            LocalDate ultimo = p.fim().toLocalDate().isAfter(ultimoDia) ? ultimoDia : p.fim().toLocalDate();
+            for (; !dia.isAfter(ultimo); dia = dia.plusDays(1)) {
+                porDia.computeIfAbsent(dia, d -> new ArrayList<>()).add(p);
             }
-            slotAtual = fimSlot;
         }
-        return horariosLivres;
+        return porDia;
+    }
+
+    // Marca bloqueios e agendamentos na grade do dia
+    private GradeDisponibilidade montarGrade(LocalDate data, ConfiguracaoAgenda config, int duracao,
+                                             List<Periodo> bloqueios, List<Periodo> ocupados) {
+        GradeDisponibilidade grade = new GradeDisponibilidade(data, config, duracao);
+        bloqueios.forEach(p -> grade.ocuparIntervalo(p.inicio(), p.fim()));
+        ocupados.forEach(p -> grade.ocuparIntervalo(p.inicio(), p.fim()));
+        return grade;
+    }
+
+    private int duracaoConsulta(UUID medicoId) {
+        return medicoRepository.findDuracaoConsulta(medicoId)
+                .map(Agendamento::duracaoEfetiva)
+                .orElseThrow(() -> new RuntimeException("Médico não encontrado."));
     }
 }
\ No newline at end of file
@@ -0,0 +1,180 @@
+package com.clinic.api.agenda.service;
+
+import com.clinic.api.agenda.domain.BloqueioAgenda;
+import com.clinic.api.agenda.domain.ConfiguracaoAgenda;
+import com.clinic.api.agenda.domain.OcupacaoDia;
+import com.clinic.api.agenda.dto.CacheOcupacaoEstatisticas;
+import com.clinic.api.agendamento.Agendamento;
+import com.clinic.api.infra.transacao.AposCommit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
+
+/**
+ * Cache LRU (limitado) da ocupação por médico/dia, consultado antes do banco pelo AgendaService.
+ * As escritas (agendar, cancelar, bloqueio, configuração) ATUALIZAM as entradas em cache depois do commit.
+ *
+ * Corrida carga x escrita: cada escrita incrementa a versão da faixa da chave; uma carga que começou
+ * antes da escrita só é guardada se a versão não mudou (senão ela pode ter lido o banco "antigo").
+ *
+ * Os ganchos só enxergam as escritas DESTA instância: agendamentos feitos em outro nó, correções por SQL
+ * e a limpeza agendada de reservas não passam por aqui. Por isso, como no {@link IndiceBloqueios}, cada
+ * carga vale {@code ttlMinutos}; depois disso a entrada conta como miss e é relida do banco.
+ */
+@Component
+public class CacheOcupacao {
+
+    public record Chave(UUID medicoId, LocalDate data) {}
+
+    private record Entrada(OcupacaoDia ocupacao, long carregadaEm) {}
+
+    private static final int FAIXAS = 64;
+
+    private final int capacidade;
+    private final long ttlMillis;
+    private final LinkedHashMap<Chave, Entrada> entradas;     // Protegido por 'this'
+    private final long[] versoes = new long[FAIXAS];         // Protegido por 'this'
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public CacheOcupacao(@Value("${agenda.cache.capacidade:10000}") int capacidade,
+                         @Value("${agenda.cache.ttl-minutos:5}") long ttlMinutos) {
+        this.capacidade = capacidade;
+        this.ttlMillis = ttlMinutos * 60_000;
+        // accessOrder = true: o mais antigo em ACESSO é o primeiro a sair
+        this.entradas = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Chave, Entrada> maisAntiga) {
+                if (size() > CacheOcupacao.this.capacidade) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+    }
+
+    // --- LEITURA ---
+    public OcupacaoDia obter(UUID medicoId, LocalDate data, Supplier<OcupacaoDia> carregador) {
+        Chave chave = new Chave(medicoId, data);
+        long versaoLida;
+
+        synchronized (this) {
+            Entrada atual = valida(entradas.get(chave), System.currentTimeMillis());
+            if (atual != null) {
+                hits.increment();
+                return atual.ocupacao();
+            }
+            versaoLida = versoes[faixa(chave)];
+        }
+
+        misses.increment();
+        long carregadaEm = System.currentTimeMillis(); // Antes da consulta: a idade conta desde a leitura do banco
+        OcupacaoDia carregada = carregador.get();       // Consulta ao banco FORA do lock
+
+        synchronized (this) {
+            if (versoes[faixa(chave)] == versaoLida) {
+                entradas.put(chave, new Entrada(carregada, carregadaEm));
+            }
+        }
+        return carregada;
+    }
+
+    // --- ESCRITAS (write-through após o commit) ---
+    public void registrarAgendamento(Agendamento agendamento) {
+        UUID medicoId = agendamento.getMedico().getId();
+        UUID agendamentoId = agendamento.getId();
+        LocalDateTime inicio = agendamento.getDataConsulta();
+        LocalDateTime fim = agendamento.getDataFimConsulta();
+        LocalDateTime expiraEm = agendamento.getExpiraEm();
+
+        AposCommit.executar(() -> atualizar(new Chave(medicoId, inicio.toLocalDate()),
+                o -> o.adicionarAgendamento(agendamentoId, inicio, fim, expiraEm)));
+    }
+
+    public void removerAgendamento(Agendamento agendamento) {
+        UUID medicoId = agendamento.getMedico().getId();
+        UUID agendamentoId = agendamento.getId();
+        LocalDate data = agendamento.getDataConsulta().toLocalDate();
+
+        AposCommit.executar(() -> atualizar(new Chave(medicoId, data), o -> o.cancelarAgendamento(agendamentoId)));
+    }
+
+    public void registrarBloqueio(BloqueioAgenda bloqueio) {
+        UUID medicoId = bloqueio.getMedico().getId();
+        LocalDateTime inicio = bloqueio.getInicioBloqueio();
+        LocalDateTime fim = bloqueio.getFimBloqueio();
+
+        // Um bloqueio pode cobrir muitos dias (férias): percorre só o que está em cache
+        AposCommit.executar(() -> atualizarOnde(
+                c -> c.medicoId().equals(medicoId)
+                        && !c.data().isBefore(inicio.toLocalDate())
+                        && !c.data().isAfter(fim.toLocalDate()),
+                o -> o.adicionarBloqueio(inicio, fim)));
+    }
+
+    // Intervalos de bloqueio são mesclados na entrada (não dá para subtrair um só):
+    // descarta os dias afetados, que recarregam do banco na próxima consulta
+    public void removerBloqueio(BloqueioAgenda bloqueio) {
+        UUID medicoId = bloqueio.getMedico().getId();
+        LocalDate inicio = bloqueio.getInicioBloqueio().toLocalDate();
+        LocalDate fim = bloqueio.getFimBloqueio().toLocalDate();
+
+        AposCommit.executar(() -> descartarOnde(
+                c -> c.medicoId().equals(medicoId) && !c.data().isBefore(inicio) && !c.data().isAfter(fim)));
+    }
+
+    public void atualizarConfiguracao(ConfiguracaoAgenda config) {
+        UUID medicoId = config.getMedicoId();
+        var diaSemana = config.getDiaSemana();
+
+        AposCommit.executar(() -> atualizarOnde(
+                c -> c.medicoId().equals(medicoId) && c.data().getDayOfWeek() == diaSemana,
+                o -> o.trocarConfiguracao(config)));
+    }
+
+    // --- MÉTRICAS ---
+    public synchronized CacheOcupacaoEstatisticas estatisticas() {
+        return new CacheOcupacaoEstatisticas(hits.sum(), misses.sum(), evictions.sum(), entradas.size(), capacidade);
+    }
+
+    // --- AUXILIARES ---
+    private synchronized void atualizar(Chave chave, Consumer<OcupacaoDia> mudanca) {
+        versoes[faixa(chave)]++;
+        Entrada entrada = entradas.get(chave);
+        if (entrada != null) mudanca.accept(entrada.ocupacao());
+    }
+
+    // Escritas raras e que podem tocar várias chaves: invalidam todas as cargas em andamento
+    private synchronized void atualizarOnde(Predicate<Chave> filtro, Consumer<OcupacaoDia> mudanca) {
+        for (int i = 0; i < FAIXAS; i++) versoes[i]++;
+        for (Map.Entry<Chave, Entrada> entrada : entradas.entrySet()) {
+            if (filtro.test(entrada.getKey())) mudanca.accept(entrada.getValue().ocupacao());
+        }
+    }
+
+    private synchronized void descartarOnde(Predicate<Chave> filtro) {
+        for (int i = 0; i < FAIXAS; i++) versoes[i]++;
+        entradas.keySet().removeIf(filtro);
+    }
+
+    // Vencida: conta como ausente (a próxima carga substitui a entrada no mapa)
+    private Entrada valida(Entrada entrada, long agora) {
+        return entrada != null && agora - entrada.carregadaEm() < ttlMillis ? entrada : null;
+    }
+
+    private static int faixa(Chave chave) {
+        return Math.floorMod(chave.hashCode(), FAIXAS);
+    }
+}
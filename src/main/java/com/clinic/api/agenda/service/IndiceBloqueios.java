@@ -0,0 +1,157 @@
+package com.clinic.api.agenda.service;
+
+import com.clinic.api.agenda.domain.BloqueioAgenda;
+import com.clinic.api.agenda.domain.BloqueioAgendaRepository;
+import com.clinic.api.agenda.domain.IntervalosBloqueio;
+import com.clinic.api.agenda.domain.Periodo;
+import com.clinic.api.infra.transacao.AposCommit;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Índice em memória dos bloqueios de cada médico (caminho quente da disponibilidade).
+ * Na primeira consulta de um médico carrega os bloqueios que ainda não terminaram;
+ * depois disso, sobreposição e listagem são resolvidas no {@link IntervalosBloqueio} em O(log n).
+ * Consultas anteriores ao início da carga caem no banco (índice GiST sobre o tsrange).
+ *
+ * Memória limitada, como o {@link CacheOcupacao}: no máximo {@code capacidade} médicos (sai o usado há mais
+ * tempo), e cada carga vale {@code ttlMinutos}; depois disso é refeita, sem os bloqueios que já terminaram.
+ */
+@Component
+public class IndiceBloqueios {
+
+    private record Entrada(LocalDateTime cobreDesde, IntervalosBloqueio intervalos, long carregadaEm) {}
+
+    private final BloqueioAgendaRepository repository;
+    private final int capacidade;
+    private final long ttlMillis;
+    private final LinkedHashMap<UUID, Entrada> porMedico; // Protegido por 'this'
+    private long versao;                                  // Protegido por 'this': muda a cada bloqueio registrado
+
+    public IndiceBloqueios(BloqueioAgendaRepository repository,
+                           @Value("${agenda.bloqueios.capacidade:5000}") int capacidade,
+                           @Value("${agenda.bloqueios.ttl-minutos:60}") long ttlMinutos) {
+        this.repository = repository;
+        this.capacidade = capacidade;
+        this.ttlMillis = ttlMinutos * 60_000;
+        // accessOrder = true: o médico consultado há mais tempo é o primeiro a sair
+        this.porMedico = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<UUID, Entrada> maisAntiga) {
+                return size() > IndiceBloqueios.this.capacidade;
+            }
+        };
+    }
+
+    public List<Periodo> listar(UUID medicoId, LocalDateTime inicio, LocalDateTime fim) {
+        Entrada entrada = entrada(medicoId);
+        if (inicio.isBefore(entrada.cobreDesde())) {
+            return repository.findBloqueiosNoIntervalo(medicoId, inicio, fim).stream()
+                    .map(b -> new Periodo(b.getInicioBloqueio(), b.getFimBloqueio()))
+                    .toList();
+        }
+        return entrada.intervalos().listar(inicio, fim);
+    }
+
+    public boolean estaBloqueado(UUID medicoId, LocalDateTime inicio, LocalDateTime fim) {
+        Entrada entrada = entrada(medicoId);
+        if (inicio.isBefore(entrada.cobreDesde())) {
+            return !repository.findBloqueiosNoIntervalo(medicoId, inicio, fim).isEmpty();
+        }
+        return entrada.intervalos().sobrepoe(inicio, fim);
+    }
+
+    // Aquecimento em lote (ex: todos os médicos de uma especialidade): uma consulta só
+    public void carregar(Collection<UUID> medicoIds) {
+        List<UUID> faltando;
+        long versaoLida;
+        synchronized (this) {
+            long agora = System.currentTimeMillis();
+            faltando = medicoIds.stream().distinct().filter(id -> valida(porMedico.get(id), agora) == null).toList();
+            versaoLida = versao;
+        }
+        if (faltando.isEmpty()) return;
+
+        LocalDateTime desde = LocalDate.now().atStartOfDay();
+        Map<UUID, IntervalosBloqueio> carregados = new HashMap<>();
+        faltando.forEach(id -> carregados.put(id, new IntervalosBloqueio()));
+        repository.findIntervalosDosMedicosAPartirDe(faltando, desde)
+                .forEach(i -> carregados.get(i.medicoId()).adicionar(i.inicio(), i.fim()));
+
+        synchronized (this) {
+            // Um bloqueio gravado durante a carga pode não estar nela: descarta (a próxima consulta recarrega)
+            if (versao != versaoLida) return;
+            long agora = System.currentTimeMillis();
+            carregados.forEach((id, intervalos) -> porMedico.put(id, new Entrada(desde, intervalos, agora)));
+        }
+    }
+
+    public void registrar(BloqueioAgenda bloqueio) {
+        UUID medicoId = bloqueio.getMedico().getId();
+        LocalDateTime inicio = bloqueio.getInicioBloqueio();
+        LocalDateTime fim = bloqueio.getFimBloqueio();
+
+        AposCommit.executar(() -> {
+            synchronized (this) {
+                versao++;
+                // Médico ainda não carregado: nada a fazer, a carga lerá o bloqueio do banco
+                porMedico.computeIfPresent(medicoId, (id, entrada) -> {
+                    entrada.intervalos().adicionar(inicio, fim);
+                    return entrada;
+                });
+            }
+        });
+    }
+
+    // Os intervalos são mesclados (não dá para subtrair um bloqueio só): descarta o médico,
+    // a próxima consulta recarrega do banco
+    public void remover(BloqueioAgenda bloqueio) {
+        UUID medicoId = bloqueio.getMedico().getId();
+
+        AposCommit.executar(() -> {
+            synchronized (this) {
+                versao++;
+                porMedico.remove(medicoId);
+            }
+        });
+    }
+
+    public synchronized int tamanho() {
+        return porMedico.size();
+    }
+
+    // Consulta ao banco FORA do lock; como no CacheOcupacao, a carga só é guardada se nenhum bloqueio
+    // foi registrado ou removido enquanto ela lia (senão pode ter lido o banco "antigo")
+    private Entrada entrada(UUID medicoId) {
+        long versaoLida;
+        synchronized (this) {
+            Entrada atual = valida(porMedico.get(medicoId), System.currentTimeMillis());
+            if (atual != null) return atual;
+            versaoLida = versao;
+        }
+
+        LocalDateTime desde = LocalDate.now().atStartOfDay();
+        IntervalosBloqueio intervalos = new IntervalosBloqueio();
+        repository.findPeriodosAPartirDe(medicoId, desde).forEach(p -> intervalos.adicionar(p.inicio(), p.fim()));
+        Entrada carregada = new Entrada(desde, intervalos, System.currentTimeMillis());
+
+        synchronized (this) {
+            if (versao == versaoLida) porMedico.put(medicoId, carregada);
+        }
+        return carregada;
+    }
+
+    // Null se ausente ou vencida (a vencida continua no mapa até a próxima carga ou até sair pelo LRU)
+    private Entrada valida(Entrada entrada, long agora) {
+        return entrada != null && agora - entrada.carregadaEm() < ttlMillis ? entrada : null;
+    }
+}
@@ -0,0 +1,156 @@
+package com.clinic.api.agenda.service;
+
+import com.clinic.api.agenda.domain.*;
+import com.clinic.api.agenda.dto.PrimeiroHorarioResponse;
+import com.clinic.api.agendamento.Agendamento;
+import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import com.clinic.api.medico.domain.MedicoRepository;
+import com.clinic.api.medico.dto.MedicoResumoDTO;
+import com.clinic.api.medico.enun.Especialidade;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+/**
+ * "Qual o médico de CARDIOLOGIA com o horário livre mais cedo?"
+ * Avalia todos os médicos da especialidade no servidor, com consultas em lote (por lista de IDs)
+ * e cálculo paralelo da grade de cada médico num pool limitado.
+ */
+@Service
+public class PrimeiroHorarioService {
+
+    private static final int JANELA_DIAS = 7;      // Dias carregados por rodada de consultas
+    private static final int MAX_LIMITE = 20;
+    private static final int MAX_HORIZONTE_DIAS = 90;
+
+    private final MedicoRepository medicoRepository;
+    private final ConfiguracaoAgendaRepository configRepository;
+    private final IndiceBloqueios indiceBloqueios;
+    private final AgendamentoRepository agendamentoRepository;
+    private final ExecutorService executor;
+
+    public PrimeiroHorarioService(MedicoRepository medicoRepository,
+                                  ConfiguracaoAgendaRepository configRepository,
+                                  IndiceBloqueios indiceBloqueios,
+                                  AgendamentoRepository agendamentoRepository,
+                                  @Qualifier("disponibilidadeExecutor") ExecutorService executor) {
+        this.medicoRepository = medicoRepository;
+        this.configRepository = configRepository;
+        this.indiceBloqueios = indiceBloqueios;
+        this.agendamentoRepository = agendamentoRepository;
+        this.executor = executor;
+    }
+
+    public List<PrimeiroHorarioResponse> buscarPrimeirosHorarios(Especialidade especialidade, int limite, int horizonteDias) {
+        if (limite < 1 || limite > MAX_LIMITE) {
+            throw new RuntimeException("O limite deve estar entre 1 e " + MAX_LIMITE + ".");
+        }
+        if (horizonteDias < 1 || horizonteDias > MAX_HORIZONTE_DIAS) {
+            throw new RuntimeException("O horizonte deve estar entre 1 e " + MAX_HORIZONTE_DIAS + " dias.");
+        }
+
+        Map<UUID, MedicoResumoDTO> medicos = medicoRepository.findResumoAtivosPorEspecialidade(especialidade).stream()
+                .collect(Collectors.toMap(MedicoResumoDTO::id, m -> m));
+        if (medicos.isEmpty()) return List.of();
+
+        // 1 consulta: configuração semanal de todos os médicos
+        Map<UUID, Map<DayOfWeek, ConfiguracaoAgenda>> configs = new HashMap<>();
+        for (ConfiguracaoAgenda c : configRepository.findByMedicoIdIn(medicos.keySet())) {
+            if (c.isAtivo()) configs.computeIfAbsent(c.getMedicoId(), id -> new EnumMap<>(DayOfWeek.class)).put(c.getDiaSemana(), c);
+        }
+
+        // Médicos sem nenhum dia configurado nunca terão horário
+        Set<UUID> pendentes = new HashSet<>(configs.keySet());
+        if (pendentes.isEmpty()) return List.of();
+
+        // Bloqueios vêm do índice em memória; os médicos ainda fora dele são carregados numa consulta só
+        indiceBloqueios.carregar(pendentes);
+        List<PrimeiroHorarioResponse> encontrados = new ArrayList<>();
+
+        LocalDateTime agora = LocalDateTime.now();
+        LocalDate hoje = agora.toLocalDate();
+        LocalDate fimHorizonte = hoje.plusDays(horizonteDias);
+
+        // Avança em janelas: assim que houver candidatos suficientes, as janelas seguintes
+        // (necessariamente mais tardias) nem chegam a ser consultadas.
+        for (LocalDate inicioJanela = hoje;
+             inicioJanela.isBefore(fimHorizonte) && encontrados.size() < limite && !pendentes.isEmpty();
+             inicioJanela = inicioJanela.plusDays(JANELA_DIAS)) {
+
+            LocalDate fimJanela = inicioJanela.plusDays(JANELA_DIAS).isAfter(fimHorizonte) ? fimHorizonte : inicioJanela.plusDays(JANELA_DIAS);
+            LocalDateTime de = inicioJanela.atStartOfDay();
+            LocalDateTime ate = fimJanela.atStartOfDay();
+
+            // 1 consulta por janela, para todos os médicos pendentes de uma vez
+            Map<UUID, List<IntervaloMedico>> ocupados = agendamentoRepository
+                    .findHorariosOcupadosDosMedicos(pendentes, de, ate).stream()
+                    .collect(Collectors.groupingBy(IntervaloMedico::medicoId));
+
+            List<Callable<Optional<PrimeiroHorarioResponse>>> tarefas = new ArrayList<>();
+            for (UUID medicoId : pendentes) {
+                LocalDate diaInicial = inicioJanela;
+                MedicoResumoDTO medico = medicos.get(medicoId);
+                int duracao = Agendamento.duracaoEfetiva(medico.duracaoConsulta());
+                tarefas.add(() -> primeiroLivreNaJanela(duracao, diaInicial, fimJanela, agora,
+                        configs.get(medicoId),
+                        indiceBloqueios.listar(medicoId, de, ate),
+                        ocupados.getOrDefault(medicoId, List.of()))
+                        .map(horario -> new PrimeiroHorarioResponse(medicoId, medico.nome(), horario)));
+            }
+
+            for (Optional<PrimeiroHorarioResponse> resultado : executar(tarefas)) {
+                resultado.ifPresent(r -> {
+                    encontrados.add(r);
+                    pendentes.remove(r.medicoId());
+                });
+            }
+        }
+
+        return encontrados.stream()
+                .sorted(Comparator.comparing(PrimeiroHorarioResponse::horario))
+                .limit(limite)
+                .toList();
+    }
+
+    // Percorre os dias da janela em ordem e para no primeiro slot livre do médico
+    private Optional<LocalDateTime> primeiroLivreNaJanela(int duracao, LocalDate inicio, LocalDate fim, LocalDateTime agora,
+                                                          Map<DayOfWeek, ConfiguracaoAgenda> configPorDia,
+                                                          List<Periodo> bloqueios, List<IntervaloMedico> ocupados) {
+        for (LocalDate dia = inicio; dia.isBefore(fim); dia = dia.plusDays(1)) {
+            ConfiguracaoAgenda config = configPorDia.get(dia.getDayOfWeek());
+            if (config == null) continue;
+
+            GradeDisponibilidade grade = new GradeDisponibilidade(dia, config, duracao);
+            bloqueios.forEach(b -> grade.ocuparIntervalo(b.inicio(), b.fim()));
+            ocupados.forEach(a -> grade.ocuparIntervalo(a.inicio(), a.fim()));
+
+            List<LocalDateTime> livres = grade.listarLivres(agora);
+            if (!livres.isEmpty()) return Optional.of(livres.get(0));
+        }
+        return Optional.empty();
+    }
+
+    private <T> List<T> executar(List<Callable<T>> tarefas) {
+        try {
+            List<T> resultados = new ArrayList<>(tarefas.size());
+            for (Future<T> futuro : executor.invokeAll(tarefas)) {
+                resultados.add(futuro.get());
+            }
+            return resultados;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Busca de horários interrompida.", e);
+        } catch (ExecutionException e) {
+            throw new RuntimeException("Erro ao calcular disponibilidade dos médicos.", e.getCause());
+        }
+    }
+}
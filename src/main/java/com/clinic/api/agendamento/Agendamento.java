@@ -9,10 +9,14 @@ import java.time.LocalDateTime;
 import java.util.UUID;
 import java.util.Objects;
 
+// Particionada por mês de data_consulta (V11): PK no banco é (id, data_consulta)
 @Entity
 @Table(name = "tb_agendamento")
 public class Agendamento {
 
+    public static final int DURACAO_PADRAO_MINUTOS = 30;
+    public static final int DURACAO_MAXIMA_MINUTOS = 8 * 60; // Limita a janela das buscas por sobreposição
+
     @Id
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
@@ -28,6 +32,10 @@ public class Agendamento {
     @Column(name = "data_consulta", nullable = false)
     private LocalDateTime dataConsulta;
 
+    // Fim da consulta (dataConsulta + duração do médico): o agendamento ocupa [dataConsulta, dataFimConsulta)
+    @Column(name = "data_fim_consulta", nullable = false)
+    private LocalDateTime dataFimConsulta;
+
     // --- DADOS DO CONVÊNIO / PAGAMENTO ---
     @Column(name = "nome_convenio")
     private String nomeConvenio;
@@ -56,10 +64,33 @@ public class Agendamento {
     @Column(name = "data_cadastro")
     private LocalDateTime dataCadastro;
 
+    // Só para reservas (EM_PROCESSAMENTO): depois disso o horário volta a ficar livre. Null = definitivo
+    @Column(name = "expira_em")
+    private LocalDateTime expiraEm;
+
+    // Consultas de uma mesma série (agendadas juntas, com recorrência). Null = avulsa
+    @Column(name = "serie_id")
+    private UUID serieId;
+
+    // Lock otimista: escritas concorrentes na mesma linha falham em vez de se sobrescreverem
+    @Version
+    @Column(nullable = false)
+    private Long versao;
+
     @PrePersist
     public void prePersist() {
         if(this.dataCadastro == null) this.dataCadastro = LocalDateTime.now();
         if(this.status == null) this.status = StatusAgendamento.AGENDADO;
+        if(this.dataFimConsulta == null && this.dataConsulta != null) {
+            Integer duracao = this.medico != null ? this.medico.getDuracaoConsulta() : null;
+            this.dataFimConsulta = this.dataConsulta.plusMinutes(duracaoEfetiva(duracao));
+        }
+    }
+
+    // Duração usada nos choques de horário: padrão quando o médico não configurou, com teto
+    public static int duracaoEfetiva(Integer duracaoConsulta) {
+        if (duracaoConsulta == null || duracaoConsulta <= 0) return DURACAO_PADRAO_MINUTOS;
+        return Math.min(duracaoConsulta, DURACAO_MAXIMA_MINUTOS);
     }
 
     public Agendamento() {}
@@ -81,6 +112,8 @@ public class Agendamento {
     public void setPaciente(Paciente paciente) { this.paciente = paciente; }
     public LocalDateTime getDataConsulta() { return dataConsulta; }
     public void setDataConsulta(LocalDateTime dataConsulta) { this.dataConsulta = dataConsulta; }
+    public LocalDateTime getDataFimConsulta() { return dataFimConsulta; }
+    public void setDataFimConsulta(LocalDateTime dataFimConsulta) { this.dataFimConsulta = dataFimConsulta; }
     public String getNomeConvenio() { return nomeConvenio; }
     public void setNomeConvenio(String nomeConvenio) { this.nomeConvenio = nomeConvenio; }
     public String getNumeroCarteirinha() { return numeroCarteirinha; }
@@ -97,6 +130,11 @@ public class Agendamento {
     public void setStatus(StatusAgendamento status) { this.status = status; }
     public LocalDateTime getDataCadastro() { return dataCadastro; }
     public void setDataCadastro(LocalDateTime dataCadastro) { this.dataCadastro = dataCadastro; }
+    public LocalDateTime getExpiraEm() { return expiraEm; }
+    public void setExpiraEm(LocalDateTime expiraEm) { this.expiraEm = expiraEm; }
+    public UUID getSerieId() { return serieId; }
+    public void setSerieId(UUID serieId) { this.serieId = serieId; }
+    public Long getVersao() { return versao; }
 
     @Override
     public boolean equals(Object o) {
@@ -2,20 +2,31 @@ package com.clinic.api.agendamento.controller;
 
 import com.clinic.api.agenda.service.AgendaService;
 import com.clinic.api.agendamento.Agendamento;
+import com.clinic.api.agendamento.domain.FiltroAgendamentos;
+import com.clinic.api.agendamento.domain.StatusAgendamento;
+import com.clinic.api.agendamento.dto.AgendamentoLoteResponse;
 import com.clinic.api.agendamento.dto.AgendamentoRequest;
 import com.clinic.api.agendamento.dto.AgendamentoResponse;
 import com.clinic.api.agendamento.dto.AtendimentoDiarioDTO;
+import com.clinic.api.agendamento.dto.PaginaAgendamentosResponse;
+import com.clinic.api.agendamento.dto.SerieAgendamentoRequest;
+import com.clinic.api.agendamento.dto.SerieAgendamentoResponse;
+import com.clinic.api.agendamento.service.AgendamentoLoteService;
 import com.clinic.api.agendamento.service.AgendamentoService;
+import com.clinic.api.agendamento.service.FeedAgendaService;
+import com.clinic.api.agendamento.service.ReservaHorarioService;
+import com.clinic.api.infra.idempotencia.RegistroIdempotencia;
 import jakarta.validation.Valid;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.UUID;
-import java.util.stream.Collectors;
 
 @RestController
 @RequestMapping("/agendamentos")
@@ -23,10 +34,20 @@ public class AgendamentoController {
 
     private final AgendamentoService service;
     private final AgendaService agendaService;
+    private final AgendamentoLoteService loteService;
+    private final ReservaHorarioService reservaService;
+    private final RegistroIdempotencia idempotencia;
+    private final FeedAgendaService feedService;
 
-    public AgendamentoController(AgendamentoService service, AgendaService agendaService) {
+    public AgendamentoController(AgendamentoService service, AgendaService agendaService,
+                                 AgendamentoLoteService loteService, ReservaHorarioService reservaService,
+                                 RegistroIdempotencia idempotencia, FeedAgendaService feedService) {
         this.service = service;
         this.agendaService = agendaService;
+        this.loteService = loteService;
+        this.reservaService = reservaService;
+        this.idempotencia = idempotencia;
+        this.feedService = feedService;
     }
 
     // --- Motor de Disponibilidade ---
@@ -38,19 +59,60 @@ public class AgendamentoController {
     }
 
     // --- AGENDAR (Refatorado: Passa o DTO para o Service) ---
+    // Idempotency-Key (opcional): reenvios do app com a mesma chave recebem o agendamento já criado
     @PostMapping
-    public ResponseEntity<AgendamentoResponse> agendar(@RequestBody @Valid AgendamentoRequest request) {
-        var response = service.agendar(request);
+    public ResponseEntity<AgendamentoResponse> agendar(
+            @RequestHeader(value = RegistroIdempotencia.HEADER, required = false) String chaveIdempotencia,
+            @RequestBody @Valid AgendamentoRequest request) {
+        var response = idempotencia.executar("agendamento", chaveIdempotencia, impressao(request),
+                () -> service.agendar(request));
         return ResponseEntity.status(HttpStatus.CREATED).body(response);
     }
 
-    // --- LISTAR TODOS ---
+    // --- AGENDAR EM LOTE (campanhas): validação item a item, resultado por índice ---
+    @PostMapping("/lote")
+    public ResponseEntity<AgendamentoLoteResponse> agendarEmLote(@RequestBody List<AgendamentoRequest> itens) {
+        return ResponseEntity.ok(loteService.agendarEmLote(itens));
+    }
+
+    // --- SÉRIE DE CONSULTAS (ex: semanal por 3 meses): resultado por ocorrência ---
+    @PostMapping("/series")
+    public ResponseEntity<SerieAgendamentoResponse> agendarSerie(@RequestBody @Valid SerieAgendamentoRequest request) {
+        return ResponseEntity.ok(loteService.agendarSerie(request));
+    }
+
+    // --- RESERVA TEMPORÁRIA (segura o horário enquanto o paciente paga) ---
+    @PostMapping("/reservas")
+    public ResponseEntity<AgendamentoResponse> reservar(@RequestBody @Valid AgendamentoRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(reservaService.reservar(request));
+    }
+
+    @PatchMapping("/reservas/{id}/confirmar")
+    public ResponseEntity<AgendamentoResponse> confirmarReserva(@PathVariable UUID id) {
+        return ResponseEntity.ok(reservaService.confirmar(id));
+    }
+
+    @DeleteMapping("/reservas/{id}")
+    public ResponseEntity<Void> liberarReserva(@PathVariable UUID id) {
+        reservaService.liberar(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    // --- LISTAR (paginado): GET /agendamentos?medicoId=...&status=AGENDADO&de=2025-01-01&tamanho=50
+    // Próxima página: repetir a chamada com cursor=proximoCursor
     @GetMapping
-    public ResponseEntity<List<AgendamentoResponse>> listarTodos() {
-        List<AgendamentoResponse> lista = service.listarTodos().stream()
-                .map(AgendamentoResponse::new)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(lista);
+    public ResponseEntity<PaginaAgendamentosResponse> listar(
+            @RequestParam(required = false) UUID medicoId,
+            @RequestParam(required = false) UUID pacienteId,
+            @RequestParam(required = false) StatusAgendamento status,
+            @RequestParam(required = false) LocalDate de,
+            @RequestParam(required = false) LocalDate ate,
+            @RequestParam(required = false) String cursor,
+            @RequestParam(required = false) Integer tamanho) {
+        FiltroAgendamentos filtro = new FiltroAgendamentos(medicoId, pacienteId, status,
+                de != null ? de.atStartOfDay() : null,
+                ate != null ? ate.plusDays(1).atStartOfDay() : null); // "ate" inclui o dia inteiro
+        return ResponseEntity.ok(service.listar(filtro, cursor, tamanho));
     }
 
     // --- BUSCAR POR ID ---
@@ -80,4 +142,26 @@ public class AgendamentoController {
             @RequestParam LocalDate data) {
         return ResponseEntity.ok(service.listarAtendimentosDoDia(medicoId, data));
     }
-}
\ No newline at end of file
+
+    // --- DASHBOARD DIÁRIO AO VIVO (SSE): snapshot e depois deltas, no lugar do polling de /diario ---
+    // URL: GET /agendamentos/diario/stream?medicoId=...&data=...  (ou ?clinicaId=...&data=...)
+    @GetMapping(value = "/diario/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter acompanharDiario(
+            @RequestParam(required = false) UUID medicoId,
+            @RequestParam(required = false) UUID clinicaId,
+            @RequestParam LocalDate data,
+            @RequestHeader(value = "Last-Event-ID", required = false) String ultimoEventoId) {
+        if ((medicoId == null) == (clinicaId == null)) {
+            throw new RuntimeException("Informe medicoId ou clinicaId (apenas um).");
+        }
+        return medicoId != null
+                ? feedService.assinarMedico(medicoId, data, ultimoEventoId)
+                : feedService.assinarClinica(clinicaId, data, ultimoEventoId);
+    }
+
+    private static String impressao(AgendamentoRequest request) {
+        return String.join("|", String.valueOf(request.getMedicoId()), String.valueOf(request.getPacienteId()),
+                String.valueOf(request.getDataConsulta()), String.valueOf(request.getFormaPagamento()),
+                String.valueOf(request.getNomeConvenio()), String.valueOf(request.getNumeroCarteirinha()));
+    }
+}
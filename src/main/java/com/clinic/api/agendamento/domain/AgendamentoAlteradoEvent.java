@@ -0,0 +1,21 @@
+package com.clinic.api.agendamento.domain;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Despachado pelo relay do outbox, fora da transação do agendamento (entrega pelo menos uma vez:
+// ouvintes devem tolerar repetição; 'sequencia' é crescente e única)
+public record AgendamentoAlteradoEvent(
+        Long sequencia,
+        TipoEventoAgendamento tipo,
+        UUID agendamentoId,
+        UUID medicoId,
+        UUID pacienteId,
+        LocalDateTime dataConsulta,
+        LocalDateTime ocorridoEm
+) {
+    public AgendamentoAlteradoEvent(EventoAgendamento evento) {
+        this(evento.getId(), evento.getTipo(), evento.getAgendamentoId(), evento.getMedicoId(),
+                evento.getPacienteId(), evento.getDataConsulta(), evento.getOcorridoEm());
+    }
+}
@@ -1,20 +1,36 @@
 package com.clinic.api.agendamento.domain;
 
+import com.clinic.api.agenda.domain.HorarioAgendado;
+import com.clinic.api.agenda.domain.IntervaloMedico;
+import com.clinic.api.agenda.domain.Periodo;
 import com.clinic.api.agendamento.Agendamento;
 import com.clinic.api.agendamento.domain.StatusAgendamento;
+import com.clinic.api.agendamento.dto.AtendimentoDiarioDTO;
+import com.clinic.api.agendamento.dto.ResumoAgendaMedicoDTO;
 import com.clinic.api.medico.enun.Especialidade;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 import java.util.UUID;
 
 @Repository
-public interface AgendamentoRepository extends JpaRepository<Agendamento, UUID> {
+public interface AgendamentoRepository extends JpaRepository<Agendamento, UUID>, JpaSpecificationExecutor<Agendamento> {
+
+    // Agendamentos cancelados e reservas vencidas (ainda não apagadas pela limpeza) não ocupam horário
+    String FILTRO_ATIVOS = " AND a.status NOT IN (" +
+            "com.clinic.api.agendamento.domain.StatusAgendamento.CANCELADO_PACIENTE, " +
+            "com.clinic.api.agendamento.domain.StatusAgendamento.CANCELADO_MEDICO)" +
+            " AND (a.expiraEm IS NULL OR a.expiraEm > :agora)";
 
     // Buscas padrão
     List<Agendamento> findByMedicoId(UUID medicoId);
@@ -23,9 +39,163 @@ public interface AgendamentoRepository extends JpaRepository<Agendamento, UUID>
     // Busca para o Dashboard Diário
     List<Agendamento> findByMedicoIdAndDataConsultaBetweenOrderByDataConsultaAsc(UUID medicoId, LocalDateTime start, LocalDateTime end);
 
+    // Lista da recepção: uma consulta só, direto no DTO (sem carregar Agendamento/Medico/Paciente)
+    @Query("SELECT new com.clinic.api.agendamento.dto.AtendimentoDiarioDTO(" +
+            "a.id, a.dataConsulta, p.nome, m.especialidade, a.status, a.statusPagamento, a.nomeConvenio) " +
+            "FROM Agendamento a JOIN a.paciente p JOIN a.medico m " +
+            "WHERE m.id = :medicoId AND a.dataConsulta >= :inicio AND a.dataConsulta < :fim " +
+            "ORDER BY a.dataConsulta")
+    List<AtendimentoDiarioDTO> findAtendimentosDoDia(@Param("medicoId") UUID medicoId,
+                                                     @Param("inicio") LocalDateTime inicio,
+                                                     @Param("fim") LocalDateTime fim);
+
+    // Dashboard da clínica: os números do resumo do dia de todos os médicos numa consulta (GROUP BY médico).
+    // Mesmos critérios do DashboardService: previsão soma tudo; realizado, pago ou aprovado pelo convênio
+    @Query("SELECT new com.clinic.api.agendamento.dto.ResumoAgendaMedicoDTO(m.id, count(a), " +
+            "sum(CASE WHEN a.statusPagamento = 'PENDENTE' AND p.atendimentoParticular = true THEN 1L ELSE 0L END), " +
+            "coalesce(sum(a.valorConsulta), 0bd), " +
+            "coalesce(sum(CASE WHEN a.statusPagamento IN ('PAGO', 'CONVENIO_APROVADO') THEN a.valorConsulta END), 0bd)) " +
+            "FROM Agendamento a JOIN a.paciente p JOIN a.medico m " +
+            "WHERE m.clinica.id = :clinicaId AND a.dataConsulta >= :inicio AND a.dataConsulta < :fim " +
+            "GROUP BY m.id")
+    List<ResumoAgendaMedicoDTO> findResumoDoDiaPorMedico(@Param("clinicaId") UUID clinicaId,
+                                                         @Param("inicio") LocalDateTime inicio,
+                                                         @Param("fim") LocalDateTime fim);
+
+    // Feed da recepção (SSE): foto inicial do dia de um ou vários médicos (clínica), mesma projeção
+    @Query("SELECT new com.clinic.api.agendamento.dto.AtendimentoDiarioDTO(" +
+            "m.id, a.id, a.dataConsulta, p.nome, m.especialidade, a.status, a.statusPagamento, a.nomeConvenio) " +
+            "FROM Agendamento a JOIN a.paciente p JOIN a.medico m " +
+            "WHERE m.id IN :medicoIds AND a.dataConsulta >= :inicio AND a.dataConsulta < :fim " +
+            "ORDER BY a.dataConsulta, a.id")
+    List<AtendimentoDiarioDTO> findAtendimentosDoDiaDosMedicos(@Param("medicoIds") Collection<UUID> medicoIds,
+                                                               @Param("inicio") LocalDateTime inicio,
+                                                               @Param("fim") LocalDateTime fim);
+
+    // Feed da recepção: linha atualizada de um agendamento que mudou
+    @Query("SELECT new com.clinic.api.agendamento.dto.AtendimentoDiarioDTO(" +
+            "m.id, a.id, a.dataConsulta, p.nome, m.especialidade, a.status, a.statusPagamento, a.nomeConvenio) " +
+            "FROM Agendamento a JOIN a.paciente p JOIN a.medico m WHERE a.id = :id")
+    Optional<AtendimentoDiarioDTO> findAtendimentoDoFeed(@Param("id") UUID id);
+
     // Validações de Choque de Horário (Simples)
     boolean existsByMedicoIdAndDataConsulta(UUID medicoId, LocalDateTime dataConsulta);
 
+    // Choques de horário (médico e paciente) entre agendamentos ativos: garantidos por EXCLUDE USING gist
+    // sobre o intervalo [data_consulta, data_fim_consulta) (ver V4__agendamento_periodo.sql). Desde a V11, uma por
+    // partição mensal (nome + sufixo _AAAA_MM) e um gatilho para a virada do mês: a mensagem sempre contém o prefixo
+    String RESTRICAO_HORARIO_MEDICO = "ex_agendamento_medico_periodo";
+    String RESTRICAO_HORARIO_PACIENTE = "ex_agendamento_paciente_periodo";
+
+    // As buscas por sobreposição com [inicio, fim) só olham consultas que começam a partir de
+    // inicio - DURACAO_MAXIMA: assim o índice (medico_id, data_consulta) limita a varredura dos dois lados
+    String SOBREPOE_JANELA = " AND a.dataConsulta >= :inicioBusca AND a.dataConsulta < :fim AND a.dataFimConsulta > :inicio";
+
+    // Motor de Disponibilidade: períodos já reservados do médico que tocam o intervalo, numa única consulta
+    default List<Periodo> findPeriodosOcupados(UUID medicoId, LocalDateTime inicio, LocalDateTime fim) {
+        return findPeriodosOcupadosNaJanela(medicoId, inicioBusca(inicio), inicio, fim, LocalDateTime.now());
+    }
+
+    @Query("SELECT new com.clinic.api.agenda.domain.Periodo(a.dataConsulta, a.dataFimConsulta) FROM Agendamento a " +
+            "WHERE a.medico.id = :medicoId" + SOBREPOE_JANELA + FILTRO_ATIVOS)
+    List<Periodo> findPeriodosOcupadosNaJanela(@Param("medicoId") UUID medicoId,
+                                               @Param("inicioBusca") LocalDateTime inicioBusca,
+                                               @Param("inicio") LocalDateTime inicio,
+                                               @Param("fim") LocalDateTime fim,
+                                               @Param("agora") LocalDateTime agora);
+
+    // Cache de ocupação: agendamentos ativos do médico com o ID (para aplicar cancelamentos depois)
+    default List<HorarioAgendado> findAgendamentosAtivos(UUID medicoId, LocalDateTime inicio, LocalDateTime fim) {
+        return findAgendamentosAtivosNaJanela(medicoId, inicioBusca(inicio), inicio, fim, LocalDateTime.now());
+    }
+
+    @Query("SELECT new com.clinic.api.agenda.domain.HorarioAgendado(a.id, a.dataConsulta, a.dataFimConsulta, a.expiraEm) " +
+            "FROM Agendamento a WHERE a.medico.id = :medicoId" + SOBREPOE_JANELA + FILTRO_ATIVOS)
+    List<HorarioAgendado> findAgendamentosAtivosNaJanela(@Param("medicoId") UUID medicoId,
+                                                         @Param("inicioBusca") LocalDateTime inicioBusca,
+                                                         @Param("inicio") LocalDateTime inicio,
+                                                         @Param("fim") LocalDateTime fim,
+                                                         @Param("agora") LocalDateTime agora);
+
+    // Busca em lote: períodos reservados de vários médicos
+    default List<IntervaloMedico> findHorariosOcupadosDosMedicos(Collection<UUID> medicoIds, LocalDateTime inicio, LocalDateTime fim) {
+        return findHorariosOcupadosDosMedicosNaJanela(medicoIds, inicioBusca(inicio), inicio, fim, LocalDateTime.now());
+    }
+
+    @Query("SELECT new com.clinic.api.agenda.domain.IntervaloMedico(a.medico.id, a.dataConsulta, a.dataFimConsulta) " +
+            "FROM Agendamento a WHERE a.medico.id IN :medicoIds" + SOBREPOE_JANELA + FILTRO_ATIVOS)
+    List<IntervaloMedico> findHorariosOcupadosDosMedicosNaJanela(@Param("medicoIds") Collection<UUID> medicoIds,
+                                                                 @Param("inicioBusca") LocalDateTime inicioBusca,
+                                                                 @Param("inicio") LocalDateTime inicio,
+                                                                 @Param("fim") LocalDateTime fim,
+                                                                 @Param("agora") LocalDateTime agora);
+
+    // Agendamento em lote: tudo o que está ativo para os médicos OU pacientes do lote, numa consulta só
+    default List<OcupacaoAgendamento> findOcupacoes(Collection<UUID> medicoIds, Collection<UUID> pacienteIds,
+                                                    LocalDateTime inicio, LocalDateTime fim) {
+        return findOcupacoesNaJanela(medicoIds, pacienteIds, inicioBusca(inicio), inicio, fim, LocalDateTime.now());
+    }
+
+    @Query("SELECT new com.clinic.api.agendamento.domain.OcupacaoAgendamento(a.medico.id, a.paciente.id, a.dataConsulta, a.dataFimConsulta) " +
+            "FROM Agendamento a WHERE (a.medico.id IN :medicoIds OR a.paciente.id IN :pacienteIds)" + SOBREPOE_JANELA + FILTRO_ATIVOS)
+    List<OcupacaoAgendamento> findOcupacoesNaJanela(@Param("medicoIds") Collection<UUID> medicoIds,
+                                                    @Param("pacienteIds") Collection<UUID> pacienteIds,
+                                                    @Param("inicioBusca") LocalDateTime inicioBusca,
+                                                    @Param("inicio") LocalDateTime inicio,
+                                                    @Param("fim") LocalDateTime fim,
+                                                    @Param("agora") LocalDateTime agora);
+
+    // Reservas vencidas no período ainda seguram a restrição EXCLUDE do banco até a limpeza passar:
+    // o lote apaga antes as que atrapalham; o agendamento avulso, só depois de ter o INSERT recusado
+    // (DELETE pelo mesmo índice da janela)
+    default int liberarReservasVencidas(Collection<UUID> medicoIds, Collection<UUID> pacienteIds,
+                                        LocalDateTime inicio, LocalDateTime fim) {
+        return liberarReservasVencidasNaJanela(medicoIds, pacienteIds, inicioBusca(inicio), inicio, fim, LocalDateTime.now());
+    }
+
+    @Modifying
+    @Query("DELETE FROM Agendamento a " +
+            "WHERE a.status = com.clinic.api.agendamento.domain.StatusAgendamento.EM_PROCESSAMENTO " +
+            "AND a.expiraEm <= :agora AND (a.medico.id IN :medicoIds OR a.paciente.id IN :pacienteIds)" + SOBREPOE_JANELA)
+    int liberarReservasVencidasNaJanela(@Param("medicoIds") Collection<UUID> medicoIds,
+                                        @Param("pacienteIds") Collection<UUID> pacienteIds,
+                                        @Param("inicioBusca") LocalDateTime inicioBusca,
+                                        @Param("inicio") LocalDateTime inicio,
+                                        @Param("fim") LocalDateTime fim,
+                                        @Param("agora") LocalDateTime agora);
+
+    private static LocalDateTime inicioBusca(LocalDateTime inicio) {
+        return inicio.minusMinutes(Agendamento.DURACAO_MAXIMA_MINUTOS);
+    }
+
+    // Transições de status: um UPDATE condicional cada, sem lock. 0 linhas = outro pedido mudou o
+    // agendamento antes (ou a reserva já não vale). Limpa o contexto: a entidade lida antes fica desanexada
+    // e não é regravada pelo dirty checking com a versão antiga.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Agendamento a SET a.status = :novo, a.versao = a.versao + 1 " +
+            "WHERE a.id = :id AND a.status = :esperado")
+    int transicionarStatus(@Param("id") UUID id,
+                           @Param("esperado") StatusAgendamento esperado,
+                           @Param("novo") StatusAgendamento novo);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Agendamento a SET a.status = :novo, a.statusPagamento = :pagamento, a.versao = a.versao + 1 " +
+            "WHERE a.id = :id AND a.status = :esperado " +
+            "AND (a.statusPagamento IS NULL OR a.statusPagamento IN :pagamentosOrigem)")
+    int transicionarStatusEPagamento(@Param("id") UUID id,
+                                     @Param("esperado") StatusAgendamento esperado,
+                                     @Param("novo") StatusAgendamento novo,
+                                     @Param("pagamentosOrigem") Collection<String> pagamentosOrigem,
+                                     @Param("pagamento") String pagamento);
+
+    // A validade entra no WHERE: confirmação e limpeza das vencidas não se atropelam
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Agendamento a SET a.status = com.clinic.api.agendamento.domain.StatusAgendamento.AGENDADO, " +
+            "a.expiraEm = NULL, a.versao = a.versao + 1 " +
+            "WHERE a.id = :id AND a.status = com.clinic.api.agendamento.domain.StatusAgendamento.EM_PROCESSAMENTO " +
+            "AND a.expiraEm > :agora")
+    int confirmarReserva(@Param("id") UUID id, @Param("agora") LocalDateTime agora);
+
     // Validação Complexa 1: Paciente não pode estar em dois lugares ao mesmo tempo
     // Verifica se existe agendamento ativo (Status diferente de Cancelado)
     boolean existsByPacienteIdAndDataConsultaAndStatusNot(UUID pacienteId, LocalDateTime data, StatusAgendamento statusExcluido);
@@ -39,8 +209,25 @@ public interface AgendamentoRepository extends JpaRepository<Agendamento, UUID>
             @Param("especialidade") Especialidade especialidade,
             @Param("listaStatus") List<StatusAgendamento> listaStatus);
 
-    // Limpeza automática (Garbage Collector de agendamentos abandonados)
-    @Modifying
-    @Query("DELETE FROM Agendamento a WHERE a.status = :status AND a.dataCadastro < :limite")
-    void deleteByStatusAndDataCadastroBefore(@Param("status") StatusAgendamento status, @Param("limite") LocalDateTime limite);
-}
\ No newline at end of file
+    // Limpeza automática (Garbage Collector de agendamentos abandonados), em lotes de até :lote linhas:
+    // cada chamada é uma transação curta. SKIP LOCKED pula a reserva que está sendo confirmada agora.
+    // Devolve o horário de cada reserva apagada (RETURNING): quem espera por ele é avisado
+    @Transactional
+    @Query(value = "DELETE FROM tb_agendamento WHERE id IN (" +
+            "SELECT id FROM tb_agendamento WHERE status = :#{#status.name()} AND data_cadastro < :limite " +
+            "ORDER BY data_cadastro LIMIT :lote FOR UPDATE SKIP LOCKED) " +
+            "RETURNING medico_id AS \"medicoId\", data_consulta AS \"inicio\", data_fim_consulta AS \"fim\"",
+            nativeQuery = true)
+    List<ReservaApagada> deleteByStatusAndDataCadastroBefore(@Param("status") StatusAgendamento status,
+                                                             @Param("limite") LocalDateTime limite,
+                                                             @Param("lote") int lote);
+
+    // Partições mensais (V11): funções do banco, idempotentes e serializadas entre instâncias (advisory lock)
+    @Transactional
+    @Query(value = "SELECT criar_particoes_agendamento(:mesesAFrente)", nativeQuery = true)
+    int criarParticoesFuturas(@Param("mesesAFrente") int mesesAFrente);
+
+    @Transactional
+    @Query(value = "SELECT arquivar_particoes_agendamento(CAST(:antesDe AS date))", nativeQuery = true)
+    int arquivarParticoesAntesDe(@Param("antesDe") LocalDate antesDe);
+}
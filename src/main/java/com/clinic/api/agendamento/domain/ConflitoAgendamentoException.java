@@ -0,0 +1,13 @@
+package com.clinic.api.agendamento.domain;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Horário já ocupado: a API responde 409 (Conflict) com a mensagem, em vez de 500
+@ResponseStatus(HttpStatus.CONFLICT)
+public class ConflitoAgendamentoException extends RuntimeException {
+
+    public ConflitoAgendamentoException(String mensagem) {
+        super(mensagem);
+    }
+}
@@ -0,0 +1,30 @@
+package com.clinic.api.agendamento.domain;
+
+import com.clinic.api.agendamento.Agendamento;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.UUID;
+
+// Posição na listagem paginada (keyset): último (dataConsulta, id) devolvido. Para o cliente é um texto opaco.
+public record CursorAgendamento(LocalDateTime dataConsulta, UUID id) {
+
+    public static CursorAgendamento de(Agendamento agendamento) {
+        return new CursorAgendamento(agendamento.getDataConsulta(), agendamento.getId());
+    }
+
+    public String codificar() {
+        String texto = dataConsulta + "|" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(texto.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static CursorAgendamento decodificar(String cursor) {
+        try {
+            String[] partes = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8).split("\\|");
+            return new CursorAgendamento(LocalDateTime.parse(partes[0]), UUID.fromString(partes[1]));
+        } catch (RuntimeException e) {
+            throw new RuntimeException("Cursor inválido.");
+        }
+    }
+}
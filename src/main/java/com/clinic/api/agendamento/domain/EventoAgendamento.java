@@ -0,0 +1,74 @@
+package com.clinic.api.agendamento.domain;
+
+import com.clinic.api.agendamento.Agendamento;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Linha do outbox: cópia do que mudou, gravada na transação do agendamento
+@Entity
+@Table(name = "tb_evento_agendamento")
+public class EventoAgendamento {
+
+    public static final int TAMANHO_ERRO = 1000;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "seq_evento_agendamento")
+    @SequenceGenerator(name = "seq_evento_agendamento", sequenceName = "seq_evento_agendamento", allocationSize = 50)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TipoEventoAgendamento tipo;
+
+    @Column(name = "agendamento_id", nullable = false)
+    private UUID agendamentoId;
+
+    @Column(name = "medico_id", nullable = false)
+    private UUID medicoId;
+
+    @Column(name = "paciente_id", nullable = false)
+    private UUID pacienteId;
+
+    @Column(name = "data_consulta", nullable = false)
+    private LocalDateTime dataConsulta;
+
+    @Column(name = "ocorrido_em", nullable = false)
+    private LocalDateTime ocorridoEm;
+
+    @Column(name = "processado_em")
+    private LocalDateTime processadoEm; // Nulo enquanto pendente
+
+    @Column(nullable = false)
+    private int tentativas;
+
+    @Column(length = TAMANHO_ERRO)
+    private String erro; // Última falha de um ouvinte
+
+    public EventoAgendamento() {}
+
+    public EventoAgendamento(Agendamento agendamento, TipoEventoAgendamento tipo) {
+        this.tipo = tipo;
+        this.agendamentoId = agendamento.getId();
+        this.medicoId = agendamento.getMedico().getId();
+        this.pacienteId = agendamento.getPaciente().getId();
+        this.dataConsulta = agendamento.getDataConsulta();
+        this.ocorridoEm = LocalDateTime.now();
+    }
+
+    // --- GETTERS E SETTERS ---
+    public Long getId() { return id; }
+    public void setId(Long id) { this.id = id; }
+    public TipoEventoAgendamento getTipo() { return tipo; }
+    public UUID getAgendamentoId() { return agendamentoId; }
+    public UUID getMedicoId() { return medicoId; }
+    public UUID getPacienteId() { return pacienteId; }
+    public LocalDateTime getDataConsulta() { return dataConsulta; }
+    public LocalDateTime getOcorridoEm() { return ocorridoEm; }
+    public LocalDateTime getProcessadoEm() { return processadoEm; }
+    public void setProcessadoEm(LocalDateTime processadoEm) { this.processadoEm = processadoEm; }
+    public int getTentativas() { return tentativas; }
+    public void setTentativas(int tentativas) { this.tentativas = tentativas; }
+    public String getErro() { return erro; }
+    public void setErro(String erro) { this.erro = erro; }
+}
@@ -0,0 +1,28 @@
+package com.clinic.api.agendamento.domain;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface EventoAgendamentoRepository extends JpaRepository<EventoAgendamento, Long> {
+
+    // Relay: trava um lote de pendentes; linhas já travadas por outra instância são puladas
+    @Query(value = "SELECT * FROM tb_evento_agendamento WHERE processado_em IS NULL " +
+            "ORDER BY id LIMIT :lote FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<EventoAgendamento> travarPendentes(@Param("lote") int lote);
+
+    // Retenção: apaga processados antigos em lotes curtos
+    @Transactional
+    @Modifying
+    @Query(value = "DELETE FROM tb_evento_agendamento WHERE id IN (" +
+            "SELECT id FROM tb_evento_agendamento WHERE processado_em < :limite " +
+            "ORDER BY id LIMIT :lote FOR UPDATE SKIP LOCKED)", nativeQuery = true)
+    int apagarProcessadosAntesDe(@Param("limite") LocalDateTime limite, @Param("lote") int lote);
+}
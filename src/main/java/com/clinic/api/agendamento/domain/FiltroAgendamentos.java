@@ -0,0 +1,42 @@
+package com.clinic.api.agendamento.domain;
+
+import com.clinic.api.agendamento.Agendamento;
+import jakarta.persistence.criteria.Predicate;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+// Filtros da listagem de agendamentos (todos opcionais); período [de, ate)
+public record FiltroAgendamentos(UUID medicoId, UUID pacienteId, StatusAgendamento status,
+                                 LocalDateTime de, LocalDateTime ate) {
+
+    // Filtros + posição do cursor, tudo no WHERE. Médico e paciente vêm no mesmo SELECT (usados na resposta).
+    public Specification<Agendamento> aPartirDe(CursorAgendamento cursor) {
+        return (root, query, cb) -> {
+            List<Predicate> predicados = new ArrayList<>();
+            if (medicoId != null) predicados.add(cb.equal(root.get("medico").get("id"), medicoId));
+            if (pacienteId != null) predicados.add(cb.equal(root.get("paciente").get("id"), pacienteId));
+            if (status != null) predicados.add(cb.equal(root.get("status"), status));
+            if (de != null) predicados.add(cb.greaterThanOrEqualTo(root.get("dataConsulta"), de));
+            if (ate != null) predicados.add(cb.lessThan(root.get("dataConsulta"), ate));
+
+            // (dataConsulta, id) > (cursor): o ">=" redundante deixa o banco começar a varredura do índice no cursor
+            if (cursor != null) {
+                predicados.add(cb.greaterThanOrEqualTo(root.get("dataConsulta"), cursor.dataConsulta()));
+                predicados.add(cb.or(
+                        cb.greaterThan(root.get("dataConsulta"), cursor.dataConsulta()),
+                        cb.and(cb.equal(root.get("dataConsulta"), cursor.dataConsulta()),
+                                cb.greaterThan(root.<UUID>get("id"), cursor.id()))));
+            }
+
+            if (query.getResultType() != Long.class) {
+                root.fetch("medico");
+                root.fetch("paciente");
+            }
+            return cb.and(predicados.toArray(new Predicate[0]));
+        };
+    }
+}
@@ -0,0 +1,13 @@
+package com.clinic.api.agendamento.domain;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Data além do último mês com partição de tb_agendamento: erro do cliente (422), em vez do 500 do INSERT
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class ForaDoHorizonteException extends RuntimeException {
+
+    public ForaDoHorizonteException(String mensagem) {
+        super(mensagem);
+    }
+}
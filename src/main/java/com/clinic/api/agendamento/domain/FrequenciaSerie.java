@@ -0,0 +1,19 @@
+package com.clinic.api.agendamento.domain;
+
+import java.time.LocalDateTime;
+
+// Regra de repetição de uma série de consultas (ex: psicoterapia semanal)
+public enum FrequenciaSerie {
+    SEMANAL,
+    QUINZENAL,
+    MENSAL;
+
+    // k-ésima ocorrência contada a partir da primeira (MENSAL: 31/01 -> 28/02 -> 31/03, sem "escorregar" o dia)
+    public LocalDateTime ocorrencia(LocalDateTime primeira, int k) {
+        return switch (this) {
+            case SEMANAL -> primeira.plusWeeks(k);
+            case QUINZENAL -> primeira.plusWeeks(2L * k);
+            case MENSAL -> primeira.plusMonths(k);
+        };
+    }
+}
@@ -0,0 +1,12 @@
+package com.clinic.api.agendamento.domain;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Projeção de um agendamento ativo para checagem de choques em lote (médico e paciente)
+public record OcupacaoAgendamento(
+        UUID medicoId,
+        UUID pacienteId,
+        LocalDateTime inicio,
+        LocalDateTime fim
+) {}
@@ -0,0 +1,11 @@
+package com.clinic.api.agendamento.domain;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Horário de uma reserva vencida apagada pela limpeza (projeção do DELETE ... RETURNING)
+public interface ReservaApagada {
+    UUID getMedicoId();
+    LocalDateTime getInicio();
+    LocalDateTime getFim();
+}
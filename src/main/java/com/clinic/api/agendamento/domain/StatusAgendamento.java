@@ -1,9 +1,34 @@
 package com.clinic.api.agendamento.domain; // <--- AGORA ESTÁ NO LUGAR CERTO
 
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
 public enum StatusAgendamento {
     AGENDADO,
     CANCELADO_PACIENTE,
     CANCELADO_MEDICO,
     CONCLUIDO,
-    EM_PROCESSAMENTO
-}
\ No newline at end of file
+    EM_PROCESSAMENTO;
+
+    // Status que liberam o horário do médico
+    public static final List<StatusAgendamento> CANCELADOS = List.of(CANCELADO_PACIENTE, CANCELADO_MEDICO);
+
+    // Máquina de estados: de onde cada status pode sair. Cancelados e concluídos são finais
+    // (a reserva EM_PROCESSAMENTO desistida é apagada, não cancelada)
+    private static final Map<StatusAgendamento, Set<StatusAgendamento>> TRANSICOES = new EnumMap<>(StatusAgendamento.class);
+
+    static {
+        TRANSICOES.put(EM_PROCESSAMENTO, EnumSet.of(AGENDADO));
+        TRANSICOES.put(AGENDADO, EnumSet.of(CANCELADO_PACIENTE, CANCELADO_MEDICO, CONCLUIDO));
+        TRANSICOES.put(CANCELADO_PACIENTE, EnumSet.noneOf(StatusAgendamento.class));
+        TRANSICOES.put(CANCELADO_MEDICO, EnumSet.noneOf(StatusAgendamento.class));
+        TRANSICOES.put(CONCLUIDO, EnumSet.noneOf(StatusAgendamento.class));
+    }
+
+    public boolean podeIrPara(StatusAgendamento destino) {
+        return TRANSICOES.get(this).contains(destino);
+    }
+}
@@ -0,0 +1,37 @@
+package com.clinic.api.agendamento.domain;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Valores de {@code Agendamento.statusPagamento} (coluna texto) e as transições permitidas entre eles.
+ * Null (linhas antigas) conta como PENDENTE.
+ */
+public final class StatusPagamento {
+
+    public static final String PENDENTE = "PENDENTE";
+    public static final String PAGO = "PAGO";
+    public static final String CONVENIO_APROVADO = "CONVENIO_APROVADO";
+    public static final String CANCELADO = "CANCELADO";
+
+    private static final Map<String, Set<String>> TRANSICOES = Map.of(
+            PENDENTE, Set.of(PAGO, CANCELADO),
+            CONVENIO_APROVADO, Set.of(CANCELADO),
+            PAGO, Set.of(CANCELADO),
+            CANCELADO, Set.of());
+
+    private StatusPagamento() {}
+
+    public static boolean podeIrPara(String atual, String destino) {
+        return TRANSICOES.getOrDefault(atual == null ? PENDENTE : atual, Set.of()).contains(destino);
+    }
+
+    // Status de onde se chega ao destino: vira o "WHERE status_pagamento IN (...)" do UPDATE condicional
+    public static Set<String> origensDe(String destino) {
+        return TRANSICOES.entrySet().stream()
+                .filter(e -> e.getValue().contains(destino))
+                .map(Map.Entry::getKey)
+                .collect(Collectors.toUnmodifiableSet());
+    }
+}
@@ -0,0 +1,8 @@
+package com.clinic.api.agendamento.domain;
+
+public enum TipoEventoAgendamento {
+    AGENDADO,   // Consulta marcada (direto, em lote ou reserva confirmada)
+    CONFIRMADO, // Presença confirmada pela secretária
+    CANCELADO,
+    CONCLUIDO   // Atendimento registrado no prontuário
+}
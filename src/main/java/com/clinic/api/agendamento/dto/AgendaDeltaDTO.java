@@ -0,0 +1,11 @@
+package com.clinic.api.agendamento.dto;
+
+import com.clinic.api.agendamento.domain.TipoEventoAgendamento;
+import java.util.UUID;
+
+// Evento "delta" do feed da recepção: a linha nova do agendamento (substitui a de mesmo agendamentoId)
+public record AgendaDeltaDTO(
+        TipoEventoAgendamento tipo,
+        UUID agendamentoId,
+        AtendimentoDiarioDTO atendimento
+) {}
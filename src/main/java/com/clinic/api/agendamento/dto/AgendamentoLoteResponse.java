@@ -0,0 +1,11 @@
+package com.clinic.api.agendamento.dto;
+
+import java.util.List;
+
+public record AgendamentoLoteResponse(
+        int total,
+        int aceitos,
+        int conflitos,
+        int invalidos,
+        List<ResultadoItemLote> itens
+) {}
@@ -16,6 +16,7 @@ public class AgendamentoResponse {
     private String status; // Retorna o Enum.name()
     private String statusPagamento;
     private BigDecimal valor;
+    private LocalDateTime expiraEm; // Só em reservas temporárias
 
     public AgendamentoResponse(Agendamento agendamento) {
         this.id = agendamento.getId();
@@ -33,6 +34,7 @@ public class AgendamentoResponse {
         this.status = agendamento.getStatus().name(); // Enum -> String
         this.statusPagamento = agendamento.getStatusPagamento();
         this.valor = agendamento.getValorConsulta();
+        this.expiraEm = agendamento.getExpiraEm();
     }
 
     // Getters
@@ -44,4 +46,5 @@ public class AgendamentoResponse {
     public String getStatus() { return status; }
     public String getStatusPagamento() { return statusPagamento; }
     public BigDecimal getValor() { return valor; }
+    public LocalDateTime getExpiraEm() { return expiraEm; }
 }
\ No newline at end of file
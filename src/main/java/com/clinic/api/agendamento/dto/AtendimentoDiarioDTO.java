@@ -1,9 +1,13 @@
 package com.clinic.api.agendamento.dto;
 
+import com.clinic.api.agendamento.domain.StatusAgendamento;
+import com.clinic.api.medico.enun.Especialidade;
+
 import java.time.LocalDateTime;
 import java.util.UUID;
 
 public class AtendimentoDiarioDTO {
+    private UUID medicoId; // Preenchido no feed da recepção (vários médicos na mesma tela)
     private UUID agendamentoId;
     private LocalDateTime horario;
     private String pacienteNome;
@@ -24,7 +28,27 @@ public class AtendimentoDiarioDTO {
         this.modalidade = modalidade;
     }
 
+    // Usado pela projeção JPQL (AgendamentoRepository.findAtendimentosDoDia): monta direto das colunas
+    public AtendimentoDiarioDTO(UUID agendamentoId, LocalDateTime horario, String pacienteNome,
+                                Especialidade especialidade, StatusAgendamento status,
+                                String statusPagamento, String nomeConvenio) {
+        this(agendamentoId, horario, pacienteNome,
+                especialidade != null ? especialidade.toString() : null,
+                status.name(),
+                statusPagamento,
+                nomeConvenio != null ? "CONVÊNIO: " + nomeConvenio : "PARTICULAR");
+    }
+
+    // Projeção do feed (AgendamentoRepository.findAtendimentosDoDiaDosMedicos / findAtendimentoDoFeed)
+    public AtendimentoDiarioDTO(UUID medicoId, UUID agendamentoId, LocalDateTime horario, String pacienteNome,
+                                Especialidade especialidade, StatusAgendamento status,
+                                String statusPagamento, String nomeConvenio) {
+        this(agendamentoId, horario, pacienteNome, especialidade, status, statusPagamento, nomeConvenio);
+        this.medicoId = medicoId;
+    }
+
     // Getters
+    public UUID getMedicoId() { return medicoId; }
     public UUID getAgendamentoId() { return agendamentoId; }
     public LocalDateTime getHorario() { return horario; }
     public String getPacienteNome() { return pacienteNome; }
@@ -0,0 +1,9 @@
+package com.clinic.api.agendamento.dto;
+
+import java.util.List;
+
+// proximoCursor = null: não há mais páginas
+public record PaginaAgendamentosResponse(
+        List<AgendamentoResponse> itens,
+        String proximoCursor
+) {}
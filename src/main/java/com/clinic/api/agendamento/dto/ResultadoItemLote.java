@@ -0,0 +1,15 @@
+package com.clinic.api.agendamento.dto;
+
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Resultado de um item do lote, na mesma posição (indice) em que veio no pedido
+public record ResultadoItemLote(
+        int indice,
+        LocalDateTime dataConsulta,
+        Situacao situacao,
+        UUID agendamentoId,
+        String mensagem
+) {
+    public enum Situacao { ACEITO, CONFLITO, INVALIDO }
+}
@@ -0,0 +1,13 @@
+package com.clinic.api.agendamento.dto;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// Totais do dia de um médico, agregados no banco (AgendamentoRepository.findResumoDoDiaPorMedico)
+public record ResumoAgendaMedicoDTO(
+        UUID medicoId,
+        Long qtdAtendimentos,
+        Long qtdPendentesPagamento, // Particulares com pagamento PENDENTE
+        BigDecimal faturamentoPrevisao,
+        BigDecimal faturamentoRealizado
+) {}
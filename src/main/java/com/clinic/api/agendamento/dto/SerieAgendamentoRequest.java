@@ -0,0 +1,52 @@
+package com.clinic.api.agendamento.dto;
+
+import com.clinic.api.agendamento.domain.FrequenciaSerie;
+import jakarta.validation.constraints.Future;
+import jakarta.validation.constraints.NotNull;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+// Série de consultas: primeira consulta + frequência, terminando por quantidade OU por data (um dos dois)
+public class SerieAgendamentoRequest {
+
+    @NotNull(message = "O ID do médico é obrigatório")
+    private UUID medicoId;
+
+    @NotNull(message = "O ID do paciente é obrigatório")
+    private UUID pacienteId;
+
+    @NotNull(message = "A data da primeira consulta é obrigatória")
+    @Future(message = "A data da primeira consulta deve ser no futuro")
+    private LocalDateTime primeiraConsulta;
+
+    @NotNull(message = "A frequência é obrigatória")
+    private FrequenciaSerie frequencia;
+
+    private Integer quantidade;
+    private LocalDate ate;
+
+    private String formaPagamento;
+    private String nomeConvenio;
+    private String numeroCarteirinha;
+
+    // Getters e Setters
+    public UUID getMedicoId() { return medicoId; }
+    public void setMedicoId(UUID medicoId) { this.medicoId = medicoId; }
+    public UUID getPacienteId() { return pacienteId; }
+    public void setPacienteId(UUID pacienteId) { this.pacienteId = pacienteId; }
+    public LocalDateTime getPrimeiraConsulta() { return primeiraConsulta; }
+    public void setPrimeiraConsulta(LocalDateTime primeiraConsulta) { this.primeiraConsulta = primeiraConsulta; }
+    public FrequenciaSerie getFrequencia() { return frequencia; }
+    public void setFrequencia(FrequenciaSerie frequencia) { this.frequencia = frequencia; }
+    public Integer getQuantidade() { return quantidade; }
+    public void setQuantidade(Integer quantidade) { this.quantidade = quantidade; }
+    public LocalDate getAte() { return ate; }
+    public void setAte(LocalDate ate) { this.ate = ate; }
+    public String getFormaPagamento() { return formaPagamento; }
+    public void setFormaPagamento(String formaPagamento) { this.formaPagamento = formaPagamento; }
+    public String getNomeConvenio() { return nomeConvenio; }
+    public void setNomeConvenio(String nomeConvenio) { this.nomeConvenio = nomeConvenio; }
+    public String getNumeroCarteirinha() { return numeroCarteirinha; }
+    public void setNumeroCarteirinha(String numeroCarteirinha) { this.numeroCarteirinha = numeroCarteirinha; }
+}
@@ -0,0 +1,9 @@
+package com.clinic.api.agendamento.dto;
+
+import java.util.UUID;
+
+// serieId agrupa as ocorrências gravadas; resultado traz cada ocorrência (data, aceita ou em conflito)
+public record SerieAgendamentoResponse(
+        UUID serieId,
+        AgendamentoLoteResponse resultado
+) {}
@@ -0,0 +1,261 @@
+package com.clinic.api.agendamento.service;
+
+import com.clinic.api.agenda.domain.BloqueioAgendaRepository;
+import com.clinic.api.agenda.domain.IntervalosBloqueio;
+import com.clinic.api.agenda.service.CacheOcupacao;
+import com.clinic.api.agendamento.Agendamento;
+import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import com.clinic.api.agendamento.domain.ConflitoAgendamentoException;
+import com.clinic.api.agendamento.domain.ForaDoHorizonteException;
+import com.clinic.api.agendamento.domain.TipoEventoAgendamento;
+import com.clinic.api.agendamento.dto.AgendamentoLoteResponse;
+import com.clinic.api.agendamento.dto.AgendamentoRequest;
+import com.clinic.api.agendamento.dto.ResultadoItemLote;
+import com.clinic.api.agendamento.dto.ResultadoItemLote.Situacao;
+import com.clinic.api.agendamento.dto.SerieAgendamentoRequest;
+import com.clinic.api.agendamento.dto.SerieAgendamentoResponse;
+import com.clinic.api.medico.domain.MedicoRepository;
+import com.clinic.api.medico.dto.MedicoCobrancaDTO;
+import com.clinic.api.paciente.domain.PacienteRepository;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Agendamento em lote (campanhas de vacinação, saúde ocupacional, séries semanais): milhares de itens por requisição.
+ * Número fixo de consultas, independente do tamanho do lote: médicos e pacientes (projeções, sem hidratar
+ * Usuario e Clinica, que são EAGER), choques e bloqueios (uma consulta cada) e os INSERTs agrupados pelo JDBC batching
+ * do Hibernate. O agendamento aponta para referências (getReferenceById), que não vão ao banco.
+ */
+@Service
+public class AgendamentoLoteService {
+
+    public static final int MAX_ITENS = 10_000;
+    public static final int MAX_OCORRENCIAS_SERIE = 200;
+
+    private final AgendamentoRepository repository;
+    private final MedicoRepository medicoRepository;
+    private final PacienteRepository pacienteRepository;
+    private final CacheOcupacao cacheOcupacao;
+    private final BloqueioAgendaRepository bloqueioRepository;
+    private final OutboxAgendamento outbox;
+    private final HorizonteAgendamento horizonte;
+
+    public AgendamentoLoteService(AgendamentoRepository repository,
+                                  MedicoRepository medicoRepository,
+                                  PacienteRepository pacienteRepository,
+                                  CacheOcupacao cacheOcupacao,
+                                  BloqueioAgendaRepository bloqueioRepository,
+                                  OutboxAgendamento outbox,
+                                  HorizonteAgendamento horizonte) {
+        this.repository = repository;
+        this.medicoRepository = medicoRepository;
+        this.pacienteRepository = pacienteRepository;
+        this.cacheOcupacao = cacheOcupacao;
+        this.bloqueioRepository = bloqueioRepository;
+        this.outbox = outbox;
+        this.horizonte = horizonte;
+    }
+
+    @Transactional
+    public AgendamentoLoteResponse agendarEmLote(List<AgendamentoRequest> itens) {
+        if (itens == null || itens.isEmpty()) {
+            throw new RuntimeException("O lote está vazio.");
+        }
+        if (itens.size() > MAX_ITENS) {
+            throw new RuntimeException("O lote aceita no máximo " + MAX_ITENS + " agendamentos.");
+        }
+        return agendar(itens, null);
+    }
+
+    // Série (ex: psicoterapia semanal): expande as ocorrências e agenda como um lote do mesmo médico/paciente.
+    // Ocorrências em conflito voltam no resultado; as demais são gravadas com o mesmo serieId.
+    @Transactional
+    public SerieAgendamentoResponse agendarSerie(SerieAgendamentoRequest request) {
+        List<AgendamentoRequest> ocorrencias = expandir(request);
+        // Série inteira ou nada: uma série cortada no meio pelo limite da agenda pegaria o paciente de surpresa
+        if (!horizonte.permite(ocorrencias.get(ocorrencias.size() - 1).getDataConsulta())) {
+            throw new ForaDoHorizonteException("A série passa do limite da agenda. " + horizonte.mensagem()
+                    + " Agende menos consultas agora e renove a série depois.");
+        }
+        UUID serieId = UUID.randomUUID();
+        return new SerieAgendamentoResponse(serieId, agendar(ocorrencias, serieId));
+    }
+
+    static List<AgendamentoRequest> expandir(SerieAgendamentoRequest request) {
+        if ((request.getQuantidade() == null) == (request.getAte() == null)) {
+            throw new RuntimeException("Informe a quantidade de consultas OU a data final da série (apenas um dos dois).");
+        }
+        if (request.getQuantidade() != null && (request.getQuantidade() < 1 || request.getQuantidade() > MAX_OCORRENCIAS_SERIE)) {
+            throw new RuntimeException("A série deve ter entre 1 e " + MAX_OCORRENCIAS_SERIE + " consultas.");
+        }
+
+        List<AgendamentoRequest> ocorrencias = new ArrayList<>();
+        for (int k = 0; ; k++) {
+            LocalDateTime data = request.getFrequencia().ocorrencia(request.getPrimeiraConsulta(), k);
+            if (request.getQuantidade() != null ? k >= request.getQuantidade() : data.toLocalDate().isAfter(request.getAte())) {
+                break;
+            }
+            if (k >= MAX_OCORRENCIAS_SERIE) {
+                throw new RuntimeException("A série deve ter entre 1 e " + MAX_OCORRENCIAS_SERIE + " consultas.");
+            }
+            AgendamentoRequest ocorrencia = new AgendamentoRequest();
+            ocorrencia.setMedicoId(request.getMedicoId());
+            ocorrencia.setPacienteId(request.getPacienteId());
+            ocorrencia.setDataConsulta(data);
+            ocorrencia.setFormaPagamento(request.getFormaPagamento());
+            ocorrencia.setNomeConvenio(request.getNomeConvenio());
+            ocorrencia.setNumeroCarteirinha(request.getNumeroCarteirinha());
+            ocorrencias.add(ocorrencia);
+        }
+        if (ocorrencias.isEmpty()) {
+            throw new RuntimeException("A data final da série é anterior à primeira consulta.");
+        }
+        return ocorrencias;
+    }
+
+    private AgendamentoLoteResponse agendar(List<AgendamentoRequest> itens, UUID serieId) {
+
+        ResultadoItemLote[] resultados = new ResultadoItemLote[itens.size()];
+        LocalDateTime agora = LocalDateTime.now();
+        LocalDateTime limite = horizonte.limite(); // Última partição de tb_agendamento garantida
+
+        // 1. Campos obrigatórios (sem banco)
+        List<Integer> candidatos = new ArrayList<>();
+        for (int i = 0; i < itens.size(); i++) {
+            AgendamentoRequest item = itens.get(i);
+            if (item == null || item.getMedicoId() == null || item.getPacienteId() == null || item.getDataConsulta() == null) {
+                resultados[i] = invalido(i, item != null ? item.getDataConsulta() : null,
+                        "Médico, paciente e data da consulta são obrigatórios.");
+            } else if (!item.getDataConsulta().isAfter(agora)) {
+                resultados[i] = invalido(i, item.getDataConsulta(), "A data da consulta deve ser no futuro.");
+            } else if (!item.getDataConsulta().isBefore(limite)) {
+                resultados[i] = invalido(i, item.getDataConsulta(), horizonte.mensagem());
+            } else {
+                candidatos.add(i);
+            }
+        }
+
+        // 2. Médicos e pacientes: uma consulta para cada, só com as colunas usadas
+        Map<UUID, MedicoCobrancaDTO> medicos = candidatos.isEmpty() ? Map.of() : medicoRepository.findCobrancaByIdIn(
+                        candidatos.stream().map(i -> itens.get(i).getMedicoId()).collect(Collectors.toSet()))
+                .stream().collect(Collectors.toMap(MedicoCobrancaDTO::id, Function.identity()));
+        Set<UUID> pacientes = candidatos.isEmpty() ? Set.of() : new HashSet<>(pacienteRepository.findIdsExistentes(
+                candidatos.stream().map(i -> itens.get(i).getPacienteId()).collect(Collectors.toSet())));
+
+        candidatos.removeIf(i -> {
+            if (!medicos.containsKey(itens.get(i).getMedicoId())) {
+                resultados[i] = invalido(i, itens.get(i).getDataConsulta(), "Médico não encontrado.");
+                return true;
+            }
+            if (!pacientes.contains(itens.get(i).getPacienteId())) {
+                resultados[i] = invalido(i, itens.get(i).getDataConsulta(), "Paciente não encontrado.");
+                return true;
+            }
+            return false;
+        });
+
+        List<Agendamento> novos = new ArrayList<>();
+        List<Integer> posicoes = new ArrayList<>();
+
+        if (!candidatos.isEmpty()) {
+            // 3. Período de cada consulta: [início, início + duração do médico)
+            LocalDateTime[] fins = new LocalDateTime[itens.size()];
+            LocalDateTime inicioLote = null;
+            LocalDateTime fimLote = null;
+            for (int i : candidatos) {
+                AgendamentoRequest item = itens.get(i);
+                fins[i] = item.getDataConsulta().plusMinutes(
+                        Agendamento.duracaoEfetiva(medicos.get(item.getMedicoId()).duracaoConsulta()));
+                if (inicioLote == null || item.getDataConsulta().isBefore(inicioLote)) inicioLote = item.getDataConsulta();
+                if (fimLote == null || fins[i].isAfter(fimLote)) fimLote = fins[i];
+            }
+
+            // 4. Choques com o que já está no banco: UMA consulta para todos os médicos e pacientes do lote.
+            // Cada agenda vira uma estrutura ordenada em memória (sobreposição em O(log n)).
+            Map<UUID, IntervalosBloqueio> agendaMedico = new HashMap<>();
+            Map<UUID, IntervalosBloqueio> agendaPaciente = new HashMap<>();
+            repository.liberarReservasVencidas(medicos.keySet(), pacientes, inicioLote, fimLote);
+            repository.findOcupacoes(medicos.keySet(), pacientes, inicioLote, fimLote).forEach(o -> {
+                agendaMedico.computeIfAbsent(o.medicoId(), id -> new IntervalosBloqueio()).adicionar(o.inicio(), o.fim());
+                agendaPaciente.computeIfAbsent(o.pacienteId(), id -> new IntervalosBloqueio()).adicionar(o.inicio(), o.fim());
+            });
+            // Bloqueios lidos do banco nesta transação (não do índice em memória, que é desta instância)
+            Map<UUID, IntervalosBloqueio> bloqueios = new HashMap<>();
+            bloqueioRepository.findBloqueiosDosMedicosNoIntervalo(medicos.keySet(), inicioLote, fimLote).forEach(b ->
+                    bloqueios.computeIfAbsent(b.getMedicoId(), id -> new IntervalosBloqueio()).adicionar(b.getInicio(), b.getFim()));
+
+            // 5. Na ordem do pedido: o primeiro item que pede um horário fica com ele
+            for (int i : candidatos) {
+                AgendamentoRequest item = itens.get(i);
+                LocalDateTime inicio = item.getDataConsulta();
+                IntervalosBloqueio doMedico = agendaMedico.computeIfAbsent(item.getMedicoId(), id -> new IntervalosBloqueio());
+                IntervalosBloqueio doPaciente = agendaPaciente.computeIfAbsent(item.getPacienteId(), id -> new IntervalosBloqueio());
+
+                IntervalosBloqueio bloqueiosMedico = bloqueios.get(item.getMedicoId());
+                if (bloqueiosMedico != null && bloqueiosMedico.sobrepoe(inicio, fins[i])) {
+                    resultados[i] = conflito(i, inicio, "Este horário está bloqueado na agenda do médico.");
+                } else if (doMedico.sobrepoe(inicio, fins[i])) {
+                    resultados[i] = conflito(i, inicio, "Este horário já está preenchido para o médico.");
+                } else if (doPaciente.sobrepoe(inicio, fins[i])) {
+                    resultados[i] = conflito(i, inicio, "O paciente já possui um agendamento neste horário.");
+                } else {
+                    doMedico.adicionar(inicio, fins[i]);
+                    doPaciente.adicionar(inicio, fins[i]);
+                    Agendamento novo = AgendamentoService.montarAgendamento(
+                            medicoRepository.getReferenceById(item.getMedicoId()),
+                            pacienteRepository.getReferenceById(item.getPacienteId()),
+                            item, inicio, fins[i], medicos.get(item.getMedicoId()).valorConsulta());
+                    novo.setSerieId(serieId);
+                    novos.add(novo);
+                    posicoes.add(i);
+                }
+            }
+        }
+
+        // 6. INSERT em lote: ids UUID gerados em memória, então o Hibernate agrupa os INSERTs
+        // (hibernate.jdbc.batch_size). Um choque aqui só acontece se outro agendamento entrou
+        // durante a importação: o lote inteiro é desfeito.
+        try {
+            repository.saveAll(novos);
+            repository.flush();
+        } catch (DataIntegrityViolationException e) {
+            throw new ConflitoAgendamentoException(
+                    "Um dos horários foi ocupado durante a importação. Nenhum item foi gravado; reenvie o lote.");
+        }
+        // Um evento por consulta gravada, no mesmo commit (também em lote)
+        outbox.registrarTodos(novos, TipoEventoAgendamento.AGENDADO);
+
+        for (int k = 0; k < novos.size(); k++) {
+            Agendamento agendamento = novos.get(k);
+            resultados[posicoes.get(k)] = new ResultadoItemLote(
+                    posicoes.get(k), agendamento.getDataConsulta(), Situacao.ACEITO, agendamento.getId(), null);
+            cacheOcupacao.registrarAgendamento(agendamento);
+        }
+
+        List<ResultadoItemLote> lista = Arrays.asList(resultados);
+        return new AgendamentoLoteResponse(
+                lista.size(),
+                contar(lista, Situacao.ACEITO),
+                contar(lista, Situacao.CONFLITO),
+                contar(lista, Situacao.INVALIDO),
+                lista);
+    }
+
+    private static ResultadoItemLote invalido(int indice, LocalDateTime data, String mensagem) {
+        return new ResultadoItemLote(indice, data, Situacao.INVALIDO, null, mensagem);
+    }
+
+    private static ResultadoItemLote conflito(int indice, LocalDateTime data, String mensagem) {
+        return new ResultadoItemLote(indice, data, Situacao.CONFLITO, null, mensagem);
+    }
+
+    private static int contar(List<ResultadoItemLote> itens, Situacao situacao) {
+        return (int) itens.stream().filter(r -> r.situacao() == situacao).count();
+    }
+}
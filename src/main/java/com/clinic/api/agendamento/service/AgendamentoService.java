@@ -1,46 +1,125 @@
 package com.clinic.api.agendamento.service;
 
+import com.clinic.api.agenda.domain.BloqueioAgendaRepository;
+import com.clinic.api.agenda.domain.HorarioLiberadoEvent;
+import com.clinic.api.agenda.service.CacheOcupacao;
 import com.clinic.api.agendamento.Agendamento;
 
 
 import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import com.clinic.api.agendamento.domain.ConflitoAgendamentoException;
+import com.clinic.api.agendamento.domain.CursorAgendamento;
+import com.clinic.api.agendamento.domain.FiltroAgendamentos;
 import com.clinic.api.agendamento.domain.StatusAgendamento;
+import com.clinic.api.agendamento.domain.StatusPagamento;
+import com.clinic.api.agendamento.domain.TipoEventoAgendamento;
 import com.clinic.api.agendamento.dto.AgendamentoRequest;
 import com.clinic.api.agendamento.dto.AgendamentoResponse;
 import com.clinic.api.agendamento.dto.AtendimentoDiarioDTO;
+import com.clinic.api.agendamento.dto.PaginaAgendamentosResponse;
 import com.clinic.api.medico.Medico;
 import com.clinic.api.medico.domain.MedicoRepository;
 import com.clinic.api.paciente.Paciente;
 import com.clinic.api.paciente.domain.PacienteRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.domain.Sort;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
-import java.time.LocalTime;
 import java.util.List;
 import java.util.UUID;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @Service
 public class AgendamentoService {
 
+    public static final int TAMANHO_PAGINA_PADRAO = 50;
+    public static final int TAMANHO_PAGINA_MAXIMO = 200;
+    private static final Sort ORDEM_LISTAGEM = Sort.by("dataConsulta", "id");
+
     private final AgendamentoRepository repository;
     private final MedicoRepository medicoRepository;
     private final PacienteRepository pacienteRepository;
+    private final CacheOcupacao cacheOcupacao;
+    private final BloqueioAgendaRepository bloqueioRepository;
+    private final ApplicationEventPublisher eventos;
+    private final OutboxAgendamento outbox;
+    private final TransicaoAgendamento transicao;
+    private final HorizonteAgendamento horizonte;
+    private final TransactionTemplate transacao;
+    private final TransactionTemplate novaTransacao;
 
     public AgendamentoService(AgendamentoRepository repository,
                               MedicoRepository medicoRepository,
-                              PacienteRepository pacienteRepository) {
+                              PacienteRepository pacienteRepository,
+                              CacheOcupacao cacheOcupacao,
+                              BloqueioAgendaRepository bloqueioRepository,
+                              ApplicationEventPublisher eventos,
+                              OutboxAgendamento outbox,
+                              TransicaoAgendamento transicao,
+                              HorizonteAgendamento horizonte,
+                              PlatformTransactionManager transactionManager) {
         this.repository = repository;
         this.medicoRepository = medicoRepository;
         this.pacienteRepository = pacienteRepository;
+        this.cacheOcupacao = cacheOcupacao;
+        this.bloqueioRepository = bloqueioRepository;
+        this.eventos = eventos;
+        this.outbox = outbox;
+        this.transicao = transicao;
+        this.horizonte = horizonte;
+        this.transacao = new TransactionTemplate(transactionManager);
+        // Limpeza de reservas vencidas antes da segunda tentativa: a primeira transação já foi desfeita
+        this.novaTransacao = new TransactionTemplate(transactionManager);
+        this.novaTransacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
     }
 
     // --- 1. AGENDAR (O Grande Método) ---
-    @Transactional
     public AgendamentoResponse agendar(AgendamentoRequest request) {
+        return gravar(request, () -> {
+            Agendamento agendamento = criar(request, StatusAgendamento.AGENDADO, null);
+            outbox.registrar(agendamento, TipoEventoAgendamento.AGENDADO);
+            return new AgendamentoResponse(agendamento);
+        });
+    }
+
+    // Roda a gravação numa transação. Se o banco recusar o horário, o choque pode ser com uma reserva vencida
+    // que a limpeza ainda não apagou: só então apaga as vencidas do caminho e tenta mais uma vez.
+    // Dentro de uma transação já aberta (oferta da lista de espera) não dá para repetir: o conflito segue.
+    <T> T gravar(AgendamentoRequest request, Supplier<T> gravacao) {
+        try {
+            return transacao.execute(s -> gravacao.get());
+        } catch (ConflitoAgendamentoException e) {
+            if (TransactionSynchronizationManager.isActualTransactionActive() || liberarReservasVencidas(request) == 0) {
+                throw e;
+            }
+            return transacao.execute(s -> gravacao.get());
+        }
+    }
+
+    // Janela com a duração máxima: não depende do médico, e apagar uma vencida a mais não tem efeito
+    private int liberarReservasVencidas(AgendamentoRequest request) {
+        LocalDateTime inicio = request.getDataConsulta();
+        Integer apagadas = novaTransacao.execute(s -> repository.liberarReservasVencidas(
+                List.of(request.getMedicoId()), List.of(request.getPacienteId()),
+                inicio, inicio.plusMinutes(Agendamento.DURACAO_MAXIMA_MINUTOS)));
+        return apagadas == null ? 0 : apagadas;
+    }
+
+    // Agendamento definitivo (AGENDADO) ou reserva temporária (EM_PROCESSAMENTO até expiraEm)
+    Agendamento criar(AgendamentoRequest request, StatusAgendamento status, LocalDateTime expiraEm) {
+        // Depois do último mês com partição o INSERT falharia: recusa antes de consultar o banco
+        horizonte.validar(request.getDataConsulta());
+
         // A. Validar se Médico e Paciente existem
         Medico medico = medicoRepository.findById(request.getMedicoId())
                 .orElseThrow(() -> new RuntimeException("Médico não encontrado."));
@@ -48,49 +127,86 @@ public class AgendamentoService {
         Paciente paciente = pacienteRepository.findById(request.getPacienteId())
                 .orElseThrow(() -> new RuntimeException("Paciente não encontrado."));
 
-        // B. Validação: O médico já tem agendamento neste horário?
-        boolean medicoOcupado = repository.existsByMedicoIdAndDataConsulta(
-                medico.getId(), request.getDataConsulta());
+        // B. A consulta ocupa [início, início + duração do médico)
+        LocalDateTime inicio = request.getDataConsulta();
+        LocalDateTime fim = inicio.plusMinutes(Agendamento.duracaoEfetiva(medico.getDuracaoConsulta()));
 
-        if (medicoOcupado) {
-            throw new RuntimeException("Este horário já está preenchido para o Dr(a). " + medico.getNome());
+        // Validação: a consulta cai em um bloqueio (almoço, férias)? Consulta ao banco (GiST do tsrange), na
+        // transação do INSERT: o índice em memória é só da disponibilidade, e pode não ter o bloqueio criado
+        // em outra instância. (Choques com outros agendamentos são barrados pelo banco no INSERT)
+        if (bloqueioRepository.existeBloqueioNoIntervalo(medico.getId(), inicio, fim)) {
+            throw new ConflitoAgendamentoException("Este horário está bloqueado na agenda do Dr(a). " + medico.getNome());
         }
 
-        // C. Validação: O paciente já tem compromisso neste horário?
-        boolean pacienteOcupado = repository.existsByPacienteIdAndDataConsultaAndStatusNot(
-                paciente.getId(), request.getDataConsulta(), StatusAgendamento.CANCELADO_PACIENTE);
-
-        if (pacienteOcupado) {
-            throw new RuntimeException("O paciente já possui um agendamento neste horário.");
+        // C. Montar o Objeto (com a regra financeira)
+        Agendamento agendamento = montarAgendamento(medico, paciente, request, inicio, fim, medico.getValorConsulta());
+        agendamento.setStatus(status);
+        agendamento.setExpiraEm(expiraEm);
+
+        // D. Gravar: o flush força o INSERT aqui, para traduzir o choque de horário em 409
+        try {
+            repository.saveAndFlush(agendamento);
+        } catch (DataIntegrityViolationException e) {
+            if (violou(e, AgendamentoRepository.RESTRICAO_HORARIO_MEDICO)) {
+                throw new ConflitoAgendamentoException("Este horário já está preenchido para o Dr(a). " + medico.getNome());
+            }
+            if (violou(e, AgendamentoRepository.RESTRICAO_HORARIO_PACIENTE)) {
+                throw new ConflitoAgendamentoException("O paciente já possui um agendamento neste horário.");
+            }
+            throw e;
         }
 
-        // D. Montar o Objeto
+        cacheOcupacao.registrarAgendamento(agendamento);
+        return agendamento;
+    }
+
+    // Usado também pelo agendamento em lote (lá, médico e paciente são referências e o valor vem da projeção)
+    static Agendamento montarAgendamento(Medico medico, Paciente paciente, AgendamentoRequest request,
+                                         LocalDateTime inicio, LocalDateTime fim, BigDecimal valorParticular) {
         Agendamento agendamento = new Agendamento();
         agendamento.setMedico(medico);
         agendamento.setPaciente(paciente);
-        agendamento.setDataConsulta(request.getDataConsulta());
+        agendamento.setDataConsulta(inicio);
+        agendamento.setDataFimConsulta(fim);
         agendamento.setStatus(StatusAgendamento.AGENDADO);
         agendamento.setFormaPagamento(request.getFormaPagamento());
 
-        // E. Regra de Negócio: Financeiro
+        // Regra de Negócio: Financeiro
         if ("CONVENIO".equalsIgnoreCase(request.getFormaPagamento())) {
             agendamento.setNomeConvenio(request.getNomeConvenio());
             agendamento.setNumeroCarteirinha(request.getNumeroCarteirinha());
             agendamento.setValorConsulta(BigDecimal.ZERO); // Convênio não cobra direto
-            agendamento.setStatusPagamento("CONVENIO_APROVADO");
+            agendamento.setStatusPagamento(StatusPagamento.CONVENIO_APROVADO);
         } else {
             // Particular: Pega o valor do cadastro do médico
-            agendamento.setValorConsulta(medico.getValorConsulta());
-            agendamento.setStatusPagamento("PENDENTE");
+            agendamento.setValorConsulta(valorParticular);
+            agendamento.setStatusPagamento(StatusPagamento.PENDENTE);
         }
+        return agendamento;
+    }
 
-        repository.save(agendamento);
-        return new AgendamentoResponse(agendamento);
+    private boolean violou(DataIntegrityViolationException e, String restricao) {
+        String mensagem = e.getMostSpecificCause().getMessage();
+        return mensagem != null && mensagem.contains(restricao);
     }
 
-    // --- 2. LISTAGEM GERAL ---
-    public List<Agendamento> listarTodos() {
-        return repository.findAll();
+    // --- 2. LISTAGEM GERAL (paginada por cursor: ordem (dataConsulta, id), sem OFFSET nem COUNT) ---
+    @Transactional(readOnly = true)
+    public PaginaAgendamentosResponse listar(FiltroAgendamentos filtro, String cursor, Integer tamanho) {
+        int limite = tamanho == null ? TAMANHO_PAGINA_PADRAO : Math.max(1, Math.min(tamanho, TAMANHO_PAGINA_MAXIMO));
+        CursorAgendamento posicao = cursor == null || cursor.isBlank() ? null : CursorAgendamento.decodificar(cursor);
+
+        // Um a mais que o limite: diz se existe próxima página sem contar as linhas
+        List<Agendamento> linhas = repository.findBy(filtro.aPartirDe(posicao),
+                q -> q.sortBy(ORDEM_LISTAGEM).limit(limite + 1).all());
+
+        boolean temMais = linhas.size() > limite;
+        List<Agendamento> pagina = temMais ? linhas.subList(0, limite) : linhas;
+        String proximoCursor = temMais ? CursorAgendamento.de(pagina.get(pagina.size() - 1)).codificar() : null;
+
+        return new PaginaAgendamentosResponse(
+                pagina.stream().map(AgendamentoResponse::new).collect(Collectors.toList()),
+                proximoCursor);
     }
 
     // --- 3. BUSCAR POR ID ---
@@ -108,33 +224,25 @@ public class AgendamentoService {
             // Aqui poderíamos ter um status CONFIRMADO, mas vamos manter simples por enquanto
             // Ou mudar para CONCLUIDO apenas após a consulta.
             // Para este exemplo, vamos assumir que não muda o status visual, apenas loga ou envia email.
+            // O e-mail (e demais reações) sai pelo outbox, fora desta transação.
+            outbox.registrar(agendamento, TipoEventoAgendamento.CONFIRMADO);
         }
     }
 
     @Transactional
     public void cancelar(UUID id) {
         Agendamento agendamento = buscarPorId(id);
-        agendamento.setStatus(StatusAgendamento.CANCELADO_PACIENTE);
-        agendamento.setStatusPagamento("CANCELADO");
-        repository.save(agendamento);
+        // UPDATE condicional: um cancelamento simultâneo a uma conclusão (ou outro cancelamento) recebe 409
+        transicao.cancelar(agendamento, StatusAgendamento.CANCELADO_PACIENTE);
+        cacheOcupacao.removerAgendamento(agendamento);
+        outbox.registrar(agendamento, TipoEventoAgendamento.CANCELADO);
+        // Após o commit, a lista de espera tenta ofertar o horário vago
+        eventos.publishEvent(new HorarioLiberadoEvent(agendamento.getMedico().getId(),
+                agendamento.getDataConsulta(), agendamento.getDataFimConsulta()));
     }
 
-    // --- 5. DASHBOARD DIÁRIO (Visão da Secretária) ---
+    // --- 5. DASHBOARD DIÁRIO (Visão da Secretária): projeção, uma consulta para o dia inteiro ---
     public List<AtendimentoDiarioDTO> listarAtendimentosDoDia(UUID medicoId, LocalDate data) {
-        LocalDateTime inicioDia = data.atStartOfDay();
-        LocalDateTime fimDia = data.atTime(LocalTime.MAX);
-
-        List<Agendamento> agendamentos = repository.findByMedicoIdAndDataConsultaBetweenOrderByDataConsultaAsc(
-                medicoId, inicioDia, fimDia);
-
-        return agendamentos.stream().map(a -> new AtendimentoDiarioDTO(
-                a.getId(),
-                a.getDataConsulta(),
-                a.getPaciente().getNome(),
-                a.getMedico().getEspecialidade().toString(),
-                a.getStatus().name(),
-                a.getStatusPagamento(),
-                a.getNomeConvenio() != null ? "CONVÊNIO: " + a.getNomeConvenio() : "PARTICULAR"
-        )).collect(Collectors.toList());
+        return repository.findAtendimentosDoDia(medicoId, data.atStartOfDay(), data.plusDays(1).atStartOfDay());
     }
-}
\ No newline at end of file
+}
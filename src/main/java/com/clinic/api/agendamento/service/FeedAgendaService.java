@@ -0,0 +1,306 @@
+package com.clinic.api.agendamento.service;
+
+import com.clinic.api.agendamento.domain.AgendamentoAlteradoEvent;
+import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import com.clinic.api.agendamento.dto.AgendaDeltaDTO;
+import com.clinic.api.agendamento.dto.AtendimentoDiarioDTO;
+import com.clinic.api.medico.domain.MedicoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+
+/**
+ * Feed SSE da lista da recepção (um médico ou a clínica inteira, num dia): substitui o polling de /diario.
+ * Protocolo: ao conectar, um evento "snapshot" com a lista do dia; depois, um "delta" por mudança
+ * (linha nova do agendamento, para substituir pelo agendamentoId). Reconexão com Last-Event-ID recebe só
+ * os deltas perdidos, se ainda estiverem no histórico desta instância; senão, um snapshot novo.
+ * Os deltas vêm do outbox ({@link AgendamentoAlteradoEvent}), então só chegam depois do commit.
+ * Cada tela tem a sua fila, limitada e esvaziada por uma tarefa própria no executor: uma conexão lenta
+ * não atrasa as outras, e a tela que acumula mais que {@code capacidadeFila} eventos é desconectada
+ * (o EventSource reconecta e retoma pelo histórico, ou recebe uma foto nova).
+ */
+@Service
+public class FeedAgendaService {
+
+    private static final Logger log = LoggerFactory.getLogger(FeedAgendaService.class);
+
+    static final long TIMEOUT_MS = 30 * 60 * 1000L; // O EventSource reconecta sozinho (com Last-Event-ID)
+
+    private final AgendamentoRepository repository;
+    private final MedicoRepository medicoRepository;
+    private final Executor executor;
+    private final int capacidadeHistorico;
+    private final int capacidadeFila;
+
+    // Ids "época-posição": a época muda a cada reinício, e um id de outra época força snapshot
+    private final String epoca = Long.toString(System.currentTimeMillis(), 36);
+    private final ArrayDeque<Registro> historico = new ArrayDeque<>(); // Protegido por 'this'
+    private long posicao;                                              // Protegido por 'this'
+    private final Set<Assinante> assinantes = ConcurrentHashMap.newKeySet();
+
+    private record Registro(long posicao, UUID medicoId, LocalDate data, AgendaDeltaDTO delta) {}
+
+    public FeedAgendaService(AgendamentoRepository repository,
+                             MedicoRepository medicoRepository,
+                             @Qualifier("feedAgendaExecutor") Executor executor,
+                             @Value("${agendamento.feed.historico:5000}") int capacidadeHistorico,
+                             @Value("${agendamento.feed.fila:200}") int capacidadeFila) {
+        this.repository = repository;
+        this.medicoRepository = medicoRepository;
+        this.executor = executor;
+        this.capacidadeHistorico = capacidadeHistorico;
+        this.capacidadeFila = capacidadeFila;
+    }
+
+    // --- 1. ASSINAR ---
+    public SseEmitter assinarMedico(UUID medicoId, LocalDate data, String ultimoEventoId) {
+        return assinar(Set.of(medicoId), data, ultimoEventoId);
+    }
+
+    // Os médicos da clínica são lidos na conexão (um médico novo aparece na próxima reconexão)
+    public SseEmitter assinarClinica(UUID clinicaId, LocalDate data, String ultimoEventoId) {
+        List<UUID> medicos = medicoRepository.findIdsByClinicaId(clinicaId);
+        if (medicos.isEmpty()) {
+            throw new RuntimeException("Clínica sem médicos vinculados.");
+        }
+        return assinar(Set.copyOf(medicos), data, ultimoEventoId);
+    }
+
+    private SseEmitter assinar(Set<UUID> medicos, LocalDate data, String ultimoEventoId) {
+        SseEmitter emitter = novoEmitter();
+        List<Registro> perdidos;
+        Assinante assinante;
+
+        // Entra na lista sob o mesmo lock que numera os deltas: nada entre o marco e a inscrição se perde
+        synchronized (this) {
+            assinante = new Assinante(medicos, data, emitter, posicao);
+            perdidos = perdidosDesde(ultimoEventoId, assinante);
+            assinantes.add(assinante);
+        }
+        emitter.onCompletion(() -> assinantes.remove(assinante));
+        emitter.onTimeout(() -> assinantes.remove(assinante));
+        emitter.onError(e -> assinantes.remove(assinante));
+
+        List<SseEventBuilder> iniciais = new ArrayList<>();
+        if (perdidos == null) {
+            List<AtendimentoDiarioDTO> itens;
+            try {
+                itens = repository.findAtendimentosDoDiaDosMedicos(
+                        medicos, data.atStartOfDay(), data.plusDays(1).atStartOfDay());
+            } catch (RuntimeException e) {
+                assinantes.remove(assinante);
+                throw e;
+            }
+            iniciais.add(SseEmitter.event().id(id(assinante.marco)).name("snapshot").data(itens));
+        } else {
+            perdidos.forEach(r -> iniciais.add(evento(r)));
+        }
+        // Deltas que chegaram durante a foto ficaram na fila do assinante e saem logo depois dela
+        assinante.iniciar(iniciais);
+        return emitter;
+    }
+
+    // Null = não dá para retomar (outra época, id inválido, histórico já descartado ou delta sem linha)
+    private List<Registro> perdidosDesde(String ultimoEventoId, Assinante assinante) {
+        if (ultimoEventoId == null) return null;
+        int separador = ultimoEventoId.lastIndexOf('-');
+        if (separador < 0 || !ultimoEventoId.substring(0, separador).equals(epoca)) return null;
+
+        long ultimo;
+        try {
+            ultimo = Long.parseLong(ultimoEventoId.substring(separador + 1));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+        long maisAntigo = historico.isEmpty() ? posicao + 1 : historico.peekFirst().posicao();
+        if (ultimo > posicao || ultimo + 1 < maisAntigo) return null;
+
+        List<Registro> perdidos = historico.stream()
+                .filter(r -> r.posicao() > ultimo && assinante.interessa(r.medicoId(), r.data()))
+                .toList();
+        // Sem ninguém assistindo, o delta foi guardado sem a linha: a foto resolve
+        return perdidos.stream().anyMatch(r -> r.delta().atendimento() == null) ? null : perdidos;
+    }
+
+    // --- 2. DELTAS (despachados pelo relay do outbox) ---
+    @EventListener
+    public void aoAlterarAgendamento(AgendamentoAlteradoEvent evento) {
+        LocalDate dia = evento.dataConsulta().toLocalDate();
+        // A linha só é buscada se alguma tela acompanha o médico/dia
+        boolean assistido = assinantes.stream().anyMatch(a -> a.interessa(evento.medicoId(), dia));
+        AtendimentoDiarioDTO atendimento = assistido
+                ? repository.findAtendimentoDoFeed(evento.agendamentoId()).orElse(null)
+                : null;
+
+        long posicaoEvento;
+        synchronized (this) {
+            Registro registro = new Registro(++posicao, evento.medicoId(), dia,
+                    new AgendaDeltaDTO(evento.tipo(), evento.agendamentoId(), atendimento));
+            historico.addLast(registro);
+            if (historico.size() > capacidadeHistorico) historico.removeFirst();
+            if (atendimento != null) {
+                distribuir(registro); // Só enfileira: não espera nenhuma conexão
+                return;
+            }
+            // Uma tela pode ter conectado depois da verificação acima
+            if (assinantes.stream().noneMatch(a -> a.interessa(evento.medicoId(), dia))) return;
+            posicaoEvento = registro.posicao();
+        }
+        repository.findAtendimentoDoFeed(evento.agendamentoId()).ifPresent(linha -> {
+            Registro completo = new Registro(posicaoEvento, evento.medicoId(), dia,
+                    new AgendaDeltaDTO(evento.tipo(), evento.agendamentoId(), linha));
+            distribuir(completo);
+        });
+    }
+
+    private void distribuir(Registro registro) {
+        for (Assinante assinante : assinantes) {
+            // posicao <= marco: já veio na foto (ou na retomada) desse assinante
+            if (registro.posicao() > assinante.marco && assinante.interessa(registro.medicoId(), registro.data())) {
+                assinante.entregar(evento(registro));
+            }
+        }
+    }
+
+    // --- 3. HEARTBEAT: mantém proxies abertos e descobre conexões mortas ---
+    @Scheduled(fixedRateString = "${agendamento.feed.heartbeat-ms:15000}")
+    public void heartbeat() {
+        assinantes.forEach(a -> a.entregar(SseEmitter.event().comment("ping")));
+    }
+
+    public int assinantesAtivos() {
+        return assinantes.size();
+    }
+
+    protected SseEmitter novoEmitter() {
+        return new SseEmitter(TIMEOUT_MS);
+    }
+
+    private SseEventBuilder evento(Registro registro) {
+        return SseEmitter.event().id(id(registro.posicao())).name("delta").data(registro.delta());
+    }
+
+    private String id(long posicaoEvento) {
+        return epoca + "-" + posicaoEvento;
+    }
+
+    private final class Assinante {
+
+        final Set<UUID> medicos;
+        final LocalDate data;
+        final SseEmitter emitter;
+        final long marco; // Última posição já coberta pela foto/retomada
+        private List<SseEventBuilder> pendentes = new ArrayList<>(); // Null depois de iniciar
+        private final ArrayDeque<SseEventBuilder> fila = new ArrayDeque<>(); // Protegida por 'this'
+        private boolean drenando;  // Há uma tarefa no executor esvaziando a fila
+        private boolean encerrado; // Desconectado por atraso: o que ainda chegar é descartado
+
+        Assinante(Set<UUID> medicos, LocalDate data, SseEmitter emitter, long marco) {
+            this.medicos = medicos;
+            this.data = data;
+            this.emitter = emitter;
+            this.marco = marco;
+        }
+
+        boolean interessa(UUID medicoId, LocalDate dia) {
+            return data.equals(dia) && medicos.contains(medicoId);
+        }
+
+        // Ainda na thread HTTP: o Spring guarda estes envios até a resposta começar, então não bloqueiam
+        synchronized void iniciar(List<SseEventBuilder> iniciais) {
+            List<SseEventBuilder> primeiros = new ArrayList<>(iniciais);
+            primeiros.addAll(pendentes);
+            pendentes = null;
+            if (encerrado) {
+                emitter.complete();
+                return;
+            }
+            for (SseEventBuilder evento : primeiros) {
+                if (!enviar(evento)) return;
+            }
+        }
+
+        // Nunca bloqueia quem entrega (relay do outbox, heartbeat): só enfileira
+        synchronized void entregar(SseEventBuilder evento) {
+            if (encerrado) return;
+            if ((pendentes != null ? pendentes.size() : fila.size()) >= capacidadeFila) {
+                desconectarAtrasado();
+                return;
+            }
+            if (pendentes != null) {
+                pendentes.add(evento);
+                return;
+            }
+            fila.addLast(evento);
+            if (!drenando) {
+                drenando = true;
+                executor.execute(this::drenar);
+            }
+        }
+
+        // Uma tarefa por vez para cada tela: mantém a ordem dos eventos dela. O envio fica fora do lock
+        private void drenar() {
+            while (true) {
+                SseEventBuilder evento;
+                synchronized (this) {
+                    if (encerrado) {
+                        drenando = false;
+                        emitter.complete(); // A escrita lenta terminou: agora dá para fechar
+                        return;
+                    }
+                    evento = fila.pollFirst();
+                    if (evento == null) {
+                        drenando = false;
+                        return;
+                    }
+                }
+                if (!enviar(evento)) {
+                    synchronized (this) {
+                        drenando = false;
+                    }
+                    return;
+                }
+            }
+        }
+
+        // Não chama o emitter aqui: ele pode estar preso na escrita desta mesma tela. Quem fecha é o drenar
+        private void desconectarAtrasado() {
+            encerrado = true;
+            fila.clear();
+            assinantes.remove(this);
+            log.warn("Feed da agenda: tela desconectada por acumular {} eventos sem receber", capacidadeFila);
+        }
+
+        private boolean enviar(SseEventBuilder evento) {
+            try {
+                emitter.send(evento);
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                // Tela fechada: sai da lista (o próximo EventSource reconecta com Last-Event-ID)
+                synchronized (this) {
+                    encerrado = true;
+                    fila.clear();
+                }
+                assinantes.remove(this);
+                emitter.completeWithError(e);
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.clinic.api.agendamento.service;
+
+import com.clinic.api.agendamento.domain.ForaDoHorizonteException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * Até quando se pode agendar. As partições mensais de tb_agendamento (V11) só existem até
+ * agendamento.particoes.meses-a-frente (ParticoesAgendamentoService): uma data depois delas falharia no INSERT.
+ * O limite é o início do último mês garantido, e não o fim dele: na virada do mês, antes da manutenção
+ * diária rodar, as partições criadas no mês anterior ainda o cobrem.
+ */
+@Component
+public class HorizonteAgendamento {
+
+    private static final DateTimeFormatter FORMATO = DateTimeFormatter.ofPattern("dd/MM/yyyy");
+
+    private final int mesesAFrente;
+
+    public HorizonteAgendamento(@Value("${agendamento.particoes.meses-a-frente:12}") int mesesAFrente) {
+        this.mesesAFrente = mesesAFrente;
+    }
+
+    // Primeiro instante fora do horizonte (exclusivo)
+    public LocalDateTime limite() {
+        return LocalDate.now().withDayOfMonth(1).plusMonths(mesesAFrente).atStartOfDay();
+    }
+
+    public boolean permite(LocalDateTime dataConsulta) {
+        return dataConsulta.isBefore(limite());
+    }
+
+    public void validar(LocalDateTime dataConsulta) {
+        if (!permite(dataConsulta)) {
+            throw new ForaDoHorizonteException(mensagem());
+        }
+    }
+
+    public String mensagem() {
+        return "A agenda está aberta para consultas até " + limite().minusDays(1).format(FORMATO) + ".";
+    }
+}
@@ -0,0 +1,36 @@
+package com.clinic.api.agendamento.service;
+
+import com.clinic.api.agendamento.Agendamento;
+import com.clinic.api.agendamento.domain.EventoAgendamento;
+import com.clinic.api.agendamento.domain.EventoAgendamentoRepository;
+import com.clinic.api.agendamento.domain.TipoEventoAgendamento;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+
+/**
+ * Escrita no outbox: só um INSERT na transação de quem mudou o agendamento.
+ * Reações (painéis, lembretes, notificações) ficam com o {@link RelayEventosAgendamento}, fora do caminho da reserva.
+ */
+@Component
+public class OutboxAgendamento {
+
+    private final EventoAgendamentoRepository repository;
+
+    public OutboxAgendamento(EventoAgendamentoRepository repository) {
+        this.repository = repository;
+    }
+
+    // MANDATORY: sem a transação da mudança, o evento poderia existir sem ela (ou o contrário)
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrar(Agendamento agendamento, TipoEventoAgendamento tipo) {
+        repository.save(new EventoAgendamento(agendamento, tipo));
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void registrarTodos(Collection<Agendamento> agendamentos, TipoEventoAgendamento tipo) {
+        repository.saveAll(agendamentos.stream().map(a -> new EventoAgendamento(a, tipo)).toList());
+    }
+}
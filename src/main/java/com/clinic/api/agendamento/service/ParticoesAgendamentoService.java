@@ -0,0 +1,53 @@
+package com.clinic.api.agendamento.service;
+
+import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+
+/**
+ * Manutenção das partições mensais de tb_agendamento (V11): garante os meses à frente, para que nenhum
+ * agendamento futuro fique sem partição, e, se configurado, arquiva (DETACH) os meses antigos no schema
+ * agendamento_arquivo, deixando só os recentes para as consultas quentes.
+ * Roda na subida (depois de um tempo fora do ar) e todo dia.
+ */
+@Service
+public class ParticoesAgendamentoService {
+
+    private static final Logger log = LoggerFactory.getLogger(ParticoesAgendamentoService.class);
+
+    private final AgendamentoRepository repository;
+    private final int mesesAFrente;
+    private final int arquivarAposMeses;
+
+    public ParticoesAgendamentoService(AgendamentoRepository repository,
+                                       @Value("${agendamento.particoes.meses-a-frente:12}") int mesesAFrente,
+                                       @Value("${agendamento.particoes.arquivar-apos-meses:0}") int arquivarAposMeses) {
+        if (mesesAFrente < 1) {
+            throw new IllegalArgumentException("agendamento.particoes.meses-a-frente deve ser pelo menos 1.");
+        }
+        this.repository = repository;
+        this.mesesAFrente = mesesAFrente;
+        this.arquivarAposMeses = arquivarAposMeses;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Scheduled(cron = "${agendamento.particoes.cron:0 30 3 * * *}")
+    public void manterParticoes() {
+        int criadas = repository.criarParticoesFuturas(mesesAFrente);
+        if (criadas > 0) log.info("Partições de agendamento criadas: {}", criadas);
+
+        // 0 = desligado: meses arquivados somem do histórico do paciente e dos prontuários
+        if (arquivarAposMeses > 0) {
+            LocalDate antesDe = LocalDate.now().withDayOfMonth(1).minusMonths(arquivarAposMeses);
+            int arquivadas = repository.arquivarParticoesAntesDe(antesDe);
+            if (arquivadas > 0) log.info("Partições de agendamento anteriores a {} arquivadas: {}", antesDe, arquivadas);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.clinic.api.agendamento.service;
+
+import com.clinic.api.agendamento.domain.AgendamentoAlteradoEvent;
+import com.clinic.api.agendamento.domain.EventoAgendamento;
+import com.clinic.api.agendamento.domain.EventoAgendamentoRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Relay do outbox: a cada ciclo trava lotes de eventos pendentes (SKIP LOCKED), publica cada um como
+ * {@link AgendamentoAlteradoEvent} para os ouvintes em processo (@EventListener) e marca como processado.
+ * Entrega pelo menos uma vez: se a transação do lote falhar, o lote inteiro volta a ser entregue.
+ * Cada evento é despachado numa transação própria (REQUIRES_NEW), onde os ouvintes fazem suas consultas:
+ * um ouvinte que falha (e marca a transação para rollback, ou recebe um erro de SQL) desfaz só o despacho dele.
+ * A transação do lote, que segura as linhas, registra o resultado: um evento que falhou fica pendente e é
+ * tentado de novo até {@link #MAX_TENTATIVAS}.
+ */
+@Component
+public class RelayEventosAgendamento {
+
+    static final int LOTE = 500;
+    static final int MAX_TENTATIVAS = 5;
+    static final int LOTE_LIMPEZA = 1_000;
+
+    private static final Logger log = LoggerFactory.getLogger(RelayEventosAgendamento.class);
+
+    private final EventoAgendamentoRepository repository;
+    private final ApplicationEventPublisher eventos;
+    private final TransactionTemplate transacao;
+    private final TransactionTemplate despacho;
+    private final long retencaoDias;
+
+    public RelayEventosAgendamento(EventoAgendamentoRepository repository,
+                                   ApplicationEventPublisher eventos,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${agendamento.outbox.retencao-dias:7}") long retencaoDias) {
+        this.repository = repository;
+        this.eventos = eventos;
+        this.transacao = new TransactionTemplate(transactionManager);
+        this.despacho = new TransactionTemplate(transactionManager);
+        this.despacho.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.retencaoDias = retencaoDias;
+    }
+
+    // --- 1. DESPACHO: lotes até esvaziar (ou até um lote ter falhas, que esperam o próximo ciclo) ---
+    @Scheduled(fixedDelayString = "${agendamento.outbox.relay-ms:1000}")
+    public int despachar() {
+        int total = 0;
+        Resultado resultado;
+        do {
+            resultado = transacao.execute(s -> despacharLote());
+            total += resultado.processados();
+        } while (resultado.lidos() == LOTE && resultado.falhas() == 0);
+        return total;
+    }
+
+    private record Resultado(int lidos, int processados, int falhas) {}
+
+    private Resultado despacharLote() {
+        List<EventoAgendamento> lote = repository.travarPendentes(LOTE);
+        LocalDateTime agora = LocalDateTime.now();
+        int processados = 0;
+        int falhas = 0;
+
+        for (EventoAgendamento evento : lote) {
+            try {
+                // Falha dentro do despacho (inclusive no commit dele) não contamina a transação do lote
+                despacho.executeWithoutResult(s -> eventos.publishEvent(new AgendamentoAlteradoEvent(evento)));
+                evento.setProcessadoEm(agora);
+                processados++;
+            } catch (RuntimeException e) {
+                falhas++;
+                evento.setTentativas(evento.getTentativas() + 1);
+                evento.setErro(resumo(e));
+                if (evento.getTentativas() >= MAX_TENTATIVAS) {
+                    evento.setProcessadoEm(agora); // Desiste: fica registrado com o erro
+                    log.error("Outbox: evento {} descartado após {} tentativas", evento.getId(), MAX_TENTATIVAS, e);
+                } else {
+                    log.warn("Outbox: falha ao despachar o evento {} (tentativa {})", evento.getId(), evento.getTentativas(), e);
+                }
+            }
+        }
+        // Entidades gerenciadas: as atualizações saem no commit (em lote, hibernate.jdbc.batch_size)
+        return new Resultado(lote.size(), processados, falhas);
+    }
+
+    // --- 2. RETENÇÃO: processados saem depois de alguns dias ---
+    @Scheduled(cron = "${agendamento.outbox.limpeza-cron:0 30 3 * * *}")
+    public int limparProcessados() {
+        LocalDateTime limite = LocalDateTime.now().minusDays(retencaoDias);
+        int total = 0;
+        int apagados;
+        do {
+            apagados = repository.apagarProcessadosAntesDe(limite, LOTE_LIMPEZA);
+            total += apagados;
+        } while (apagados == LOTE_LIMPEZA);
+        return total;
+    }
+
+    private static String resumo(RuntimeException e) {
+        String mensagem = e.getClass().getSimpleName() + ": " + e.getMessage();
+        return mensagem.length() > EventoAgendamento.TAMANHO_ERRO
+                ? mensagem.substring(0, EventoAgendamento.TAMANHO_ERRO) : mensagem;
+    }
+}
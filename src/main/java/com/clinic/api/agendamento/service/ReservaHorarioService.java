@@ -0,0 +1,125 @@
+package com.clinic.api.agendamento.service;
+
+import com.clinic.api.agenda.domain.HorarioLiberadoEvent;
+import com.clinic.api.agenda.service.CacheOcupacao;
+import com.clinic.api.agendamento.Agendamento;
+import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import com.clinic.api.agendamento.domain.ConflitoAgendamentoException;
+import com.clinic.api.agendamento.domain.ReservaApagada;
+import com.clinic.api.agendamento.domain.StatusAgendamento;
+import com.clinic.api.agendamento.domain.TipoEventoAgendamento;
+import com.clinic.api.agendamento.dto.AgendamentoRequest;
+import com.clinic.api.agendamento.dto.AgendamentoResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+/**
+ * Reserva temporária de horário: enquanto o paciente preenche o pagamento, o horário fica
+ * EM_PROCESSAMENTO (ocupado na disponibilidade) até expirar, ser confirmado ou liberado.
+ * Reservas abandonadas são apagadas em lotes pela limpeza agendada.
+ */
+@Service
+public class ReservaHorarioService {
+
+    static final int LOTE_LIMPEZA = 1_000;
+
+    private final AgendamentoService agendamentoService;
+    private final AgendamentoRepository repository;
+    private final CacheOcupacao cacheOcupacao;
+    private final ApplicationEventPublisher eventos;
+    private final OutboxAgendamento outbox;
+    private final TransicaoAgendamento transicao;
+    private final long validadeMinutos;
+
+    public ReservaHorarioService(AgendamentoService agendamentoService,
+                                 AgendamentoRepository repository,
+                                 CacheOcupacao cacheOcupacao,
+                                 ApplicationEventPublisher eventos,
+                                 OutboxAgendamento outbox,
+                                 TransicaoAgendamento transicao,
+                                 @Value("${agendamento.reserva.validade-minutos:10}") long validadeMinutos) {
+        this.agendamentoService = agendamentoService;
+        this.repository = repository;
+        this.cacheOcupacao = cacheOcupacao;
+        this.eventos = eventos;
+        this.outbox = outbox;
+        this.transicao = transicao;
+        this.validadeMinutos = validadeMinutos;
+    }
+
+    // --- 1. RESERVAR (mesmas validações, choques e nova tentativa do agendamento definitivo) ---
+    public AgendamentoResponse reservar(AgendamentoRequest request) {
+        LocalDateTime expiraEm = LocalDateTime.now().plusMinutes(validadeMinutos);
+        return agendamentoService.gravar(request, () ->
+                new AgendamentoResponse(agendamentoService.criar(request, StatusAgendamento.EM_PROCESSAMENTO, expiraEm)));
+    }
+
+    // --- 2. CONFIRMAR (pagamento concluído) ---
+    @Transactional
+    public AgendamentoResponse confirmar(UUID id) {
+        Agendamento reserva = buscarReserva(id);
+        if (!reserva.getExpiraEm().isAfter(LocalDateTime.now())) {
+            throw new ConflitoAgendamentoException("A reserva expirou. Escolha o horário novamente.");
+        }
+        transicao.confirmarReserva(reserva);
+        cacheOcupacao.registrarAgendamento(reserva); // No cache, deixa de expirar
+        outbox.registrar(reserva, TipoEventoAgendamento.AGENDADO); // Só agora a consulta está marcada
+        return new AgendamentoResponse(reserva);
+    }
+
+    // --- 3. LIBERAR (paciente desistiu antes de pagar; inclusive oferta recusada da lista de espera) ---
+    @Transactional
+    public void liberar(UUID id) {
+        Agendamento reserva = buscarReserva(id);
+        repository.delete(reserva);
+        cacheOcupacao.removerAgendamento(reserva);
+        eventos.publishEvent(new HorarioLiberadoEvent(reserva.getMedico().getId(),
+                reserva.getDataConsulta(), reserva.getDataFimConsulta()));
+    }
+
+    // --- 4. LIMPEZA das reservas vencidas: lotes limitados (cada um uma transação curta) até esvaziar.
+    // A disponibilidade já ignora reservas vencidas; aqui se recupera o espaço no banco e se avisa que os
+    // horários vagaram (uma oferta da lista de espera sem resposta passa para o próximo da fila).
+    @Scheduled(fixedDelayString = "${agendamento.reserva.limpeza-ms:60000}")
+    public int limparReservasVencidas() {
+        LocalDateTime limite = LocalDateTime.now().minusMinutes(validadeMinutos);
+        int total = 0;
+        List<ReservaApagada> apagadas;
+        do {
+            apagadas = repository.deleteByStatusAndDataCadastroBefore(StatusAgendamento.EM_PROCESSAMENTO, limite, LOTE_LIMPEZA);
+            total += apagadas.size();
+            avisarHorariosLiberados(apagadas);
+        } while (apagadas.size() == LOTE_LIMPEZA);
+        return total;
+    }
+
+    // Um aviso por médico e dia, cobrindo as reservas apagadas dele naquele dia
+    private void avisarHorariosLiberados(List<ReservaApagada> apagadas) {
+        apagadas.stream()
+                .collect(Collectors.toMap(
+                        r -> List.of(r.getMedicoId(), r.getInicio().toLocalDate()),
+                        r -> new HorarioLiberadoEvent(r.getMedicoId(), r.getInicio(), r.getFim()),
+                        (a, b) -> new HorarioLiberadoEvent(a.medicoId(),
+                                a.inicio().isBefore(b.inicio()) ? a.inicio() : b.inicio(),
+                                a.fim().isAfter(b.fim()) ? a.fim() : b.fim())))
+                .values()
+                .forEach(eventos::publishEvent);
+    }
+
+    private Agendamento buscarReserva(UUID id) {
+        Agendamento agendamento = repository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Reserva não encontrada."));
+        if (agendamento.getStatus() != StatusAgendamento.EM_PROCESSAMENTO) {
+            throw new ConflitoAgendamentoException("Este agendamento não é uma reserva pendente.");
+        }
+        return agendamento;
+    }
+}
@@ -0,0 +1,76 @@
+package com.clinic.api.agendamento.service;
+
+import com.clinic.api.agendamento.Agendamento;
+import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import com.clinic.api.agendamento.domain.ConflitoAgendamentoException;
+import com.clinic.api.agendamento.domain.StatusAgendamento;
+import com.clinic.api.agendamento.domain.StatusPagamento;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+
+/**
+ * Mudanças de status do agendamento: a máquina de estados ({@link StatusAgendamento#podeIrPara},
+ * {@link StatusPagamento#podeIrPara}) barra transições inválidas, e a gravação é um UPDATE condicional
+ * ao status lido. Dois pedidos simultâneos (cancelar x concluir) não se sobrescrevem: o segundo recebe 409.
+ * Depois da transição, a entidade passada fica desanexada, já com o status novo.
+ */
+@Component
+public class TransicaoAgendamento {
+
+    private final AgendamentoRepository repository;
+
+    public TransicaoAgendamento(AgendamentoRepository repository) {
+        this.repository = repository;
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void mudarStatus(Agendamento agendamento, StatusAgendamento destino) {
+        StatusAgendamento atual = validar(agendamento, destino);
+        if (repository.transicionarStatus(agendamento.getId(), atual, destino) == 0) {
+            throw alteradoPorOutro();
+        }
+        agendamento.setStatus(destino);
+    }
+
+    // Cancelamento leva o pagamento junto, no mesmo UPDATE
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void cancelar(Agendamento agendamento, StatusAgendamento destino) {
+        StatusAgendamento atual = validar(agendamento, destino);
+        if (!StatusPagamento.podeIrPara(agendamento.getStatusPagamento(), StatusPagamento.CANCELADO)) {
+            throw new ConflitoAgendamentoException("Pagamento " + agendamento.getStatusPagamento() + " não pode ser cancelado.");
+        }
+        int alterados = repository.transicionarStatusEPagamento(agendamento.getId(), atual, destino,
+                StatusPagamento.origensDe(StatusPagamento.CANCELADO), StatusPagamento.CANCELADO);
+        if (alterados == 0) {
+            throw alteradoPorOutro();
+        }
+        agendamento.setStatus(destino);
+        agendamento.setStatusPagamento(StatusPagamento.CANCELADO);
+    }
+
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void confirmarReserva(Agendamento reserva) {
+        validar(reserva, StatusAgendamento.AGENDADO);
+        // Expirou (ou foi confirmada/liberada) entre a leitura e o UPDATE
+        if (repository.confirmarReserva(reserva.getId(), LocalDateTime.now()) == 0) {
+            throw new ConflitoAgendamentoException("A reserva expirou ou já foi alterada. Escolha o horário novamente.");
+        }
+        reserva.setStatus(StatusAgendamento.AGENDADO);
+        reserva.setExpiraEm(null);
+    }
+
+    private StatusAgendamento validar(Agendamento agendamento, StatusAgendamento destino) {
+        StatusAgendamento atual = agendamento.getStatus();
+        if (!atual.podeIrPara(destino)) {
+            throw new ConflitoAgendamentoException("Agendamento " + atual + " não pode passar para " + destino + ".");
+        }
+        return atual;
+    }
+
+    private ConflitoAgendamentoException alteradoPorOutro() {
+        return new ConflitoAgendamentoException("O agendamento foi alterado por outra operação. Recarregue e tente novamente.");
+    }
+}
@@ -1,12 +1,17 @@
 package com.clinic.api.dashboard.controller;
 
+import com.clinic.api.dashboard.domain.Agrupamento;
+import com.clinic.api.dashboard.dto.DashboardClinicaDTO;
 import com.clinic.api.dashboard.dto.DashboardResumoDTO;
+import com.clinic.api.dashboard.dto.FaturamentoPeriodoDTO;
 import com.clinic.api.dashboard.dto.GraficoFaturamentoDTO;
 // IMPORTANTE: O Import do Service tem que estar aqui
+import com.clinic.api.dashboard.service.DashboardClinicaService;
 import com.clinic.api.dashboard.service.DashboardService;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.LocalDate;
 import java.util.List;
 import java.util.UUID;
 
@@ -15,10 +20,12 @@ import java.util.UUID;
 public class DashboardController {
 
     private final DashboardService service;
+    private final DashboardClinicaService clinicaService;
 
     // O Spring injeta o Service aqui automaticamente se a anotação @Service estiver na classe lá em cima
-    public DashboardController(DashboardService service) {
+    public DashboardController(DashboardService service, DashboardClinicaService clinicaService) {
         this.service = service;
+        this.clinicaService = clinicaService;
     }
 
     @GetMapping("/resumo-dia")
@@ -26,8 +33,25 @@ public class DashboardController {
         return ResponseEntity.ok(service.buscarResumoDoDia(medicoId));
     }
 
+    // Visão do gestor: totais da clínica e o resumo de cada médico
+    @GetMapping("/clinica/{clinicaId}/resumo-dia")
+    public ResponseEntity<DashboardClinicaDTO> buscarResumoDiaClinica(@PathVariable UUID clinicaId) {
+        return ResponseEntity.ok(clinicaService.buscarResumoDoDia(clinicaId));
+    }
+
     @GetMapping("/grafico-faturamento")
     public ResponseEntity<List<GraficoFaturamentoDTO>> buscarGrafico(@RequestParam UUID medicoId) {
         return ResponseEntity.ok(service.gerarDadosGrafico(medicoId));
     }
-}
\ No newline at end of file
+
+    // Série de faturamento para o financeiro: qualquer período, um ou vários médicos
+    // URL: GET /dashboard/faturamento?medicoIds=...&medicoIds=...&inicio=2026-01-01&fim=2026-06-30&agrupamento=SEMANA
+    @GetMapping("/faturamento")
+    public ResponseEntity<List<FaturamentoPeriodoDTO>> buscarSerieFaturamento(
+            @RequestParam List<UUID> medicoIds,
+            @RequestParam LocalDate inicio,
+            @RequestParam LocalDate fim,
+            @RequestParam(defaultValue = "MES") Agrupamento agrupamento) {
+        return ResponseEntity.ok(service.gerarSerieFaturamento(medicoIds, inicio, fim, agrupamento));
+    }
+}
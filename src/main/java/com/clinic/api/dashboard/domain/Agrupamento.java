@@ -0,0 +1,18 @@
+package com.clinic.api.dashboard.domain;
+
+// Tamanho de cada ponto da série de faturamento (unidade do date_trunc no banco)
+public enum Agrupamento {
+    DIA("day"),
+    SEMANA("week"), // Semanas começam na segunda-feira (ISO)
+    MES("month");
+
+    private final String unidade;
+
+    Agrupamento(String unidade) {
+        this.unidade = unidade;
+    }
+
+    public String getUnidade() { return unidade; }
+
+    public String getPasso() { return "1 " + unidade; }
+}
@@ -0,0 +1,84 @@
+package com.clinic.api.dashboard.domain;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.Immutable;
+
+import java.io.Serializable;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Objects;
+import java.util.UUID;
+
+// Totais de um médico num dia (V13). Só leitura: quem grava é o gatilho de tb_agendamento e a reconciliação
+@Entity
+@Immutable
+@Table(name = "tb_faturamento_diario")
+@IdClass(FaturamentoDiario.Chave.class)
+public class FaturamentoDiario {
+
+    @Id
+    @Column(name = "medico_id")
+    private UUID medicoId;
+
+    @Id
+    private LocalDate dia;
+
+    @Column(name = "qtd_agendadas", nullable = false)
+    private int qtdAgendadas;
+
+    @Column(name = "valor_agendado", nullable = false)
+    private BigDecimal valorAgendado;
+
+    @Column(name = "qtd_pagas", nullable = false)
+    private int qtdPagas;
+
+    @Column(name = "valor_pago", nullable = false)
+    private BigDecimal valorPago;
+
+    @Column(name = "qtd_convenio", nullable = false)
+    private int qtdConvenio;
+
+    @Column(name = "valor_convenio", nullable = false)
+    private BigDecimal valorConvenio;
+
+    public FaturamentoDiario() {}
+
+    public FaturamentoDiario(UUID medicoId, LocalDate dia, BigDecimal valorPago, BigDecimal valorConvenio) {
+        this.medicoId = medicoId;
+        this.dia = dia;
+        this.valorPago = valorPago;
+        this.valorConvenio = valorConvenio;
+    }
+
+    // O que entra no gráfico: pago pelo paciente + aprovado pelo convênio
+    public BigDecimal getValorRealizado() {
+        return valorPago.add(valorConvenio);
+    }
+
+    // --- GETTERS ---
+    public UUID getMedicoId() { return medicoId; }
+    public LocalDate getDia() { return dia; }
+    public int getQtdAgendadas() { return qtdAgendadas; }
+    public BigDecimal getValorAgendado() { return valorAgendado; }
+    public int getQtdPagas() { return qtdPagas; }
+    public BigDecimal getValorPago() { return valorPago; }
+    public int getQtdConvenio() { return qtdConvenio; }
+    public BigDecimal getValorConvenio() { return valorConvenio; }
+
+    public static class Chave implements Serializable {
+        private UUID medicoId;
+        private LocalDate dia;
+
+        public Chave() {}
+
+        @Override
+        public boolean equals(Object o) {
+            return o instanceof Chave c && Objects.equals(medicoId, c.medicoId) && Objects.equals(dia, c.dia);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(medicoId, dia);
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.clinic.api.dashboard.domain;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface FaturamentoDiarioRepository extends JpaRepository<FaturamentoDiario, FaturamentoDiario.Chave> {
+
+    // Gráfico: faixa da PK (medico_id, dia), no máximo uma linha por dia
+    List<FaturamentoDiario> findByMedicoIdAndDiaBetween(UUID medicoId, LocalDate inicio, LocalDate fim);
+
+    // Série densa por dia/semana/mês: agrega no banco (GROUP BY date_trunc) e completa os períodos vazios com zero
+    // (generate_series). O período é o início do bucket, então o primeiro pode começar antes de 'inicio'
+    @Query(value = "WITH agregado AS (" +
+            "SELECT date_trunc(:unidade, CAST(f.dia AS timestamp)) AS periodo, " +
+            "sum(f.qtd_agendadas) AS qtd_agendadas, sum(f.valor_agendado) AS valor_agendado, " +
+            "sum(f.qtd_pagas) AS qtd_pagas, sum(f.valor_pago) AS valor_pago, " +
+            "sum(f.qtd_convenio) AS qtd_convenio, sum(f.valor_convenio) AS valor_convenio " +
+            "FROM tb_faturamento_diario f " +
+            "WHERE f.medico_id IN (:medicoIds) AND f.dia BETWEEN :inicio AND :fim " +
+            "GROUP BY 1) " +
+            "SELECT to_char(s.periodo, 'YYYY-MM-DD') AS \"periodo\", " +
+            "CAST(COALESCE(a.qtd_agendadas, 0) AS bigint) AS \"qtdAgendadas\", " +
+            "COALESCE(a.valor_agendado, 0) AS \"valorAgendado\", " +
+            "CAST(COALESCE(a.qtd_pagas, 0) AS bigint) AS \"qtdPagas\", " +
+            "COALESCE(a.valor_pago, 0) AS \"valorPago\", " +
+            "CAST(COALESCE(a.qtd_convenio, 0) AS bigint) AS \"qtdConvenio\", " +
+            "COALESCE(a.valor_convenio, 0) AS \"valorConvenio\" " +
+            "FROM generate_series(date_trunc(:unidade, CAST(:inicio AS timestamp)), CAST(:fim AS timestamp), " +
+            "CAST(:passo AS interval)) AS s(periodo) " +
+            "LEFT JOIN agregado a ON a.periodo = s.periodo " +
+            "ORDER BY s.periodo", nativeQuery = true)
+    List<LinhaFaturamento> agregarPorPeriodo(@Param("medicoIds") Collection<UUID> medicoIds,
+                                             @Param("inicio") LocalDate inicio,
+                                             @Param("fim") LocalDate fim,
+                                             @Param("unidade") String unidade,
+                                             @Param("passo") String passo);
+
+    // Recalcula os dias a partir de 'desde' e devolve quantas linhas estavam divergentes (função da V13)
+    @Transactional
+    @Query(value = "SELECT reconciliar_faturamento_diario(CAST(:desde AS date))", nativeQuery = true)
+    int reconciliarDesde(@Param("desde") LocalDate desde);
+}
@@ -0,0 +1,14 @@
+package com.clinic.api.dashboard.domain;
+
+import java.math.BigDecimal;
+
+// Um ponto da série agregada no banco (projeção da consulta nativa; período em texto ISO, yyyy-MM-dd)
+public interface LinhaFaturamento {
+    String getPeriodo();
+    Long getQtdAgendadas();
+    BigDecimal getValorAgendado();
+    Long getQtdPagas();
+    BigDecimal getValorPago();
+    Long getQtdConvenio();
+    BigDecimal getValorConvenio();
+}
@@ -0,0 +1,11 @@
+package com.clinic.api.dashboard.dto;
+
+import java.util.List;
+import java.util.UUID;
+
+public record DashboardClinicaDTO(
+        UUID clinicaId,
+        DashboardResumoDTO totais,
+        List<ResumoMedicoDTO> medicos,
+        boolean parcial // true: alguma métrica não ficou pronta no tempo limite e veio zerada
+) {}
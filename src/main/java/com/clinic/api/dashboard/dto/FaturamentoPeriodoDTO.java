@@ -0,0 +1,25 @@
+package com.clinic.api.dashboard.dto;
+
+import com.clinic.api.dashboard.domain.LinhaFaturamento;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+public record FaturamentoPeriodoDTO(
+        LocalDate inicioPeriodo,
+        long qtdAgendadas,
+        BigDecimal valorAgendado,
+        long qtdPagas,
+        BigDecimal valorPago,
+        long qtdConvenio,
+        BigDecimal valorConvenio,
+        BigDecimal valorRealizado // Pago + convênio, como no gráfico
+) {
+    public FaturamentoPeriodoDTO(LinhaFaturamento linha) {
+        this(LocalDate.parse(linha.getPeriodo()),
+                linha.getQtdAgendadas(), linha.getValorAgendado(),
+                linha.getQtdPagas(), linha.getValorPago(),
+                linha.getQtdConvenio(), linha.getValorConvenio(),
+                linha.getValorPago().add(linha.getValorConvenio()));
+    }
+}
@@ -0,0 +1,9 @@
+package com.clinic.api.dashboard.dto;
+
+import java.util.UUID;
+
+public record ResumoMedicoDTO(
+        UUID medicoId,
+        String nome,
+        DashboardResumoDTO resumo
+) {}
@@ -0,0 +1,125 @@
+package com.clinic.api.dashboard.service;
+
+import com.clinic.api.dashboard.dto.DashboardResumoDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Function;
+
+/**
+ * Cache do resumo do dia por médico (uma entrada por médico, do dia corrente), com TTL curto.
+ * - Coalescência: pedidos simultâneos do mesmo médico esperam a MESMA carga (um cálculo só).
+ * - Recarga antecipada: mudança num agendamento do dia do médico recalcula a entrada em segundo plano,
+ *   sem esperar o TTL. Uma mudança durante uma carga em andamento agenda uma nova carga ao fim dela
+ *   (a carga em andamento pode ter lido o banco antes da mudança); rajadas viram no máximo uma carga extra.
+ * Médico sem entrada (ninguém com o dashboard aberto) não gera recarga.
+ */
+@Component
+public class CacheResumoDia {
+
+    private static final Logger log = LoggerFactory.getLogger(CacheResumoDia.class);
+
+    private final ConcurrentHashMap<UUID, Entrada> entradas = new ConcurrentHashMap<>();
+    private final ExecutorService executor;
+    private final long ttlNanos;
+
+    private static final class Entrada {
+        final LocalDate dia;
+        final CompletableFuture<DashboardResumoDTO> valor = new CompletableFuture<>();
+        final AtomicBoolean recarregarAoFim = new AtomicBoolean();
+        volatile long expiraEm; // nanoTime; definido quando a carga termina
+
+        Entrada(LocalDate dia) {
+            this.dia = dia;
+        }
+    }
+
+    public CacheResumoDia(@Qualifier("dashboardExecutor") ExecutorService executor,
+                          @Value("${dashboard.cache.ttl-segundos:30}") long ttlSegundos) {
+        this.executor = executor;
+        this.ttlNanos = TimeUnit.SECONDS.toNanos(ttlSegundos);
+    }
+
+    // --- 1. LEITURA (carrega na thread do pedido se não houver entrada válida) ---
+    public DashboardResumoDTO obter(UUID medicoId, Function<UUID, DashboardResumoDTO> carregador) {
+        Entrada atual = entradas.get(medicoId);
+        if (!valida(atual)) {
+            Entrada nova = new Entrada(LocalDate.now());
+            atual = entradas.compute(medicoId, (id, e) -> valida(e) ? e : nova);
+            if (atual == nova) {
+                carregar(medicoId, nova, carregador);
+            }
+        }
+        try {
+            return atual.valor.join();
+        } catch (CompletionException e) {
+            throw e.getCause() instanceof RuntimeException r ? r : e;
+        }
+    }
+
+    // --- 2. RECARGA ANTECIPADA (agendamento do médico mudou) ---
+    public void recarregar(UUID medicoId, Function<UUID, DashboardResumoDTO> carregador) {
+        Entrada atual = entradas.get(medicoId);
+        if (atual == null) return;
+
+        if (!atual.valor.isDone()) {
+            atual.recarregarAoFim.set(true);
+            // A carga pode ter terminado entre as duas verificações: quem vencer o CAS recarrega
+            if (!atual.valor.isDone() || !atual.recarregarAoFim.compareAndSet(true, false)) return;
+        }
+        recarregarEmSegundoPlano(medicoId, atual, carregador);
+    }
+
+    public int tamanho() {
+        return entradas.size();
+    }
+
+    // --- AUXILIARES ---
+    private void recarregarEmSegundoPlano(UUID medicoId, Entrada anterior, Function<UUID, DashboardResumoDTO> carregador) {
+        Entrada nova = new Entrada(LocalDate.now());
+        // Só troca se ninguém trocou antes (outra recarga ou um pedido depois do TTL)
+        if (!entradas.replace(medicoId, anterior, nova)) return;
+        executor.execute(() -> {
+            try {
+                carregar(medicoId, nova, carregador);
+            } catch (RuntimeException e) {
+                log.warn("Falha ao recarregar o resumo do dia do médico {}", medicoId, e);
+            }
+        });
+    }
+
+    private void carregar(UUID medicoId, Entrada entrada, Function<UUID, DashboardResumoDTO> carregador) {
+        DashboardResumoDTO resumo;
+        try {
+            resumo = carregador.apply(medicoId);
+        } catch (RuntimeException e) {
+            entradas.remove(medicoId, entrada); // Falha não fica em cache: o próximo pedido tenta de novo
+            entrada.valor.completeExceptionally(e);
+            throw e;
+        }
+        entrada.expiraEm = System.nanoTime() + ttlNanos;
+        entrada.valor.complete(resumo);
+
+        if (entrada.recarregarAoFim.compareAndSet(true, false)) {
+            recarregarEmSegundoPlano(medicoId, entrada, carregador);
+        }
+    }
+
+    // Em andamento conta como válida (coalescência); pronta vale até o TTL e só no mesmo dia
+    private boolean valida(Entrada entrada) {
+        if (entrada == null || !entrada.dia.equals(LocalDate.now())) return false;
+        if (!entrada.valor.isDone()) return true;
+        return !entrada.valor.isCompletedExceptionally() && System.nanoTime() - entrada.expiraEm < 0;
+    }
+}
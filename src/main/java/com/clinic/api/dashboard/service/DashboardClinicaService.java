@@ -0,0 +1,143 @@
+package com.clinic.api.dashboard.service;
+
+import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import com.clinic.api.agendamento.dto.ResumoAgendaMedicoDTO;
+import com.clinic.api.dashboard.dto.DashboardClinicaDTO;
+import com.clinic.api.dashboard.dto.DashboardResumoDTO;
+import com.clinic.api.dashboard.dto.ResumoMedicoDTO;
+import com.clinic.api.documento.domain.DocumentoRepository;
+import com.clinic.api.documento.domain.NaoVistosMedico;
+import com.clinic.api.medico.domain.MedicoRepository;
+import com.clinic.api.medico.dto.MedicoResumoDTO;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Resumo do dia da clínica inteira: totais e o mesmo DashboardResumoDTO de cada médico.
+ * Uma consulta agrupada por médico para cada métrica (agenda do dia; documentos não vistos), mais a lista
+ * de médicos, as três em paralelo no pool do dashboard. O custo não cresce com chamadas por médico.
+ * Tempo limite fixo (dashboard.clinica.orcamento-ms): sem a lista de médicos, erro; métrica atrasada vem
+ * zerada e a resposta sai marcada como parcial.
+ */
+@Service
+public class DashboardClinicaService {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardClinicaService.class);
+
+    private final MedicoRepository medicoRepository;
+    private final AgendamentoRepository agendamentoRepository;
+    private final DocumentoRepository documentoRepository;
+    private final ExecutorService executor;
+    private final long orcamentoNanos;
+
+    public DashboardClinicaService(MedicoRepository medicoRepository,
+                                   AgendamentoRepository agendamentoRepository,
+                                   DocumentoRepository documentoRepository,
+                                   @Qualifier("dashboardExecutor") ExecutorService executor,
+                                   @Value("${dashboard.clinica.orcamento-ms:2000}") long orcamentoMs) {
+        this.medicoRepository = medicoRepository;
+        this.agendamentoRepository = agendamentoRepository;
+        this.documentoRepository = documentoRepository;
+        this.executor = executor;
+        this.orcamentoNanos = TimeUnit.MILLISECONDS.toNanos(orcamentoMs);
+    }
+
+    public DashboardClinicaDTO buscarResumoDoDia(UUID clinicaId) {
+        long prazo = System.nanoTime() + orcamentoNanos;
+        LocalDate hoje = LocalDate.now();
+
+        // 1. As três consultas saem juntas
+        CompletableFuture<List<MedicoResumoDTO>> medicos =
+                emParalelo(() -> medicoRepository.findResumoByClinicaId(clinicaId));
+        CompletableFuture<Map<UUID, ResumoAgendaMedicoDTO>> agenda = emParalelo(() -> agendamentoRepository
+                .findResumoDoDiaPorMedico(clinicaId, hoje.atStartOfDay(), hoje.plusDays(1).atStartOfDay()).stream()
+                .collect(Collectors.toMap(ResumoAgendaMedicoDTO::medicoId, r -> r)));
+        CompletableFuture<Map<UUID, Long>> exames = emParalelo(() -> documentoRepository
+                .contarNaoVistosDosMedicosDaClinica(clinicaId).stream()
+                .collect(Collectors.toMap(NaoVistosMedico::getMedicoId, NaoVistosMedico::getQtd)));
+
+        // 2. Espera cada uma até o mesmo prazo
+        List<MedicoResumoDTO> listaMedicos = aguardar(medicos, prazo)
+                .orElseThrow(() -> new RuntimeException("O dashboard da clínica excedeu o tempo limite. Tente novamente."));
+        if (listaMedicos.isEmpty()) {
+            throw new RuntimeException("Clínica sem médicos vinculados.");
+        }
+        Optional<Map<UUID, ResumoAgendaMedicoDTO>> agendaPorMedico = aguardar(agenda, prazo);
+        Optional<Map<UUID, Long>> examesPorMedico = aguardar(exames, prazo);
+        boolean parcial = agendaPorMedico.isEmpty() || examesPorMedico.isEmpty();
+        if (parcial) {
+            log.warn("Dashboard da clínica {} parcial: métrica fora do tempo limite", clinicaId);
+        }
+
+        // 3. Monta por médico (médico sem agenda no dia aparece zerado) e soma os totais
+        List<ResumoMedicoDTO> porMedico = listaMedicos.stream()
+                .map(m -> new ResumoMedicoDTO(m.id(), m.nome(), resumo(
+                        agendaPorMedico.map(a -> a.get(m.id())).orElse(null),
+                        examesPorMedico.map(e -> e.getOrDefault(m.id(), 0L)).orElse(0L))))
+                .toList();
+
+        return new DashboardClinicaDTO(clinicaId, somar(porMedico), porMedico, parcial);
+    }
+
+    // --- AUXILIARES ---
+    private <T> CompletableFuture<T> emParalelo(Supplier<T> consulta) {
+        return CompletableFuture.supplyAsync(consulta, executor);
+    }
+
+    // Vazio se não ficou pronta no prazo; erro da consulta segue para o chamador
+    private <T> Optional<T> aguardar(CompletableFuture<T> futuro, long prazo) {
+        try {
+            return Optional.of(futuro.get(Math.max(0, prazo - System.nanoTime()), TimeUnit.NANOSECONDS));
+        } catch (TimeoutException e) {
+            futuro.cancel(false); // Se ainda estiver na fila do pool, nem chega a rodar
+            return Optional.empty();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Optional.empty();
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof RuntimeException r ? r : new RuntimeException(e.getCause());
+        }
+    }
+
+    private static DashboardResumoDTO resumo(ResumoAgendaMedicoDTO agenda, long exames) {
+        if (agenda == null) {
+            return new DashboardResumoDTO(0, 0, exames, BigDecimal.ZERO, BigDecimal.ZERO);
+        }
+        return new DashboardResumoDTO(agenda.qtdAtendimentos(), agenda.qtdPendentesPagamento(), exames,
+                agenda.faturamentoPrevisao(), agenda.faturamentoRealizado());
+    }
+
+    private static DashboardResumoDTO somar(List<ResumoMedicoDTO> porMedico) {
+        long atendimentos = 0;
+        long pendentes = 0;
+        long exames = 0;
+        BigDecimal previsao = BigDecimal.ZERO;
+        BigDecimal realizado = BigDecimal.ZERO;
+        for (ResumoMedicoDTO medico : porMedico) {
+            DashboardResumoDTO r = medico.resumo();
+            atendimentos += r.qtdAtendimentosHoje();
+            pendentes += r.qtdPendentesPagamento();
+            exames += r.qtdExamesNaoLidos();
+            previsao = previsao.add(r.faturamentoPrevisao());
+            realizado = realizado.add(r.faturamentoRealizado());
+        }
+        return new DashboardResumoDTO(atendimentos, pendentes, exames, previsao, realizado);
+    }
+}
@@ -1,35 +1,69 @@
 package com.clinic.api.dashboard.service;
 
 import com.clinic.api.agendamento.Agendamento;
+import com.clinic.api.agendamento.domain.AgendamentoAlteradoEvent;
 import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import com.clinic.api.dashboard.domain.Agrupamento;
+import com.clinic.api.dashboard.domain.FaturamentoDiario;
+import com.clinic.api.dashboard.domain.FaturamentoDiarioRepository;
 import com.clinic.api.dashboard.dto.DashboardResumoDTO;
+import com.clinic.api.dashboard.dto.FaturamentoPeriodoDTO;
 import com.clinic.api.dashboard.dto.GraficoFaturamentoDTO;
 import com.clinic.api.documento.domain.DocumentoRepository;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Service; // <--- OBRIGATÓRIO
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
 import java.time.format.TextStyle;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Collectors;
 
 @Service // <--- ISSO RESOLVE O "COULD NOT AUTOWIRE"
 public class DashboardService {
 
+    private static final int MAX_PONTOS_SERIE = 400;    // Ex: ~13 meses por dia, ~7 anos por semana
+    private static final int MAX_MEDICOS_SERIE = 500;
+
     private final AgendamentoRepository agendamentoRepository;
     private final DocumentoRepository documentoRepository;
+    private final FaturamentoDiarioRepository faturamentoRepository;
+    private final CacheResumoDia cacheResumo;
 
     public DashboardService(AgendamentoRepository agendamentoRepository,
-                            DocumentoRepository documentoRepository) {
+                            DocumentoRepository documentoRepository,
+                            FaturamentoDiarioRepository faturamentoRepository,
+                            CacheResumoDia cacheResumo) {
         this.agendamentoRepository = agendamentoRepository;
         this.documentoRepository = documentoRepository;
+        this.faturamentoRepository = faturamentoRepository;
+        this.cacheResumo = cacheResumo;
     }
 
+    // A tela fica aberta e atualiza o tempo todo: o resumo vem do cache (TTL curto, recarregado quando a agenda muda)
     public DashboardResumoDTO buscarResumoDoDia(UUID medicoId) {
+        return cacheResumo.obter(medicoId, this::calcularResumoDoDia);
+    }
+
+    // Mudança num agendamento de hoje (via outbox, depois do commit): recalcula o resumo desse médico já
+    @EventListener
+    public void aoAlterarAgendamento(AgendamentoAlteradoEvent evento) {
+        if (evento.dataConsulta().toLocalDate().equals(LocalDate.now())) {
+            cacheResumo.recarregar(evento.medicoId(), this::calcularResumoDoDia);
+        }
+    }
+
+    private DashboardResumoDTO calcularResumoDoDia(UUID medicoId) {
         LocalDate hoje = LocalDate.now();
         LocalDateTime inicio = hoje.atStartOfDay();
         LocalDateTime fim = hoje.atTime(LocalTime.MAX);
@@ -43,7 +77,7 @@ public class DashboardService {
                         Boolean.TRUE.equals(a.getPaciente().getAtendimentoParticular()))
                 .count();
 
-        long examesPendentes = documentoRepository.countByVistoPeloMedicoFalseAndOrigem("PACIENTE");
+        long examesPendentes = documentoRepository.contarNaoVistosDoMedico(medicoId);
 
         BigDecimal previsao = listaHoje.stream()
                 .map(Agendamento::getValorConsulta)
@@ -58,26 +92,50 @@ public class DashboardService {
         return new DashboardResumoDTO(qtdTotal, qtdPendentes, examesPendentes, previsao, realizado);
     }
 
+    // Últimos 6 meses (o atual incluído), lidos do rollup diário: uma consulta, até ~180 linhas
     public List<GraficoFaturamentoDTO> gerarDadosGrafico(UUID medicoId) {
-        List<GraficoFaturamentoDTO> grafico = new ArrayList<>();
-        LocalDate dataBase = LocalDate.now().minusMonths(5);
-
-        for (int i = 0; i < 6; i++) {
-            LocalDate mesReferencia = dataBase.plusMonths(i);
-            LocalDateTime inicioMes = mesReferencia.withDayOfMonth(1).atStartOfDay();
-            LocalDateTime fimMes = mesReferencia.withDayOfMonth(mesReferencia.lengthOfMonth()).atTime(LocalTime.MAX);
-
-            List<Agendamento> agendamentosMes = agendamentoRepository.findByMedicoIdAndDataConsultaBetweenOrderByDataConsultaAsc(medicoId, inicioMes, fimMes);
+        YearMonth primeiroMes = YearMonth.now().minusMonths(5);
+        YearMonth ultimoMes = YearMonth.now();
 
-            BigDecimal totalMes = agendamentosMes.stream()
-                    .filter(a -> "PAGO".equals(a.getStatusPagamento()) || "CONVENIO_APROVADO".equals(a.getStatusPagamento()))
-                    .map(Agendamento::getValorConsulta)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add);
+        Map<YearMonth, BigDecimal> totalPorMes = faturamentoRepository
+                .findByMedicoIdAndDiaBetween(medicoId, primeiroMes.atDay(1), ultimoMes.atEndOfMonth()).stream()
+                .collect(Collectors.groupingBy(f -> YearMonth.from(f.getDia()),
+                        Collectors.reducing(BigDecimal.ZERO, FaturamentoDiario::getValorRealizado, BigDecimal::add)));
 
+        List<GraficoFaturamentoDTO> grafico = new ArrayList<>();
+        for (int i = 0; i < 6; i++) {
+            YearMonth mesReferencia = primeiroMes.plusMonths(i);
             String nomeMes = mesReferencia.getMonth().getDisplayName(TextStyle.SHORT, new Locale("pt", "BR")).toUpperCase();
 
-            grafico.add(new GraficoFaturamentoDTO(nomeMes, totalMes));
+            grafico.add(new GraficoFaturamentoDTO(nomeMes, totalPorMes.getOrDefault(mesReferencia, BigDecimal.ZERO)));
         }
         return grafico;
     }
-}
\ No newline at end of file
+
+    // Faturamento de qualquer período e conjunto de médicos, agregado no banco a partir do rollup diário
+    public List<FaturamentoPeriodoDTO> gerarSerieFaturamento(Collection<UUID> medicoIds, LocalDate inicio,
+                                                             LocalDate fim, Agrupamento agrupamento) {
+        if (medicoIds == null || medicoIds.isEmpty()) {
+            throw new RuntimeException("Informe ao menos um médico.");
+        }
+        if (medicoIds.size() > MAX_MEDICOS_SERIE) {
+            throw new RuntimeException("Informe no máximo " + MAX_MEDICOS_SERIE + " médicos.");
+        }
+        if (fim.isBefore(inicio)) {
+            throw new RuntimeException("A data final deve ser igual ou posterior à inicial.");
+        }
+        long pontos = switch (agrupamento) {
+            case DIA -> ChronoUnit.DAYS.between(inicio, fim) + 1;
+            case SEMANA -> ChronoUnit.WEEKS.between(inicio, fim) + 2; // Buckets parciais nas pontas
+            case MES -> ChronoUnit.MONTHS.between(YearMonth.from(inicio), YearMonth.from(fim)) + 1;
+        };
+        if (pontos > MAX_PONTOS_SERIE) {
+            throw new RuntimeException("O período gera mais de " + MAX_PONTOS_SERIE + " pontos. Use um agrupamento maior.");
+        }
+
+        return faturamentoRepository.agregarPorPeriodo(Set.copyOf(medicoIds), inicio, fim,
+                        agrupamento.getUnidade(), agrupamento.getPasso()).stream()
+                .map(FaturamentoPeriodoDTO::new)
+                .toList();
+    }
+}
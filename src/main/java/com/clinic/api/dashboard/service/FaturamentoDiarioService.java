@@ -0,0 +1,45 @@
+package com.clinic.api.dashboard.service;
+
+import com.clinic.api.dashboard.domain.FaturamentoDiarioRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.LocalDate;
+
+/**
+ * Reconciliação noturna do rollup tb_faturamento_diario (V13). O gatilho de tb_agendamento já mantém os
+ * totais em tempo real; esta rotina recalcula a janela recente a partir dos agendamentos e corrige o que
+ * divergiu (escrita fora da aplicação, restauração de backup, mudança de critério).
+ */
+@Service
+public class FaturamentoDiarioService {
+
+    private static final Logger log = LoggerFactory.getLogger(FaturamentoDiarioService.class);
+
+    private final FaturamentoDiarioRepository repository;
+    private final int diasReconciliados;
+
+    public FaturamentoDiarioService(FaturamentoDiarioRepository repository,
+                                    @Value("${dashboard.faturamento.reconciliacao-dias:190}") int diasReconciliados) {
+        if (diasReconciliados < 1) {
+            throw new IllegalArgumentException("dashboard.faturamento.reconciliacao-dias deve ser pelo menos 1.");
+        }
+        this.repository = repository;
+        this.diasReconciliados = diasReconciliados;
+    }
+
+    // A janela vai do passado configurado até o último agendamento futuro. Meses já arquivados (DETACH das
+    // partições, ParticoesAgendamentoService) ficam de fora: a função começa no primeiro mês anexado (V15)
+    @Scheduled(cron = "${dashboard.faturamento.reconciliacao-cron:0 0 4 * * *}")
+    public void reconciliar() {
+        LocalDate desde = LocalDate.now().minusDays(diasReconciliados);
+        int corrigidas = repository.reconciliarDesde(desde);
+        if (corrigidas > 0) {
+            // Com o gatilho ativo, o esperado é zero: divergência indica escrita por fora
+            log.warn("Faturamento diário divergente desde {}: {} dia(s) corrigido(s)", desde, corrigidas);
+        }
+    }
+}
@@ -3,6 +3,7 @@ package com.clinic.api.documento.controller;
 import com.clinic.api.documento.Documento;
 import com.clinic.api.documento.dto.DocumentoResponse;
 import com.clinic.api.documento.service.DocumentoService;
+import com.clinic.api.infra.idempotencia.RegistroIdempotencia;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.UrlResource;
 import org.springframework.http.HttpHeaders;
@@ -22,21 +23,28 @@ import java.util.UUID;
 public class DocumentoController {
 
     private final DocumentoService service;
+    private final RegistroIdempotencia idempotencia;
 
-    public DocumentoController(DocumentoService service) {
+    public DocumentoController(DocumentoService service, RegistroIdempotencia idempotencia) {
         this.service = service;
+        this.idempotencia = idempotencia;
     }
 
     // --- UPLOAD ---
     // Exemplo: POST /documentos/upload?pacienteId=...&categoria=EXAME&origem=PACIENTE
+    // Idempotency-Key (opcional): reenvio do mesmo upload não grava o arquivo duas vezes
     @PostMapping("/upload")
     public ResponseEntity<DocumentoResponse> upload(
+            @RequestHeader(value = RegistroIdempotencia.HEADER, required = false) String chaveIdempotencia,
             @RequestParam UUID pacienteId,
             @RequestParam String categoria, // Ex: "EXAME", "RECEITA"
             @RequestParam String origem,    // Ex: "MEDICO", "PACIENTE"
             @RequestParam("arquivo") MultipartFile arquivo) {
 
-        DocumentoResponse response = service.salvarDocumento(pacienteId, categoria, origem, arquivo);
+        String impressao = String.join("|", pacienteId.toString(), categoria, origem,
+                String.valueOf(arquivo.getOriginalFilename()), String.valueOf(arquivo.getSize()));
+        DocumentoResponse response = idempotencia.executar("documento", chaveIdempotencia, impressao,
+                () -> service.salvarDocumento(pacienteId, categoria, origem, arquivo));
         return ResponseEntity.ok(response);
     }
 
@@ -46,6 +54,19 @@ public class DocumentoController {
         return ResponseEntity.ok(service.listarPorPaciente(pacienteId));
     }
 
+    // --- MARCAR COMO VISTO (médico) ---
+    // Exemplo: PATCH /documentos/vistos com corpo ["id1", "id2"]; responde quantos estavam pendentes
+    @PatchMapping("/vistos")
+    public ResponseEntity<Integer> marcarComoVistos(@RequestBody List<UUID> ids) {
+        return ResponseEntity.ok(service.marcarComoVistos(ids));
+    }
+
+    // Todos os documentos do paciente de uma vez
+    @PatchMapping("/paciente/{pacienteId}/vistos")
+    public ResponseEntity<Integer> marcarComoVistosDoPaciente(@PathVariable UUID pacienteId) {
+        return ResponseEntity.ok(service.marcarComoVistosDoPaciente(pacienteId));
+    }
+
     // --- DOWNLOAD ---
     @GetMapping("/{id}/baixar")
     public ResponseEntity<Resource> baixar(@PathVariable UUID id) {
@@ -2,8 +2,12 @@ package com.clinic.api.documento.domain;
 
 import com.clinic.api.documento.Documento;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.UUID;
 
@@ -13,6 +17,27 @@ public interface DocumentoRepository extends JpaRepository<Documento, UUID> {
     // Lista documentos do paciente (mais recentes primeiro)
     List<Documento> findByPacienteIdOrderByDataUploadDesc(UUID pacienteId);
 
-    // Dashboard: Conta quantos documentos enviados por pacientes o médico ainda não viu
-    long countByVistoPeloMedicoFalseAndOrigem(String origem);
-}
\ No newline at end of file
+    // Dashboard: documentos enviados pelos pacientes do médico que ele ainda não viu.
+    // Uma linha do contador mantido pelos gatilhos da V14 (médico sem nenhum pendente não tem linha)
+    @Query(value = "SELECT COALESCE((SELECT c.qtd FROM tb_documentos_nao_vistos c WHERE c.medico_id = :medicoId), 0)",
+            nativeQuery = true)
+    long contarNaoVistosDoMedico(@Param("medicoId") UUID medicoId);
+
+    // Dashboard da clínica: o mesmo contador para todos os médicos da clínica
+    @Query(value = "SELECT c.medico_id AS \"medicoId\", CAST(c.qtd AS bigint) AS \"qtd\" " +
+            "FROM tb_documentos_nao_vistos c JOIN tb_medico m ON m.id = c.medico_id " +
+            "WHERE m.clinica_id = :clinicaId", nativeQuery = true)
+    List<NaoVistosMedico> contarNaoVistosDosMedicosDaClinica(@Param("clinicaId") UUID clinicaId);
+
+    // Marcar como visto: um UPDATE para o lote; só os ainda não vistos mudam (e mexem no contador).
+    // NULL conta como não visto (linhas antigas; a coluna é anulável), como no gatilho da V14 (IS NOT TRUE)
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Documento d SET d.vistoPeloMedico = true WHERE d.id IN :ids " +
+            "AND (d.vistoPeloMedico = false OR d.vistoPeloMedico IS NULL)")
+    int marcarComoVistos(@Param("ids") Collection<UUID> ids);
+
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query("UPDATE Documento d SET d.vistoPeloMedico = true WHERE d.paciente.id = :pacienteId " +
+            "AND (d.vistoPeloMedico = false OR d.vistoPeloMedico IS NULL)")
+    int marcarComoVistosDoPaciente(@Param("pacienteId") UUID pacienteId);
+}
@@ -0,0 +1,9 @@
+package com.clinic.api.documento.domain;
+
+import java.util.UUID;
+
+// Linha do contador de documentos não vistos (projeção da consulta nativa)
+public interface NaoVistosMedico {
+    UUID getMedicoId();
+    Long getQtd();
+}
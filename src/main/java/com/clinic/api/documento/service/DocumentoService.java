@@ -15,13 +15,17 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.StandardCopyOption;
+import java.util.Collection;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 import java.util.stream.Collectors;
 
 @Service
 public class DocumentoService {
 
+    private static final int MAX_DOCUMENTOS_POR_LOTE = 500;
+
     private final DocumentoRepository repository;
     private final PacienteRepository pacienteRepository;
 
@@ -80,6 +84,26 @@ public class DocumentoService {
                 .orElseThrow(() -> new RuntimeException("Documento não encontrado."));
     }
 
+    // --- MARCAR COMO VISTO PELO MÉDICO (o contador do dashboard acompanha, ver V14) ---
+    @Transactional
+    public int marcarComoVistos(Collection<UUID> ids) {
+        if (ids == null || ids.isEmpty()) {
+            throw new RuntimeException("Informe ao menos um documento.");
+        }
+        if (ids.size() > MAX_DOCUMENTOS_POR_LOTE) {
+            throw new RuntimeException("Informe no máximo " + MAX_DOCUMENTOS_POR_LOTE + " documentos por vez.");
+        }
+        return repository.marcarComoVistos(Set.copyOf(ids));
+    }
+
+    @Transactional
+    public int marcarComoVistosDoPaciente(UUID pacienteId) {
+        if (!pacienteRepository.existsById(pacienteId)) {
+            throw new RuntimeException("Paciente não encontrado.");
+        }
+        return repository.marcarComoVistosDoPaciente(pacienteId);
+    }
+
     // --- MÉTODOS AUXILIARES DE ARQUIVO ---
 
     private String salvarNoDisco(MultipartFile arquivo) throws IOException {
@@ -0,0 +1,42 @@
+package com.clinic.api.infra.async;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class AsyncConfigurations {
+
+    // Pool LIMITADO para cálculos de disponibilidade em paralelo (ex: busca por especialidade).
+    // Tamanho fixo para que uma especialidade com muitos médicos não estoure threads do servidor.
+    @Bean(name = "disponibilidadeExecutor", destroyMethod = "shutdown")
+    public ExecutorService disponibilidadeExecutor(@Value("${agenda.disponibilidade.threads:4}") int threads) {
+        return Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("disponibilidade-"));
+    }
+
+    // Envio do feed SSE da recepção, fora do relay do outbox. Cada tela é esvaziada por uma tarefa de cada vez
+    // (a ordem dos eventos dela se mantém); várias threads para que uma conexão lenta não segure as outras.
+    @Bean(name = "feedAgendaExecutor", destroyMethod = "shutdown")
+    public ExecutorService feedAgendaExecutor(@Value("${agendamento.feed.threads:4}") int threads) {
+        return Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("feed-agenda-"));
+    }
+
+    // Dashboard: recargas disparadas por eventos (fora do relay do outbox) e as consultas paralelas da visão da clínica.
+    // Limitado: cada tarefa vai ao banco
+    @Bean(name = "dashboardExecutor", destroyMethod = "shutdown")
+    public ExecutorService dashboardExecutor(@Value("${dashboard.threads:4}") int threads) {
+        return Executors.newFixedThreadPool(threads, new CustomizableThreadFactory("dashboard-"));
+    }
+
+    // Ofertas da lista de espera: fora da thread HTTP de quem liberou o horário (cancelamento, bloqueio removido),
+    // que não espera a varredura da agenda. Uma thread só: duas liberações do mesmo médico não disputam os mesmos
+    // candidatos, e o banco recebe no máximo uma varredura por vez.
+    @Bean(name = "listaEsperaExecutor", destroyMethod = "shutdown")
+    public ExecutorService listaEsperaExecutor() {
+        return Executors.newSingleThreadExecutor(new CustomizableThreadFactory("lista-espera-"));
+    }
+}
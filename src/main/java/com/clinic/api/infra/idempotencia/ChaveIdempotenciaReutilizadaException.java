@@ -0,0 +1,13 @@
+package com.clinic.api.infra.idempotencia;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Mesma Idempotency-Key com outro conteúdo: erro do cliente, a API responde 422 em vez de repetir a resposta antiga
+@ResponseStatus(HttpStatus.UNPROCESSABLE_ENTITY)
+public class ChaveIdempotenciaReutilizadaException extends RuntimeException {
+
+    public ChaveIdempotenciaReutilizadaException(String mensagem) {
+        super(mensagem);
+    }
+}
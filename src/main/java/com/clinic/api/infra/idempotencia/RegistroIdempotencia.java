@@ -0,0 +1,143 @@
+package com.clinic.api.infra.idempotencia;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Header Idempotency-Key: a primeira requisição com a chave executa a ação; repetições dentro da janela
+ * recebem a mesma resposta sem executar de novo. Duplicatas simultâneas esperam a execução em andamento
+ * (só uma chega ao service), por no máximo {@code esperaSegundos}: depois disso recebem 409 e tentam de novo.
+ * Erros não ficam gravados: o cliente pode tentar de novo com a mesma chave.
+ *
+ * Memória limitada: no máximo {@code capacidade} chaves; as mais antigas JÁ CONCLUÍDAS saem primeiro.
+ * Uma chave em execução nunca sai (a repetição executaria a ação de novo): se todas estiverem em
+ * execução, a chave nova é recusada com 503.
+ */
+@Component
+public class RegistroIdempotencia {
+
+    public static final String HEADER = "Idempotency-Key";
+    private static final int TAMANHO_MAXIMO_CHAVE = 255;
+
+    private record Entrada(String impressao, CompletableFuture<Object> resultado, long criadaEm) {}
+
+    private final int capacidade;
+    private final long janelaMillis;
+    private final long esperaSegundos;
+    private final LinkedHashMap<String, Entrada> entradas = new LinkedHashMap<>(); // Ordem de chegada; protegido por 'this'
+
+    public RegistroIdempotencia(@Value("${idempotencia.capacidade:10000}") int capacidade,
+                                @Value("${idempotencia.janela-minutos:1440}") long janelaMinutos,
+                                @Value("${idempotencia.espera-segundos:30}") long esperaSegundos) {
+        this.capacidade = capacidade;
+        this.janelaMillis = janelaMinutos * 60_000;
+        this.esperaSegundos = esperaSegundos;
+    }
+
+    /**
+     * @param escopo    endpoint (a mesma chave em endpoints diferentes não se mistura)
+     * @param chave     valor do header; sem chave a ação simplesmente executa
+     * @param impressao resumo do conteúdo da requisição, para detectar chave reutilizada com outro pedido
+     */
+    @SuppressWarnings("unchecked")
+    public <T> T executar(String escopo, String chave, String impressao, Supplier<T> acao) {
+        if (chave == null || chave.isBlank()) return acao.get();
+        if (chave.length() > TAMANHO_MAXIMO_CHAVE) {
+            throw new RuntimeException("Idempotency-Key deve ter no máximo " + TAMANHO_MAXIMO_CHAVE + " caracteres.");
+        }
+
+        String id = escopo + ":" + usuarioAtual() + ":" + chave;
+        Entrada minha = new Entrada(impressao, new CompletableFuture<>(), System.currentTimeMillis());
+        Entrada existente;
+
+        synchronized (this) {
+            removerVencidas(minha.criadaEm());
+            existente = entradas.putIfAbsent(id, minha);
+            if (existente == null && entradas.size() > capacidade && !removerConcluidaMaisAntiga()) {
+                entradas.remove(id);
+                throw new RegistroIdempotenciaCheioException(
+                        "Muitas requisições em processamento. Tente novamente em instantes.");
+            }
+        }
+
+        // Repetição (ou duplicata simultânea): devolve o resultado da primeira, sem executar
+        if (existente != null) {
+            if (!existente.impressao().equals(impressao)) {
+                throw new ChaveIdempotenciaReutilizadaException("Esta Idempotency-Key já foi usada em outra requisição.");
+            }
+            return (T) aguardar(existente.resultado());
+        }
+
+        try {
+            T valor = acao.get();
+            minha.resultado().complete(valor);
+            return valor;
+        } catch (Throwable e) {
+            // Qualquer falha (inclusive Error) libera a chave e acorda as duplicatas que esperam este resultado
+            synchronized (this) {
+                entradas.remove(id, minha);
+            }
+            minha.resultado().completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    public synchronized int tamanho() {
+        return entradas.size();
+    }
+
+    // Ordem de chegada: as vencidas estão sempre no começo
+    private void removerVencidas(long agora) {
+        Iterator<Map.Entry<String, Entrada>> it = entradas.entrySet().iterator();
+        while (it.hasNext()) {
+            if (agora - it.next().getValue().criadaEm() < janelaMillis) return;
+            it.remove();
+        }
+    }
+
+    // Em execução = resultado ainda não concluído (a chave nova, recém-inserida no fim, também conta)
+    private boolean removerConcluidaMaisAntiga() {
+        Iterator<Entrada> it = entradas.values().iterator();
+        while (it.hasNext()) {
+            if (it.next().resultado().isDone()) {
+                it.remove();
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Object aguardar(CompletableFuture<Object> resultado) {
+        try {
+            return resultado.get(esperaSegundos, TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            throw new RequisicaoEmAndamentoException(
+                    "Uma requisição com esta Idempotency-Key ainda está em processamento. Tente novamente em instantes.");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Requisição interrompida.", e);
+        } catch (ExecutionException e) {
+            // A duplicata recebe o mesmo erro da requisição original (ex: 409)
+            if (e.getCause() instanceof RuntimeException erro) throw erro;
+            if (e.getCause() instanceof Error erro) throw erro;
+            throw new CompletionException(e.getCause());
+        }
+    }
+
+    private static String usuarioAtual() {
+        Authentication autenticacao = SecurityContextHolder.getContext().getAuthentication();
+        return autenticacao != null ? autenticacao.getName() : "";
+    }
+}
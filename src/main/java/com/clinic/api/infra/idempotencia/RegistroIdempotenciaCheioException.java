@@ -0,0 +1,13 @@
+package com.clinic.api.infra.idempotencia;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Todas as chaves guardadas ainda estão em execução: nenhuma pode sair sem perder a proteção. 503, o cliente repete
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class RegistroIdempotenciaCheioException extends RuntimeException {
+
+    public RegistroIdempotenciaCheioException(String mensagem) {
+        super(mensagem);
+    }
+}
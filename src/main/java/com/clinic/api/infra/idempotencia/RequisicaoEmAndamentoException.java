@@ -0,0 +1,13 @@
+package com.clinic.api.infra.idempotencia;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+// Duplicata que esperou demais pela requisição original (ainda em execução): 409, o cliente repete com a mesma chave
+@ResponseStatus(HttpStatus.CONFLICT)
+public class RequisicaoEmAndamentoException extends RuntimeException {
+
+    public RequisicaoEmAndamentoException(String mensagem) {
+        super(mensagem);
+    }
+}
@@ -0,0 +1,26 @@
+package com.clinic.api.infra.transacao;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Estruturas em memória (caches, índices) só devem refletir o que foi de fato gravado:
+ * a ação roda depois do commit da transação atual, ou na hora se não houver transação (ex: testes).
+ */
+public final class AposCommit {
+
+    private AposCommit() {}
+
+    public static void executar(Runnable acao) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    acao.run();
+                }
+            });
+        } else {
+            acao.run();
+        }
+    }
+}
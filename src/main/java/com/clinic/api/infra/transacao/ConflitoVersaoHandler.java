@@ -0,0 +1,18 @@
+package com.clinic.api.infra.transacao;
+
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ProblemDetail;
+import org.springframework.web.bind.annotation.ExceptionHandler;
+import org.springframework.web.bind.annotation.RestControllerAdvice;
+
+// Escrita com @Version desatualizada (outro pedido gravou a mesma linha antes): 409, como os demais conflitos, em vez de 500
+@RestControllerAdvice
+public class ConflitoVersaoHandler {
+
+    @ExceptionHandler(OptimisticLockingFailureException.class)
+    public ProblemDetail tratar(OptimisticLockingFailureException e) {
+        return ProblemDetail.forStatusAndDetail(HttpStatus.CONFLICT,
+                "O registro foi alterado por outra operação. Recarregue e tente novamente.");
+    }
+}
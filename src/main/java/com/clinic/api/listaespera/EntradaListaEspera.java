@@ -0,0 +1,91 @@
+package com.clinic.api.listaespera;
+
+import com.clinic.api.listaespera.domain.StatusListaEspera;
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+import java.util.Objects;
+import java.util.UUID;
+
+@Entity
+@Table(name = "tb_lista_espera")
+public class EntradaListaEspera {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.UUID)
+    private UUID id;
+
+    @Column(name = "medico_id", nullable = false)
+    private UUID medicoId;
+
+    @Column(name = "paciente_id", nullable = false)
+    private UUID pacienteId;
+
+    // Janela de preferência: aceita qualquer consulta que comece e termine dentro dela
+    @Column(name = "inicio_janela", nullable = false)
+    private LocalDateTime inicioJanela;
+
+    @Column(name = "fim_janela", nullable = false)
+    private LocalDateTime fimJanela;
+
+    @Column(nullable = false)
+    private Integer prioridade; // Maior primeiro (ex: retorno pós-cirúrgico)
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private StatusListaEspera status;
+
+    @Column(name = "data_cadastro", nullable = false)
+    private LocalDateTime dataCadastro;
+
+    // Reserva criada quando a entrada foi atendida por um horário vago
+    @Column(name = "agendamento_ofertado_id")
+    private UUID agendamentoOfertadoId;
+
+    @PrePersist
+    public void prePersist() {
+        if (this.dataCadastro == null) this.dataCadastro = LocalDateTime.now();
+        if (this.status == null) this.status = StatusListaEspera.AGUARDANDO;
+        if (this.prioridade == null) this.prioridade = 0;
+    }
+
+    public EntradaListaEspera() {}
+
+    public EntradaListaEspera(UUID medicoId, UUID pacienteId, LocalDateTime inicioJanela, LocalDateTime fimJanela, Integer prioridade) {
+        this.medicoId = medicoId;
+        this.pacienteId = pacienteId;
+        this.inicioJanela = inicioJanela;
+        this.fimJanela = fimJanela;
+        this.prioridade = prioridade;
+    }
+
+    // Getters e Setters
+    public UUID getId() { return id; }
+    public void setId(UUID id) { this.id = id; }
+    public UUID getMedicoId() { return medicoId; }
+    public void setMedicoId(UUID medicoId) { this.medicoId = medicoId; }
+    public UUID getPacienteId() { return pacienteId; }
+    public void setPacienteId(UUID pacienteId) { this.pacienteId = pacienteId; }
+    public LocalDateTime getInicioJanela() { return inicioJanela; }
+    public void setInicioJanela(LocalDateTime inicioJanela) { this.inicioJanela = inicioJanela; }
+    public LocalDateTime getFimJanela() { return fimJanela; }
+    public void setFimJanela(LocalDateTime fimJanela) { this.fimJanela = fimJanela; }
+    public Integer getPrioridade() { return prioridade; }
+    public void setPrioridade(Integer prioridade) { this.prioridade = prioridade; }
+    public StatusListaEspera getStatus() { return status; }
+    public void setStatus(StatusListaEspera status) { this.status = status; }
+    public LocalDateTime getDataCadastro() { return dataCadastro; }
+    public void setDataCadastro(LocalDateTime dataCadastro) { this.dataCadastro = dataCadastro; }
+    public UUID getAgendamentoOfertadoId() { return agendamentoOfertadoId; }
+    public void setAgendamentoOfertadoId(UUID agendamentoOfertadoId) { this.agendamentoOfertadoId = agendamentoOfertadoId; }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (o == null || getClass() != o.getClass()) return false;
+        EntradaListaEspera that = (EntradaListaEspera) o;
+        return Objects.equals(id, that.id);
+    }
+
+    @Override
+    public int hashCode() { return Objects.hash(id); }
+}
@@ -0,0 +1,42 @@
+package com.clinic.api.listaespera.controller;
+
+import com.clinic.api.listaespera.dto.ListaEsperaRequest;
+import com.clinic.api.listaespera.dto.ListaEsperaResponse;
+import com.clinic.api.listaespera.service.ListaEsperaService;
+import jakarta.validation.Valid;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.UUID;
+
+@RestController
+@RequestMapping("/lista-espera")
+public class ListaEsperaController {
+
+    private final ListaEsperaService service;
+
+    public ListaEsperaController(ListaEsperaService service) {
+        this.service = service;
+    }
+
+    // URL: POST /lista-espera
+    @PostMapping
+    public ResponseEntity<ListaEsperaResponse> entrar(@RequestBody @Valid ListaEsperaRequest request) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(service.entrar(request));
+    }
+
+    // URL: GET /lista-espera?medicoId=...
+    @GetMapping
+    public ResponseEntity<List<ListaEsperaResponse>> listar(@RequestParam UUID medicoId) {
+        return ResponseEntity.ok(service.listar(medicoId));
+    }
+
+    // URL: DELETE /lista-espera/{id}
+    @DeleteMapping("/{id}")
+    public ResponseEntity<Void> sair(@PathVariable UUID id) {
+        service.sair(id);
+        return ResponseEntity.noContent().build();
+    }
+}
@@ -0,0 +1,40 @@
+package com.clinic.api.listaespera.domain;
+
+import com.clinic.api.listaespera.EntradaListaEspera;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+@Repository
+public interface EntradaListaEsperaRepository extends JpaRepository<EntradaListaEspera, UUID> {
+
+    // Carga da fila em memória de um médico (índice parcial idx_lista_espera_aguardando)
+    List<EntradaListaEspera> findByMedicoIdAndStatusAndFimJanelaAfter(UUID medicoId, StatusListaEspera status, LocalDateTime agora);
+
+    // Tela da secretária: fila do médico na ordem de atendimento
+    List<EntradaListaEspera> findByMedicoIdAndStatusOrderByPrioridadeDescDataCadastroAsc(UUID medicoId, StatusListaEspera status);
+
+    // Janelas que terminaram sem vaga
+    @Transactional
+    @Modifying
+    @Query("UPDATE EntradaListaEspera e SET e.status = com.clinic.api.listaespera.domain.StatusListaEspera.EXPIRADO " +
+            "WHERE e.status = com.clinic.api.listaespera.domain.StatusListaEspera.AGUARDANDO AND e.fimJanela <= :agora")
+    int expirarVencidas(@Param("agora") LocalDateTime agora);
+
+    // Ofertas sem resposta: a reserva ofertada venceu, foi liberada ou já saiu na limpeza.
+    // Reserva confirmada (ou cancelada depois de confirmada) não conta: a oferta foi aceita
+    @Transactional
+    @Modifying
+    @Query("UPDATE EntradaListaEspera e SET e.status = com.clinic.api.listaespera.domain.StatusListaEspera.EXPIRADO " +
+            "WHERE e.status = com.clinic.api.listaespera.domain.StatusListaEspera.OFERTADO AND NOT EXISTS (" +
+            "SELECT 1 FROM Agendamento a WHERE a.id = e.agendamentoOfertadoId " +
+            "AND (a.status <> com.clinic.api.agendamento.domain.StatusAgendamento.EM_PROCESSAMENTO OR a.expiraEm > :agora))")
+    int encerrarOfertasVencidas(@Param("agora") LocalDateTime agora);
+}
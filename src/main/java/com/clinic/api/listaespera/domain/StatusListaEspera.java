@@ -0,0 +1,8 @@
+package com.clinic.api.listaespera.domain;
+
+public enum StatusListaEspera {
+    AGUARDANDO, // Na fila
+    OFERTADO,   // Recebeu uma reserva temporária de um horário vago
+    CANCELADO,  // Paciente saiu da fila
+    EXPIRADO    // A janela terminou sem vaga, ou a oferta venceu sem resposta
+}
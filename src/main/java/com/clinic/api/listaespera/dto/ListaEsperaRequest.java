@@ -0,0 +1,13 @@
+package com.clinic.api.listaespera.dto;
+
+import jakarta.validation.constraints.NotNull;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record ListaEsperaRequest(
+        @NotNull UUID medicoId,
+        @NotNull UUID pacienteId,
+        @NotNull LocalDateTime inicio, // Janela de preferência (ex: qualquer horário de 10/03 08h a 14/03 18h)
+        @NotNull LocalDateTime fim,
+        Integer prioridade             // Opcional: maior é atendido primeiro (padrão 0)
+) {}
@@ -0,0 +1,32 @@
+package com.clinic.api.listaespera.dto;
+
+import com.clinic.api.listaespera.EntradaListaEspera;
+import com.clinic.api.listaespera.domain.StatusListaEspera;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+public record ListaEsperaResponse(
+        UUID id,
+        UUID medicoId,
+        UUID pacienteId,
+        LocalDateTime inicio,
+        LocalDateTime fim,
+        Integer prioridade,
+        StatusListaEspera status,
+        LocalDateTime dataCadastro,
+        UUID agendamentoOfertadoId // Reserva a confirmar quando status = OFERTADO
+) {
+    public ListaEsperaResponse(EntradaListaEspera entrada) {
+        this(
+                entrada.getId(),
+                entrada.getMedicoId(),
+                entrada.getPacienteId(),
+                entrada.getInicioJanela(),
+                entrada.getFimJanela(),
+                entrada.getPrioridade(),
+                entrada.getStatus(),
+                entrada.getDataCadastro(),
+                entrada.getAgendamentoOfertadoId()
+        );
+    }
+}
@@ -0,0 +1,188 @@
+package com.clinic.api.listaespera.service;
+
+import com.clinic.api.infra.transacao.AposCommit;
+import com.clinic.api.listaespera.EntradaListaEspera;
+import com.clinic.api.listaespera.domain.EntradaListaEsperaRepository;
+import com.clinic.api.listaespera.domain.StatusListaEspera;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Fila de espera em memória de cada médico, espelho das entradas AGUARDANDO da tabela.
+ * Cada entrada é indexada em todos os dias da sua janela (no máximo {@link ListaEsperaService#MAX_DIAS_JANELA}),
+ * num TreeSet ordenado por prioridade e chegada: achar quem recebe um horário vago é O(log n)
+ * até o primeiro candidato do dia, mais os que estão na frente mas cuja janela não cobre o horário.
+ * Carregada por médico na primeira consulta; mudanças só entram após o commit.
+ *
+ * Cada carga vale {@code ttlMinutos}: entradas criadas ou canceladas por outra instância aparecem na
+ * recarga seguinte. A consulta ao banco roda FORA do lock; como no {@code CacheOcupacao}, a carga só é
+ * guardada se nenhuma escrita da mesma faixa de médicos chegou enquanto ela lia o banco.
+ */
+@Component
+public class FilaEspera {
+
+    public record Candidato(UUID entradaId, UUID medicoId, UUID pacienteId,
+                            LocalDateTime inicio, LocalDateTime fim, int prioridade, LocalDateTime dataCadastro) {
+
+        static Candidato de(EntradaListaEspera entrada) {
+            return new Candidato(entrada.getId(), entrada.getMedicoId(), entrada.getPacienteId(),
+                    entrada.getInicioJanela(), entrada.getFimJanela(), entrada.getPrioridade(), entrada.getDataCadastro());
+        }
+
+        boolean cobre(LocalDateTime inicioHorario, LocalDateTime fimHorario) {
+            return !inicioHorario.isBefore(inicio) && !fimHorario.isAfter(fim);
+        }
+    }
+
+    // Maior prioridade primeiro; empate: quem entrou antes (o id só desempata cadastros simultâneos)
+    static final Comparator<Candidato> ORDEM = Comparator.comparingInt(Candidato::prioridade).reversed()
+            .thenComparing(Candidato::dataCadastro)
+            .thenComparing(Candidato::entradaId);
+
+    private static final int FAIXAS = 64;
+
+    private final EntradaListaEsperaRepository repository;
+    private final long ttlMillis;
+    private final Map<UUID, FilaMedico> porMedico = new ConcurrentHashMap<>();
+    private final long[] versoes = new long[FAIXAS]; // Protegido por 'this'
+
+    public FilaEspera(EntradaListaEsperaRepository repository,
+                      @Value("${lista-espera.fila.ttl-minutos:5}") long ttlMinutos) {
+        this.repository = repository;
+        this.ttlMillis = ttlMinutos * 60_000;
+    }
+
+    // --- LEITURA ---
+    public boolean temCandidatos(UUID medicoId) {
+        return !fila(medicoId).vazia();
+    }
+
+    public Optional<Candidato> melhorPara(UUID medicoId, LocalDateTime inicio, LocalDateTime fim, Set<UUID> ignorar) {
+        return fila(medicoId).melhorPara(inicio, fim, ignorar);
+    }
+
+    public int tamanho(UUID medicoId) {
+        return fila(medicoId).tamanho();
+    }
+
+    // --- ESCRITAS (após o commit) ---
+    public void registrar(EntradaListaEspera entrada) {
+        Candidato candidato = Candidato.de(entrada);
+
+        // Médico ainda não carregado: nada a fazer, a carga lerá a entrada do banco
+        AposCommit.executar(() -> atualizar(candidato.medicoId(), fila -> fila.adicionar(candidato)));
+    }
+
+    public void remover(UUID medicoId, UUID entradaId) {
+        AposCommit.executar(() -> atualizar(medicoId, fila -> fila.remover(entradaId)));
+    }
+
+    // Janelas encerradas e dias passados saem da memória (o status no banco é atualizado pela rotina de expiração)
+    public void removerVencidas(LocalDateTime agora) {
+        porMedico.values().forEach(fila -> fila.removerVencidas(agora));
+    }
+
+    // A fila vencida continua recebendo as escritas até a recarga substituí-la
+    private synchronized void atualizar(UUID medicoId, Consumer<FilaMedico> mudanca) {
+        versoes[faixa(medicoId)]++;
+        FilaMedico fila = porMedico.get(medicoId);
+        if (fila != null) mudanca.accept(fila);
+    }
+
+    private FilaMedico fila(UUID medicoId) {
+        long agora = System.currentTimeMillis();
+        FilaMedico atual = porMedico.get(medicoId);
+        if (atual != null && agora - atual.carregadaEm < ttlMillis) return atual;
+
+        long versaoLida;
+        synchronized (this) {
+            versaoLida = versoes[faixa(medicoId)];
+        }
+
+        // Consulta ao banco FORA do lock (e fora do compute do mapa): não segura outros médicos
+        FilaMedico carregada = new FilaMedico(agora);
+        repository.findByMedicoIdAndStatusAndFimJanelaAfter(medicoId, StatusListaEspera.AGUARDANDO, LocalDateTime.now())
+                .forEach(e -> carregada.adicionar(Candidato.de(e)));
+
+        synchronized (this) {
+            if (versoes[faixa(medicoId)] == versaoLida) porMedico.put(medicoId, carregada);
+        }
+        return carregada;
+    }
+
+    private static int faixa(UUID medicoId) {
+        return Math.floorMod(medicoId.hashCode(), FAIXAS);
+    }
+
+    private static final class FilaMedico {
+
+        private final long carregadaEm;
+        private final Map<LocalDate, TreeSet<Candidato>> porDia = new HashMap<>();
+        private final Map<UUID, Candidato> porEntrada = new HashMap<>();
+
+        FilaMedico(long carregadaEm) {
+            this.carregadaEm = carregadaEm;
+        }
+
+        synchronized void adicionar(Candidato candidato) {
+            if (porEntrada.putIfAbsent(candidato.entradaId(), candidato) != null) return;
+            for (LocalDate dia = candidato.inicio().toLocalDate(); !dia.isAfter(ultimoDia(candidato)); dia = dia.plusDays(1)) {
+                porDia.computeIfAbsent(dia, d -> new TreeSet<>(ORDEM)).add(candidato);
+            }
+        }
+
+        synchronized void remover(UUID entradaId) {
+            Candidato candidato = porEntrada.remove(entradaId);
+            if (candidato == null) return;
+            for (LocalDate dia = candidato.inicio().toLocalDate(); !dia.isAfter(ultimoDia(candidato)); dia = dia.plusDays(1)) {
+                TreeSet<Candidato> fila = porDia.get(dia);
+                if (fila != null && fila.remove(candidato) && fila.isEmpty()) porDia.remove(dia);
+            }
+        }
+
+        synchronized Optional<Candidato> melhorPara(LocalDateTime inicio, LocalDateTime fim, Set<UUID> ignorar) {
+            TreeSet<Candidato> fila = porDia.get(inicio.toLocalDate());
+            if (fila == null) return Optional.empty();
+            for (Candidato candidato : fila) {
+                if (candidato.cobre(inicio, fim) && !ignorar.contains(candidato.entradaId())) {
+                    return Optional.of(candidato);
+                }
+            }
+            return Optional.empty();
+        }
+
+        synchronized void removerVencidas(LocalDateTime agora) {
+            porEntrada.values().stream()
+                    .filter(c -> !c.fim().isAfter(agora))
+                    .map(Candidato::entradaId)
+                    .toList()
+                    .forEach(this::remover);
+            porDia.keySet().removeIf(dia -> dia.isBefore(agora.toLocalDate()));
+        }
+
+        synchronized boolean vazia() {
+            return porEntrada.isEmpty();
+        }
+
+        synchronized int tamanho() {
+            return porEntrada.size();
+        }
+
+        // Janela terminando à meia-noite não ocupa o dia seguinte
+        private static LocalDate ultimoDia(Candidato candidato) {
+            return candidato.fim().minusNanos(1).toLocalDate();
+        }
+    }
+}
@@ -0,0 +1,213 @@
+package com.clinic.api.listaespera.service;
+
+import com.clinic.api.agenda.domain.HorarioLiberadoEvent;
+import com.clinic.api.agenda.service.AgendaService;
+import com.clinic.api.agendamento.Agendamento;
+import com.clinic.api.agendamento.domain.ConflitoAgendamentoException;
+import com.clinic.api.agendamento.dto.AgendamentoRequest;
+import com.clinic.api.agendamento.dto.AgendamentoResponse;
+import com.clinic.api.agendamento.service.ReservaHorarioService;
+import com.clinic.api.listaespera.EntradaListaEspera;
+import com.clinic.api.listaespera.domain.EntradaListaEsperaRepository;
+import com.clinic.api.listaespera.domain.StatusListaEspera;
+import com.clinic.api.listaespera.dto.ListaEsperaRequest;
+import com.clinic.api.listaespera.dto.ListaEsperaResponse;
+import com.clinic.api.medico.domain.MedicoRepository;
+import com.clinic.api.paciente.domain.PacienteRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Executor;
+
+/**
+ * Lista de espera por médico. Quando um horário vaga (cancelamento, reserva liberada, bloqueio removido),
+ * o primeiro da fila cuja janela cobre o horário recebe uma reserva temporária: ele confirma ou libera
+ * pelos endpoints de reserva, e a liberação devolve o horário para o próximo da fila.
+ */
+@Service
+public class ListaEsperaService {
+
+    public static final int MAX_DIAS_JANELA = 60;
+    static final int MAX_TENTATIVAS_POR_HORARIO = 3;
+
+    private static final Logger log = LoggerFactory.getLogger(ListaEsperaService.class);
+
+    private final EntradaListaEsperaRepository repository;
+    private final MedicoRepository medicoRepository;
+    private final PacienteRepository pacienteRepository;
+    private final FilaEspera fila;
+    private final AgendaService agendaService;
+    private final ReservaHorarioService reservaService;
+    private final TransactionTemplate novaTransacao;
+    private final Executor executor;
+
+    public ListaEsperaService(EntradaListaEsperaRepository repository,
+                              MedicoRepository medicoRepository,
+                              PacienteRepository pacienteRepository,
+                              FilaEspera fila,
+                              AgendaService agendaService,
+                              ReservaHorarioService reservaService,
+                              PlatformTransactionManager transactionManager,
+                              @Qualifier("listaEsperaExecutor") Executor executor) {
+        this.repository = repository;
+        this.medicoRepository = medicoRepository;
+        this.pacienteRepository = pacienteRepository;
+        this.fila = fila;
+        this.agendaService = agendaService;
+        this.reservaService = reservaService;
+        // Cada oferta numa transação própria: um choque com um paciente não derruba as demais
+        this.novaTransacao = new TransactionTemplate(transactionManager);
+        this.novaTransacao.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.executor = executor;
+    }
+
+    // --- 1. ENTRAR NA FILA ---
+    @Transactional
+    public ListaEsperaResponse entrar(ListaEsperaRequest request) {
+        if (!request.inicio().isBefore(request.fim())) {
+            throw new RuntimeException("Início da janela deve ser anterior ao fim.");
+        }
+        if (!request.fim().isAfter(LocalDateTime.now())) {
+            throw new RuntimeException("A janela de preferência já terminou.");
+        }
+        if (ChronoUnit.DAYS.between(request.inicio(), request.fim()) >= MAX_DIAS_JANELA) {
+            throw new RuntimeException("A janela de preferência pode ter no máximo " + MAX_DIAS_JANELA + " dias.");
+        }
+        if (!medicoRepository.existsById(request.medicoId())) {
+            throw new RuntimeException("Médico não encontrado.");
+        }
+        if (!pacienteRepository.existsById(request.pacienteId())) {
+            throw new RuntimeException("Paciente não encontrado.");
+        }
+
+        EntradaListaEspera salva = repository.save(new EntradaListaEspera(
+                request.medicoId(), request.pacienteId(), request.inicio(), request.fim(), request.prioridade()));
+        fila.registrar(salva);
+        return new ListaEsperaResponse(salva);
+    }
+
+    // --- 2. SAIR DA FILA ---
+    @Transactional
+    public void sair(UUID id) {
+        EntradaListaEspera entrada = repository.findById(id)
+                .orElseThrow(() -> new RuntimeException("Entrada da lista de espera não encontrada."));
+        if (entrada.getStatus() != StatusListaEspera.AGUARDANDO) {
+            throw new RuntimeException("Esta entrada não está mais aguardando.");
+        }
+        entrada.setStatus(StatusListaEspera.CANCELADO);
+        repository.save(entrada);
+        fila.remover(entrada.getMedicoId(), entrada.getId());
+    }
+
+    // --- 3. LISTAR (ordem de atendimento) ---
+    public List<ListaEsperaResponse> listar(UUID medicoId) {
+        return repository.findByMedicoIdAndStatusOrderByPrioridadeDescDataCadastroAsc(medicoId, StatusListaEspera.AGUARDANDO)
+                .stream().map(ListaEsperaResponse::new).toList();
+    }
+
+    // --- 4. HORÁRIO LIBERADO: após o commit de quem liberou, no executor da lista de espera (a resposta HTTP
+    // não espera a varredura da agenda); uma falha aqui não desfaz o cancelamento ---
+    // fallbackExecution: a limpeza de reservas vencidas avisa fora de transação
+    @TransactionalEventListener(fallbackExecution = true)
+    public void aoLiberarHorario(HorarioLiberadoEvent evento) {
+        executor.execute(() -> {
+            try {
+                ofertarHorariosLivres(evento.medicoId(), evento.inicio(), evento.fim());
+            } catch (RuntimeException e) {
+                log.warn("Lista de espera: falha ao ofertar horários liberados do médico {}", evento.medicoId(), e);
+            }
+        });
+    }
+
+    // Percorre os horários livres da grade que tocam o período liberado e oferta cada um ao melhor candidato
+    public int ofertarHorariosLivres(UUID medicoId, LocalDateTime inicio, LocalDateTime fim) {
+        if (!fila.temCandidatos(medicoId)) return 0; // Caminho comum: ninguém esperando, nada a consultar
+
+        int duracao = medicoRepository.findDuracaoConsulta(medicoId)
+                .map(Agendamento::duracaoEfetiva)
+                .orElseThrow(() -> new RuntimeException("Médico não encontrado."));
+
+        // Nenhuma janela vai além de MAX_DIAS_JANELA: um bloqueio longo (férias) não varre o ano todo
+        LocalDate hoje = LocalDate.now();
+        LocalDate primeiroDia = inicio.toLocalDate().isBefore(hoje) ? hoje : inicio.toLocalDate();
+        LocalDate ultimoDia = fim.minusNanos(1).toLocalDate();
+        if (ultimoDia.isAfter(hoje.plusDays(MAX_DIAS_JANELA))) ultimoDia = hoje.plusDays(MAX_DIAS_JANELA);
+
+        int ofertas = 0;
+        for (LocalDate dia = primeiroDia; !dia.isAfter(ultimoDia); dia = dia.plusDays(1)) {
+            for (LocalDateTime horario : agendaService.listarHorariosDisponiveis(medicoId, dia)) {
+                LocalDateTime fimHorario = horario.plusMinutes(duracao);
+                if (!horario.isBefore(fim) || !fimHorario.isAfter(inicio)) continue;
+
+                if (ofertar(medicoId, horario, fimHorario)) ofertas++;
+                if (!fila.temCandidatos(medicoId)) return ofertas;
+            }
+        }
+        return ofertas;
+    }
+
+    // Tenta os melhores candidatos do horário; o paciente pode ter outra consulta no mesmo horário
+    private boolean ofertar(UUID medicoId, LocalDateTime inicio, LocalDateTime fim) {
+        Set<UUID> tentados = new HashSet<>();
+        for (int tentativa = 0; tentativa < MAX_TENTATIVAS_POR_HORARIO; tentativa++) {
+            Optional<FilaEspera.Candidato> candidato = fila.melhorPara(medicoId, inicio, fim, tentados);
+            if (candidato.isEmpty()) return false;
+            tentados.add(candidato.get().entradaId());
+
+            try {
+                if (Boolean.TRUE.equals(novaTransacao.execute(s -> reservarPara(candidato.get(), inicio)))) {
+                    return true;
+                }
+            } catch (ConflitoAgendamentoException e) {
+                // Horário tomado por outro ou paciente ocupado: segue para o próximo da fila
+            }
+        }
+        return false;
+    }
+
+    private boolean reservarPara(FilaEspera.Candidato candidato, LocalDateTime horario) {
+        EntradaListaEspera entrada = repository.findById(candidato.entradaId()).orElse(null);
+        if (entrada == null || entrada.getStatus() != StatusListaEspera.AGUARDANDO) {
+            fila.remover(candidato.medicoId(), candidato.entradaId()); // Memória atrasada em relação ao banco
+            return false;
+        }
+
+        AgendamentoRequest request = new AgendamentoRequest();
+        request.setMedicoId(candidato.medicoId());
+        request.setPacienteId(candidato.pacienteId());
+        request.setDataConsulta(horario);
+        AgendamentoResponse reserva = reservaService.reservar(request);
+
+        entrada.setStatus(StatusListaEspera.OFERTADO);
+        entrada.setAgendamentoOfertadoId(reserva.getId());
+        repository.save(entrada);
+        fila.remover(entrada.getMedicoId(), entrada.getId());
+        return true;
+    }
+
+    // --- 5. EXPIRAÇÃO das janelas encerradas sem vaga e das ofertas que o paciente não respondeu
+    // (o horário dessas já voltou para a fila pelo aviso da limpeza de reservas) ---
+    @Scheduled(cron = "${lista-espera.expiracao-cron:0 0 * * * *}")
+    public int expirarVencidas() {
+        LocalDateTime agora = LocalDateTime.now();
+        int expiradas = repository.expirarVencidas(agora) + repository.encerrarOfertasVencidas(agora);
+        fila.removerVencidas(agora);
+        return expiradas;
+    }
+}
@@ -1,10 +1,15 @@
 package com.clinic.api.medico.domain;
 
 import com.clinic.api.medico.Medico;
+import com.clinic.api.medico.dto.MedicoCobrancaDTO;
+import com.clinic.api.medico.dto.MedicoResumoDTO;
 import com.clinic.api.medico.enun.Especialidade;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -28,6 +33,39 @@ public interface MedicoRepository extends JpaRepository<Medico, UUID> {
      */
     List<Medico> findByEspecialidade(Especialidade especialidade);
 
+    /**
+     * Id, nome e duração da consulta dos médicos ativos de uma especialidade, sem hidratar a entidade.
+     */
+    @Query("SELECT new com.clinic.api.medico.dto.MedicoResumoDTO(m.id, m.nome, m.duracaoConsulta) FROM Medico m " +
+            "WHERE m.especialidade = :especialidade AND m.ativo = true")
+    List<MedicoResumoDTO> findResumoAtivosPorEspecialidade(@Param("especialidade") Especialidade especialidade);
+
+    /**
+     * Ids dos médicos de uma clínica (feed da recepção por clínica).
+     */
+    @Query("SELECT m.id FROM Medico m WHERE m.clinica.id = :clinicaId")
+    List<UUID> findIdsByClinicaId(@Param("clinicaId") UUID clinicaId);
+
+    /**
+     * Id e nome dos médicos de uma clínica, sem hidratar a entidade (dashboard da clínica).
+     */
+    @Query("SELECT new com.clinic.api.medico.dto.MedicoResumoDTO(m.id, m.nome, m.duracaoConsulta) FROM Medico m " +
+            "WHERE m.clinica.id = :clinicaId ORDER BY m.nome")
+    List<MedicoResumoDTO> findResumoByClinicaId(@Param("clinicaId") UUID clinicaId);
+
+    /**
+     * Duração e valor da consulta de vários médicos numa consulta só (agendamento em lote).
+     */
+    @Query("SELECT new com.clinic.api.medico.dto.MedicoCobrancaDTO(m.id, m.duracaoConsulta, m.valorConsulta) " +
+            "FROM Medico m WHERE m.id IN :ids")
+    List<MedicoCobrancaDTO> findCobrancaByIdIn(@Param("ids") Collection<UUID> ids);
+
+    /**
+     * Duração da consulta do médico (0 quando não configurada); vazio se o médico não existe.
+     */
+    @Query("SELECT COALESCE(m.duracaoConsulta, 0) FROM Medico m WHERE m.id = :medicoId")
+    Optional<Integer> findDuracaoConsulta(@Param("medicoId") UUID medicoId);
+
     /**
      * Busca médicos pelo nome (parcial e ignorando maiúsculas/minúsculas).
      */
@@ -0,0 +1,11 @@
+package com.clinic.api.medico.dto;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+
+// O que o agendamento em lote usa do médico: duração e valor da consulta (sem hidratar Usuario e Clinica)
+public record MedicoCobrancaDTO(
+        UUID id,
+        Integer duracaoConsulta,
+        BigDecimal valorConsulta
+) {}
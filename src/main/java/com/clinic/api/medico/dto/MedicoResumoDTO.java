@@ -0,0 +1,10 @@
+package com.clinic.api.medico.dto;
+
+import java.util.UUID;
+
+// Projeção mínima do médico (evita carregar Usuario e Clinica, que são EAGER)
+public record MedicoResumoDTO(
+        UUID id,
+        String nome,
+        Integer duracaoConsulta
+) {}
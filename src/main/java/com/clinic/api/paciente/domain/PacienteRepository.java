@@ -4,7 +4,10 @@ package com.clinic.api.paciente.domain;
 import com.clinic.api.medico.enun.Especialidade;
 import com.clinic.api.paciente.Paciente;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
@@ -38,4 +41,8 @@ public interface PacienteRepository extends JpaRepository<Paciente, UUID> {
 
     // Listar pacientes por especialidade do médico vinculado
     List<Paciente> findByMedico_Especialidade(Especialidade especialidade);
-}
\ No newline at end of file
+
+    // Agendamento em lote: quais dos ids existem, sem hidratar Usuario de cada paciente
+    @Query("SELECT p.id FROM Paciente p WHERE p.id IN :ids")
+    List<UUID> findIdsExistentes(@Param("ids") Collection<UUID> ids);
+}
@@ -14,8 +14,10 @@ public class Prontuario {
     @GeneratedValue(strategy = GenerationType.UUID)
     private UUID id;
 
+    // Sem FK no banco: tb_agendamento é particionada (PK id + data_consulta), ver V11
     @OneToOne
-    @JoinColumn(name = "agendamento_id", nullable = false, unique = true)
+    @JoinColumn(name = "agendamento_id", nullable = false, unique = true,
+            foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
     private Agendamento agendamento;
 
     @Column(columnDefinition = "TEXT")
@@ -3,6 +3,9 @@ package com.clinic.api.prontuario.service;
 import com.clinic.api.agendamento.Agendamento;
 import com.clinic.api.agendamento.domain.AgendamentoRepository;
 import com.clinic.api.agendamento.domain.StatusAgendamento;
+import com.clinic.api.agendamento.domain.TipoEventoAgendamento;
+import com.clinic.api.agendamento.service.OutboxAgendamento;
+import com.clinic.api.agendamento.service.TransicaoAgendamento;
 import com.clinic.api.paciente.Paciente;
 import com.clinic.api.paciente.domain.PacienteRepository;
 import com.clinic.api.prontuario.domain.DadosClinicosFixos; // Import CORRETO
@@ -27,17 +30,23 @@ public class ProntuarioService {
     private final DadosClinicosFixosRepository dadosFixosRepository;
     private final PacienteRepository pacienteRepository;
     private final DeepSeekService deepSeekService;
+    private final OutboxAgendamento outbox;
+    private final TransicaoAgendamento transicao;
 
     public ProntuarioService(ProntuarioRepository repository,
                              AgendamentoRepository agendamentoRepository,
                              DadosClinicosFixosRepository dadosFixosRepository,
                              PacienteRepository pacienteRepository,
-                             DeepSeekService deepSeekService) {
+                             DeepSeekService deepSeekService,
+                             OutboxAgendamento outbox,
+                             TransicaoAgendamento transicao) {
         this.repository = repository;
         this.agendamentoRepository = agendamentoRepository;
         this.dadosFixosRepository = dadosFixosRepository;
         this.pacienteRepository = pacienteRepository;
         this.deepSeekService = deepSeekService;
+        this.outbox = outbox;
+        this.transicao = transicao;
     }
 
     // 1. SALVAR ATENDIMENTO
@@ -51,6 +60,13 @@ public class ProntuarioService {
             throw new RuntimeException("Acesso negado: Médico incorreto.");
         }
 
+        // Atualiza status do agendamento para CONCLUIDO antes de ler o prontuário: a transição limpa o contexto JPA.
+        // Edições posteriores do prontuário não repetem a transição nem o evento; agendamento cancelado recebe 409
+        if (agendamento.getStatus() != StatusAgendamento.CONCLUIDO) {
+            transicao.mudarStatus(agendamento, StatusAgendamento.CONCLUIDO);
+            outbox.registrar(agendamento, TipoEventoAgendamento.CONCLUIDO);
+        }
+
         Prontuario prontuario = repository.findByAgendamentoId(request.getAgendamentoId())
                 .orElse(new Prontuario(agendamento));
 
@@ -58,13 +74,6 @@ public class ProntuarioService {
         prontuario.setDiagnostico(request.getDiagnostico());
         prontuario.setPrescricaoMedica(request.getPrescricaoMedica());
 
-        // Atualiza status do agendamento para REALIZADO
-//        agendamento.setStatus("REALIZADO");
-        agendamento.setStatus(StatusAgendamento.CONCLUIDO);
-        // IMPORTANTE: Em produção, usar Enum StatusAgendamento.REALIZADO aqui
-
-        agendamentoRepository.save(agendamento);
-
         return new ProntuarioResponse(repository.save(prontuario));
     }
 
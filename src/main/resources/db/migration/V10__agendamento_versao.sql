@@ -0,0 +1,9 @@
+-- ==============================================================
+-- V10: VERSAO DO AGENDAMENTO (lock otimista)
+-- ==============================================================
+-- Toda escrita incrementa a versao: gravacoes concorrentes sobre a mesma linha
+-- falham (409) em vez de uma sobrescrever a outra. Transicoes de status usam
+-- UPDATE condicional (WHERE status = esperado) e tambem incrementam a versao.
+-- O DEFAULT constante nao reescreve a tabela (PostgreSQL 11+).
+
+ALTER TABLE tb_agendamento ADD COLUMN IF NOT EXISTS versao bigint NOT NULL DEFAULT 0;
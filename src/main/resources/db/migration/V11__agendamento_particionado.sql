@@ -0,0 +1,202 @@
+-- ==============================================================
+-- V11: tb_agendamento PARTICIONADA POR MES (data_consulta)
+-- ==============================================================
+-- Todas as buscas quentes (disponibilidade, recepcao, listagem) filtram por data_consulta:
+-- com uma particao por mes, o planner so visita os meses da janela pedida.
+-- Particoes futuras sao criadas pelo ParticoesAgendamentoService (criar_particoes_agendamento);
+-- meses antigos podem ser desanexados para o schema agendamento_arquivo (arquivar_particoes_agendamento).
+--
+-- O que muda por causa do particionamento (exigencias do PostgreSQL 13+):
+--  * A PK passa a ser (id, data_consulta). O id continua unico na pratica (UUID gerado).
+--  * tb_prontuario perde a FK para tb_agendamento (uma FK exigiria data_consulta no prontuario).
+--    A integridade fica com a aplicacao, como ja acontece com o outbox e a lista de espera.
+--  * As restricoes EXCLUDE da V4 passam a ser por particao (mesmo prefixo de nome, que a aplicacao
+--    procura na mensagem de erro). Um choque entre meses diferentes, ou seja uma consulta que atravessa
+--    a meia-noite da virada do mes, e barrado pelo gatilho checar_choque_entre_particoes, com o mesmo erro.
+
+-- 1. Tabela particionada (mesmas colunas da atual)
+ALTER TABLE tb_agendamento RENAME TO tb_agendamento_legado;
+
+CREATE TABLE tb_agendamento (
+    id                 uuid          NOT NULL,
+    medico_id          uuid          NOT NULL REFERENCES tb_medico (id),
+    paciente_id        uuid          NOT NULL REFERENCES tb_paciente (id),
+    data_consulta      timestamp(6)  NOT NULL,
+    data_fim_consulta  timestamp(6)  NOT NULL,
+    nome_convenio      varchar(255),
+    numero_carteirinha varchar(255),
+    forma_pagamento    varchar(255),
+    valor_consulta     numeric(38,2),
+    link_pagamento     varchar(255),
+    status_pagamento   varchar(255),
+    status             varchar(255)  NOT NULL,
+    data_cadastro      timestamp(6),
+    expira_em          timestamp(6),
+    serie_id           uuid,
+    versao             bigint        NOT NULL DEFAULT 0,
+    periodo            tsrange GENERATED ALWAYS AS (tsrange(data_consulta, data_fim_consulta, '[)')) STORED
+) PARTITION BY RANGE (data_consulta);
+
+-- 2. Uma particao por mes, com as restricoes de choque locais. Idempotente: false se ja existe
+CREATE OR REPLACE FUNCTION criar_particao_agendamento(mes date) RETURNS boolean
+LANGUAGE plpgsql AS $$
+DECLARE
+    inicio date := date_trunc('month', mes)::date;
+    sufixo text := to_char(date_trunc('month', mes), 'YYYY_MM');
+    nome   text := 'tb_agendamento_' || to_char(date_trunc('month', mes), 'YYYY_MM');
+BEGIN
+    IF to_regclass(nome) IS NOT NULL THEN
+        RETURN false;
+    END IF;
+    EXECUTE format('CREATE TABLE %I PARTITION OF tb_agendamento FOR VALUES FROM (%L) TO (%L)',
+                   nome, inicio, (inicio + interval '1 month')::date);
+    EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I EXCLUDE USING gist (medico_id WITH =, periodo WITH &&) '
+                   'WHERE (status NOT IN (''CANCELADO_PACIENTE'', ''CANCELADO_MEDICO''))',
+                   nome, 'ex_agendamento_medico_periodo_' || sufixo);
+    EXECUTE format('ALTER TABLE %I ADD CONSTRAINT %I EXCLUDE USING gist (paciente_id WITH =, periodo WITH &&) '
+                   'WHERE (status NOT IN (''CANCELADO_PACIENTE'', ''CANCELADO_MEDICO''))',
+                   nome, 'ex_agendamento_paciente_periodo_' || sufixo);
+    RETURN true;
+END;
+$$;
+
+-- Job diario: do mes corrente ate N meses a frente. O advisory lock serializa varias instancias
+CREATE OR REPLACE FUNCTION criar_particoes_agendamento(meses_a_frente integer) RETURNS integer
+LANGUAGE plpgsql AS $$
+DECLARE
+    mes    date;
+    criadas integer := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('particoes_agendamento'));
+    FOR mes IN SELECT generate_series(date_trunc('month', now()),
+                                      date_trunc('month', now()) + make_interval(months => meses_a_frente),
+                                      interval '1 month')::date
+    LOOP
+        IF criar_particao_agendamento(mes) THEN
+            criadas := criadas + 1;
+        END IF;
+    END LOOP;
+    RETURN criadas;
+END;
+$$;
+
+-- 3. Arquivamento: meses inteiros antes de 'antes_de' saem da tabela quente (DETACH) e vao para o
+-- schema agendamento_arquivo, onde continuam consultaveis direto (SELECT ... FROM agendamento_arquivo.tb_agendamento_2024_01)
+CREATE SCHEMA IF NOT EXISTS agendamento_arquivo;
+
+CREATE OR REPLACE FUNCTION arquivar_particoes_agendamento(antes_de date) RETURNS integer
+LANGUAGE plpgsql AS $$
+DECLARE
+    particao   record;
+    arquivadas integer := 0;
+BEGIN
+    PERFORM pg_advisory_xact_lock(hashtext('particoes_agendamento'));
+    FOR particao IN
+        SELECT c.relname
+        FROM pg_inherits i
+        JOIN pg_class c ON c.oid = i.inhrelid
+        WHERE i.inhparent = 'tb_agendamento'::regclass
+          AND c.relname ~ '^tb_agendamento_\d{4}_\d{2}$'
+          AND to_date(right(c.relname, 7), 'YYYY_MM') + interval '1 month' <= antes_de
+        ORDER BY c.relname
+    LOOP
+        EXECUTE format('ALTER TABLE tb_agendamento DETACH PARTITION %I', particao.relname);
+        EXECUTE format('ALTER TABLE %I SET SCHEMA agendamento_arquivo', particao.relname);
+        arquivadas := arquivadas + 1;
+    END LOOP;
+    RETURN arquivadas;
+END;
+$$;
+
+-- 4. Meses dos dados atuais + 12 meses a frente, e a copia
+DO $$
+DECLARE
+    mes date;
+BEGIN
+    FOR mes IN SELECT generate_series(
+                   date_trunc('month', LEAST(COALESCE(min(data_consulta), now()), now())),
+                   date_trunc('month', GREATEST(COALESCE(max(data_consulta), now()), now() + interval '12 months')),
+                   interval '1 month')::date
+               FROM tb_agendamento_legado
+    LOOP
+        PERFORM criar_particao_agendamento(mes);
+    END LOOP;
+END;
+$$;
+
+INSERT INTO tb_agendamento (id, medico_id, paciente_id, data_consulta, data_fim_consulta, nome_convenio,
+                            numero_carteirinha, forma_pagamento, valor_consulta, link_pagamento, status_pagamento,
+                            status, data_cadastro, expira_em, serie_id, versao)
+SELECT id, medico_id, paciente_id, data_consulta, data_fim_consulta, nome_convenio,
+       numero_carteirinha, forma_pagamento, valor_consulta, link_pagamento, status_pagamento,
+       status, data_cadastro, expira_em, serie_id, versao
+FROM tb_agendamento_legado;
+
+-- CASCADE: leva junto a FK de tb_prontuario (e a gerada pelo ddl-auto, se houver)
+DROP TABLE tb_agendamento_legado CASCADE;
+
+-- 5. PK e indices das V4-V7, agora declarados na tabela mae (replicados em cada particao, inclusive nas futuras)
+ALTER TABLE tb_agendamento ADD CONSTRAINT tb_agendamento_pkey PRIMARY KEY (id, data_consulta);
+
+CREATE INDEX IF NOT EXISTS idx_agendamento_medico_data_consulta
+    ON tb_agendamento (medico_id, data_consulta);
+
+CREATE INDEX IF NOT EXISTS idx_agendamento_reserva_cadastro
+    ON tb_agendamento (data_cadastro)
+    WHERE status = 'EM_PROCESSAMENTO';
+
+CREATE INDEX IF NOT EXISTS idx_agendamento_data_consulta_id
+    ON tb_agendamento (data_consulta, id);
+
+CREATE INDEX IF NOT EXISTS idx_agendamento_paciente_data_consulta
+    ON tb_agendamento (paciente_id, data_consulta, id);
+
+CREATE INDEX IF NOT EXISTS idx_agendamento_serie
+    ON tb_agendamento (serie_id)
+    WHERE serie_id IS NOT NULL;
+
+-- 6. Choques entre particoes vizinhas. So consultas perto da virada do mes pagam a verificacao:
+-- as que terminam no mes seguinte, ou comecam ate 8h (Agendamento.DURACAO_MAXIMA_MINUTOS) depois da virada.
+-- O advisory lock por medico/paciente serializa duas gravacoes concorrentes em meses diferentes.
+CREATE OR REPLACE FUNCTION checar_choque_entre_particoes() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    IF NEW.status IN ('CANCELADO_PACIENTE', 'CANCELADO_MEDICO')
+       OR (date_trunc('month', NEW.data_fim_consulta - interval '1 microsecond') = date_trunc('month', NEW.data_consulta)
+           AND NEW.data_consulta >= date_trunc('month', NEW.data_consulta) + interval '8 hours') THEN
+        RETURN NEW;
+    END IF;
+
+    PERFORM pg_advisory_xact_lock(hashtext('agendamento_medico_' || NEW.medico_id));
+    IF EXISTS (SELECT 1 FROM tb_agendamento a
+               WHERE a.medico_id = NEW.medico_id
+                 AND a.id <> NEW.id
+                 AND date_trunc('month', a.data_consulta) <> date_trunc('month', NEW.data_consulta)
+                 AND a.data_consulta >= NEW.data_consulta - interval '8 hours'
+                 AND a.data_consulta < NEW.data_fim_consulta
+                 AND a.periodo && tsrange(NEW.data_consulta, NEW.data_fim_consulta, '[)')
+                 AND a.status NOT IN ('CANCELADO_PACIENTE', 'CANCELADO_MEDICO')) THEN
+        RAISE EXCEPTION 'conflicting key value violates exclusion constraint "ex_agendamento_medico_periodo"'
+            USING ERRCODE = 'exclusion_violation', CONSTRAINT = 'ex_agendamento_medico_periodo';
+    END IF;
+
+    PERFORM pg_advisory_xact_lock(hashtext('agendamento_paciente_' || NEW.paciente_id));
+    IF EXISTS (SELECT 1 FROM tb_agendamento a
+               WHERE a.paciente_id = NEW.paciente_id
+                 AND a.id <> NEW.id
+                 AND date_trunc('month', a.data_consulta) <> date_trunc('month', NEW.data_consulta)
+                 AND a.data_consulta >= NEW.data_consulta - interval '8 hours'
+                 AND a.data_consulta < NEW.data_fim_consulta
+                 AND a.periodo && tsrange(NEW.data_consulta, NEW.data_fim_consulta, '[)')
+                 AND a.status NOT IN ('CANCELADO_PACIENTE', 'CANCELADO_MEDICO')) THEN
+        RAISE EXCEPTION 'conflicting key value violates exclusion constraint "ex_agendamento_paciente_periodo"'
+            USING ERRCODE = 'exclusion_violation', CONSTRAINT = 'ex_agendamento_paciente_periodo';
+    END IF;
+    RETURN NEW;
+END;
+$$;
+
+CREATE TRIGGER tg_agendamento_choque_entre_particoes
+    BEFORE INSERT OR UPDATE OF medico_id, paciente_id, data_consulta, data_fim_consulta, status
+    ON tb_agendamento
+    FOR EACH ROW EXECUTE FUNCTION checar_choque_entre_particoes();
@@ -0,0 +1,45 @@
+-- ==============================================================
+-- V12: INDICES PARA AS CONSULTAS DOS REPOSITORIOS
+-- ==============================================================
+-- Cada indice atende uma consulta derivada (nome do metodo no comentario). O IndicesConsultasTest
+-- roda EXPLAIN nessas consultas contra um banco populado e falha se alguma virar Seq Scan em tabela grande.
+-- Ja cobertos por migracoes anteriores:
+--   AgendamentoRepository.findByMedicoIdAndDataConsultaBetween...  -> idx_agendamento_medico_data_consulta (V4/V11)
+--   AgendamentoRepository.existsByPacienteIdAndDataConsultaAndStatusNot -> idx_agendamento_paciente_data_consulta (V6/V11)
+--   ProntuarioRepository.findByAgendamentoId -> UNIQUE de tb_prontuario.agendamento_id (V1)
+--   BloqueioAgendaRepository.findBloqueiosNoIntervalo -> idx_bloqueio_agenda_medico_periodo (GiST, V2)
+
+-- DocumentoRepository.findByPacienteIdOrderByDataUploadDesc: ja sai na ordem, sem Sort
+CREATE INDEX IF NOT EXISTS idx_documento_paciente_upload
+    ON tb_documento (paciente_id, data_upload DESC);
+
+-- DocumentoRepository.countByVistoPeloMedicoFalseAndOrigem: so os nao vistos entram no indice
+CREATE INDEX IF NOT EXISTS idx_documento_nao_visto_origem
+    ON tb_documento (origem)
+    WHERE visto_pelo_medico = false;
+
+-- ConfiguracaoAgendaRepository.findByMedicoIdAndDiaSemana / findByMedicoId(In)
+CREATE INDEX IF NOT EXISTS idx_configuracao_agenda_medico_dia
+    ON tb_configuracao_agenda (medico_id, dia_semana);
+
+-- BloqueioAgendaRepository.findPeriodosAPartirDe / findIntervalosDosMedicosAPartirDe (carga do IndiceBloqueios)
+CREATE INDEX IF NOT EXISTS idx_bloqueio_agenda_medico_fim
+    ON tb_bloqueio_agenda (medico_id, fim_bloqueio);
+
+-- PacienteRepository.findByMedicoId / findByPlanoId / findByTelefone
+CREATE INDEX IF NOT EXISTS idx_paciente_medico
+    ON tb_paciente (medico_id);
+
+CREATE INDEX IF NOT EXISTS idx_paciente_plano
+    ON tb_paciente (plano_id);
+
+CREATE INDEX IF NOT EXISTS idx_paciente_telefone
+    ON tb_paciente (telefone);
+
+-- MedicoRepository.findIdsByClinicaId
+CREATE INDEX IF NOT EXISTS idx_medico_clinica
+    ON tb_medico (clinica_id);
+
+-- PlanoRepository.findByConvenioId(AndAtivoTrue)
+CREATE INDEX IF NOT EXISTS idx_plano_convenio
+    ON tb_plano (convenio_id);
@@ -0,0 +1,131 @@
+-- ==============================================================
+-- V13: FATURAMENTO DIARIO POR MEDICO (rollup do grafico do dashboard)
+-- ==============================================================
+-- Uma linha por medico/dia com os totais de tb_agendamento: o grafico de 6 meses le no maximo ~180 linhas
+-- pela PK, em vez de carregar todos os agendamentos do periodo.
+-- Mantido em tempo real pelo gatilho tg_agendamento_faturamento (agendar, cancelar, mudar pagamento,
+-- apagar reserva vencida), na mesma transacao da escrita. reconciliar_faturamento_diario recalcula uma
+-- janela a partir de tb_agendamento e corrige divergencias (job noturno, FaturamentoDiarioService).
+--
+-- Criterios (o "realizado" do DashboardService e valor_pago + valor_convenio):
+--   agendadas: status AGENDADO ou CONCLUIDO (reservas EM_PROCESSAMENTO e canceladas ficam de fora)
+--   pagas / convenio: status_pagamento PAGO / CONVENIO_APROVADO (cancelar muda o pagamento para CANCELADO)
+
+CREATE TABLE IF NOT EXISTS tb_faturamento_diario (
+    medico_id       uuid          NOT NULL,
+    dia             date          NOT NULL,
+    qtd_agendadas   integer       NOT NULL DEFAULT 0,
+    valor_agendado  numeric(38,2) NOT NULL DEFAULT 0,
+    qtd_pagas       integer       NOT NULL DEFAULT 0,
+    valor_pago      numeric(38,2) NOT NULL DEFAULT 0,
+    qtd_convenio    integer       NOT NULL DEFAULT 0,
+    valor_convenio  numeric(38,2) NOT NULL DEFAULT 0,
+    CONSTRAINT tb_faturamento_diario_pkey PRIMARY KEY (medico_id, dia)
+);
+
+-- 1. Soma (sinal 1) ou tira (sinal -1) a contribuicao de uma linha de agendamento.
+-- Recebe as colunas, nao a linha: no gatilho, NEW/OLD tem o tipo da particao, nao o de tb_agendamento
+CREATE OR REPLACE FUNCTION aplicar_faturamento_diario(medico uuid, data_consulta timestamp, status varchar,
+                                                      status_pagamento varchar, valor_consulta numeric,
+                                                      sinal integer) RETURNS void
+LANGUAGE plpgsql AS $$
+DECLARE
+    agendada boolean := COALESCE(status IN ('AGENDADO', 'CONCLUIDO'), false);
+    paga     boolean := COALESCE(status_pagamento = 'PAGO', false);
+    convenio boolean := COALESCE(status_pagamento = 'CONVENIO_APROVADO', false);
+    valor    numeric := COALESCE(valor_consulta, 0);
+BEGIN
+    IF NOT (agendada OR paga OR convenio) THEN
+        RETURN;
+    END IF;
+    INSERT INTO tb_faturamento_diario AS f (medico_id, dia, qtd_agendadas, valor_agendado,
+                                            qtd_pagas, valor_pago, qtd_convenio, valor_convenio)
+    VALUES (medico, data_consulta::date,
+            CASE WHEN agendada THEN sinal ELSE 0 END, CASE WHEN agendada THEN sinal * valor ELSE 0 END,
+            CASE WHEN paga THEN sinal ELSE 0 END, CASE WHEN paga THEN sinal * valor ELSE 0 END,
+            CASE WHEN convenio THEN sinal ELSE 0 END, CASE WHEN convenio THEN sinal * valor ELSE 0 END)
+    ON CONFLICT (medico_id, dia) DO UPDATE SET
+        qtd_agendadas  = f.qtd_agendadas  + EXCLUDED.qtd_agendadas,
+        valor_agendado = f.valor_agendado + EXCLUDED.valor_agendado,
+        qtd_pagas      = f.qtd_pagas      + EXCLUDED.qtd_pagas,
+        valor_pago     = f.valor_pago     + EXCLUDED.valor_pago,
+        qtd_convenio   = f.qtd_convenio   + EXCLUDED.qtd_convenio,
+        valor_convenio = f.valor_convenio + EXCLUDED.valor_convenio;
+END;
+$$;
+
+-- 2. Gatilho: tira a linha antiga e soma a nova. So dispara nas colunas que mudam os totais
+-- (UPDATE so de versao, expira_em ou link_pagamento nao toca no rollup)
+CREATE OR REPLACE FUNCTION atualizar_faturamento_diario() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') THEN
+        PERFORM aplicar_faturamento_diario(OLD.medico_id, OLD.data_consulta, OLD.status,
+                                           OLD.status_pagamento, OLD.valor_consulta, -1);
+    END IF;
+    IF TG_OP IN ('UPDATE', 'INSERT') THEN
+        PERFORM aplicar_faturamento_diario(NEW.medico_id, NEW.data_consulta, NEW.status,
+                                           NEW.status_pagamento, NEW.valor_consulta, 1);
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER tg_agendamento_faturamento
+    AFTER INSERT OR DELETE OR UPDATE OF medico_id, data_consulta, status, status_pagamento, valor_consulta
+    ON tb_agendamento
+    FOR EACH ROW EXECUTE FUNCTION atualizar_faturamento_diario();
+
+-- 3. Reconciliacao: recalcula os dias a partir de 'desde' e corrige so o que divergiu. Retorna as linhas corrigidas.
+-- O lock SHARE ROW EXCLUSIVE segura os gatilhos concorrentes ate o commit: um agendamento gravado durante a
+-- reconciliacao aplica o delta depois dela, sobre o valor ja corrigido (nada se perde nem conta duas vezes)
+CREATE OR REPLACE FUNCTION reconciliar_faturamento_diario(desde date) RETURNS integer
+LANGUAGE plpgsql AS $$
+DECLARE
+    corrigidas integer;
+    removidas  integer;
+BEGIN
+    LOCK TABLE tb_faturamento_diario IN SHARE ROW EXCLUSIVE MODE;
+
+    CREATE TEMP TABLE faturamento_recalculado ON COMMIT DROP AS
+    SELECT medico_id,
+           data_consulta::date AS dia,
+           count(*) FILTER (WHERE status IN ('AGENDADO', 'CONCLUIDO'))::integer AS qtd_agendadas,
+           COALESCE(sum(valor_consulta) FILTER (WHERE status IN ('AGENDADO', 'CONCLUIDO')), 0) AS valor_agendado,
+           count(*) FILTER (WHERE status_pagamento = 'PAGO')::integer AS qtd_pagas,
+           COALESCE(sum(valor_consulta) FILTER (WHERE status_pagamento = 'PAGO'), 0) AS valor_pago,
+           count(*) FILTER (WHERE status_pagamento = 'CONVENIO_APROVADO')::integer AS qtd_convenio,
+           COALESCE(sum(valor_consulta) FILTER (WHERE status_pagamento = 'CONVENIO_APROVADO'), 0) AS valor_convenio
+    FROM tb_agendamento
+    WHERE data_consulta >= desde
+    GROUP BY medico_id, data_consulta::date;
+
+    INSERT INTO tb_faturamento_diario AS f
+    SELECT * FROM faturamento_recalculado
+    ON CONFLICT (medico_id, dia) DO UPDATE SET
+        qtd_agendadas  = EXCLUDED.qtd_agendadas,
+        valor_agendado = EXCLUDED.valor_agendado,
+        qtd_pagas      = EXCLUDED.qtd_pagas,
+        valor_pago     = EXCLUDED.valor_pago,
+        qtd_convenio   = EXCLUDED.qtd_convenio,
+        valor_convenio = EXCLUDED.valor_convenio
+    WHERE (f.qtd_agendadas, f.valor_agendado, f.qtd_pagas, f.valor_pago, f.qtd_convenio, f.valor_convenio)
+          IS DISTINCT FROM (EXCLUDED.qtd_agendadas, EXCLUDED.valor_agendado, EXCLUDED.qtd_pagas,
+                            EXCLUDED.valor_pago, EXCLUDED.qtd_convenio, EXCLUDED.valor_convenio);
+    GET DIAGNOSTICS corrigidas = ROW_COUNT;
+
+    -- Dias que nao tem mais nenhum agendamento que conte
+    DELETE FROM tb_faturamento_diario f
+    WHERE f.dia >= desde
+      AND NOT EXISTS (SELECT 1 FROM faturamento_recalculado r WHERE r.medico_id = f.medico_id AND r.dia = f.dia)
+      AND (f.qtd_agendadas, f.valor_agendado, f.qtd_pagas, f.valor_pago, f.qtd_convenio, f.valor_convenio)
+          IS DISTINCT FROM (0, 0, 0, 0, 0, 0);
+    GET DIAGNOSTICS removidas = ROW_COUNT;
+
+    DROP TABLE faturamento_recalculado;
+    RETURN corrigidas + removidas;
+END;
+$$;
+
+-- 4. Carga inicial com o historico inteiro
+SELECT reconciliar_faturamento_diario('-infinity'::date);
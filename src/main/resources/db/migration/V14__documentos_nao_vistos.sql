@@ -0,0 +1,89 @@
+-- ==============================================================
+-- V14: CONTADOR DE DOCUMENTOS NAO VISTOS POR MEDICO
+-- ==============================================================
+-- Resumo do dia: "exames enviados pelos pacientes do medico que ele ainda nao viu" vira a leitura de uma
+-- linha pela PK, em vez de um count(*) em tb_documento (que alem disso contava a clinica inteira).
+-- O medico do documento e o do paciente (tb_paciente.medico_id); paciente sem medico nao conta.
+-- Mantido pelos gatilhos abaixo, na transacao da escrita: upload, marcar como visto (um ou em lote),
+-- exclusao do documento e troca do medico do paciente.
+
+CREATE TABLE IF NOT EXISTS tb_documentos_nao_vistos (
+    medico_id uuid    NOT NULL PRIMARY KEY,
+    qtd       integer NOT NULL DEFAULT 0
+);
+
+-- 1. Ajusta o contador do medico do paciente (delta 1 ou -1)
+CREATE OR REPLACE FUNCTION ajustar_documentos_nao_vistos(paciente uuid, delta integer) RETURNS void
+LANGUAGE plpgsql AS $$
+DECLARE
+    medico uuid;
+BEGIN
+    SELECT p.medico_id INTO medico FROM tb_paciente p WHERE p.id = paciente;
+    IF medico IS NULL THEN
+        RETURN;
+    END IF;
+    INSERT INTO tb_documentos_nao_vistos AS c (medico_id, qtd) VALUES (medico, delta)
+    ON CONFLICT (medico_id) DO UPDATE SET qtd = c.qtd + EXCLUDED.qtd;
+END;
+$$;
+
+-- 2. Documento: conta se veio do paciente e o medico ainda nao viu
+CREATE OR REPLACE FUNCTION atualizar_documentos_nao_vistos() RETURNS trigger
+LANGUAGE plpgsql AS $$
+BEGIN
+    IF TG_OP IN ('UPDATE', 'DELETE') AND OLD.origem = 'PACIENTE' AND OLD.visto_pelo_medico IS NOT TRUE THEN
+        PERFORM ajustar_documentos_nao_vistos(OLD.paciente_id, -1);
+    END IF;
+    IF TG_OP IN ('UPDATE', 'INSERT') AND NEW.origem = 'PACIENTE' AND NEW.visto_pelo_medico IS NOT TRUE THEN
+        PERFORM ajustar_documentos_nao_vistos(NEW.paciente_id, 1);
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER tg_documento_nao_vistos
+    AFTER INSERT OR DELETE OR UPDATE OF visto_pelo_medico, origem, paciente_id
+    ON tb_documento
+    FOR EACH ROW EXECUTE FUNCTION atualizar_documentos_nao_vistos();
+
+-- 3. Paciente trocou de medico: os nao vistos dele passam para o novo
+CREATE OR REPLACE FUNCTION transferir_documentos_nao_vistos() RETURNS trigger
+LANGUAGE plpgsql AS $$
+DECLARE
+    pendentes integer;
+BEGIN
+    SELECT count(*) INTO pendentes
+    FROM tb_documento d
+    WHERE d.paciente_id = NEW.id AND d.origem = 'PACIENTE' AND d.visto_pelo_medico IS NOT TRUE;
+    IF pendentes = 0 THEN
+        RETURN NULL;
+    END IF;
+    IF OLD.medico_id IS NOT NULL THEN
+        UPDATE tb_documentos_nao_vistos SET qtd = qtd - pendentes WHERE medico_id = OLD.medico_id;
+    END IF;
+    IF NEW.medico_id IS NOT NULL THEN
+        INSERT INTO tb_documentos_nao_vistos AS c (medico_id, qtd) VALUES (NEW.medico_id, pendentes)
+        ON CONFLICT (medico_id) DO UPDATE SET qtd = c.qtd + EXCLUDED.qtd;
+    END IF;
+    RETURN NULL;
+END;
+$$;
+
+CREATE TRIGGER tg_paciente_documentos_nao_vistos
+    AFTER UPDATE OF medico_id
+    ON tb_paciente
+    FOR EACH ROW
+    WHEN (OLD.medico_id IS DISTINCT FROM NEW.medico_id)
+    EXECUTE FUNCTION transferir_documentos_nao_vistos();
+
+-- 4. Carga inicial
+INSERT INTO tb_documentos_nao_vistos (medico_id, qtd)
+SELECT p.medico_id, count(*)
+FROM tb_documento d
+JOIN tb_paciente p ON p.id = d.paciente_id
+WHERE d.origem = 'PACIENTE' AND d.visto_pelo_medico IS NOT TRUE AND p.medico_id IS NOT NULL
+GROUP BY p.medico_id
+ON CONFLICT (medico_id) DO UPDATE SET qtd = EXCLUDED.qtd;
+
+-- A contagem global por origem (V12) saiu da aplicacao; o indice parcial so custava escrita
+DROP INDEX IF EXISTS idx_documento_nao_visto_origem;
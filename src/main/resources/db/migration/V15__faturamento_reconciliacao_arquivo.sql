@@ -0,0 +1,68 @@
+-- ==============================================================
+-- V15: RECONCILIACAO DO FATURAMENTO SO NOS MESES AINDA ANEXADOS
+-- ==============================================================
+-- O arquivamento (arquivar_particoes_agendamento, V11) desanexa meses inteiros de tb_agendamento, e o DETACH
+-- nao dispara o gatilho de faturamento: o rollup desses meses continua certo, mas a reconciliacao da V13
+-- nao encontrava mais os agendamentos e apagava as linhas (o grafico do dashboard zerava os meses arquivados).
+-- Agora 'desde' nunca e anterior ao primeiro mes anexado: o que foi arquivado fica como estava.
+
+CREATE OR REPLACE FUNCTION reconciliar_faturamento_diario(desde date) RETURNS integer
+LANGUAGE plpgsql AS $$
+DECLARE
+    corrigidas integer;
+    removidas  integer;
+    primeiro   date;
+BEGIN
+    -- Mesmo lock do arquivamento: nenhum mes sai da tabela no meio da reconciliacao
+    PERFORM pg_advisory_xact_lock(hashtext('particoes_agendamento'));
+    SELECT min(to_date(right(c.relname, 7), 'YYYY_MM')) INTO primeiro
+    FROM pg_inherits i
+    JOIN pg_class c ON c.oid = i.inhrelid
+    WHERE i.inhparent = 'tb_agendamento'::regclass
+      AND c.relname ~ '^tb_agendamento_\d{4}_\d{2}$';
+    IF primeiro IS NULL THEN
+        RETURN 0;
+    END IF;
+    desde := GREATEST(desde, primeiro);
+
+    LOCK TABLE tb_faturamento_diario IN SHARE ROW EXCLUSIVE MODE;
+
+    CREATE TEMP TABLE faturamento_recalculado ON COMMIT DROP AS
+    SELECT medico_id,
+           data_consulta::date AS dia,
+           count(*) FILTER (WHERE status IN ('AGENDADO', 'CONCLUIDO'))::integer AS qtd_agendadas,
+           COALESCE(sum(valor_consulta) FILTER (WHERE status IN ('AGENDADO', 'CONCLUIDO')), 0) AS valor_agendado,
+           count(*) FILTER (WHERE status_pagamento = 'PAGO')::integer AS qtd_pagas,
+           COALESCE(sum(valor_consulta) FILTER (WHERE status_pagamento = 'PAGO'), 0) AS valor_pago,
+           count(*) FILTER (WHERE status_pagamento = 'CONVENIO_APROVADO')::integer AS qtd_convenio,
+           COALESCE(sum(valor_consulta) FILTER (WHERE status_pagamento = 'CONVENIO_APROVADO'), 0) AS valor_convenio
+    FROM tb_agendamento
+    WHERE data_consulta >= desde
+    GROUP BY medico_id, data_consulta::date;
+
+    INSERT INTO tb_faturamento_diario AS f
+    SELECT * FROM faturamento_recalculado
+    ON CONFLICT (medico_id, dia) DO UPDATE SET
+        qtd_agendadas  = EXCLUDED.qtd_agendadas,
+        valor_agendado = EXCLUDED.valor_agendado,
+        qtd_pagas      = EXCLUDED.qtd_pagas,
+        valor_pago     = EXCLUDED.valor_pago,
+        qtd_convenio   = EXCLUDED.qtd_convenio,
+        valor_convenio = EXCLUDED.valor_convenio
+    WHERE (f.qtd_agendadas, f.valor_agendado, f.qtd_pagas, f.valor_pago, f.qtd_convenio, f.valor_convenio)
+          IS DISTINCT FROM (EXCLUDED.qtd_agendadas, EXCLUDED.valor_agendado, EXCLUDED.qtd_pagas,
+                            EXCLUDED.valor_pago, EXCLUDED.qtd_convenio, EXCLUDED.valor_convenio);
+    GET DIAGNOSTICS corrigidas = ROW_COUNT;
+
+    -- Dias que nao tem mais nenhum agendamento que conte
+    DELETE FROM tb_faturamento_diario f
+    WHERE f.dia >= desde
+      AND NOT EXISTS (SELECT 1 FROM faturamento_recalculado r WHERE r.medico_id = f.medico_id AND r.dia = f.dia)
+      AND (f.qtd_agendadas, f.valor_agendado, f.qtd_pagas, f.valor_pago, f.qtd_convenio, f.valor_convenio)
+          IS DISTINCT FROM (0, 0, 0, 0, 0, 0);
+    GET DIAGNOSTICS removidas = ROW_COUNT;
+
+    DROP TABLE faturamento_recalculado;
+    RETURN corrigidas + removidas;
+END;
+$$;
@@ -0,0 +1,134 @@
+-- ==============================================================
+-- V1: SCHEMA BASE (estado das entidades JPA antes das migracoes)
+-- ==============================================================
+-- Bancos criados pelo ddl-auto ja tem estas tabelas: o IF NOT EXISTS torna a V1 inofensiva neles.
+
+CREATE TABLE IF NOT EXISTS tb_usuario (
+    id     uuid         NOT NULL PRIMARY KEY,
+    email  varchar(255) NOT NULL UNIQUE,
+    senha  varchar(255) NOT NULL,
+    role   varchar(255) NOT NULL,
+    ativo  boolean      NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS tb_clinica (
+    id            uuid         NOT NULL PRIMARY KEY,
+    razao_social  varchar(255) NOT NULL,
+    nome_fantasia varchar(255),
+    cnpj          varchar(255) NOT NULL UNIQUE,
+    endereco      varchar(255),
+    telefone      varchar(255),
+    ativo         boolean      NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS tb_convenio (
+    id             uuid         NOT NULL PRIMARY KEY,
+    nome           varchar(255) NOT NULL UNIQUE,
+    registro_ans   varchar(255) UNIQUE,
+    ativo          boolean,
+    dias_pagamento integer
+);
+
+CREATE TABLE IF NOT EXISTS tb_plano (
+    id            uuid          NOT NULL PRIMARY KEY,
+    nome          varchar(255)  NOT NULL,
+    ativo         boolean       NOT NULL,
+    valor_repasse numeric(38,2),
+    convenio_id   uuid          NOT NULL REFERENCES tb_convenio (id)
+);
+
+CREATE TABLE IF NOT EXISTS tb_medico (
+    id                     uuid          NOT NULL PRIMARY KEY,
+    usuario_id             uuid          NOT NULL UNIQUE REFERENCES tb_usuario (id),
+    clinica_id             uuid          REFERENCES tb_clinica (id),
+    nome                   varchar(255)  NOT NULL,
+    crm                    varchar(255)  UNIQUE,
+    especialidade          varchar(255),
+    valor_consulta         numeric(38,2),
+    bio                    text,
+    telefone_profissional  varchar(255),
+    cadastro_completo      boolean,
+    agenda_bloqueada       boolean,
+    ativo                  boolean,
+    data_cadastro          timestamp(6),
+    duracao_consulta       integer,
+    hora_inicio            time(6),
+    hora_fim               time(6)
+);
+
+CREATE TABLE IF NOT EXISTS tb_paciente (
+    id                     uuid         NOT NULL PRIMARY KEY,
+    nome                   varchar(255) NOT NULL,
+    usuario_id             uuid         UNIQUE REFERENCES tb_usuario (id),
+    cpf                    varchar(14)  UNIQUE,
+    telefone               varchar(255),
+    data_nascimento        date,
+    cadastro_completo      boolean,
+    plano_id               uuid         REFERENCES tb_plano (id),
+    numero_carteirinha     varchar(255),
+    validade_carteirinha   date,
+    atendimento_particular boolean,
+    medico_id              uuid         REFERENCES tb_medico (id),
+    data_cadastro          timestamp(6)
+);
+
+CREATE TABLE IF NOT EXISTS tb_agendamento (
+    id                 uuid          NOT NULL PRIMARY KEY,
+    medico_id          uuid          NOT NULL REFERENCES tb_medico (id),
+    paciente_id        uuid          NOT NULL REFERENCES tb_paciente (id),
+    data_consulta      timestamp(6)  NOT NULL,
+    nome_convenio      varchar(255),
+    numero_carteirinha varchar(255),
+    forma_pagamento    varchar(255),
+    valor_consulta     numeric(38,2),
+    link_pagamento     varchar(255),
+    status_pagamento   varchar(255),
+    status             varchar(255)  NOT NULL,
+    data_cadastro      timestamp(6)
+);
+
+CREATE TABLE IF NOT EXISTS tb_prontuario (
+    id                uuid         NOT NULL PRIMARY KEY,
+    agendamento_id    uuid         NOT NULL UNIQUE REFERENCES tb_agendamento (id),
+    queixa_principal  text,
+    diagnostico       text,
+    prescricao_medica text,
+    data_registro     timestamp(6)
+);
+
+CREATE TABLE IF NOT EXISTS tb_dados_clinicos_fixos (
+    paciente_id             uuid NOT NULL PRIMARY KEY REFERENCES tb_paciente (id),
+    comorbidades            text,
+    alergias                text,
+    observacoes_permanentes text
+);
+
+CREATE TABLE IF NOT EXISTS tb_documento (
+    id                 uuid         NOT NULL PRIMARY KEY,
+    nome_original      varchar(255) NOT NULL,
+    caminho_arquivo    varchar(255) NOT NULL,
+    tipo_content_type  varchar(255) NOT NULL,
+    categoria          varchar(255) NOT NULL,
+    origem             varchar(255) NOT NULL,
+    visto_pelo_medico  boolean,
+    data_upload        timestamp(6) NOT NULL,
+    paciente_id        uuid         NOT NULL REFERENCES tb_paciente (id)
+);
+
+CREATE TABLE IF NOT EXISTS tb_configuracao_agenda (
+    id                uuid         NOT NULL PRIMARY KEY,
+    medico_id         uuid         NOT NULL,
+    dia_semana        varchar(255) NOT NULL,
+    hora_inicio       time(6)      NOT NULL,
+    hora_fim          time(6)      NOT NULL,
+    intervalo_minutos integer      NOT NULL,
+    ativo             boolean      NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS tb_bloqueio_agenda (
+    id               uuid         NOT NULL PRIMARY KEY,
+    medico_id        uuid         NOT NULL REFERENCES tb_medico (id),
+    inicio_bloqueio  timestamp(6) NOT NULL,
+    fim_bloqueio     timestamp(6) NOT NULL,
+    motivo           varchar(255)
+);
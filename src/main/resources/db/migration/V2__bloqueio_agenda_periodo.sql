@@ -0,0 +1,18 @@
+-- ==============================================================
+-- V2: BLOQUEIOS COMO INTERVALO (tsrange) + INDICE GiST
+-- ==============================================================
+-- A busca "bloqueios do medico que tocam [inicio, fim)" vira um teste de sobreposicao (&&)
+-- resolvido pelo indice, em vez de varrer todos os bloqueios (anos de almocos/feriados).
+
+-- Permite medico_id (igualdade, btree) e periodo (range) no MESMO indice GiST
+CREATE EXTENSION IF NOT EXISTS btree_gist;
+
+-- Coluna gerada: o Postgres preenche as linhas existentes (backfill) ao criar a coluna
+-- e a mantem sincronizada com inicio_bloqueio/fim_bloqueio em todo INSERT/UPDATE.
+-- Intervalo semiaberto [inicio, fim), o mesmo criterio da grade de disponibilidade.
+ALTER TABLE tb_bloqueio_agenda
+    ADD COLUMN IF NOT EXISTS periodo tsrange
+    GENERATED ALWAYS AS (tsrange(inicio_bloqueio, fim_bloqueio, '[)')) STORED;
+
+CREATE INDEX IF NOT EXISTS idx_bloqueio_agenda_medico_periodo
+    ON tb_bloqueio_agenda USING gist (medico_id, periodo);
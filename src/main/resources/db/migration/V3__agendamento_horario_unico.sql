@@ -0,0 +1,14 @@
+-- ==============================================================
+-- V3: CHOQUE DE HORARIO DO MEDICO GARANTIDO PELO BANCO
+-- ==============================================================
+-- O "verifica e depois grava" do AgendamentoService deixava dois agendamentos simultaneos
+-- passarem na verificacao. Com o indice unico parcial, o segundo INSERT falha no proprio banco.
+-- Cancelados ficam fora do indice: cancelar libera o horario para um novo agendamento.
+--
+-- Se a criacao falhar por duplicidade, os choques ja existentes aparecem com:
+--   SELECT medico_id, data_consulta, count(*) FROM tb_agendamento
+--   WHERE status NOT IN ('CANCELADO_PACIENTE', 'CANCELADO_MEDICO')
+--   GROUP BY medico_id, data_consulta HAVING count(*) > 1;
+CREATE UNIQUE INDEX IF NOT EXISTS uk_agendamento_medico_horario_ativo
+    ON tb_agendamento (medico_id, data_consulta)
+    WHERE status NOT IN ('CANCELADO_PACIENTE', 'CANCELADO_MEDICO');
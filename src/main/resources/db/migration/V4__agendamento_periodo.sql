@@ -0,0 +1,40 @@
+-- ==============================================================
+-- V4: AGENDAMENTO COMO INTERVALO [data_consulta, data_fim_consulta)
+-- ==============================================================
+-- Uma consulta de 60 min as 09h precisa bloquear quem tenta marcar as 09h30.
+-- O choque passa a ser sobreposicao de intervalos, garantida pelo banco (EXCLUDE USING gist).
+
+ALTER TABLE tb_agendamento ADD COLUMN IF NOT EXISTS data_fim_consulta timestamp(6);
+
+-- Backfill com a duracao do medico (mesma regra de Agendamento.duracaoEfetiva: padrao 30, teto 480)
+UPDATE tb_agendamento a
+SET data_fim_consulta = a.data_consulta + make_interval(mins =>
+        CASE WHEN m.duracao_consulta IS NULL OR m.duracao_consulta <= 0 THEN 30
+             ELSE LEAST(m.duracao_consulta, 480) END)
+FROM tb_medico m
+WHERE m.id = a.medico_id
+  AND a.data_fim_consulta IS NULL;
+
+ALTER TABLE tb_agendamento ALTER COLUMN data_fim_consulta SET NOT NULL;
+
+ALTER TABLE tb_agendamento
+    ADD COLUMN IF NOT EXISTS periodo tsrange
+    GENERATED ALWAYS AS (tsrange(data_consulta, data_fim_consulta, '[)')) STORED;
+
+-- Substitui o indice unico da V3 (que so pegava horarios de inicio identicos).
+-- Se a criacao falhar, ja existem agendamentos ativos sobrepostos: resolva-os antes de migrar.
+DROP INDEX IF EXISTS uk_agendamento_medico_horario_ativo;
+
+ALTER TABLE tb_agendamento
+    ADD CONSTRAINT ex_agendamento_medico_periodo
+    EXCLUDE USING gist (medico_id WITH =, periodo WITH &&)
+    WHERE (status NOT IN ('CANCELADO_PACIENTE', 'CANCELADO_MEDICO'));
+
+ALTER TABLE tb_agendamento
+    ADD CONSTRAINT ex_agendamento_paciente_periodo
+    EXCLUDE USING gist (paciente_id WITH =, periodo WITH &&)
+    WHERE (status NOT IN ('CANCELADO_PACIENTE', 'CANCELADO_MEDICO'));
+
+-- Buscas da disponibilidade: janela em data_consulta por medico (ver AgendamentoRepository.SOBREPOE_JANELA)
+CREATE INDEX IF NOT EXISTS idx_agendamento_medico_data_consulta
+    ON tb_agendamento (medico_id, data_consulta);
@@ -0,0 +1,12 @@
+-- ==============================================================
+-- V5: RESERVA TEMPORARIA DE HORARIO (status EM_PROCESSAMENTO)
+-- ==============================================================
+-- Enquanto o paciente preenche o pagamento, o horario fica reservado ate expira_em.
+-- Reservas vencidas deixam de ocupar a agenda e sao apagadas em lotes pela limpeza agendada.
+
+ALTER TABLE tb_agendamento ADD COLUMN IF NOT EXISTS expira_em timestamp(6);
+
+-- Limpeza: so as reservas entram no indice (os agendamentos definitivos nao pagam o custo)
+CREATE INDEX IF NOT EXISTS idx_agendamento_reserva_cadastro
+    ON tb_agendamento (data_cadastro)
+    WHERE status = 'EM_PROCESSAMENTO';
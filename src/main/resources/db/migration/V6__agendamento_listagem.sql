@@ -0,0 +1,12 @@
+-- ==============================================================
+-- V6: LISTAGEM PAGINADA (keyset em data_consulta, id)
+-- ==============================================================
+-- GET /agendamentos ordena por (data_consulta, id) e continua a partir do cursor:
+-- os indices deixam cada pagina ser uma varredura curta, sem OFFSET.
+-- (Filtro por medico usa idx_agendamento_medico_data_consulta, da V4)
+
+CREATE INDEX IF NOT EXISTS idx_agendamento_data_consulta_id
+    ON tb_agendamento (data_consulta, id);
+
+CREATE INDEX IF NOT EXISTS idx_agendamento_paciente_data_consulta
+    ON tb_agendamento (paciente_id, data_consulta, id);
@@ -0,0 +1,10 @@
+-- ==============================================================
+-- V7: SERIES DE CONSULTAS (ex: psicoterapia semanal)
+-- ==============================================================
+-- As ocorrencias de uma serie gravada de uma vez compartilham serie_id.
+
+ALTER TABLE tb_agendamento ADD COLUMN IF NOT EXISTS serie_id uuid;
+
+CREATE INDEX IF NOT EXISTS idx_agendamento_serie
+    ON tb_agendamento (serie_id)
+    WHERE serie_id IS NOT NULL;
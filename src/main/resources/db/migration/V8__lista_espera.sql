@@ -0,0 +1,23 @@
+-- ==============================================================
+-- V8: LISTA DE ESPERA POR MEDICO
+-- ==============================================================
+-- Cada entrada e uma janela de preferencia do paciente (ex: "qualquer horario de 10 a 14/03").
+-- Quando um horario da janela vaga, o primeiro da fila recebe uma reserva temporaria (OFERTADO).
+
+CREATE TABLE IF NOT EXISTS tb_lista_espera (
+    id                      uuid         NOT NULL PRIMARY KEY,
+    medico_id               uuid         NOT NULL REFERENCES tb_medico (id),
+    paciente_id             uuid         NOT NULL REFERENCES tb_paciente (id),
+    inicio_janela           timestamp(6) NOT NULL,
+    fim_janela              timestamp(6) NOT NULL,
+    prioridade              integer      NOT NULL DEFAULT 0,
+    status                  varchar(255) NOT NULL,
+    data_cadastro           timestamp(6) NOT NULL,
+    agendamento_ofertado_id uuid,
+    CONSTRAINT ck_lista_espera_janela CHECK (inicio_janela < fim_janela)
+);
+
+-- Carga da fila de um medico: so as entradas que ainda aguardam
+CREATE INDEX IF NOT EXISTS idx_lista_espera_aguardando
+    ON tb_lista_espera (medico_id, fim_janela)
+    WHERE status = 'AGUARDANDO';
@@ -0,0 +1,27 @@
+-- ==============================================================
+-- V9: OUTBOX DE EVENTOS DO AGENDAMENTO
+-- ==============================================================
+-- Gravado na mesma transacao da mudanca (agendar, cancelar, confirmar, concluir).
+-- O relay le os pendentes em lotes (FOR UPDATE SKIP LOCKED: varias instancias sem disputa)
+-- e despacha para os ouvintes em processo.
+
+-- Incremento 50 = allocationSize da entidade: ids sem ida ao banco a cada INSERT (lote)
+CREATE SEQUENCE IF NOT EXISTS seq_evento_agendamento INCREMENT BY 50;
+
+CREATE TABLE IF NOT EXISTS tb_evento_agendamento (
+    id             bigint        NOT NULL PRIMARY KEY,
+    tipo           varchar(255)  NOT NULL,
+    agendamento_id uuid          NOT NULL, -- Sem FK: reservas vencidas sao apagadas
+    medico_id      uuid          NOT NULL,
+    paciente_id    uuid          NOT NULL,
+    data_consulta  timestamp(6)  NOT NULL,
+    ocorrido_em    timestamp(6)  NOT NULL,
+    processado_em  timestamp(6),
+    tentativas     integer       NOT NULL DEFAULT 0,
+    erro           varchar(1000)
+);
+
+-- Fila do relay: so os pendentes, na ordem de gravacao
+CREATE INDEX IF NOT EXISTS idx_evento_agendamento_pendente
+    ON tb_evento_agendamento (id)
+    WHERE processado_em IS NULL;
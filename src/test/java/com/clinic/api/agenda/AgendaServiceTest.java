@@ -1,9 +1,17 @@
 package com.clinic.api.agenda;
 
+import com.clinic.api.agenda.domain.BloqueioAgenda;
 import com.clinic.api.agenda.domain.BloqueioAgendaRepository; // Import necessário
 import com.clinic.api.agenda.domain.ConfiguracaoAgenda;
 import com.clinic.api.agenda.domain.ConfiguracaoAgendaRepository;
+import com.clinic.api.agenda.domain.HorarioAgendado;
+import com.clinic.api.agenda.domain.HorarioLiberadoEvent;
+import com.clinic.api.agenda.domain.Periodo;
+import com.clinic.api.agenda.dto.BloqueioRequest;
+import com.clinic.api.agenda.dto.DisponibilidadeDiaResponse;
 import com.clinic.api.agenda.service.AgendaService;
+import com.clinic.api.agenda.service.CacheOcupacao;
+import com.clinic.api.agenda.service.IndiceBloqueios;
 import com.clinic.api.agendamento.domain.AgendamentoRepository;
 import com.clinic.api.medico.Medico;
 import com.clinic.api.medico.domain.MedicoRepository;
@@ -12,20 +20,26 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
 
 import java.time.DayOfWeek;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
+import java.util.stream.IntStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.lenient;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -46,23 +60,33 @@ class AgendaServiceTest {
     @Mock // ADICIONADO: O Service precisa deste repositório agora
     private BloqueioAgendaRepository bloqueioRepository;
 
+    // Cache real (não é mock): cada teste começa com um cache vazio
+    @Spy
+    private CacheOcupacao cacheOcupacao = new CacheOcupacao(100, 5);
+
+    @Mock // Sem stub, devolve lista vazia: nenhum bloqueio
+    private IndiceBloqueios indiceBloqueios;
+
+    @Mock
+    private ApplicationEventPublisher eventos;
+
     // Helper para criar configuração padrão (08:00 as 18:00)
     private void mockConfiguracaoPadrao(UUID medicoId) {
+        mockConfiguracao(medicoId, 60); // Consultas de 1h
+    }
+
+    private void mockConfiguracao(UUID medicoId, int intervaloMinutos) {
         ConfiguracaoAgenda config = new ConfiguracaoAgenda();
         config.setMedicoId(medicoId);
         config.setDiaSemana(DayOfWeek.FRIDAY); // Exemplo
         config.setHoraInicio(LocalTime.of(8, 0)); // Nome correto da entidade
         config.setHoraFim(LocalTime.of(18, 0));   // Nome correto da entidade
         config.setAtivo(true);
-        config.setIntervaloMinutos(60); // Consultas de 1h
+        config.setIntervaloMinutos(intervaloMinutos);
 
         // Mock do repositório de Configuração
         lenient().when(configRepository.findByMedicoIdAndDiaSemana(eq(medicoId), any(DayOfWeek.class)))
                 .thenReturn(Optional.of(config));
-
-        // Mock do repositório de Bloqueio (Default: Sem bloqueios)
-        lenient().when(bloqueioRepository.findBloqueiosNoIntervalo(any(), any(), any()))
-                .thenReturn(List.of());
     }
 
 
@@ -75,8 +99,8 @@ class AgendaServiceTest {
         UUID idInvalido = UUID.randomUUID();
         LocalDate data = LocalDate.now().plusDays(1);
 
-        // Se o service usa existsById:
-        when(medicoRepository.existsById(idInvalido)).thenReturn(false);
+        // Médico inexistente: sem duração de consulta
+        when(medicoRepository.findDuracaoConsulta(idInvalido)).thenReturn(Optional.empty());
         // Se usa findById:
         lenient().when(medicoRepository.findById(idInvalido)).thenReturn(Optional.empty());
 
@@ -91,13 +115,16 @@ class AgendaServiceTest {
         Medico medico = new Medico();
         medico.setId(medicoId);
 
-        lenient().when(medicoRepository.existsById(medicoId)).thenReturn(true);
+        lenient().when(medicoRepository.findDuracaoConsulta(medicoId)).thenReturn(Optional.of(60));
         lenient().when(medicoRepository.findById(medicoId)).thenReturn(Optional.of(medico));
 
         mockConfiguracaoPadrao(medicoId);
 
-        // Mocka que TUDO retorna true (ocupado)
-        when(agendamentoRepository.existsByMedicoIdAndDataConsulta(any(), any())).thenReturn(true);
+        // Mocka que TODOS os slots (08h às 17h) já estão reservados
+        List<HorarioAgendado> todosOcupados = IntStream.range(8, 18)
+                .mapToObj(h -> new HorarioAgendado(UUID.randomUUID(), data.atTime(h, 0), data.atTime(h + 1, 0), null))
+                .toList();
+        when(agendamentoRepository.findAgendamentosAtivos(eq(medicoId), any(), any())).thenReturn(todosOcupados);
 
         List<LocalDateTime> horarios = service.listarHorariosDisponiveis(medicoId, data);
 
@@ -113,12 +140,12 @@ class AgendaServiceTest {
         Medico medico = new Medico();
         medico.setId(medicoId);
 
-        lenient().when(medicoRepository.existsById(medicoId)).thenReturn(true);
+        lenient().when(medicoRepository.findDuracaoConsulta(medicoId)).thenReturn(Optional.of(60));
         lenient().when(medicoRepository.findById(medicoId)).thenReturn(Optional.of(medico));
 
         mockConfiguracaoPadrao(medicoId);
 
-        when(agendamentoRepository.existsByMedicoIdAndDataConsulta(any(), any())).thenReturn(false);
+        when(agendamentoRepository.findAgendamentosAtivos(any(), any(), any())).thenReturn(List.of());
 
         List<LocalDateTime> horarios = service.listarHorariosDisponiveis(medicoId, data);
 
@@ -134,12 +161,12 @@ class AgendaServiceTest {
         Medico medico = new Medico();
         medico.setId(medicoId);
 
-        lenient().when(medicoRepository.existsById(medicoId)).thenReturn(true);
+        lenient().when(medicoRepository.findDuracaoConsulta(medicoId)).thenReturn(Optional.of(60));
         lenient().when(medicoRepository.findById(medicoId)).thenReturn(Optional.of(medico));
 
         mockConfiguracaoPadrao(medicoId);
 
-        when(agendamentoRepository.existsByMedicoIdAndDataConsulta(any(), any())).thenReturn(false);
+        when(agendamentoRepository.findAgendamentosAtivos(any(), any(), any())).thenReturn(List.of());
 
         List<LocalDateTime> horarios = service.listarHorariosDisponiveis(medicoId, data);
 
@@ -157,12 +184,12 @@ class AgendaServiceTest {
         Medico medico = new Medico();
         medico.setId(medicoId);
 
-        lenient().when(medicoRepository.existsById(medicoId)).thenReturn(true);
+        lenient().when(medicoRepository.findDuracaoConsulta(medicoId)).thenReturn(Optional.of(60));
         lenient().when(medicoRepository.findById(medicoId)).thenReturn(Optional.of(medico));
 
         mockConfiguracaoPadrao(medicoId);
 
-        when(agendamentoRepository.existsByMedicoIdAndDataConsulta(any(), any())).thenReturn(false);
+        when(agendamentoRepository.findAgendamentosAtivos(any(), any(), any())).thenReturn(List.of());
 
         List<LocalDateTime> horarios = service.listarHorariosDisponiveis(medicoId, data);
 
@@ -179,12 +206,12 @@ class AgendaServiceTest {
         Medico medico = new Medico();
         medico.setId(medicoId);
 
-        lenient().when(medicoRepository.existsById(medicoId)).thenReturn(true);
+        lenient().when(medicoRepository.findDuracaoConsulta(medicoId)).thenReturn(Optional.of(60));
         lenient().when(medicoRepository.findById(medicoId)).thenReturn(Optional.of(medico));
 
         mockConfiguracaoPadrao(medicoId);
 
-        lenient().when(agendamentoRepository.existsByMedicoIdAndDataConsulta(any(), any())).thenReturn(false);
+        lenient().when(agendamentoRepository.findAgendamentosAtivos(any(), any(), any())).thenReturn(List.of());
 
         List<LocalDateTime> horarios = service.listarHorariosDisponiveis(medicoId, hoje);
 
@@ -199,7 +226,7 @@ class AgendaServiceTest {
         UUID medicoId = UUID.randomUUID();
         LocalDate data = LocalDate.now().plusDays(1);
 
-        lenient().when(medicoRepository.existsById(medicoId)).thenReturn(true);
+        lenient().when(medicoRepository.findDuracaoConsulta(medicoId)).thenReturn(Optional.of(60));
 
         // Retorna Empty (Médico não trabalha neste dia)
         when(configRepository.findByMedicoIdAndDiaSemana(any(), any())).thenReturn(Optional.empty());
@@ -208,4 +235,233 @@ class AgendaServiceTest {
 
         assertTrue(horarios.isEmpty(), "Sem config = Sem horários");
     }
+
+    @Test
+    @DisplayName("10. Número de consultas ao banco não depende da quantidade de slots")
+    void quantidadeDeConsultasConstante() {
+        UUID medicoId = UUID.randomUUID();
+        LocalDate data = LocalDate.now().plusDays(3);
+
+        when(medicoRepository.findDuracaoConsulta(medicoId)).thenReturn(Optional.of(15));
+        when(agendamentoRepository.findAgendamentosAtivos(any(), any(), any())).thenReturn(List.of());
+
+        // 08h às 18h de 15 em 15 minutos = 40 slots
+        mockConfiguracao(medicoId, 15);
+        List<LocalDateTime> horarios = service.listarHorariosDisponiveis(medicoId, data);
+
+        assertEquals(40, horarios.size());
+        verify(indiceBloqueios, times(1)).listar(any(), any(), any());
+        verify(agendamentoRepository, times(1)).findAgendamentosAtivos(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("11. Deve remover da grade os slots cobertos por bloqueio e por agendamento")
+    void removerSlotsBloqueadosEOcupados() {
+        UUID medicoId = UUID.randomUUID();
+        LocalDate data = LocalDate.now().plusDays(4);
+
+        when(medicoRepository.findDuracaoConsulta(medicoId)).thenReturn(Optional.of(60));
+        mockConfiguracaoPadrao(medicoId);
+
+        // Almoço 12h-13h bloqueia apenas o slot das 12h (intervalo semiaberto)
+        Periodo almoco = new Periodo(data.atTime(12, 0), data.atTime(13, 0));
+        when(indiceBloqueios.listar(eq(medicoId), any(), any())).thenReturn(List.of(almoco));
+        when(agendamentoRepository.findAgendamentosAtivos(any(), any(), any()))
+                .thenReturn(List.of(new HorarioAgendado(UUID.randomUUID(), data.atTime(9, 0), data.atTime(10, 0), null)));
+
+        List<LocalDateTime> horarios = service.listarHorariosDisponiveis(medicoId, data);
+
+        assertEquals(8, horarios.size());
+        assertFalse(horarios.contains(data.atTime(9, 0)));
+        assertFalse(horarios.contains(data.atTime(12, 0)));
+        assertTrue(horarios.contains(data.atTime(11, 0)));
+        assertTrue(horarios.contains(data.atTime(13, 0)));
+    }
+
+    @Test
+    @DisplayName("12. Período: deve carregar configurações, bloqueios e agendamentos uma única vez")
+    void periodoCarregaDadosUmaVez() {
+        UUID medicoId = UUID.randomUUID();
+        LocalDate inicio = LocalDate.now().plusDays(1);
+        LocalDate fim = inicio.plusDays(29);
+
+        when(medicoRepository.findDuracaoConsulta(medicoId)).thenReturn(Optional.of(60));
+        when(configRepository.findByMedicoId(medicoId)).thenReturn(configuracaoSemanaInteira(medicoId));
+        when(agendamentoRepository.findPeriodosOcupados(any(), any(), any())).thenReturn(List.of());
+
+        List<DisponibilidadeDiaResponse> dias = service.listarDisponibilidadePeriodo(medicoId, inicio, fim).toList();
+
+        assertEquals(30, dias.size());
+        assertEquals(inicio, dias.get(0).data());
+        assertEquals(10, dias.get(0).horarios().size());
+        verify(configRepository, times(1)).findByMedicoId(medicoId);
+        verify(indiceBloqueios, times(1)).listar(any(), any(), any());
+        verify(agendamentoRepository, times(1)).findPeriodosOcupados(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("13. Período: bloqueio de vários dias (férias) deve zerar todos os dias cobertos")
+    void periodoBloqueioDeVariosDias() {
+        UUID medicoId = UUID.randomUUID();
+        LocalDate inicio = LocalDate.now().plusDays(1);
+        LocalDate fim = inicio.plusDays(6);
+
+        Periodo ferias = new Periodo(inicio.plusDays(1).atStartOfDay(), inicio.plusDays(4).atStartOfDay());
+
+        when(medicoRepository.findDuracaoConsulta(medicoId)).thenReturn(Optional.of(60));
+        when(configRepository.findByMedicoId(medicoId)).thenReturn(configuracaoSemanaInteira(medicoId));
+        when(indiceBloqueios.listar(any(), any(), any())).thenReturn(List.of(ferias));
+        when(agendamentoRepository.findPeriodosOcupados(any(), any(), any()))
+                .thenReturn(List.of(new Periodo(inicio.atTime(8, 0), inicio.atTime(9, 0))));
+
+        List<DisponibilidadeDiaResponse> dias = service.listarDisponibilidadePeriodo(medicoId, inicio, fim).toList();
+
+        assertEquals(9, dias.get(0).horarios().size()); // 08h ocupado
+        assertTrue(dias.get(1).horarios().isEmpty());
+        assertTrue(dias.get(2).horarios().isEmpty());
+        assertTrue(dias.get(3).horarios().isEmpty());
+        assertEquals(10, dias.get(4).horarios().size());
+    }
+
+    @Test
+    @DisplayName("14. Período: deve rejeitar data final anterior à inicial")
+    void periodoInvalido() {
+        LocalDate inicio = LocalDate.now().plusDays(5);
+        assertThrows(RuntimeException.class,
+                () -> service.listarDisponibilidadePeriodo(UUID.randomUUID(), inicio, inicio.minusDays(1)));
+    }
+
+    @Test
+    @DisplayName("15. Segunda consulta do mesmo dia deve vir do cache, sem ir ao banco")
+    void segundaConsultaVemDoCache() {
+        UUID medicoId = UUID.randomUUID();
+        LocalDate data = LocalDate.now().plusDays(3);
+
+        when(medicoRepository.findDuracaoConsulta(medicoId)).thenReturn(Optional.of(60));
+        mockConfiguracaoPadrao(medicoId);
+
+        service.listarHorariosDisponiveis(medicoId, data);
+        List<LocalDateTime> horarios = service.listarHorariosDisponiveis(medicoId, data);
+
+        assertEquals(10, horarios.size());
+        verify(medicoRepository, times(1)).findDuracaoConsulta(medicoId);
+        verify(configRepository, times(1)).findByMedicoIdAndDiaSemana(any(), any());
+        verify(agendamentoRepository, times(1)).findAgendamentosAtivos(any(), any(), any());
+        assertEquals(1, cacheOcupacao.estatisticas().hits());
+        assertEquals(1, cacheOcupacao.estatisticas().misses());
+    }
+
+    @Test
+    @DisplayName("16. Criar bloqueio deve atualizar o dia que já está em cache")
+    void bloqueioAtualizaCache() {
+        UUID medicoId = UUID.randomUUID();
+        LocalDate data = LocalDate.now().plusDays(3);
+        Medico medico = new Medico();
+        medico.setId(medicoId);
+
+        when(medicoRepository.findDuracaoConsulta(medicoId)).thenReturn(Optional.of(60));
+        when(medicoRepository.findById(medicoId)).thenReturn(Optional.of(medico));
+        when(bloqueioRepository.save(any(BloqueioAgenda.class))).thenAnswer(i -> {
+            BloqueioAgenda b = i.getArgument(0);
+            b.setId(UUID.randomUUID());
+            return b;
+        });
+        mockConfiguracaoPadrao(medicoId);
+
+        assertEquals(10, service.listarHorariosDisponiveis(medicoId, data).size());
+
+        service.criarBloqueio(new BloqueioRequest(medicoId, data.atTime(8, 0), data.atTime(10, 0), "Reunião"));
+
+        List<LocalDateTime> horarios = service.listarHorariosDisponiveis(medicoId, data);
+        assertEquals(8, horarios.size());
+        assertEquals(data.atTime(10, 0), horarios.get(0));
+        verify(indiceBloqueios, times(1)).listar(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("17. Consulta mais longa que o intervalo deve bloquear os slots seguintes e o fim do expediente")
+    void duracaoMaiorQueIntervalo() {
+        UUID medicoId = UUID.randomUUID();
+        LocalDate data = LocalDate.now().plusDays(2);
+
+        // Grade de 30 em 30 min, mas cada consulta dura 60 min
+        when(medicoRepository.findDuracaoConsulta(medicoId)).thenReturn(Optional.of(60));
+        mockConfiguracao(medicoId, 30);
+        when(agendamentoRepository.findAgendamentosAtivos(any(), any(), any()))
+                .thenReturn(List.of(new HorarioAgendado(UUID.randomUUID(), data.atTime(9, 0), data.atTime(10, 0), null)));
+
+        List<LocalDateTime> horarios = service.listarHorariosDisponiveis(medicoId, data);
+
+        assertTrue(horarios.contains(data.atTime(8, 0)));
+        assertFalse(horarios.contains(data.atTime(8, 30)));  // Iria até 09h30, em cima da consulta das 09h
+        assertFalse(horarios.contains(data.atTime(9, 30)));  // Dentro da consulta das 09h
+        assertTrue(horarios.contains(data.atTime(10, 0)));
+        assertTrue(horarios.contains(data.atTime(17, 0)));
+        assertFalse(horarios.contains(data.atTime(17, 30))); // Passaria do fim do expediente
+        assertEquals(16, horarios.size());
+    }
+
+    @Test
+    @DisplayName("18. Remover bloqueio deve recarregar o dia em cache e avisar a lista de espera")
+    void removerBloqueio() {
+        UUID medicoId = UUID.randomUUID();
+        LocalDate data = LocalDate.now().plusDays(3);
+        Medico medico = new Medico();
+        medico.setId(medicoId);
+        BloqueioAgenda bloqueio = new BloqueioAgenda(medico, data.atTime(8, 0), data.atTime(10, 0), "Reunião");
+        bloqueio.setId(UUID.randomUUID());
+
+        when(medicoRepository.findDuracaoConsulta(medicoId)).thenReturn(Optional.of(60));
+        when(bloqueioRepository.findById(bloqueio.getId())).thenReturn(Optional.of(bloqueio));
+        when(indiceBloqueios.listar(any(), any(), any()))
+                .thenReturn(List.of(new Periodo(data.atTime(8, 0), data.atTime(10, 0))))
+                .thenReturn(List.of());
+        mockConfiguracaoPadrao(medicoId);
+
+        assertEquals(8, service.listarHorariosDisponiveis(medicoId, data).size());
+
+        service.removerBloqueio(bloqueio.getId());
+
+        assertEquals(10, service.listarHorariosDisponiveis(medicoId, data).size()); // Dia descartado e recarregado
+        verify(bloqueioRepository).delete(bloqueio);
+        verify(indiceBloqueios).remover(bloqueio);
+        verify(eventos).publishEvent(new HorarioLiberadoEvent(medicoId, data.atTime(8, 0), data.atTime(10, 0)));
+    }
+
+    @Test
+    @DisplayName("19. Período: consulta que passa da meia-noite deve ocupar também o dia seguinte")
+    void periodoConsultaAtravessaMeiaNoite() {
+        UUID medicoId = UUID.randomUUID();
+        LocalDate inicio = LocalDate.now().plusDays(1);
+        LocalDate fim = inicio.plusDays(1);
+
+        when(medicoRepository.findDuracaoConsulta(medicoId)).thenReturn(Optional.of(60));
+        when(configRepository.findByMedicoId(medicoId)).thenReturn(configuracaoSemanaInteira(medicoId));
+        when(indiceBloqueios.listar(any(), any(), any())).thenReturn(List.of());
+        when(agendamentoRepository.findPeriodosOcupados(any(), any(), any())).thenReturn(List.of(
+                new Periodo(inicio.minusDays(1).atTime(22, 0), inicio.atTime(9, 0)), // Começa antes do período
+                new Periodo(inicio.atTime(17, 0), fim.atTime(9, 0))));
+
+        List<DisponibilidadeDiaResponse> dias = service.listarDisponibilidadePeriodo(medicoId, inicio, fim).toList();
+
+        assertEquals(8, dias.get(0).horarios().size()); // 08h e 17h ocupados
+        assertFalse(dias.get(0).horarios().contains(inicio.atTime(8, 0)));
+        assertFalse(dias.get(0).horarios().contains(inicio.atTime(17, 0)));
+        assertEquals(9, dias.get(1).horarios().size()); // 08h ocupado pela consulta da véspera
+        assertFalse(dias.get(1).horarios().contains(fim.atTime(8, 0)));
+    }
+
+    // Configuração 08h-18h (1h) para todos os dias da semana
+    private List<ConfiguracaoAgenda> configuracaoSemanaInteira(UUID medicoId) {
+        return Arrays.stream(DayOfWeek.values()).map(dia -> {
+            ConfiguracaoAgenda config = new ConfiguracaoAgenda();
+            config.setMedicoId(medicoId);
+            config.setDiaSemana(dia);
+            config.setHoraInicio(LocalTime.of(8, 0));
+            config.setHoraFim(LocalTime.of(18, 0));
+            config.setIntervaloMinutos(60);
+            config.setAtivo(true);
+            return config;
+        }).toList();
+    }
 }
\ No newline at end of file
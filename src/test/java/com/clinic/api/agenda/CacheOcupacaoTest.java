@@ -0,0 +1,251 @@
+package com.clinic.api.agenda;
+
+import com.clinic.api.agenda.domain.ConfiguracaoAgenda;
+import com.clinic.api.agenda.domain.OcupacaoDia;
+import com.clinic.api.agenda.dto.CacheOcupacaoEstatisticas;
+import com.clinic.api.agenda.service.CacheOcupacao;
+import com.clinic.api.agendamento.Agendamento;
+import com.clinic.api.medico.Medico;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheOcupacaoTest {
+
+    private final LocalDate data = LocalDate.now().plusDays(1);
+
+    @Test
+    @DisplayName("1. Deve contar hits, misses e evictions")
+    void contadores() {
+        CacheOcupacao cache = new CacheOcupacao(2, 5);
+        UUID medicoId = UUID.randomUUID();
+        AtomicInteger cargas = new AtomicInteger();
+
+        cache.obter(medicoId, data, () -> { cargas.incrementAndGet(); return dia(data, medicoId); });
+        cache.obter(medicoId, data, () -> { cargas.incrementAndGet(); return dia(data, medicoId); });
+        cache.obter(medicoId, data.plusDays(1), () -> dia(data.plusDays(1), medicoId));
+        cache.obter(medicoId, data.plusDays(2), () -> dia(data.plusDays(2), medicoId)); // Expulsa o mais antigo
+
+        CacheOcupacaoEstatisticas estatisticas = cache.estatisticas();
+        assertEquals(1, cargas.get());
+        assertEquals(1, estatisticas.hits());
+        assertEquals(3, estatisticas.misses());
+        assertEquals(1, estatisticas.evictions());
+        assertEquals(2, estatisticas.tamanho());
+    }
+
+    @Test
+    @DisplayName("2. Agendar e cancelar devem atualizar a entrada em cache, sem recarregar")
+    void atualizaEmVezDeInvalidar() {
+        CacheOcupacao cache = new CacheOcupacao(10, 5);
+        UUID medicoId = UUID.randomUUID();
+        AtomicInteger cargas = new AtomicInteger();
+
+        assertEquals(10, livres(cache, medicoId, cargas).size());
+
+        Agendamento agendamento = agendamento(medicoId, data.atTime(9, 0));
+        cache.registrarAgendamento(agendamento);
+        assertEquals(9, livres(cache, medicoId, cargas).size());
+
+        cache.removerAgendamento(agendamento);
+        assertEquals(10, livres(cache, medicoId, cargas).size());
+
+        // "Cancelou" antes do "agendou": o "agendou" atrasado é ignorado
+        Agendamento foraDeOrdem = agendamento(medicoId, data.atTime(10, 0));
+        cache.removerAgendamento(foraDeOrdem);
+        cache.registrarAgendamento(foraDeOrdem);
+        assertEquals(10, livres(cache, medicoId, cargas).size());
+
+        assertEquals(1, cargas.get());
+    }
+
+    @Test
+    @DisplayName("5. Entrada vencida pelo TTL deve ser relida do banco (escritas de outras instâncias)")
+    void ttlRecarrega() {
+        CacheOcupacao semTtl = new CacheOcupacao(10, 0);
+        UUID medicoId = UUID.randomUUID();
+        AtomicInteger cargas = new AtomicInteger();
+
+        livres(semTtl, medicoId, cargas);
+        livres(semTtl, medicoId, cargas);
+        assertEquals(2, cargas.get());
+        assertEquals(0, semTtl.estatisticas().hits());
+        assertEquals(1, semTtl.estatisticas().tamanho()); // A recarga substitui a entrada vencida
+
+        // Dentro do TTL a entrada continua valendo
+        CacheOcupacao comTtl = new CacheOcupacao(10, 5);
+        cargas.set(0);
+        livres(comTtl, medicoId, cargas);
+        livres(comTtl, medicoId, cargas);
+        assertEquals(1, cargas.get());
+    }
+
+    @Test
+    @DisplayName("6. Cancelar agendamentos da grade não deve guardar IDs; o ID guardado é consumido pelo \"agendou\"")
+    void canceladosNaoCrescem() {
+        UUID medicoId = UUID.randomUUID();
+        OcupacaoDia ocupacao = dia(data, medicoId);
+        UUID id = UUID.randomUUID();
+        LocalDateTime horario = data.atTime(9, 0);
+
+        // Na grade e removido: nenhum ID fica guardado, então o mesmo ID volta a ocupar o horário
+        ocupacao.adicionarAgendamento(id, horario, horario.plusMinutes(30));
+        ocupacao.cancelarAgendamento(id);
+        ocupacao.adicionarAgendamento(id, horario, horario.plusMinutes(30));
+        assertFalse(ocupacao.listarLivres(data.atStartOfDay()).contains(horario));
+
+        // Fora de ordem: o "agendou" é ignorado uma vez e consome o ID guardado
+        UUID outro = UUID.randomUUID();
+        LocalDateTime outroHorario = data.atTime(10, 0);
+        ocupacao.cancelarAgendamento(outro);
+        ocupacao.adicionarAgendamento(outro, outroHorario, outroHorario.plusMinutes(30));
+        assertTrue(ocupacao.listarLivres(data.atStartOfDay()).contains(outroHorario));
+        ocupacao.adicionarAgendamento(outro, outroHorario, outroHorario.plusMinutes(30));
+        assertFalse(ocupacao.listarLivres(data.atStartOfDay()).contains(outroHorario));
+    }
+
+    @Test
+    @DisplayName("3. Leituras e escritas concorrentes devem terminar com o cache igual ao banco")
+    void consistenciaConcorrente() throws Exception {
+        CacheOcupacao cache = new CacheOcupacao(10, 5);
+        UUID medicoId = UUID.randomUUID();
+
+        // "Banco" em memória: agendamentos ativos do dia (id -> horário)
+        Map<UUID, LocalDateTime> banco = new ConcurrentHashMap<>();
+        int escritores = 4;
+        int leitores = 4;
+        AtomicBoolean terminou = new AtomicBoolean(false);
+        CountDownLatch largada = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(escritores + leitores);
+
+        try {
+            List<Future<?>> tarefasEscrita = new ArrayList<>();
+            for (int e = 0; e < escritores; e++) {
+                int escritor = e;
+                tarefasEscrita.add(executor.submit(() -> {
+                    largada.await();
+                    ThreadLocalRandom random = ThreadLocalRandom.current();
+                    List<Agendamento> meus = new ArrayList<>();
+                    for (int i = 0; i < 2_000; i++) {
+                        if (meus.isEmpty() || random.nextBoolean()) {
+                            // Horários distintos por escritor (08h + escritor*10min + k*40min); vários caem no mesmo slot de 1h
+                            int k = random.nextInt(15);
+                            LocalDateTime horario = data.atTime(8, 0).plusMinutes(escritor * 10L + k * 40L);
+                            Agendamento novo = agendamento(medicoId, horario);
+                            banco.put(novo.getId(), horario);   // commit
+                            cache.registrarAgendamento(novo);    // após o commit
+                            meus.add(novo);
+                        } else {
+                            Agendamento cancelado = meus.remove(random.nextInt(meus.size()));
+                            banco.remove(cancelado.getId());
+                            cache.removerAgendamento(cancelado);
+                        }
+                    }
+                    return null;
+                }));
+            }
+
+            List<Future<?>> tarefasLeitura = new ArrayList<>();
+            for (int l = 0; l < leitores; l++) {
+                tarefasLeitura.add(executor.submit(() -> {
+                    largada.await();
+                    while (!terminou.get()) {
+                        cache.obter(medicoId, data, () -> carregar(banco, medicoId)).listarLivres(data.atStartOfDay());
+                    }
+                    return null;
+                }));
+            }
+
+            largada.countDown();
+            for (Future<?> f : tarefasEscrita) f.get();
+            terminou.set(true);
+            for (Future<?> f : tarefasLeitura) f.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        List<LocalDateTime> esperado = carregar(banco, medicoId).listarLivres(data.atStartOfDay());
+        List<LocalDateTime> emCache = cache.obter(medicoId, data, () -> fail("Entrada deveria estar em cache"))
+                .listarLivres(data.atStartOfDay());
+        assertEquals(esperado, emCache);
+    }
+
+    @Test
+    @DisplayName("4. Reserva temporária deve ocupar o horário só até expirar")
+    void reservaExpira() {
+        CacheOcupacao cache = new CacheOcupacao(10, 5);
+        UUID medicoId = UUID.randomUUID();
+        AtomicInteger cargas = new AtomicInteger();
+        livres(cache, medicoId, cargas);
+
+        Agendamento valida = agendamento(medicoId, data.atTime(9, 0));
+        valida.setExpiraEm(LocalDateTime.now().plusMinutes(10));
+        Agendamento vencida = agendamento(medicoId, data.atTime(10, 0));
+        vencida.setExpiraEm(LocalDateTime.now().minusSeconds(1));
+        cache.registrarAgendamento(valida);
+        cache.registrarAgendamento(vencida);
+
+        List<LocalDateTime> livres = livres(cache, medicoId, cargas);
+        assertFalse(livres.contains(data.atTime(9, 0)));
+        assertTrue(livres.contains(data.atTime(10, 0)));
+
+        // Confirmada: deixa de expirar
+        valida.setExpiraEm(null);
+        cache.registrarAgendamento(valida);
+        assertFalse(livres(cache, medicoId, cargas).contains(data.atTime(9, 0)));
+        assertEquals(1, cargas.get());
+    }
+
+    private List<LocalDateTime> livres(CacheOcupacao cache, UUID medicoId, AtomicInteger cargas) {
+        return cache.obter(medicoId, data, () -> {
+            cargas.incrementAndGet();
+            return dia(data, medicoId);
+        }).listarLivres(data.atStartOfDay());
+    }
+
+    private OcupacaoDia carregar(Map<UUID, LocalDateTime> banco, UUID medicoId) {
+        OcupacaoDia ocupacao = dia(data, medicoId);
+        Map.copyOf(banco).forEach((id, horario) -> ocupacao.adicionarAgendamento(id, horario, horario.plusMinutes(30)));
+        return ocupacao;
+    }
+
+    // 08h-18h, slots de 1h
+    private OcupacaoDia dia(LocalDate dia, UUID medicoId) {
+        ConfiguracaoAgenda config = new ConfiguracaoAgenda();
+        config.setMedicoId(medicoId);
+        config.setDiaSemana(dia.getDayOfWeek());
+        config.setHoraInicio(LocalTime.of(8, 0));
+        config.setHoraFim(LocalTime.of(18, 0));
+        config.setIntervaloMinutos(60);
+        config.setAtivo(true);
+        return new OcupacaoDia(dia, config, 60);
+    }
+
+    private Agendamento agendamento(UUID medicoId, LocalDateTime horario) {
+        Medico medico = new Medico();
+        medico.setId(medicoId);
+        Agendamento agendamento = new Agendamento();
+        agendamento.setId(UUID.randomUUID());
+        agendamento.setMedico(medico);
+        agendamento.setDataConsulta(horario);
+        agendamento.setDataFimConsulta(horario.plusMinutes(30));
+        return agendamento;
+    }
+}
@@ -0,0 +1,174 @@
+package com.clinic.api.agenda;
+
+import com.clinic.api.agenda.domain.BloqueioAgenda;
+import com.clinic.api.agenda.domain.BloqueioAgendaRepository;
+import com.clinic.api.agenda.domain.IntervaloMedico;
+import com.clinic.api.agenda.domain.IntervalosBloqueio;
+import com.clinic.api.agenda.domain.Periodo;
+import com.clinic.api.agenda.service.IndiceBloqueios;
+import com.clinic.api.medico.Medico;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class IndiceBloqueiosTest {
+
+    @Mock private BloqueioAgendaRepository repository;
+
+    private IndiceBloqueios indice;
+
+    private final LocalDate amanha = LocalDate.now().plusDays(1);
+
+    @BeforeEach
+    void setup() {
+        indice = new IndiceBloqueios(repository, 100, 60);
+    }
+
+    @Test
+    @DisplayName("1. Períodos sobrepostos ou encostados devem ser fundidos")
+    void fundePeriodos() {
+        IntervalosBloqueio intervalos = new IntervalosBloqueio();
+        intervalos.adicionar(amanha.atTime(10, 0), amanha.atTime(11, 0));
+        intervalos.adicionar(amanha.atTime(14, 0), amanha.atTime(15, 0));
+        intervalos.adicionar(amanha.atTime(11, 0), amanha.atTime(12, 0)); // Encosta no primeiro
+        intervalos.adicionar(amanha.atTime(9, 0), amanha.atTime(10, 30));  // Sobrepõe o primeiro
+
+        assertEquals(2, intervalos.tamanho());
+        assertEquals(List.of(
+                new Periodo(amanha.atTime(9, 0), amanha.atTime(12, 0)),
+                new Periodo(amanha.atTime(14, 0), amanha.atTime(15, 0))),
+                intervalos.listar(amanha.atStartOfDay(), amanha.plusDays(1).atStartOfDay()));
+
+        // Um período que engole tudo vira um só
+        intervalos.adicionar(amanha.atTime(8, 0), amanha.atTime(16, 0));
+        assertEquals(1, intervalos.tamanho());
+    }
+
+    @Test
+    @DisplayName("2. Sobreposição deve respeitar o intervalo semiaberto [início, fim)")
+    void sobreposicaoSemiaberta() {
+        IntervalosBloqueio intervalos = new IntervalosBloqueio();
+        intervalos.adicionar(amanha.atTime(12, 0), amanha.atTime(13, 0));
+
+        assertTrue(intervalos.sobrepoe(amanha.atTime(12, 30), amanha.atTime(12, 45)));
+        assertTrue(intervalos.sobrepoe(amanha.atTime(11, 30), amanha.atTime(12, 30)));
+        assertFalse(intervalos.sobrepoe(amanha.atTime(11, 0), amanha.atTime(12, 0)));
+        assertFalse(intervalos.sobrepoe(amanha.atTime(13, 0), amanha.atTime(14, 0)));
+
+        // Férias que começaram antes do dia consultado também aparecem na listagem
+        intervalos.adicionar(amanha.plusDays(2).atStartOfDay(), amanha.plusDays(10).atStartOfDay());
+        assertEquals(1, intervalos.listar(amanha.plusDays(5).atStartOfDay(), amanha.plusDays(6).atStartOfDay()).size());
+    }
+
+    @Test
+    @DisplayName("3. Deve carregar o médico uma única vez e responder as próximas consultas em memória")
+    void carregaUmaVez() {
+        UUID medicoId = UUID.randomUUID();
+        when(repository.findPeriodosAPartirDe(eq(medicoId), any()))
+                .thenReturn(List.of(new Periodo(amanha.atTime(12, 0), amanha.atTime(13, 0))));
+
+        assertEquals(1, indice.listar(medicoId, amanha.atStartOfDay(), amanha.plusDays(1).atStartOfDay()).size());
+        assertTrue(indice.estaBloqueado(medicoId, amanha.atTime(12, 0), amanha.atTime(12, 30)));
+        assertFalse(indice.estaBloqueado(medicoId, amanha.atTime(13, 0), amanha.atTime(13, 30)));
+
+        verify(repository, times(1)).findPeriodosAPartirDe(any(), any());
+        verify(repository, never()).findBloqueiosNoIntervalo(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("4. Bloqueio novo deve entrar no índice já carregado, sem recarregar")
+    void registrarAtualizaIndice() {
+        UUID medicoId = UUID.randomUUID();
+        when(repository.findPeriodosAPartirDe(eq(medicoId), any())).thenReturn(List.of());
+
+        assertFalse(indice.estaBloqueado(medicoId, amanha.atTime(8, 0), amanha.atTime(9, 0)));
+
+        Medico medico = new Medico();
+        medico.setId(medicoId);
+        indice.registrar(new BloqueioAgenda(medico, amanha.atTime(8, 0), amanha.atTime(10, 0), "Reunião"));
+
+        assertTrue(indice.estaBloqueado(medicoId, amanha.atTime(8, 0), amanha.atTime(9, 0)));
+        verify(repository, times(1)).findPeriodosAPartirDe(any(), any());
+    }
+
+    @Test
+    @DisplayName("5. Consulta anterior ao início da carga deve ir ao banco")
+    void passadoVaiAoBanco() {
+        UUID medicoId = UUID.randomUUID();
+        LocalDateTime ontem = LocalDate.now().minusDays(1).atStartOfDay();
+        when(repository.findPeriodosAPartirDe(eq(medicoId), any())).thenReturn(List.of());
+        when(repository.findBloqueiosNoIntervalo(eq(medicoId), any(), any())).thenReturn(List.of());
+
+        indice.listar(medicoId, ontem, ontem.plusDays(1));
+
+        verify(repository, times(1)).findBloqueiosNoIntervalo(medicoId, ontem, ontem.plusDays(1));
+    }
+
+    @Test
+    @DisplayName("6. Carga em lote deve usar uma consulta para todos os médicos")
+    void cargaEmLote() {
+        UUID drAna = UUID.randomUUID();
+        UUID drBruno = UUID.randomUUID();
+        when(repository.findIntervalosDosMedicosAPartirDe(any(), any())).thenReturn(List.of(
+                new IntervaloMedico(drAna, amanha.atTime(8, 0), amanha.atTime(12, 0))));
+
+        indice.carregar(List.of(drAna, drBruno));
+        indice.carregar(List.of(drAna, drBruno)); // Já carregados: não consulta de novo
+
+        assertTrue(indice.estaBloqueado(drAna, amanha.atTime(9, 0), amanha.atTime(10, 0)));
+        assertFalse(indice.estaBloqueado(drBruno, amanha.atTime(9, 0), amanha.atTime(10, 0)));
+        verify(repository, times(1)).findIntervalosDosMedicosAPartirDe(any(), any());
+        verify(repository, never()).findPeriodosAPartirDe(any(), any());
+    }
+
+    @Test
+    @DisplayName("7. Memória limitada: acima da capacidade sai o médico consultado há mais tempo")
+    void capacidadeLimitada() {
+        IndiceBloqueios pequeno = new IndiceBloqueios(repository, 2, 60);
+        UUID drAna = UUID.randomUUID();
+        UUID drBruno = UUID.randomUUID();
+        UUID drCarla = UUID.randomUUID();
+        when(repository.findPeriodosAPartirDe(any(), any())).thenReturn(List.of());
+
+        pequeno.estaBloqueado(drAna, amanha.atTime(8, 0), amanha.atTime(9, 0));
+        pequeno.estaBloqueado(drBruno, amanha.atTime(8, 0), amanha.atTime(9, 0));
+        pequeno.estaBloqueado(drAna, amanha.atTime(10, 0), amanha.atTime(11, 0)); // Ana volta a ser a mais recente
+        pequeno.estaBloqueado(drCarla, amanha.atTime(8, 0), amanha.atTime(9, 0)); // Bruno sai
+
+        assertEquals(2, pequeno.tamanho());
+        pequeno.estaBloqueado(drAna, amanha.atTime(8, 0), amanha.atTime(9, 0));
+        pequeno.estaBloqueado(drBruno, amanha.atTime(8, 0), amanha.atTime(9, 0));
+        verify(repository, times(1)).findPeriodosAPartirDe(eq(drAna), any());
+        verify(repository, times(2)).findPeriodosAPartirDe(eq(drBruno), any());
+    }
+
+    @Test
+    @DisplayName("8. Carga vencida deve ser refeita do banco")
+    void cargaVencida() {
+        IndiceBloqueios semValidade = new IndiceBloqueios(repository, 100, 0);
+        UUID medicoId = UUID.randomUUID();
+        when(repository.findPeriodosAPartirDe(eq(medicoId), any())).thenReturn(List.of());
+        when(repository.findIntervalosDosMedicosAPartirDe(any(), any())).thenReturn(List.of());
+
+        semValidade.estaBloqueado(medicoId, amanha.atTime(8, 0), amanha.atTime(9, 0));
+        semValidade.estaBloqueado(medicoId, amanha.atTime(8, 0), amanha.atTime(9, 0));
+        semValidade.carregar(List.of(medicoId)); // Vencido também para o aquecimento em lote
+
+        verify(repository, times(2)).findPeriodosAPartirDe(eq(medicoId), any());
+        verify(repository, times(1)).findIntervalosDosMedicosAPartirDe(any(), any());
+    }
+}
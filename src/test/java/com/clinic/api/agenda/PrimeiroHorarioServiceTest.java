@@ -0,0 +1,152 @@
+package com.clinic.api.agenda;
+
+import com.clinic.api.agenda.domain.BloqueioAgendaRepository;
+import com.clinic.api.agenda.domain.ConfiguracaoAgenda;
+import com.clinic.api.agenda.domain.ConfiguracaoAgendaRepository;
+import com.clinic.api.agenda.domain.IntervaloMedico;
+import com.clinic.api.agenda.dto.PrimeiroHorarioResponse;
+import com.clinic.api.agenda.service.IndiceBloqueios;
+import com.clinic.api.agenda.service.PrimeiroHorarioService;
+import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import com.clinic.api.medico.domain.MedicoRepository;
+import com.clinic.api.medico.dto.MedicoResumoDTO;
+import com.clinic.api.medico.enun.Especialidade;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PrimeiroHorarioServiceTest {
+
+    @Mock private MedicoRepository medicoRepository;
+    @Mock private ConfiguracaoAgendaRepository configRepository;
+    @Mock private BloqueioAgendaRepository bloqueioRepository;
+    @Mock private AgendamentoRepository agendamentoRepository;
+
+    private ExecutorService executor;
+    private PrimeiroHorarioService service;
+
+    // Só "amanhã" é dia de atendimento: o resultado não depende da hora em que o teste roda
+    private final LocalDate amanha = LocalDate.now().plusDays(1);
+
+    @BeforeEach
+    void setup() {
+        executor = Executors.newFixedThreadPool(2);
+        service = new PrimeiroHorarioService(medicoRepository, configRepository, new IndiceBloqueios(bloqueioRepository, 100, 60),
+                agendamentoRepository, executor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("1. Deve retornar os médicos ordenados pelo primeiro horário livre, respeitando o limite")
+    void ordenaPorHorarioERespeitaLimite() {
+        UUID drAna = UUID.randomUUID();
+        UUID drBruno = UUID.randomUUID();
+        UUID drCarla = UUID.randomUUID();
+
+        when(medicoRepository.findResumoAtivosPorEspecialidade(Especialidade.CARDIOLOGIA)).thenReturn(List.of(
+                new MedicoResumoDTO(drAna, "Dra. Ana", 60),
+                new MedicoResumoDTO(drBruno, "Dr. Bruno", 60),
+                new MedicoResumoDTO(drCarla, "Dra. Carla", 60)));
+        when(configRepository.findByMedicoIdIn(any()))
+                .thenReturn(List.of(configAmanha(drAna), configAmanha(drBruno), configAmanha(drCarla)));
+        when(bloqueioRepository.findIntervalosDosMedicosAPartirDe(any(), any())).thenReturn(List.of(
+                // Carla bloqueada a manhã toda
+                new IntervaloMedico(drCarla, amanha.atTime(8, 0), amanha.atTime(12, 0))));
+        when(agendamentoRepository.findHorariosOcupadosDosMedicos(any(), any(), any())).thenReturn(List.of(
+                // Ana já tem 08h e 09h
+                new IntervaloMedico(drAna, amanha.atTime(8, 0), amanha.atTime(9, 0)),
+                new IntervaloMedico(drAna, amanha.atTime(9, 0), amanha.atTime(10, 0))));
+
+        List<PrimeiroHorarioResponse> resultado = service.buscarPrimeirosHorarios(Especialidade.CARDIOLOGIA, 2, 30);
+
+        assertEquals(2, resultado.size());
+        assertEquals(drBruno, resultado.get(0).medicoId());
+        assertEquals(amanha.atTime(8, 0), resultado.get(0).horario());
+        assertEquals(drAna, resultado.get(1).medicoId());
+        assertEquals(amanha.atTime(10, 0), resultado.get(1).horario());
+    }
+
+    @Test
+    @DisplayName("2. Deve parar na primeira janela quando já encontrou candidatos suficientes")
+    void paradaAntecipada() {
+        UUID medicoId = UUID.randomUUID();
+
+        when(medicoRepository.findResumoAtivosPorEspecialidade(any())).thenReturn(List.of(new MedicoResumoDTO(medicoId, "Dr. X", 60)));
+        when(configRepository.findByMedicoIdIn(any())).thenReturn(List.of(configAmanha(medicoId)));
+        when(bloqueioRepository.findIntervalosDosMedicosAPartirDe(any(), any())).thenReturn(List.of());
+        when(agendamentoRepository.findHorariosOcupadosDosMedicos(any(), any(), any())).thenReturn(List.of());
+
+        List<PrimeiroHorarioResponse> resultado = service.buscarPrimeirosHorarios(Especialidade.CARDIOLOGIA, 1, 90);
+
+        assertEquals(1, resultado.size());
+        // Consultas em lote (bloqueios: uma carga do índice); nenhuma consulta por médico
+        verify(configRepository, times(1)).findByMedicoIdIn(any());
+        verify(bloqueioRepository, times(1)).findIntervalosDosMedicosAPartirDe(any(), any());
+        verify(agendamentoRepository, times(1)).findHorariosOcupadosDosMedicos(any(), any(), any());
+        verify(configRepository, never()).findByMedicoIdAndDiaSemana(any(), any());
+    }
+
+    @Test
+    @DisplayName("3. Deve continuar nas próximas janelas quando não há horário livre na primeira")
+    void avancaJanelas() {
+        UUID medicoId = UUID.randomUUID();
+
+        when(medicoRepository.findResumoAtivosPorEspecialidade(any())).thenReturn(List.of(new MedicoResumoDTO(medicoId, "Dr. X", 60)));
+        when(configRepository.findByMedicoIdIn(any())).thenReturn(List.of(configAmanha(medicoId)));
+        // Férias cobrindo as duas primeiras semanas
+        when(bloqueioRepository.findIntervalosDosMedicosAPartirDe(any(), any())).thenReturn(List.of(
+                new IntervaloMedico(medicoId, amanha.atStartOfDay(), amanha.plusDays(13).atStartOfDay())));
+        when(agendamentoRepository.findHorariosOcupadosDosMedicos(any(), any(), any())).thenReturn(List.of());
+
+        List<PrimeiroHorarioResponse> resultado = service.buscarPrimeirosHorarios(Especialidade.CARDIOLOGIA, 1, 30);
+
+        assertEquals(1, resultado.size());
+        assertEquals(amanha.plusDays(14).atTime(8, 0), resultado.get(0).horario());
+    }
+
+    @Test
+    @DisplayName("4. Especialidade sem médicos deve retornar vazio sem consultar agendas")
+    void especialidadeSemMedicos() {
+        when(medicoRepository.findResumoAtivosPorEspecialidade(any())).thenReturn(List.of());
+
+        assertTrue(service.buscarPrimeirosHorarios(Especialidade.PEDIATRIA, 5, 30).isEmpty());
+        verifyNoInteractions(configRepository, bloqueioRepository, agendamentoRepository);
+    }
+
+    @Test
+    @DisplayName("5. Deve rejeitar limite fora da faixa permitida")
+    void limiteInvalido() {
+        assertThrows(RuntimeException.class, () -> service.buscarPrimeirosHorarios(Especialidade.CARDIOLOGIA, 0, 30));
+    }
+
+    private ConfiguracaoAgenda configAmanha(UUID medicoId) {
+        ConfiguracaoAgenda config = new ConfiguracaoAgenda();
+        config.setMedicoId(medicoId);
+        config.setDiaSemana(amanha.getDayOfWeek());
+        config.setHoraInicio(LocalTime.of(8, 0));
+        config.setHoraFim(LocalTime.of(18, 0));
+        config.setIntervaloMinutos(60);
+        config.setAtivo(true);
+        return config;
+    }
+}
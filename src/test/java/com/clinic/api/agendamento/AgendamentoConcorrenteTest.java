@@ -0,0 +1,202 @@
+package com.clinic.api.agendamento;
+
+import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import com.clinic.api.agendamento.domain.ConflitoAgendamentoException;
+import com.clinic.api.agendamento.dto.AgendamentoRequest;
+import com.clinic.api.agendamento.service.AgendamentoService;
+import com.clinic.api.medico.Medico;
+import com.clinic.api.medico.enun.Especialidade;
+import com.clinic.api.paciente.Paciente;
+import com.clinic.api.usuario.Usuario;
+import com.clinic.api.usuario.domain.UserRole;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Centenas de agendamentos simultâneos no mesmo horário contra PostgreSQL real, com as migrações Flyway,
+ * pela API (HTTP de verdade, threads do Tomcat): quem barra o choque é a restrição EXCLUDE (não há
+ * verificação prévia na aplicação), e a violação tem que chegar ao cliente como 409. Sem Docker, a classe é pulada.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@Testcontainers(disabledWithoutDocker = true)
+class AgendamentoConcorrenteTest {
+
+    static final int REQUISICOES = 300;
+    static final int THREADS = 64; // Pool limitado: as requisições saem juntas, na largada
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    @Autowired private TestRestTemplate http;
+    @Autowired private AgendamentoService service;
+    @Autowired private AgendamentoRepository repository;
+    @Autowired private EntityManager entityManager;
+    @Autowired private TransactionTemplate transacao;
+
+    @Test
+    @DisplayName("1. 300 pedidos simultâneos sobrepostos para o mesmo médico: um grava (201), os outros recebem 409")
+    void mesmoMedicoSimultaneo() throws Exception {
+        Medico medico = medicos(1).get(0);
+        List<Paciente> pacientes = pacientes(REQUISICOES);
+        LocalDateTime base = LocalDate.now().plusDays(20).atTime(10, 0);
+
+        // Pacientes distintos e inícios entre 0 e 29 min depois da base (todos se sobrepõem numa consulta
+        // de 30): só a restrição de período do médico decide
+        List<AgendamentoRequest> pedidos = new ArrayList<>();
+        for (int i = 0; i < REQUISICOES; i++) {
+            pedidos.add(pedido(medico.getId(), pacientes.get(i).getId(), base.plusMinutes(i % 30)));
+        }
+
+        List<ResponseEntity<String>> respostas = disparar(pedidos);
+
+        assertEquals(1, contar(respostas, HttpStatus.CREATED));
+        assertEquals(REQUISICOES - 1, contar(respostas, HttpStatus.CONFLICT));
+        respostas.stream().filter(r -> r.getStatusCode() == HttpStatus.CONFLICT)
+                .forEach(r -> assertTrue(r.getBody().contains("Este horário já está preenchido"), r.getBody()));
+        assertEquals(1, ocupacoes(List.of(medico.getId()), List.of(UUID.randomUUID()), base));
+    }
+
+    @Test
+    @DisplayName("2. 300 pedidos simultâneos do mesmo paciente com médicos diferentes: um grava (201), os outros recebem 409")
+    void mesmoPacienteSimultaneo() throws Exception {
+        Paciente paciente = pacientes(1).get(0);
+        List<Medico> medicos = medicos(REQUISICOES);
+        LocalDateTime horario = LocalDate.now().plusDays(21).atTime(14, 0);
+
+        List<AgendamentoRequest> pedidos = new ArrayList<>();
+        for (Medico medico : medicos) {
+            pedidos.add(pedido(medico.getId(), paciente.getId(), horario));
+        }
+
+        List<ResponseEntity<String>> respostas = disparar(pedidos);
+
+        assertEquals(1, contar(respostas, HttpStatus.CREATED));
+        assertEquals(REQUISICOES - 1, contar(respostas, HttpStatus.CONFLICT));
+        respostas.stream().filter(r -> r.getStatusCode() == HttpStatus.CONFLICT)
+                .forEach(r -> assertTrue(r.getBody().contains("O paciente já possui um agendamento neste horário."), r.getBody()));
+        assertEquals(1, ocupacoes(List.of(UUID.randomUUID()), List.of(paciente.getId()), horario));
+    }
+
+    @Test
+    @DisplayName("3. Depois da disputa: o perdedor continua recusado e o horário encostado no vencedor é aceito")
+    void depoisDaDisputa() throws Exception {
+        Medico medico = medicos(1).get(0);
+        List<Paciente> pacientes = pacientes(3);
+        LocalDateTime horario = LocalDate.now().plusDays(22).atTime(9, 0);
+
+        List<ResponseEntity<String>> respostas = disparar(List.of(
+                pedido(medico.getId(), pacientes.get(0).getId(), horario),
+                pedido(medico.getId(), pacientes.get(1).getId(), horario)));
+        assertEquals(1, contar(respostas, HttpStatus.CREATED));
+        int perdedor = respostas.get(0).getStatusCode() == HttpStatus.CREATED ? 1 : 0;
+
+        // Repetir o pedido perdedor não fura a restrição
+        assertThrows(ConflitoAgendamentoException.class,
+                () -> service.agendar(pedido(medico.getId(), pacientes.get(perdedor).getId(), horario)));
+        // Período semiaberto [início, fim): começar exatamente no fim do vencedor não é choque
+        assertNotNull(service.agendar(pedido(medico.getId(), pacientes.get(2).getId(), horario.plusMinutes(30))));
+        assertEquals(2, ocupacoes(List.of(medico.getId()), List.of(UUID.randomUUID()), horario));
+    }
+
+    // Todas as tarefas esperam a largada; cada requisição roda numa thread do Tomcat, com a sua transação
+    private List<ResponseEntity<String>> disparar(List<AgendamentoRequest> pedidos) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(Math.min(THREADS, pedidos.size()));
+        CountDownLatch largada = new CountDownLatch(1);
+        try {
+            List<Future<ResponseEntity<String>>> futuros = new ArrayList<>();
+            for (AgendamentoRequest pedido : pedidos) {
+                futuros.add(executor.submit(() -> {
+                    largada.await();
+                    return http.postForEntity("/agendamentos", pedido, String.class);
+                }));
+            }
+            largada.countDown();
+
+            List<ResponseEntity<String>> respostas = new ArrayList<>();
+            for (Future<ResponseEntity<String>> futuro : futuros) respostas.add(futuro.get(60, TimeUnit.SECONDS));
+            return respostas;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    private static long contar(List<ResponseEntity<String>> respostas, HttpStatus status) {
+        return respostas.stream().filter(r -> r.getStatusCode() == status).count();
+    }
+
+    private int ocupacoes(List<UUID> medicoIds, List<UUID> pacienteIds, LocalDateTime inicio) {
+        return repository.findOcupacoes(medicoIds, pacienteIds, inicio, inicio.plusHours(2)).size();
+    }
+
+    private List<Medico> medicos(int quantidade) {
+        return transacao.execute(s -> {
+            List<Medico> medicos = new ArrayList<>();
+            for (int i = 0; i < quantidade; i++) {
+                Medico medico = new Medico(usuario(UserRole.MEDICO), "Dr. " + i);
+                medico.setEspecialidade(Especialidade.CARDIOLOGIA);
+                medico.setDuracaoConsulta(30);
+                medico.setValorConsulta(new BigDecimal("250.00"));
+                entityManager.persist(medico);
+                medicos.add(medico);
+            }
+            return medicos;
+        });
+    }
+
+    private List<Paciente> pacientes(int quantidade) {
+        return transacao.execute(s -> {
+            List<Paciente> pacientes = new ArrayList<>();
+            for (int i = 0; i < quantidade; i++) {
+                Paciente paciente = new Paciente();
+                paciente.setNome("Paciente " + i);
+                paciente.setUsuario(usuario(UserRole.PACIENTE));
+                entityManager.persist(paciente);
+                pacientes.add(paciente);
+            }
+            return pacientes;
+        });
+    }
+
+    private static AgendamentoRequest pedido(UUID medicoId, UUID pacienteId, LocalDateTime data) {
+        AgendamentoRequest pedido = new AgendamentoRequest();
+        pedido.setMedicoId(medicoId);
+        pedido.setPacienteId(pacienteId);
+        pedido.setDataConsulta(data);
+        pedido.setFormaPagamento("PARTICULAR");
+        return pedido;
+    }
+
+    private static Usuario usuario(UserRole role) {
+        Usuario usuario = new Usuario();
+        usuario.setEmail(UUID.randomUUID() + "@teste.com");
+        usuario.setSenha("senha");
+        usuario.setRole(role);
+        return usuario;
+    }
+}
@@ -0,0 +1,84 @@
+package com.clinic.api.agendamento;
+
+import com.clinic.api.agendamento.dto.AgendamentoLoteResponse;
+import com.clinic.api.agendamento.dto.AgendamentoRequest;
+import com.clinic.api.agendamento.service.AgendamentoLoteService;
+import com.clinic.api.medico.Medico;
+import com.clinic.api.medico.enun.Especialidade;
+import com.clinic.api.paciente.Paciente;
+import com.clinic.api.usuario.Usuario;
+import com.clinic.api.usuario.domain.UserRole;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Requer Banco de Dados Real (PostgreSQL): roda só quando SPRING_DATASOURCE_URL está configurada
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@EnabledIfEnvironmentVariable(named = "SPRING_DATASOURCE_URL", matches = ".+")
+@Transactional
+class AgendamentoLoteConsultasTest {
+
+    @Autowired private AgendamentoLoteService service;
+    @Autowired private EntityManager entityManager;
+
+    @Test
+    @DisplayName("1. Lote com 40 pacientes não deve hidratar médico, paciente, usuário nem clínica")
+    void loteSemHidratarCadastros() {
+        LocalDate dia = LocalDate.now().plusDays(30);
+        Medico medico = new Medico(usuario(UserRole.MEDICO), "Dr. Lote");
+        medico.setEspecialidade(Especialidade.CARDIOLOGIA);
+        medico.setDuracaoConsulta(10);
+        medico.setValorConsulta(new BigDecimal("200.00"));
+        entityManager.persist(medico);
+
+        List<AgendamentoRequest> itens = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            Paciente paciente = new Paciente();
+            paciente.setNome("Paciente " + i);
+            paciente.setUsuario(usuario(UserRole.PACIENTE));
+            entityManager.persist(paciente);
+
+            AgendamentoRequest item = new AgendamentoRequest();
+            item.setMedicoId(medico.getId());
+            item.setPacienteId(paciente.getId());
+            item.setDataConsulta(dia.atTime(8, 0).plusMinutes(10L * i));
+            itens.add(item);
+        }
+        entityManager.flush();
+        entityManager.clear(); // Nada em memória: um cadastro carregado apareceria nas estatísticas
+
+        Statistics estatisticas = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        estatisticas.clear();
+
+        AgendamentoLoteResponse resposta = service.agendarEmLote(itens);
+
+        assertEquals(40, resposta.aceitos());
+        assertEquals(0, estatisticas.getEntityLoadCount());
+        // Médicos, pacientes, reservas vencidas, choques, bloqueios e os dois INSERTs em lote:
+        // número fixo, não cresce com o tamanho do lote
+        assertTrue(estatisticas.getPrepareStatementCount() <= 10,
+                "Consultas preparadas: " + estatisticas.getPrepareStatementCount());
+    }
+
+    private Usuario usuario(UserRole role) {
+        Usuario usuario = new Usuario();
+        usuario.setEmail(UUID.randomUUID() + "@teste.com");
+        usuario.setSenha("senha");
+        usuario.setRole(role);
+        return usuario;
+    }
+}
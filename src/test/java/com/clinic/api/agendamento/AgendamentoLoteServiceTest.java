@@ -0,0 +1,359 @@
+package com.clinic.api.agendamento;
+
+import com.clinic.api.agenda.domain.BloqueioAgendaRepository;
+import com.clinic.api.agenda.domain.BloqueioMedico;
+import com.clinic.api.agenda.service.CacheOcupacao;
+import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import com.clinic.api.agendamento.domain.ConflitoAgendamentoException;
+import com.clinic.api.agendamento.domain.TipoEventoAgendamento;
+import com.clinic.api.agendamento.domain.ForaDoHorizonteException;
+import com.clinic.api.agendamento.domain.FrequenciaSerie;
+import com.clinic.api.agendamento.domain.OcupacaoAgendamento;
+import com.clinic.api.agendamento.dto.AgendamentoLoteResponse;
+import com.clinic.api.agendamento.dto.AgendamentoRequest;
+import com.clinic.api.agendamento.dto.ResultadoItemLote.Situacao;
+import com.clinic.api.agendamento.dto.SerieAgendamentoRequest;
+import com.clinic.api.agendamento.dto.SerieAgendamentoResponse;
+import com.clinic.api.agendamento.service.AgendamentoLoteService;
+import com.clinic.api.agendamento.service.HorizonteAgendamento;
+import com.clinic.api.agendamento.service.OutboxAgendamento;
+import com.clinic.api.medico.Medico;
+import com.clinic.api.medico.domain.MedicoRepository;
+import com.clinic.api.medico.dto.MedicoCobrancaDTO;
+import com.clinic.api.paciente.Paciente;
+import com.clinic.api.paciente.domain.PacienteRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AgendamentoLoteServiceTest {
+
+    @Mock private AgendamentoRepository repository;
+    @Mock private MedicoRepository medicoRepository;
+    @Mock private PacienteRepository pacienteRepository;
+    @Mock private CacheOcupacao cacheOcupacao;
+    @Mock private BloqueioAgendaRepository bloqueioRepository;
+    @Mock private OutboxAgendamento outbox;
+    @Spy private HorizonteAgendamento horizonte = new HorizonteAgendamento(24); // Partições 24 meses à frente
+
+    @InjectMocks private AgendamentoLoteService service;
+
+    private final LocalDate amanha = LocalDate.now().plusDays(1);
+
+    @Test
+    @DisplayName("1. Deve aceitar, recusar e invalidar itens no mesmo lote, com resultado por índice")
+    void resultadoPorItem() {
+        Medico medico = medico(45);
+        Paciente ana = paciente();
+        Paciente bruno = paciente();
+        mockCadastros(List.of(medico), List.of(ana, bruno));
+        salvarComIds();
+
+        // Já existe consulta do médico às 10h no banco
+        when(repository.findOcupacoes(any(), any(), any(), any())).thenReturn(List.of(
+                new OcupacaoAgendamento(medico.getId(), UUID.randomUUID(), amanha.atTime(10, 0), amanha.atTime(10, 45))));
+
+        AgendamentoLoteResponse resposta = service.agendarEmLote(List.of(
+                item(medico, ana, amanha.atTime(8, 0)),                           // 0: livre
+                item(medico, bruno, amanha.atTime(10, 30)),                       // 1: choca com o banco
+                item(medico, bruno, LocalDateTime.now().minusDays(1)),            // 2: passado
+                item(medico.getId(), UUID.randomUUID(), amanha.atTime(14, 0))));  // 3: paciente inexistente
+
+        assertEquals(4, resposta.total());
+        assertEquals(1, resposta.aceitos());
+        assertEquals(1, resposta.conflitos());
+        assertEquals(2, resposta.invalidos());
+        assertEquals(Situacao.ACEITO, resposta.itens().get(0).situacao());
+        assertNotNull(resposta.itens().get(0).agendamentoId());
+        assertEquals(Situacao.CONFLITO, resposta.itens().get(1).situacao());
+        assertEquals(Situacao.INVALIDO, resposta.itens().get(2).situacao());
+        assertEquals("Paciente não encontrado.", resposta.itens().get(3).mensagem());
+        verify(cacheOcupacao, times(1)).registrarAgendamento(any());
+        verify(outbox).registrarTodos(argThat(novos -> novos.size() == 1), eq(TipoEventoAgendamento.AGENDADO));
+    }
+
+    @Test
+    @DisplayName("2. Itens do próprio lote que se sobrepõem: o primeiro fica com o horário")
+    void conflitoDentroDoLote() {
+        Medico medico = medico(30);
+        Paciente ana = paciente();
+        Paciente bruno = paciente();
+        mockCadastros(List.of(medico), List.of(ana, bruno));
+        when(repository.findOcupacoes(any(), any(), any(), any())).thenReturn(List.of());
+        salvarComIds();
+
+        AgendamentoLoteResponse resposta = service.agendarEmLote(List.of(
+                item(medico, ana, amanha.atTime(9, 0)),
+                item(medico, bruno, amanha.atTime(9, 15)),   // Mesmo médico, sobrepõe o item 0
+                item(medico, bruno, amanha.atTime(9, 30)),   // Encosta no item 0: livre
+                item(medico, ana, amanha.atTime(9, 40))));   // Médico ocupado pelo item 2
+
+        assertEquals(List.of(Situacao.ACEITO, Situacao.CONFLITO, Situacao.ACEITO, Situacao.CONFLITO),
+                resposta.itens().stream().map(r -> r.situacao()).toList());
+    }
+
+    @Test
+    @DisplayName("3. Paciente não pode ter duas consultas simultâneas no lote, mesmo com médicos diferentes")
+    void conflitoDePaciente() {
+        Medico drAna = medico(30);
+        Medico drBruno = medico(30);
+        Paciente paciente = paciente();
+        mockCadastros(List.of(drAna, drBruno), List.of(paciente));
+        when(repository.findOcupacoes(any(), any(), any(), any())).thenReturn(List.of());
+        salvarComIds();
+
+        AgendamentoLoteResponse resposta = service.agendarEmLote(List.of(
+                item(drAna, paciente, amanha.atTime(9, 0)),
+                item(drBruno, paciente, amanha.atTime(9, 0))));
+
+        assertEquals(1, resposta.aceitos());
+        assertEquals("O paciente já possui um agendamento neste horário.", resposta.itens().get(1).mensagem());
+    }
+
+    @Test
+    @DisplayName("4. Lote grande deve usar número fixo de consultas e um único saveAll")
+    void consultasIndependentesDoTamanho() {
+        List<Medico> medicos = new ArrayList<>();
+        for (int m = 0; m < 20; m++) medicos.add(medico(30));
+        List<Paciente> pacientes = new ArrayList<>();
+        List<AgendamentoRequest> itens = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            Paciente p = paciente();
+            pacientes.add(p);
+            itens.add(item(medicos.get(i % 20), p, amanha.atTime(8, 0).plusMinutes(30L * (i / 20))));
+        }
+        mockCadastros(medicos, pacientes);
+        when(repository.findOcupacoes(any(), any(), any(), any())).thenReturn(List.of());
+        salvarComIds();
+
+        AgendamentoLoteResponse resposta = service.agendarEmLote(itens);
+
+        assertEquals(2_000, resposta.aceitos());
+        verify(medicoRepository, times(1)).findCobrancaByIdIn(any());
+        verify(pacienteRepository, times(1)).findIdsExistentes(any());
+        verify(medicoRepository, never()).findAllById(any()); // Nada de hidratar as entidades (Usuario/Clinica EAGER)
+        verify(pacienteRepository, never()).findAllById(any());
+        verify(repository, times(1)).findOcupacoes(any(), any(), any(), any());
+        verify(bloqueioRepository, times(1)).findBloqueiosDosMedicosNoIntervalo(any(), any(), any());
+        verify(repository, times(1)).saveAll(anyList());
+        verify(repository, never()).saveAndFlush(any());
+        verify(medicoRepository, never()).findById(any());
+    }
+
+    @Test
+    @DisplayName("5. Horário bloqueado na agenda deve ser recusado")
+    void horarioBloqueado() {
+        Medico medico = medico(30);
+        Paciente paciente = paciente();
+        mockCadastros(List.of(medico), List.of(paciente));
+        when(repository.findOcupacoes(any(), any(), any(), any())).thenReturn(List.of());
+        when(bloqueioRepository.findBloqueiosDosMedicosNoIntervalo(any(), any(), any()))
+                .thenReturn(List.of(bloqueio(medico.getId(), amanha.atTime(8, 0), amanha.atTime(12, 0))));
+        salvarComIds();
+
+        AgendamentoLoteResponse resposta = service.agendarEmLote(List.of(item(medico, paciente, amanha.atTime(9, 0))));
+
+        assertEquals(1, resposta.conflitos());
+        verify(cacheOcupacao, never()).registrarAgendamento(any());
+    }
+
+    @Test
+    @DisplayName("6. Choque no banco durante a importação deve desfazer o lote com 409")
+    void corridaNoInsert() {
+        Medico medico = medico(30);
+        Paciente paciente = paciente();
+        mockCadastros(List.of(medico), List.of(paciente));
+        when(repository.findOcupacoes(any(), any(), any(), any())).thenReturn(List.of());
+        doThrow(new DataIntegrityViolationException("ex_agendamento_medico_periodo")).when(repository).flush();
+
+        assertThrows(ConflitoAgendamentoException.class,
+                () -> service.agendarEmLote(List.of(item(medico, paciente, amanha.atTime(9, 0)))));
+        verify(cacheOcupacao, never()).registrarAgendamento(any());
+    }
+
+    @Test
+    @DisplayName("7. Deve rejeitar lote vazio ou acima do limite")
+    void limites() {
+        assertThrows(RuntimeException.class, () -> service.agendarEmLote(List.of()));
+        List<AgendamentoRequest> grande = Collections.nCopies(AgendamentoLoteService.MAX_ITENS + 1, new AgendamentoRequest());
+        assertThrows(RuntimeException.class, () -> service.agendarEmLote(grande));
+        verifyNoInteractions(repository, medicoRepository, pacienteRepository);
+    }
+
+    @Test
+    @DisplayName("8. Série semanal deve expandir as ocorrências, gravar as livres e apontar as que colidem")
+    void serieSemanal() {
+        Medico medico = medico(50);
+        Paciente paciente = paciente();
+        mockCadastros(List.of(medico), List.of(paciente));
+        LocalDateTime primeira = amanha.atTime(14, 0);
+        // Terceira semana: médico já tem consulta às 14h30
+        when(repository.findOcupacoes(any(), any(), any(), any())).thenReturn(List.of(new OcupacaoAgendamento(
+                medico.getId(), UUID.randomUUID(), primeira.plusWeeks(2).plusMinutes(30), primeira.plusWeeks(2).plusMinutes(80))));
+        salvarComIds();
+
+        SerieAgendamentoResponse resposta = service.agendarSerie(serie(medico, paciente, primeira, FrequenciaSerie.SEMANAL, 4, null));
+
+        assertEquals(4, resposta.resultado().total());
+        assertEquals(3, resposta.resultado().aceitos());
+        assertEquals(Situacao.CONFLITO, resposta.resultado().itens().get(2).situacao());
+        assertEquals(primeira.plusWeeks(2), resposta.resultado().itens().get(2).dataConsulta());
+        assertEquals(primeira.plusWeeks(3), resposta.resultado().itens().get(3).dataConsulta());
+
+        // Conflitos checados numa consulta só; as ocorrências gravadas levam o mesmo serieId
+        verify(repository, times(1)).findOcupacoes(any(), any(), any(), any());
+        verify(repository).saveAll(argThat((List<Agendamento> novos) -> novos.size() == 3
+                && novos.stream().allMatch(a -> resposta.serieId().equals(a.getSerieId()))));
+    }
+
+    @Test
+    @DisplayName("9. Série até uma data deve incluir a última ocorrência nesse dia (mensal sem escorregar o dia)")
+    void serieAteData() {
+        Medico medico = medico(30);
+        Paciente paciente = paciente();
+        mockCadastros(List.of(medico), List.of(paciente));
+        when(repository.findOcupacoes(any(), any(), any(), any())).thenReturn(List.of());
+        salvarComIds();
+        LocalDateTime primeira = LocalDate.now().plusYears(1).withMonth(1).withDayOfMonth(31).atTime(10, 0);
+
+        SerieAgendamentoResponse resposta = service.agendarSerie(
+                serie(medico, paciente, primeira, FrequenciaSerie.MENSAL, null, primeira.toLocalDate().plusMonths(2)));
+
+        assertEquals(3, resposta.resultado().aceitos());
+        assertEquals(31, resposta.resultado().itens().get(2).dataConsulta().getDayOfMonth()); // 31/01 -> 28/02 -> 31/03
+    }
+
+    @Test
+    @DisplayName("10. Série deve exigir quantidade OU data final, dentro do limite")
+    void serieInvalida() {
+        Medico medico = medico(30);
+        Paciente paciente = paciente();
+        LocalDateTime primeira = amanha.atTime(9, 0);
+
+        assertThrows(RuntimeException.class, () -> service.agendarSerie(
+                serie(medico, paciente, primeira, FrequenciaSerie.SEMANAL, null, null)));
+        assertThrows(RuntimeException.class, () -> service.agendarSerie(
+                serie(medico, paciente, primeira, FrequenciaSerie.SEMANAL, 4, amanha.plusWeeks(4))));
+        assertThrows(RuntimeException.class, () -> service.agendarSerie(
+                serie(medico, paciente, primeira, FrequenciaSerie.SEMANAL, AgendamentoLoteService.MAX_OCORRENCIAS_SERIE + 1, null)));
+        assertThrows(RuntimeException.class, () -> service.agendarSerie(
+                serie(medico, paciente, primeira, FrequenciaSerie.SEMANAL, null, amanha.plusYears(10))));
+        verifyNoInteractions(repository, medicoRepository, pacienteRepository);
+    }
+
+    @Test
+    @DisplayName("11. Data além das partições da agenda: item inválido no lote, série recusada inteira")
+    void alemDoHorizonte() {
+        Medico medico = medico(30);
+        Paciente paciente = paciente();
+        mockCadastros(List.of(medico), List.of(paciente));
+        salvarComIds();
+        LocalDateTime foraDoHorizonte = LocalDate.now().withDayOfMonth(1).plusMonths(24).atTime(9, 0);
+
+        AgendamentoLoteResponse resposta = service.agendarEmLote(List.of(
+                item(medico, paciente, amanha.atTime(9, 0)),
+                item(medico, paciente, foraDoHorizonte)));
+
+        assertEquals(1, resposta.aceitos());
+        assertEquals(Situacao.INVALIDO, resposta.itens().get(1).situacao());
+
+        // Semanal com 200 consultas: quase 4 anos, passa do limite antes de tocar no banco
+        assertThrows(ForaDoHorizonteException.class, () -> service.agendarSerie(serie(medico, paciente,
+                amanha.atTime(9, 0), FrequenciaSerie.SEMANAL, AgendamentoLoteService.MAX_OCORRENCIAS_SERIE, null)));
+        verify(repository, times(1)).saveAll(anyList());
+    }
+
+    // --- AUXILIARES ---
+    // Projeções do médico e ids dos pacientes; as entidades só entram como referência (sem SELECT)
+    private void mockCadastros(List<Medico> medicos, List<Paciente> pacientes) {
+        when(medicoRepository.findCobrancaByIdIn(any())).thenReturn(medicos.stream()
+                .map(m -> new MedicoCobrancaDTO(m.getId(), m.getDuracaoConsulta(), m.getValorConsulta())).toList());
+        when(pacienteRepository.findIdsExistentes(any())).thenReturn(pacientes.stream().map(Paciente::getId).toList());
+        Map<UUID, Medico> porIdMedico = medicos.stream().collect(Collectors.toMap(Medico::getId, m -> m));
+        Map<UUID, Paciente> porIdPaciente = pacientes.stream().collect(Collectors.toMap(Paciente::getId, p -> p));
+        lenient().when(medicoRepository.getReferenceById(any())).thenAnswer(i -> porIdMedico.get(i.getArgument(0)));
+        lenient().when(pacienteRepository.getReferenceById(any())).thenAnswer(i -> porIdPaciente.get(i.getArgument(0)));
+    }
+
+    // Simula o Hibernate gerando os ids UUID no persist
+    private void salvarComIds() {
+        when(repository.saveAll(anyList())).thenAnswer(i -> {
+            List<Agendamento> novos = i.getArgument(0);
+            novos.forEach(a -> a.setId(UUID.randomUUID()));
+            return novos;
+        });
+    }
+
+    private SerieAgendamentoRequest serie(Medico medico, Paciente paciente, LocalDateTime primeira,
+                                          FrequenciaSerie frequencia, Integer quantidade, LocalDate ate) {
+        SerieAgendamentoRequest request = new SerieAgendamentoRequest();
+        request.setMedicoId(medico.getId());
+        request.setPacienteId(paciente.getId());
+        request.setPrimeiraConsulta(primeira);
+        request.setFrequencia(frequencia);
+        request.setQuantidade(quantidade);
+        request.setAte(ate);
+        request.setFormaPagamento("PIX");
+        return request;
+    }
+
+    private AgendamentoRequest item(Medico medico, Paciente paciente, LocalDateTime data) {
+        return item(medico.getId(), paciente.getId(), data);
+    }
+
+    private AgendamentoRequest item(UUID medicoId, UUID pacienteId, LocalDateTime data) {
+        AgendamentoRequest request = new AgendamentoRequest();
+        request.setMedicoId(medicoId);
+        request.setPacienteId(pacienteId);
+        request.setDataConsulta(data);
+        request.setFormaPagamento("PIX");
+        return request;
+    }
+
+    private static BloqueioMedico bloqueio(UUID medicoId, LocalDateTime inicio, LocalDateTime fim) {
+        return new BloqueioMedico() {
+            public UUID getMedicoId() { return medicoId; }
+            public LocalDateTime getInicio() { return inicio; }
+            public LocalDateTime getFim() { return fim; }
+        };
+    }
+
+    private Medico medico(int duracao) {
+        Medico m = new Medico();
+        m.setId(UUID.randomUUID());
+        m.setNome("Dr. Teste");
+        m.setValorConsulta(new BigDecimal("200.00"));
+        m.setDuracaoConsulta(duracao);
+        return m;
+    }
+
+    private Paciente paciente() {
+        Paciente p = new Paciente();
+        p.setId(UUID.randomUUID());
+        p.setNome("Paciente Teste");
+        p.setAtendimentoParticular(true);
+        return p;
+    }
+}
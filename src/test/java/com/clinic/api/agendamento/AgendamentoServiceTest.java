@@ -1,11 +1,23 @@
 package com.clinic.api.agendamento;
 
+import com.clinic.api.agenda.domain.BloqueioAgendaRepository;
+import com.clinic.api.agenda.domain.HorarioLiberadoEvent;
+import com.clinic.api.agenda.service.CacheOcupacao;
 import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import com.clinic.api.agendamento.domain.ConflitoAgendamentoException;
+import com.clinic.api.agendamento.domain.CursorAgendamento;
+import com.clinic.api.agendamento.domain.FiltroAgendamentos;
+import com.clinic.api.agendamento.domain.ForaDoHorizonteException;
 import com.clinic.api.agendamento.domain.StatusAgendamento;
+import com.clinic.api.agendamento.domain.TipoEventoAgendamento;
 import com.clinic.api.agendamento.dto.AgendamentoRequest;
 import com.clinic.api.agendamento.dto.AgendamentoResponse;
 import com.clinic.api.agendamento.dto.AtendimentoDiarioDTO;
+import com.clinic.api.agendamento.dto.PaginaAgendamentosResponse;
 import com.clinic.api.agendamento.service.AgendamentoService;
+import com.clinic.api.agendamento.service.HorizonteAgendamento;
+import com.clinic.api.agendamento.service.OutboxAgendamento;
+import com.clinic.api.agendamento.service.TransicaoAgendamento;
 
 import com.clinic.api.medico.Medico;
 import com.clinic.api.medico.domain.MedicoRepository;
@@ -18,17 +30,33 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.repository.query.FluentQuery;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.*;
 
@@ -38,6 +66,13 @@ class AgendamentoServiceTest {
     @Mock private AgendamentoRepository repository;
     @Mock private MedicoRepository medicoRepository;
     @Mock private PacienteRepository pacienteRepository;
+    @Mock private CacheOcupacao cacheOcupacao;
+    @Mock private BloqueioAgendaRepository bloqueioRepository;
+    @Mock private ApplicationEventPublisher eventos;
+    @Mock private OutboxAgendamento outbox;
+    @Spy private HorizonteAgendamento horizonte = new HorizonteAgendamento(12);
+    @Mock private TransicaoAgendamento transicao;
+    @Mock private PlatformTransactionManager transactionManager;
 
     @InjectMocks private AgendamentoService service;
 
@@ -55,9 +90,8 @@ class AgendamentoServiceTest {
         // Mock dos Repositórios
         when(medicoRepository.findById(medicoId)).thenReturn(Optional.of(medico));
         when(pacienteRepository.findById(pacienteId)).thenReturn(Optional.of(paciente));
-        when(repository.existsByMedicoIdAndDataConsulta(any(), any())).thenReturn(false);
         // O Save deve retornar o objeto salvo (Entidade)
-        when(repository.save(any(Agendamento.class))).thenAnswer(i -> {
+        when(repository.saveAndFlush(any(Agendamento.class))).thenAnswer(i -> {
             Agendamento a = i.getArgument(0);
             a.setId(UUID.randomUUID());
             return a; // Retorna a entidade preenchida pelo Service
@@ -77,6 +111,13 @@ class AgendamentoServiceTest {
         assertEquals("PENDENTE", response.getStatusPagamento());
         assertEquals(new BigDecimal("500.00"), response.getValor());
         assertEquals("AGENDADO", response.getStatus()); // Response retorna Enum como String
+
+        // O agendamento ocupa [início, início + duração do médico)
+        verify(repository).saveAndFlush(argThat(a -> a.getDataFimConsulta().equals(data.plusMinutes(45))));
+        // Evento no outbox, na mesma transação
+        verify(outbox).registrar(any(Agendamento.class), eq(TipoEventoAgendamento.AGENDADO));
+        // Sem choque, nenhuma limpeza de reservas vencidas no caminho
+        verify(repository, never()).liberarReservasVencidas(any(), any(), any(), any());
     }
 
     // --- CENÁRIO 2: Agendamento Convênio ---
@@ -93,7 +134,7 @@ class AgendamentoServiceTest {
         // Mock do Save
         when(medicoRepository.findById(medicoId)).thenReturn(Optional.of(medico));
         when(pacienteRepository.findById(pacienteId)).thenReturn(Optional.of(paciente));
-        when(repository.save(any(Agendamento.class))).thenAnswer(i -> {
+        when(repository.saveAndFlush(any(Agendamento.class))).thenAnswer(i -> {
             Agendamento a = i.getArgument(0);
             a.setId(UUID.randomUUID());
             return a;
@@ -130,7 +171,7 @@ class AgendamentoServiceTest {
     }
 
     @Test
-    @DisplayName("4. Deve lançar erro se médico já estiver ocupado")
+    @DisplayName("4. Deve lançar conflito (409) se o banco recusar o horário do médico")
     void agendarErroMedicoOcupado() {
         UUID medicoId = UUID.randomUUID();
         LocalDateTime data = LocalDateTime.now().plusDays(1);
@@ -142,9 +183,174 @@ class AgendamentoServiceTest {
 
         when(medicoRepository.findById(any())).thenReturn(Optional.of(new Medico()));
         when(pacienteRepository.findById(any())).thenReturn(Optional.of(new Paciente()));
-        when(repository.existsByMedicoIdAndDataConsulta(eq(medicoId), eq(data))).thenReturn(true);
+        when(repository.saveAndFlush(any(Agendamento.class))).thenThrow(violacaoHorarioMedico());
 
-        assertThrows(RuntimeException.class, () -> service.agendar(request));
+        assertThrows(ConflitoAgendamentoException.class, () -> service.agendar(request));
+        verify(cacheOcupacao, never()).registrarAgendamento(any());
+    }
+
+    @Test
+    @DisplayName("10. Deve lançar conflito se a consulta sobrepõe outra do mesmo paciente")
+    void agendarErroPacienteOcupado() {
+        AgendamentoRequest request = new AgendamentoRequest();
+        request.setMedicoId(UUID.randomUUID());
+        request.setPacienteId(UUID.randomUUID());
+        request.setDataConsulta(LocalDateTime.now().plusDays(1));
+
+        when(medicoRepository.findById(any())).thenReturn(Optional.of(new Medico()));
+        when(pacienteRepository.findById(any())).thenReturn(Optional.of(new Paciente()));
+        when(repository.saveAndFlush(any(Agendamento.class)))
+                .thenThrow(violacao(AgendamentoRepository.RESTRICAO_HORARIO_PACIENTE));
+
+        ConflitoAgendamentoException erro = assertThrows(ConflitoAgendamentoException.class, () -> service.agendar(request));
+        assertTrue(erro.getMessage().contains("paciente"));
+    }
+
+    @Test
+    @DisplayName("11. Deve lançar conflito se a consulta (com a duração) invade um bloqueio, sem gravar")
+    void agendarErroBloqueio() {
+        UUID medicoId = UUID.randomUUID();
+        LocalDateTime data = LocalDateTime.now().plusDays(1).withHour(11).withMinute(30);
+
+        AgendamentoRequest request = new AgendamentoRequest();
+        request.setMedicoId(medicoId);
+        request.setPacienteId(UUID.randomUUID());
+        request.setDataConsulta(data);
+
+        when(medicoRepository.findById(any())).thenReturn(Optional.of(criarMedicoMock(medicoId, BigDecimal.TEN)));
+        when(pacienteRepository.findById(any())).thenReturn(Optional.of(new Paciente()));
+        // 11h30 + 45 min invade o almoço que começa ao meio-dia
+        when(bloqueioRepository.existeBloqueioNoIntervalo(medicoId, data, data.plusMinutes(45))).thenReturn(true);
+
+        assertThrows(ConflitoAgendamentoException.class, () -> service.agendar(request));
+        verify(repository, never()).saveAndFlush(any());
+    }
+
+    @Test
+    @DisplayName("5. Outras violações de integridade não devem virar conflito de horário")
+    void agendarOutraViolacaoPropaga() {
+        AgendamentoRequest request = new AgendamentoRequest();
+        request.setMedicoId(UUID.randomUUID());
+        request.setPacienteId(UUID.randomUUID());
+        request.setDataConsulta(LocalDateTime.now().plusDays(1));
+
+        when(medicoRepository.findById(any())).thenReturn(Optional.of(new Medico()));
+        when(pacienteRepository.findById(any())).thenReturn(Optional.of(new Paciente()));
+        when(repository.saveAndFlush(any(Agendamento.class))).thenThrow(new DataIntegrityViolationException(
+                "could not execute statement", new RuntimeException("null value in column \"paciente_id\"")));
+
+        assertThrows(DataIntegrityViolationException.class, () -> service.agendar(request));
+    }
+
+    @Test
+    @DisplayName("16. Choque com reserva vencida: apaga as vencidas do caminho e grava na segunda tentativa")
+    void agendarAposLiberarReservaVencida() {
+        UUID medicoId = UUID.randomUUID();
+        UUID pacienteId = UUID.randomUUID();
+        LocalDateTime data = LocalDateTime.now().plusDays(1);
+
+        when(medicoRepository.findById(medicoId)).thenReturn(Optional.of(criarMedicoMock(medicoId, BigDecimal.TEN)));
+        when(pacienteRepository.findById(pacienteId)).thenReturn(Optional.of(criarPacienteMock(pacienteId, true)));
+        when(repository.saveAndFlush(any(Agendamento.class)))
+                .thenThrow(violacaoHorarioMedico())
+                .thenAnswer(i -> i.getArgument(0));
+        when(repository.liberarReservasVencidas(List.of(medicoId), List.of(pacienteId), data,
+                data.plusMinutes(Agendamento.DURACAO_MAXIMA_MINUTOS))).thenReturn(1);
+
+        AgendamentoRequest request = new AgendamentoRequest();
+        request.setMedicoId(medicoId);
+        request.setPacienteId(pacienteId);
+        request.setDataConsulta(data);
+        request.setFormaPagamento("PIX");
+
+        assertEquals("AGENDADO", service.agendar(request).getStatus());
+        verify(repository, times(2)).saveAndFlush(any());
+        verify(outbox, times(1)).registrar(any(Agendamento.class), eq(TipoEventoAgendamento.AGENDADO));
+    }
+
+    @Test
+    @DisplayName("17. Choque sem reserva vencida no caminho: 409 sem segunda tentativa")
+    void agendarChoqueSemReservaVencida() {
+        AgendamentoRequest request = new AgendamentoRequest();
+        request.setMedicoId(UUID.randomUUID());
+        request.setPacienteId(UUID.randomUUID());
+        request.setDataConsulta(LocalDateTime.now().plusDays(1));
+
+        when(medicoRepository.findById(any())).thenReturn(Optional.of(new Medico()));
+        when(pacienteRepository.findById(any())).thenReturn(Optional.of(new Paciente()));
+        when(repository.saveAndFlush(any(Agendamento.class))).thenThrow(violacaoHorarioMedico());
+
+        assertThrows(ConflitoAgendamentoException.class, () -> service.agendar(request));
+        verify(repository, times(1)).saveAndFlush(any());
+        verify(repository).liberarReservasVencidas(any(), any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("18. Data depois da última partição da agenda deve ser recusada (422) sem consultar o banco")
+    void agendarAlemDoHorizonte() {
+        AgendamentoRequest request = new AgendamentoRequest();
+        request.setMedicoId(UUID.randomUUID());
+        request.setPacienteId(UUID.randomUUID());
+        request.setDataConsulta(LocalDate.now().withDayOfMonth(1).plusMonths(12).atTime(9, 0));
+
+        assertThrows(ForaDoHorizonteException.class, () -> service.agendar(request));
+        verifyNoInteractions(medicoRepository, repository);
+    }
+
+    @Test
+    @DisplayName("6. Centenas de agendamentos simultâneos no mesmo horário: só um deve vencer")
+    void agendamentosSimultaneosNoMesmoHorario() throws Exception {
+        UUID medicoId = UUID.randomUUID();
+        LocalDateTime data = LocalDateTime.now().plusDays(1).withNano(0);
+        Medico medico = criarMedicoMock(medicoId, new BigDecimal("300.00"));
+
+        when(medicoRepository.findById(medicoId)).thenReturn(Optional.of(medico));
+        when(pacienteRepository.findById(any())).thenAnswer(i -> Optional.of(criarPacienteMock(i.getArgument(0), true)));
+
+        // Simula o índice único do banco: só o primeiro INSERT do horário passa
+        Set<LocalDateTime> horariosGravados = ConcurrentHashMap.newKeySet();
+        when(repository.saveAndFlush(any(Agendamento.class))).thenAnswer(i -> {
+            Agendamento a = i.getArgument(0);
+            if (!horariosGravados.add(a.getDataConsulta())) throw violacaoHorarioMedico();
+            a.setId(UUID.randomUUID());
+            return a;
+        });
+
+        int tentativas = 300;
+        ExecutorService executor = Executors.newFixedThreadPool(32);
+        CountDownLatch largada = new CountDownLatch(1);
+        AtomicInteger sucessos = new AtomicInteger();
+        AtomicInteger conflitos = new AtomicInteger();
+
+        try {
+            List<Future<?>> futuros = new ArrayList<>();
+            for (int i = 0; i < tentativas; i++) {
+                futuros.add(executor.submit(() -> {
+                    AgendamentoRequest request = new AgendamentoRequest();
+                    request.setMedicoId(medicoId);
+                    request.setPacienteId(UUID.randomUUID()); // Pacientes diferentes, mesmo horário do médico
+                    request.setDataConsulta(data);
+                    request.setFormaPagamento("PIX");
+
+                    largada.await();
+                    try {
+                        service.agendar(request);
+                        sucessos.incrementAndGet();
+                    } catch (ConflitoAgendamentoException e) {
+                        conflitos.incrementAndGet();
+                    }
+                    return null;
+                }));
+            }
+            largada.countDown();
+            for (Future<?> f : futuros) f.get();
+        } finally {
+            executor.shutdownNow();
+        }
+
+        assertEquals(1, sucessos.get());
+        assertEquals(tentativas - 1, conflitos.get());
+        verify(cacheOcupacao, times(1)).registrarAgendamento(any());
     }
 
     // --- TESTES DE OUTROS MÉTODOS ---
@@ -154,36 +360,30 @@ class AgendamentoServiceTest {
         UUID medicoId = UUID.randomUUID();
         LocalDate hoje = LocalDate.now();
 
-        Medico medico = new Medico();
-        medico.setEspecialidade(Especialidade.CARDIOLOGIA);
-        Paciente paciente = new Paciente();
-        paciente.setNome("João");
-
-        Agendamento a1 = new Agendamento();
-        a1.setId(UUID.randomUUID());
-        a1.setDataConsulta(LocalDateTime.now());
-        a1.setMedico(medico);
-        a1.setPaciente(paciente);
-
-        // CORREÇÃO: Usar Enum
-        a1.setStatus(StatusAgendamento.AGENDADO);
-        a1.setStatusPagamento("PAGO");
+        // A projeção monta o DTO direto das colunas (enums + convênio)
+        AtendimentoDiarioDTO atendimento = new AtendimentoDiarioDTO(UUID.randomUUID(), hoje.atTime(9, 0), "João",
+                Especialidade.CARDIOLOGIA, StatusAgendamento.AGENDADO, "PAGO", null);
 
-        when(repository.findByMedicoIdAndDataConsultaBetweenOrderByDataConsultaAsc(eq(medicoId), any(), any()))
-                .thenReturn(List.of(a1));
+        when(repository.findAtendimentosDoDia(medicoId, hoje.atStartOfDay(), hoje.plusDays(1).atStartOfDay()))
+                .thenReturn(List.of(atendimento));
 
         List<AtendimentoDiarioDTO> lista = service.listarAtendimentosDoDia(medicoId, hoje);
 
         assertEquals(1, lista.size());
         assertEquals("João", lista.get(0).getPacienteNome());
         assertEquals("CARDIOLOGIA", lista.get(0).getEspecialidade());
+        assertEquals("AGENDADO", lista.get(0).getStatusAtendimento());
+        assertEquals("PARTICULAR", lista.get(0).getModalidade());
+        verify(repository, never()).findByMedicoIdAndDataConsultaBetweenOrderByDataConsultaAsc(any(), any(), any());
     }
 
     @Test
-    @DisplayName("8. Deve cancelar agendamento")
+    @DisplayName("8. Deve cancelar agendamento e avisar a lista de espera do horário vago")
     void cancelarAgendamento() {
         UUID id = UUID.randomUUID();
-        Agendamento agendamento = new Agendamento();
+        Medico medico = criarMedicoMock(UUID.randomUUID(), new BigDecimal("500.00"));
+        LocalDateTime horario = LocalDateTime.now().plusDays(2).withNano(0);
+        Agendamento agendamento = new Agendamento(medico, new Paciente(), horario);
         // CORREÇÃO: Usar Enum
         agendamento.setStatus(StatusAgendamento.AGENDADO);
 
@@ -191,9 +391,25 @@ class AgendamentoServiceTest {
 
         service.cancelar(id);
 
-        // CORREÇÃO: Verificar Enum
-        assertEquals(StatusAgendamento.CANCELADO_PACIENTE, agendamento.getStatus());
-        verify(repository).save(agendamento);
+        verify(transicao).cancelar(agendamento, StatusAgendamento.CANCELADO_PACIENTE);
+        verify(repository, never()).save(any());
+        verify(cacheOcupacao).removerAgendamento(agendamento); // Libera o horário no cache
+        verify(eventos).publishEvent(new HorarioLiberadoEvent(medico.getId(), horario, agendamento.getDataFimConsulta()));
+        verify(outbox).registrar(agendamento, TipoEventoAgendamento.CANCELADO);
+    }
+
+    @Test
+    @DisplayName("15. Cancelamento que perde a corrida deve propagar o 409 sem liberar o horário")
+    void cancelarConcorrente() {
+        UUID id = UUID.randomUUID();
+        Agendamento agendamento = new Agendamento(criarMedicoMock(UUID.randomUUID(), BigDecimal.TEN),
+                new Paciente(), LocalDateTime.now().plusDays(1));
+        when(repository.findById(id)).thenReturn(Optional.of(agendamento));
+        doThrow(new ConflitoAgendamentoException("alterado"))
+                .when(transicao).cancelar(agendamento, StatusAgendamento.CANCELADO_PACIENTE);
+
+        assertThrows(ConflitoAgendamentoException.class, () -> service.cancelar(id));
+        verifyNoInteractions(cacheOcupacao, eventos, outbox);
     }
 
     @Test
@@ -213,14 +429,80 @@ class AgendamentoServiceTest {
         // Se o método for void e não fizer nada visível na entidade no momento,
         // apenas verificamos se não deu erro.
         verify(repository, atLeastOnce()).findById(id);
+        verify(outbox).registrar(agendamento, TipoEventoAgendamento.CONFIRMADO);
+    }
+
+    @Test
+    @DisplayName("12. Listagem deve devolver cursor quando há mais linhas que o tamanho da página")
+    void listarPaginado() {
+        LocalDateTime base = LocalDateTime.now().plusDays(1);
+        List<Agendamento> linhas = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            Agendamento a = new Agendamento(criarMedicoMock(UUID.randomUUID(), BigDecimal.TEN),
+                    criarPacienteMock(UUID.randomUUID(), true), base.plusHours(i));
+            a.setId(UUID.randomUUID());
+            linhas.add(a);
+        }
+        FluentQuery.FetchableFluentQuery<Agendamento> consulta = fluentQuery(linhas);
+
+        PaginaAgendamentosResponse pagina = service.listar(
+                new FiltroAgendamentos(null, null, null, null, null), null, 2);
+
+        assertEquals(2, pagina.itens().size());
+        assertEquals(CursorAgendamento.de(linhas.get(1)), CursorAgendamento.decodificar(pagina.proximoCursor()));
+        verify(consulta).limit(3); // Tamanho + 1, para saber se há próxima página
+        verify(repository, never()).findAll();
+    }
+
+    @Test
+    @DisplayName("13. Última página não deve ter cursor; tamanho acima do teto deve ser limitado")
+    void listarUltimaPaginaETeto() {
+        FluentQuery.FetchableFluentQuery<Agendamento> consulta = fluentQuery(List.of());
+
+        PaginaAgendamentosResponse pagina = service.listar(
+                new FiltroAgendamentos(UUID.randomUUID(), null, StatusAgendamento.AGENDADO, null, null), null, 100_000);
+
+        assertTrue(pagina.itens().isEmpty());
+        assertNull(pagina.proximoCursor());
+        verify(consulta).limit(AgendamentoService.TAMANHO_PAGINA_MAXIMO + 1);
+    }
+
+    @Test
+    @DisplayName("14. Cursor adulterado deve ser rejeitado")
+    void cursorInvalido() {
+        assertThrows(RuntimeException.class, () -> service.listar(
+                new FiltroAgendamentos(null, null, null, null, null), "nao-e-um-cursor", 10));
+        verifyNoInteractions(repository);
+    }
+
+    @SuppressWarnings("unchecked")
+    private FluentQuery.FetchableFluentQuery<Agendamento> fluentQuery(List<Agendamento> resultado) {
+        FluentQuery.FetchableFluentQuery<Agendamento> consulta = mock(FluentQuery.FetchableFluentQuery.class);
+        when(consulta.sortBy(any())).thenReturn(consulta);
+        when(consulta.limit(anyInt())).thenReturn(consulta);
+        when(consulta.all()).thenReturn(resultado);
+        when(repository.findBy(any(Specification.class), any())).thenAnswer(i ->
+                ((Function<FluentQuery.FetchableFluentQuery<Agendamento>, Object>) i.getArgument(1)).apply(consulta));
+        return consulta;
     }
 
     // --- Helpers ---
 
+    // Mesma mensagem que o PostgreSQL devolve ao violar a restrição de exclusão
+    private DataIntegrityViolationException violacao(String restricao) {
+        return new DataIntegrityViolationException("could not execute statement", new RuntimeException(
+                "ERROR: conflicting key value violates exclusion constraint \"" + restricao + "\""));
+    }
+
+    private DataIntegrityViolationException violacaoHorarioMedico() {
+        return violacao(AgendamentoRepository.RESTRICAO_HORARIO_MEDICO);
+    }
+
     private Medico criarMedicoMock(UUID id, BigDecimal valor) {
         Medico m = new Medico();
         m.setId(id);
         m.setValorConsulta(valor);
+        m.setDuracaoConsulta(45);
         m.setNome("Dr. Teste");
         return m;
     }
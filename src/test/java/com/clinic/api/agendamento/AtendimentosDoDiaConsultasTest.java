@@ -0,0 +1,82 @@
+package com.clinic.api.agendamento;
+
+import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import com.clinic.api.agendamento.domain.StatusAgendamento;
+import com.clinic.api.agendamento.dto.AtendimentoDiarioDTO;
+import com.clinic.api.agendamento.service.AgendamentoService;
+import com.clinic.api.medico.Medico;
+import com.clinic.api.medico.enun.Especialidade;
+import com.clinic.api.paciente.Paciente;
+import com.clinic.api.usuario.Usuario;
+import com.clinic.api.usuario.domain.UserRole;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+// Requer Banco de Dados Real (PostgreSQL): roda só quando SPRING_DATASOURCE_URL está configurada
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@EnabledIfEnvironmentVariable(named = "SPRING_DATASOURCE_URL", matches = ".+")
+@Transactional
+class AtendimentosDoDiaConsultasTest {
+
+    @Autowired private AgendamentoService service;
+    @Autowired private AgendamentoRepository repository;
+    @Autowired private EntityManager entityManager;
+
+    @Test
+    @DisplayName("1. Lista do dia com 40 atendimentos deve ser montada com uma única consulta")
+    void umaConsultaParaODia() {
+        LocalDate dia = LocalDate.now().plusDays(30);
+        Medico medico = new Medico(usuario(UserRole.MEDICO), "Dra. Consultas");
+        medico.setEspecialidade(Especialidade.CARDIOLOGIA);
+        medico.setDuracaoConsulta(10);
+        medico.setValorConsulta(new BigDecimal("200.00"));
+        entityManager.persist(medico);
+
+        for (int i = 0; i < 40; i++) {
+            Paciente paciente = new Paciente();
+            paciente.setNome("Paciente " + i);
+            paciente.setUsuario(usuario(UserRole.PACIENTE));
+            entityManager.persist(paciente);
+
+            Agendamento agendamento = new Agendamento(medico, paciente, dia.atTime(8, 0).plusMinutes(10L * i));
+            agendamento.setStatus(StatusAgendamento.AGENDADO);
+            agendamento.setStatusPagamento("PENDENTE");
+            repository.save(agendamento);
+        }
+        entityManager.flush();
+        entityManager.clear(); // Nada em memória: tudo o que a listagem usar vem do banco
+
+        Statistics estatisticas = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        estatisticas.clear();
+
+        List<AtendimentoDiarioDTO> lista = service.listarAtendimentosDoDia(medico.getId(), dia);
+
+        assertEquals(40, lista.size());
+        assertEquals("Paciente 0", lista.get(0).getPacienteNome());
+        assertEquals("CARDIOLOGIA", lista.get(0).getEspecialidade());
+        assertEquals(1, estatisticas.getPrepareStatementCount());
+        assertEquals(0, estatisticas.getEntityLoadCount());
+    }
+
+    private Usuario usuario(UserRole role) {
+        Usuario usuario = new Usuario();
+        usuario.setEmail(UUID.randomUUID() + "@teste.com");
+        usuario.setSenha("senha");
+        usuario.setRole(role);
+        return usuario;
+    }
+}
@@ -0,0 +1,235 @@
+package com.clinic.api.agendamento;
+
+import com.clinic.api.agendamento.domain.AgendamentoAlteradoEvent;
+import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import com.clinic.api.agendamento.domain.StatusAgendamento;
+import com.clinic.api.agendamento.domain.TipoEventoAgendamento;
+import com.clinic.api.agendamento.dto.AtendimentoDiarioDTO;
+import com.clinic.api.agendamento.service.FeedAgendaService;
+import com.clinic.api.medico.domain.MedicoRepository;
+import com.clinic.api.medico.enun.Especialidade;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter.SseEventBuilder;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FeedAgendaServiceTest {
+
+    @Mock private AgendamentoRepository repository;
+    @Mock private MedicoRepository medicoRepository;
+
+    private ExecutorService executor;
+    private FeedAgendaService service;
+    private final Deque<SseEmitter> emitters = new ArrayDeque<>(); // Entregues pelo serviço, na ordem de conexão
+
+    private final UUID medicoId = UUID.randomUUID();
+    private final LocalDate hoje = LocalDate.now();
+
+    @BeforeEach
+    void setup() {
+        executor = Executors.newSingleThreadExecutor();
+        // Emitter falso: registra o que seria escrito na conexão
+        service = criarServico(executor, 100);
+    }
+
+    private FeedAgendaService criarServico(ExecutorService executorEnvio, int capacidadeFila) {
+        return new FeedAgendaService(repository, medicoRepository, executorEnvio, 100, capacidadeFila) {
+            @Override
+            protected SseEmitter novoEmitter() {
+                SseEmitter emitter = mock(SseEmitter.class);
+                emitters.addLast(emitter);
+                return emitter;
+            }
+        };
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("1. Ao conectar, a tela deve receber o snapshot do dia")
+    void snapshotInicial() throws Exception {
+        AtendimentoDiarioDTO linha = atendimento(UUID.randomUUID(), StatusAgendamento.AGENDADO);
+        when(repository.findAtendimentosDoDiaDosMedicos(anyCollection(), any(), any())).thenReturn(List.of(linha));
+
+        SseEmitter emitter = service.assinarMedico(medicoId, hoje, null);
+
+        List<String> enviados = enviados(emitter);
+        assertEquals(1, enviados.size());
+        assertTrue(enviados.get(0).contains("event:snapshot"));
+        verify(repository).findAtendimentosDoDiaDosMedicos(Set.of(medicoId), hoje.atStartOfDay(), hoje.plusDays(1).atStartOfDay());
+    }
+
+    @Test
+    @DisplayName("2. Mudança de um médico assistido vira delta; de médico ou dia não assistido não busca nada")
+    void deltasFiltrados() throws Exception {
+        UUID agendamentoId = UUID.randomUUID();
+        when(repository.findAtendimentosDoDiaDosMedicos(anyCollection(), any(), any())).thenReturn(List.of());
+        when(repository.findAtendimentoDoFeed(agendamentoId))
+                .thenReturn(Optional.of(atendimento(agendamentoId, StatusAgendamento.CANCELADO_PACIENTE)));
+        SseEmitter emitter = service.assinarMedico(medicoId, hoje, null);
+
+        service.aoAlterarAgendamento(evento(agendamentoId, medicoId, hoje.atTime(15, 0), TipoEventoAgendamento.CANCELADO));
+        service.aoAlterarAgendamento(evento(UUID.randomUUID(), UUID.randomUUID(), hoje.atTime(15, 0), TipoEventoAgendamento.AGENDADO));
+        service.aoAlterarAgendamento(evento(UUID.randomUUID(), medicoId, hoje.plusDays(1).atTime(9, 0), TipoEventoAgendamento.AGENDADO));
+        aguardarEnvios();
+
+        List<String> enviados = enviados(emitter);
+        assertEquals(2, enviados.size());
+        assertTrue(enviados.get(1).contains("event:delta"));
+        assertTrue(enviados.get(1).contains("tipo=CANCELADO"));
+        assertTrue(enviados.get(1).contains(agendamentoId.toString()));
+        verify(repository, times(1)).findAtendimentoDoFeed(any());
+    }
+
+    @Test
+    @DisplayName("3. Reconexão com Last-Event-ID deve receber só os deltas perdidos, sem snapshot")
+    void retomada() throws Exception {
+        UUID primeiro = UUID.randomUUID();
+        UUID segundo = UUID.randomUUID();
+        when(repository.findAtendimentosDoDiaDosMedicos(anyCollection(), any(), any())).thenReturn(List.of());
+        when(repository.findAtendimentoDoFeed(primeiro)).thenReturn(Optional.of(atendimento(primeiro, StatusAgendamento.AGENDADO)));
+        when(repository.findAtendimentoDoFeed(segundo)).thenReturn(Optional.of(atendimento(segundo, StatusAgendamento.AGENDADO)));
+        SseEmitter original = service.assinarMedico(medicoId, hoje, null);
+
+        service.aoAlterarAgendamento(evento(primeiro, medicoId, hoje.atTime(10, 0), TipoEventoAgendamento.AGENDADO));
+        aguardarEnvios();
+        String ultimoId = idDe(enviados(original).get(1));
+        service.aoAlterarAgendamento(evento(segundo, medicoId, hoje.atTime(11, 0), TipoEventoAgendamento.AGENDADO));
+
+        SseEmitter retomado = service.assinarMedico(medicoId, hoje, ultimoId);
+        aguardarEnvios();
+
+        List<String> enviados = enviados(retomado);
+        assertEquals(1, enviados.size());
+        assertTrue(enviados.get(0).contains(segundo.toString()));
+        verify(repository, times(1)).findAtendimentosDoDiaDosMedicos(anyCollection(), any(), any()); // Só a do original
+    }
+
+    @Test
+    @DisplayName("4. Last-Event-ID desconhecido (outro reinício ou adulterado) deve cair no snapshot")
+    void retomadaImpossivel() throws Exception {
+        when(repository.findAtendimentosDoDiaDosMedicos(anyCollection(), any(), any())).thenReturn(List.of());
+
+        SseEmitter emitter = service.assinarMedico(medicoId, hoje, "outraepoca-42");
+
+        assertTrue(enviados(emitter).get(0).contains("event:snapshot"));
+    }
+
+    @Test
+    @DisplayName("5. Conexão encerrada deve sair da lista de assinantes")
+    void conexaoEncerrada() throws Exception {
+        when(repository.findAtendimentosDoDiaDosMedicos(anyCollection(), any(), any())).thenReturn(List.of());
+        service.assinarMedico(medicoId, hoje, null);
+        assertEquals(1, service.assinantesAtivos());
+
+        ArgumentCaptor<Runnable> aoCompletar = ArgumentCaptor.forClass(Runnable.class);
+        verify(emitters.getLast()).onCompletion(aoCompletar.capture());
+        aoCompletar.getValue().run();
+
+        assertEquals(0, service.assinantesAtivos());
+    }
+
+    @Test
+    @DisplayName("6. Clínica sem médicos deve ser recusada")
+    void clinicaSemMedicos() {
+        UUID clinicaId = UUID.randomUUID();
+        when(medicoRepository.findIdsByClinicaId(clinicaId)).thenReturn(List.of());
+
+        assertThrows(RuntimeException.class, () -> service.assinarClinica(clinicaId, hoje, null));
+        assertTrue(emitters.isEmpty());
+    }
+
+    @Test
+    @DisplayName("7. Tela lenta deve ser desconectada ao lotar a fila, sem atrasar as outras")
+    void telaLentaDesconectada() throws Exception {
+        ExecutorService envio = Executors.newFixedThreadPool(2);
+        FeedAgendaService feed = criarServico(envio, 3);
+        CountDownLatch liberaLenta = new CountDownLatch(1);
+        CountDownLatch lentaFechada = new CountDownLatch(1);
+        when(repository.findAtendimentosDoDiaDosMedicos(anyCollection(), any(), any())).thenReturn(List.of());
+        when(repository.findAtendimentoDoFeed(any()))
+                .thenAnswer(inv -> Optional.of(atendimento(inv.getArgument(0), StatusAgendamento.AGENDADO)));
+        try {
+            SseEmitter lenta = feed.assinarMedico(medicoId, hoje, null);
+            // A foto já saiu; a partir daqui a escrita trava, como num socket que ninguém lê
+            doAnswer(inv -> {
+                liberaLenta.await();
+                return null;
+            }).when(lenta).send(any(SseEventBuilder.class));
+            doAnswer(inv -> {
+                lentaFechada.countDown();
+                return null;
+            }).when(lenta).complete();
+            SseEmitter rapida = feed.assinarMedico(medicoId, hoje, null);
+
+            for (int i = 1; i <= 5; i++) {
+                feed.aoAlterarAgendamento(evento(UUID.randomUUID(), medicoId, hoje.atTime(9, i), TipoEventoAgendamento.AGENDADO));
+                verify(rapida, timeout(2000).times(i + 1)).send(any(SseEventBuilder.class)); // Foto + i deltas
+            }
+
+            assertEquals(1, feed.assinantesAtivos());
+            liberaLenta.countDown();
+            // Fecha quando a escrita presa termina: o EventSource reconecta
+            assertTrue(lentaFechada.await(2, TimeUnit.SECONDS));
+            verify(rapida, never()).complete();
+        } finally {
+            liberaLenta.countDown();
+            envio.shutdownNow();
+        }
+    }
+
+    private void aguardarEnvios() throws Exception {
+        executor.submit(() -> {}).get();
+    }
+
+    // Texto de cada evento enviado (id, nome e dados), na ordem
+    private List<String> enviados(SseEmitter emitter) throws Exception {
+        ArgumentCaptor<SseEventBuilder> captor = ArgumentCaptor.forClass(SseEventBuilder.class);
+        verify(emitter, atLeast(0)).send(captor.capture());
+        return captor.getAllValues().stream()
+                .map(b -> b.build().stream().map(d -> String.valueOf(d.getData())).collect(Collectors.joining()))
+                .toList();
+    }
+
+    private static String idDe(String texto) {
+        return texto.lines().filter(l -> l.startsWith("id:")).findFirst().orElseThrow().substring(3);
+    }
+
+    private AtendimentoDiarioDTO atendimento(UUID agendamentoId, StatusAgendamento status) {
+        return new AtendimentoDiarioDTO(medicoId, agendamentoId, hoje.atTime(10, 0), "Maria",
+                Especialidade.CARDIOLOGIA, status, "PENDENTE", null);
+    }
+
+    private AgendamentoAlteradoEvent evento(UUID agendamentoId, UUID medico, LocalDateTime data, TipoEventoAgendamento tipo) {
+        return new AgendamentoAlteradoEvent(1L, tipo, agendamentoId, medico, UUID.randomUUID(), data, LocalDateTime.now());
+    }
+}
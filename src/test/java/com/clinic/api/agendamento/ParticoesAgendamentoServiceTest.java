@@ -0,0 +1,44 @@
+package com.clinic.api.agendamento;
+
+import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import com.clinic.api.agendamento.service.ParticoesAgendamentoService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ParticoesAgendamentoServiceTest {
+
+    @Mock private AgendamentoRepository repository;
+
+    @Test
+    @DisplayName("1. Deve criar os meses à frente e, com arquivamento desligado, não desanexar nada")
+    void criaSemArquivar() {
+        new ParticoesAgendamentoService(repository, 12, 0).manterParticoes();
+
+        verify(repository).criarParticoesFuturas(12);
+        verify(repository, never()).arquivarParticoesAntesDe(any());
+    }
+
+    @Test
+    @DisplayName("2. Arquivamento deve usar o primeiro dia do mês no horizonte configurado")
+    void arquivaMesesInteiros() {
+        new ParticoesAgendamentoService(repository, 6, 24).manterParticoes();
+
+        verify(repository).arquivarParticoesAntesDe(LocalDate.now().withDayOfMonth(1).minusMonths(24));
+    }
+
+    @Test
+    @DisplayName("3. Configuração sem meses à frente deve ser recusada na subida")
+    void configuracaoInvalida() {
+        assertThrows(IllegalArgumentException.class, () -> new ParticoesAgendamentoService(repository, 0, 0));
+    }
+}
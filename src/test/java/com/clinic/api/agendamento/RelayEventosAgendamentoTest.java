@@ -0,0 +1,160 @@
+package com.clinic.api.agendamento;
+
+import com.clinic.api.agendamento.domain.AgendamentoAlteradoEvent;
+import com.clinic.api.agendamento.domain.EventoAgendamento;
+import com.clinic.api.agendamento.domain.EventoAgendamentoRepository;
+import com.clinic.api.agendamento.domain.TipoEventoAgendamento;
+import com.clinic.api.agendamento.service.RelayEventosAgendamento;
+import com.clinic.api.medico.Medico;
+import com.clinic.api.paciente.Paciente;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.UnexpectedRollbackException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RelayEventosAgendamentoTest {
+
+    @Mock private EventoAgendamentoRepository repository;
+    @Mock private ApplicationEventPublisher eventos;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private RelayEventosAgendamento relay;
+
+    @BeforeEach
+    void setup() {
+        relay = new RelayEventosAgendamento(repository, eventos, transactionManager, 7);
+    }
+
+    @Test
+    @DisplayName("1. Deve publicar os pendentes na ordem e marcá-los como processados")
+    void despacha() {
+        EventoAgendamento agendado = evento(1L, TipoEventoAgendamento.AGENDADO);
+        EventoAgendamento cancelado = evento(2L, TipoEventoAgendamento.CANCELADO);
+        when(repository.travarPendentes(500)).thenReturn(List.of(agendado, cancelado));
+
+        assertEquals(2, relay.despachar());
+
+        var ordem = inOrder(eventos);
+        ordem.verify(eventos).publishEvent(new AgendamentoAlteradoEvent(agendado));
+        ordem.verify(eventos).publishEvent(new AgendamentoAlteradoEvent(cancelado));
+        assertNotNull(agendado.getProcessadoEm());
+        assertNotNull(cancelado.getProcessadoEm());
+        verify(transactionManager, times(3)).commit(any()); // Lote + um despacho por evento
+    }
+
+    @Test
+    @DisplayName("2. Lote cheio deve buscar o próximo lote no mesmo ciclo")
+    void lotesAteEsvaziar() {
+        List<EventoAgendamento> cheio = IntStream.range(0, 500)
+                .mapToObj(i -> evento((long) i, TipoEventoAgendamento.AGENDADO)).toList();
+        when(repository.travarPendentes(500)).thenReturn(cheio, List.of(evento(500L, TipoEventoAgendamento.CONFIRMADO)));
+
+        assertEquals(501, relay.despachar());
+        verify(repository, times(2)).travarPendentes(500);
+    }
+
+    @Test
+    @DisplayName("3. Falha de um ouvinte não deve travar os demais eventos do lote")
+    void falhaIsolada() {
+        EventoAgendamento problematico = evento(1L, TipoEventoAgendamento.AGENDADO);
+        EventoAgendamento normal = evento(2L, TipoEventoAgendamento.CANCELADO);
+        when(repository.travarPendentes(500)).thenReturn(List.of(problematico, normal));
+        doThrow(new IllegalStateException("SMTP fora do ar"))
+                .when(eventos).publishEvent(new AgendamentoAlteradoEvent(problematico));
+
+        assertEquals(1, relay.despachar());
+
+        assertNull(problematico.getProcessadoEm()); // Fica pendente para o próximo ciclo
+        assertEquals(1, problematico.getTentativas());
+        assertTrue(problematico.getErro().contains("SMTP fora do ar"));
+        assertNotNull(normal.getProcessadoEm());
+    }
+
+    @Test
+    @DisplayName("4. Depois do máximo de tentativas o evento deve ser encerrado com o erro")
+    void desisteAposMaximo() {
+        EventoAgendamento evento = evento(1L, TipoEventoAgendamento.AGENDADO);
+        evento.setTentativas(4);
+        when(repository.travarPendentes(500)).thenReturn(List.of(evento));
+        doThrow(new IllegalStateException("falha")).when(eventos).publishEvent(any(AgendamentoAlteradoEvent.class));
+
+        relay.despachar();
+
+        assertEquals(5, evento.getTentativas());
+        assertNotNull(evento.getProcessadoEm());
+    }
+
+    @Test
+    @DisplayName("5. Retenção deve apagar os processados antigos em lotes")
+    void limpeza() {
+        when(repository.apagarProcessadosAntesDe(any(), anyInt())).thenReturn(1_000, 12);
+
+        assertEquals(1_012, relay.limparProcessados());
+        verify(repository, times(2)).apagarProcessadosAntesDe(any(), eq(1_000));
+    }
+
+    @Test
+    @DisplayName("6. Ouvinte que derruba a transação do despacho: só o evento dele falha, e a tentativa fica gravada")
+    void despachoIsolado() {
+        EventoAgendamento problematico = evento(1L, TipoEventoAgendamento.AGENDADO);
+        EventoAgendamento normal = evento(2L, TipoEventoAgendamento.CANCELADO);
+        when(repository.travarPendentes(500)).thenReturn(List.of(problematico, normal));
+
+        // Transação do lote x transação de cada despacho (REQUIRES_NEW)
+        TransactionStatus lote = mock(TransactionStatus.class);
+        TransactionStatus despacho = mock(TransactionStatus.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(i ->
+                ((TransactionDefinition) i.getArgument(0)).getPropagationBehavior()
+                        == TransactionDefinition.PROPAGATION_REQUIRES_NEW ? despacho : lote);
+        // O ouvinte do primeiro evento marcou o despacho como rollback-only (ex: erro numa consulta)
+        AtomicBoolean primeiro = new AtomicBoolean(true);
+        doAnswer(i -> {
+            if (i.getArgument(0) == despacho && primeiro.getAndSet(false)) {
+                throw new UnexpectedRollbackException("Transaction silently rolled back because it has been marked as rollback-only");
+            }
+            return null;
+        }).when(transactionManager).commit(any());
+
+        assertEquals(1, relay.despachar());
+
+        assertNull(problematico.getProcessadoEm());
+        assertEquals(1, problematico.getTentativas());
+        assertTrue(problematico.getErro().contains("rollback-only"));
+        assertNotNull(normal.getProcessadoEm());
+        verify(transactionManager).commit(lote); // O lote, com as tentativas, é gravado
+        verify(transactionManager, never()).rollback(lote);
+    }
+
+    private EventoAgendamento evento(Long id, TipoEventoAgendamento tipo) {
+        Medico medico = new Medico();
+        medico.setId(UUID.randomUUID());
+        Paciente paciente = new Paciente();
+        paciente.setId(UUID.randomUUID());
+        Agendamento agendamento = new Agendamento(medico, paciente, LocalDateTime.now().plusDays(1));
+        agendamento.setId(UUID.randomUUID());
+
+        EventoAgendamento evento = new EventoAgendamento(agendamento, tipo);
+        evento.setId(id);
+        return evento;
+    }
+}
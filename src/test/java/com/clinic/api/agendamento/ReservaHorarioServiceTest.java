@@ -0,0 +1,209 @@
+package com.clinic.api.agendamento;
+
+import com.clinic.api.agenda.domain.BloqueioAgendaRepository;
+import com.clinic.api.agenda.domain.HorarioLiberadoEvent;
+import com.clinic.api.agenda.service.CacheOcupacao;
+import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import com.clinic.api.agendamento.domain.ConflitoAgendamentoException;
+import com.clinic.api.agendamento.domain.ReservaApagada;
+import com.clinic.api.agendamento.domain.StatusAgendamento;
+import com.clinic.api.agendamento.domain.TipoEventoAgendamento;
+import com.clinic.api.agendamento.dto.AgendamentoRequest;
+import com.clinic.api.agendamento.dto.AgendamentoResponse;
+import com.clinic.api.agendamento.service.AgendamentoService;
+import com.clinic.api.agendamento.service.HorizonteAgendamento;
+import com.clinic.api.agendamento.service.OutboxAgendamento;
+import com.clinic.api.agendamento.service.ReservaHorarioService;
+import com.clinic.api.agendamento.service.TransicaoAgendamento;
+import com.clinic.api.medico.Medico;
+import com.clinic.api.medico.domain.MedicoRepository;
+import com.clinic.api.paciente.Paciente;
+import com.clinic.api.paciente.domain.PacienteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ReservaHorarioServiceTest {
+
+    @Mock private AgendamentoRepository repository;
+    @Mock private MedicoRepository medicoRepository;
+    @Mock private PacienteRepository pacienteRepository;
+    @Mock private CacheOcupacao cacheOcupacao;
+    @Mock private BloqueioAgendaRepository bloqueioRepository;
+    @Mock private ApplicationEventPublisher eventos;
+    @Mock private OutboxAgendamento outbox;
+    @Mock private PlatformTransactionManager transactionManager;
+
+    private ReservaHorarioService service;
+
+    @BeforeEach
+    void setup() {
+        TransicaoAgendamento transicao = new TransicaoAgendamento(repository);
+        AgendamentoService agendamentoService = new AgendamentoService(
+                repository, medicoRepository, pacienteRepository, cacheOcupacao, bloqueioRepository, eventos, outbox, transicao,
+                new HorizonteAgendamento(12), transactionManager);
+        service = new ReservaHorarioService(agendamentoService, repository, cacheOcupacao, eventos, outbox, transicao, 10);
+    }
+
+    @Test
+    @DisplayName("1. Reservar deve gravar EM_PROCESSAMENTO com expiração e ocupar o horário no cache")
+    void reservar() {
+        Medico medico = new Medico();
+        medico.setId(UUID.randomUUID());
+        medico.setNome("Dr. Teste");
+        medico.setValorConsulta(new BigDecimal("300.00"));
+        Paciente paciente = new Paciente();
+        paciente.setId(UUID.randomUUID());
+        when(medicoRepository.findById(medico.getId())).thenReturn(Optional.of(medico));
+        when(pacienteRepository.findById(paciente.getId())).thenReturn(Optional.of(paciente));
+        when(repository.saveAndFlush(any(Agendamento.class))).thenAnswer(i -> i.getArgument(0));
+
+        AgendamentoRequest request = new AgendamentoRequest();
+        request.setMedicoId(medico.getId());
+        request.setPacienteId(paciente.getId());
+        request.setDataConsulta(LocalDateTime.now().plusDays(1));
+        request.setFormaPagamento("PIX");
+
+        LocalDateTime antes = LocalDateTime.now();
+        AgendamentoResponse response = service.reservar(request);
+
+        assertEquals("EM_PROCESSAMENTO", response.getStatus());
+        assertFalse(response.getExpiraEm().isBefore(antes.plusMinutes(10)));
+        assertTrue(response.getExpiraEm().isBefore(antes.plusMinutes(11)));
+        // Reservas vencidas só são apagadas se o INSERT for recusado
+        verify(repository, never()).liberarReservasVencidas(any(), any(), any(), any());
+        verify(cacheOcupacao).registrarAgendamento(argThat(a -> a.getExpiraEm() != null));
+    }
+
+    @Test
+    @DisplayName("2. Confirmar reserva válida deve virar AGENDADO e deixar de expirar")
+    void confirmar() {
+        Agendamento reserva = reserva(LocalDateTime.now().plusMinutes(5));
+        when(repository.findById(reserva.getId())).thenReturn(Optional.of(reserva));
+        when(repository.confirmarReserva(eq(reserva.getId()), any())).thenReturn(1);
+
+        AgendamentoResponse response = service.confirmar(reserva.getId());
+
+        assertEquals("AGENDADO", response.getStatus());
+        assertNull(reserva.getExpiraEm());
+        verify(repository, never()).save(any()); // UPDATE condicional, sem regravar a entidade
+        verify(cacheOcupacao).registrarAgendamento(reserva);
+        verify(outbox).registrar(reserva, TipoEventoAgendamento.AGENDADO);
+    }
+
+    @Test
+    @DisplayName("3. Confirmar reserva expirada deve lançar 409")
+    void confirmarExpirada() {
+        Agendamento reserva = reserva(LocalDateTime.now().minusMinutes(1));
+        when(repository.findById(reserva.getId())).thenReturn(Optional.of(reserva));
+
+        assertThrows(ConflitoAgendamentoException.class, () -> service.confirmar(reserva.getId()));
+        verify(repository, never()).confirmarReserva(any(), any());
+    }
+
+    @Test
+    @DisplayName("7. Reserva que venceu (ou foi liberada) entre a leitura e o UPDATE deve lançar 409 sem publicar")
+    void confirmarConcorrente() {
+        Agendamento reserva = reserva(LocalDateTime.now().plusMinutes(5));
+        when(repository.findById(reserva.getId())).thenReturn(Optional.of(reserva));
+        when(repository.confirmarReserva(eq(reserva.getId()), any())).thenReturn(0);
+
+        assertThrows(ConflitoAgendamentoException.class, () -> service.confirmar(reserva.getId()));
+        assertEquals(StatusAgendamento.EM_PROCESSAMENTO, reserva.getStatus());
+        verifyNoInteractions(outbox, cacheOcupacao);
+    }
+
+    @Test
+    @DisplayName("4. Confirmar ou liberar algo que não é reserva deve lançar 409")
+    void naoEhReserva() {
+        Agendamento agendamento = reserva(null);
+        agendamento.setStatus(StatusAgendamento.AGENDADO);
+        when(repository.findById(agendamento.getId())).thenReturn(Optional.of(agendamento));
+
+        assertThrows(ConflitoAgendamentoException.class, () -> service.confirmar(agendamento.getId()));
+        assertThrows(ConflitoAgendamentoException.class, () -> service.liberar(agendamento.getId()));
+        verify(repository, never()).delete(any(Agendamento.class));
+    }
+
+    @Test
+    @DisplayName("5. Liberar deve apagar a reserva, tirá-la do cache e devolver o horário à lista de espera")
+    void liberar() {
+        Agendamento reserva = reserva(LocalDateTime.now().plusMinutes(5));
+        when(repository.findById(reserva.getId())).thenReturn(Optional.of(reserva));
+
+        service.liberar(reserva.getId());
+
+        verify(repository).delete(reserva);
+        verify(cacheOcupacao).removerAgendamento(reserva);
+        verify(eventos).publishEvent(any(HorarioLiberadoEvent.class));
+    }
+
+    @Test
+    @DisplayName("6. Limpeza deve apagar em lotes até esvaziar")
+    void limpezaEmLotes() {
+        UUID medicoId = UUID.randomUUID();
+        LocalDateTime horario = LocalDateTime.now().plusDays(1).withHour(9);
+        List<ReservaApagada> cheio = Collections.nCopies(1_000, apagada(medicoId, horario));
+        when(repository.deleteByStatusAndDataCadastroBefore(eq(StatusAgendamento.EM_PROCESSAMENTO), any(), anyInt()))
+                .thenReturn(cheio, cheio, Collections.nCopies(37, apagada(medicoId, horario)));
+
+        assertEquals(2_037, service.limparReservasVencidas());
+        verify(repository, times(3)).deleteByStatusAndDataCadastroBefore(any(), any(), eq(1_000));
+    }
+
+    @Test
+    @DisplayName("8. Limpeza deve avisar que os horários vagaram: um aviso por médico e dia")
+    void limpezaAvisaHorariosLiberados() {
+        UUID ana = UUID.randomUUID();
+        UUID bruno = UUID.randomUUID();
+        LocalDateTime amanha = LocalDateTime.now().plusDays(1).withHour(9).withMinute(0).withSecond(0).withNano(0);
+        when(repository.deleteByStatusAndDataCadastroBefore(eq(StatusAgendamento.EM_PROCESSAMENTO), any(), anyInt()))
+                .thenReturn(List.of(apagada(ana, amanha), apagada(ana, amanha.plusHours(3)),
+                        apagada(ana, amanha.plusDays(1)), apagada(bruno, amanha)));
+
+        service.limparReservasVencidas();
+
+        verify(eventos, times(3)).publishEvent(any(HorarioLiberadoEvent.class));
+        verify(eventos).publishEvent(new HorarioLiberadoEvent(ana, amanha, amanha.plusHours(3).plusMinutes(30)));
+        verify(eventos).publishEvent(new HorarioLiberadoEvent(bruno, amanha, amanha.plusMinutes(30)));
+    }
+
+    private ReservaApagada apagada(UUID medicoId, LocalDateTime inicio) {
+        return new ReservaApagada() {
+            @Override public UUID getMedicoId() { return medicoId; }
+            @Override public LocalDateTime getInicio() { return inicio; }
+            @Override public LocalDateTime getFim() { return inicio.plusMinutes(30); }
+        };
+    }
+
+    private Agendamento reserva(LocalDateTime expiraEm) {
+        Medico medico = new Medico();
+        medico.setId(UUID.randomUUID());
+        Agendamento reserva = new Agendamento();
+        reserva.setId(UUID.randomUUID());
+        reserva.setMedico(medico);
+        reserva.setDataConsulta(LocalDateTime.now().plusDays(1));
+        reserva.setStatus(StatusAgendamento.EM_PROCESSAMENTO);
+        reserva.setExpiraEm(expiraEm);
+        return reserva;
+    }
+}
@@ -0,0 +1,120 @@
+package com.clinic.api.agendamento;
+
+import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import com.clinic.api.agendamento.domain.ConflitoAgendamentoException;
+import com.clinic.api.agendamento.domain.StatusAgendamento;
+import com.clinic.api.agendamento.domain.StatusPagamento;
+import com.clinic.api.agendamento.service.TransicaoAgendamento;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TransicaoAgendamentoTest {
+
+    @Mock private AgendamentoRepository repository;
+
+    private TransicaoAgendamento transicao;
+
+    @BeforeEach
+    void setup() {
+        transicao = new TransicaoAgendamento(repository);
+    }
+
+    @Test
+    @DisplayName("1. Máquina de estados: cancelados e concluídos são finais; reserva só vira AGENDADO")
+    void tabelaDeTransicoes() {
+        assertTrue(StatusAgendamento.AGENDADO.podeIrPara(StatusAgendamento.CONCLUIDO));
+        assertTrue(StatusAgendamento.AGENDADO.podeIrPara(StatusAgendamento.CANCELADO_MEDICO));
+        assertTrue(StatusAgendamento.EM_PROCESSAMENTO.podeIrPara(StatusAgendamento.AGENDADO));
+        assertFalse(StatusAgendamento.EM_PROCESSAMENTO.podeIrPara(StatusAgendamento.CONCLUIDO));
+        assertFalse(StatusAgendamento.CANCELADO_PACIENTE.podeIrPara(StatusAgendamento.CONCLUIDO));
+        assertFalse(StatusAgendamento.CONCLUIDO.podeIrPara(StatusAgendamento.CANCELADO_PACIENTE));
+
+        assertTrue(StatusPagamento.podeIrPara(null, StatusPagamento.PAGO)); // Linha antiga = PENDENTE
+        assertFalse(StatusPagamento.podeIrPara(StatusPagamento.CANCELADO, StatusPagamento.PAGO));
+        assertEquals(Set.of(StatusPagamento.PENDENTE, StatusPagamento.PAGO, StatusPagamento.CONVENIO_APROVADO),
+                StatusPagamento.origensDe(StatusPagamento.CANCELADO));
+    }
+
+    @Test
+    @DisplayName("2. Transição válida deve ser um UPDATE condicional ao status lido")
+    void mudarStatus() {
+        Agendamento agendamento = agendamento(StatusAgendamento.AGENDADO);
+        when(repository.transicionarStatus(agendamento.getId(), StatusAgendamento.AGENDADO, StatusAgendamento.CONCLUIDO))
+                .thenReturn(1);
+
+        transicao.mudarStatus(agendamento, StatusAgendamento.CONCLUIDO);
+
+        assertEquals(StatusAgendamento.CONCLUIDO, agendamento.getStatus());
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("3. Transição inválida deve lançar 409 sem tocar no banco")
+    void transicaoInvalida() {
+        Agendamento cancelado = agendamento(StatusAgendamento.CANCELADO_PACIENTE);
+
+        assertThrows(ConflitoAgendamentoException.class,
+                () -> transicao.mudarStatus(cancelado, StatusAgendamento.CONCLUIDO));
+        verifyNoInteractions(repository);
+    }
+
+    @Test
+    @DisplayName("4. UPDATE sem linhas (outro pedido mudou antes) deve lançar 409 e manter o status lido")
+    void perdeuCorrida() {
+        Agendamento agendamento = agendamento(StatusAgendamento.AGENDADO);
+        when(repository.transicionarStatus(any(), any(), any())).thenReturn(0);
+
+        assertThrows(ConflitoAgendamentoException.class,
+                () -> transicao.mudarStatus(agendamento, StatusAgendamento.CONCLUIDO));
+        assertEquals(StatusAgendamento.AGENDADO, agendamento.getStatus());
+    }
+
+    @Test
+    @DisplayName("5. Cancelar deve levar o pagamento para CANCELADO no mesmo UPDATE, condicionado às origens válidas")
+    void cancelar() {
+        Agendamento agendamento = agendamento(StatusAgendamento.AGENDADO);
+        agendamento.setStatusPagamento(StatusPagamento.PAGO);
+        when(repository.transicionarStatusEPagamento(eq(agendamento.getId()), eq(StatusAgendamento.AGENDADO),
+                eq(StatusAgendamento.CANCELADO_PACIENTE), eq(StatusPagamento.origensDe(StatusPagamento.CANCELADO)),
+                eq(StatusPagamento.CANCELADO))).thenReturn(1);
+
+        transicao.cancelar(agendamento, StatusAgendamento.CANCELADO_PACIENTE);
+
+        assertEquals(StatusAgendamento.CANCELADO_PACIENTE, agendamento.getStatus());
+        assertEquals(StatusPagamento.CANCELADO, agendamento.getStatusPagamento());
+    }
+
+    @Test
+    @DisplayName("6. Confirmar reserva deve passar a validade para o UPDATE")
+    void confirmarReserva() {
+        Agendamento reserva = agendamento(StatusAgendamento.EM_PROCESSAMENTO);
+        reserva.setExpiraEm(LocalDateTime.now().plusMinutes(5));
+        when(repository.confirmarReserva(eq(reserva.getId()), any())).thenReturn(1);
+
+        transicao.confirmarReserva(reserva);
+
+        assertEquals(StatusAgendamento.AGENDADO, reserva.getStatus());
+        assertNull(reserva.getExpiraEm());
+    }
+
+    private Agendamento agendamento(StatusAgendamento status) {
+        Agendamento agendamento = new Agendamento();
+        agendamento.setId(UUID.randomUUID());
+        agendamento.setStatus(status);
+        return agendamento;
+    }
+}
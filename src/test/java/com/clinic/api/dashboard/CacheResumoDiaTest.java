@@ -0,0 +1,159 @@
+package com.clinic.api.dashboard;
+
+import com.clinic.api.dashboard.dto.DashboardResumoDTO;
+import com.clinic.api.dashboard.service.CacheResumoDia;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CacheResumoDiaTest {
+
+    private ExecutorService executor;
+    private CacheResumoDia cache;
+
+    private final UUID medicoId = UUID.randomUUID();
+    private final AtomicInteger cargas = new AtomicInteger();
+    private final Function<UUID, DashboardResumoDTO> carregador = id -> resumo(cargas.incrementAndGet());
+
+    @BeforeEach
+    void setup() {
+        executor = Executors.newSingleThreadExecutor();
+        cache = new CacheResumoDia(executor, 60);
+    }
+
+    @AfterEach
+    void tearDown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("1. Dentro do TTL o resumo deve vir do cache")
+    void hitDentroDoTtl() {
+        cache.obter(medicoId, carregador);
+        DashboardResumoDTO segundo = cache.obter(medicoId, carregador);
+
+        assertEquals(1, cargas.get());
+        assertEquals(1, segundo.qtdAtendimentosHoje());
+    }
+
+    @Test
+    @DisplayName("2. Com TTL vencido o próximo pedido deve recalcular")
+    void ttlVencido() {
+        cache = new CacheResumoDia(executor, 0);
+
+        cache.obter(medicoId, carregador);
+        DashboardResumoDTO segundo = cache.obter(medicoId, carregador);
+
+        assertEquals(2, cargas.get());
+        assertEquals(2, segundo.qtdAtendimentosHoje());
+    }
+
+    @Test
+    @DisplayName("3. Pedidos simultâneos do mesmo médico devem esperar uma única carga")
+    void coalescencia() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        CountDownLatch carregando = new CountDownLatch(1);
+        Function<UUID, DashboardResumoDTO> lento = id -> {
+            carregando.countDown();
+            aguardar(liberar);
+            return resumo(cargas.incrementAndGet());
+        };
+        ExecutorService pedidos = Executors.newFixedThreadPool(4);
+        try {
+            Future<DashboardResumoDTO> primeiro = pedidos.submit(() -> cache.obter(medicoId, lento));
+            assertTrue(carregando.await(5, TimeUnit.SECONDS));
+            Future<DashboardResumoDTO> segundo = pedidos.submit(() -> cache.obter(medicoId, lento));
+            Future<DashboardResumoDTO> terceiro = pedidos.submit(() -> cache.obter(medicoId, lento));
+            liberar.countDown();
+
+            assertEquals(1, primeiro.get(5, TimeUnit.SECONDS).qtdAtendimentosHoje());
+            assertEquals(1, segundo.get(5, TimeUnit.SECONDS).qtdAtendimentosHoje());
+            assertEquals(1, terceiro.get(5, TimeUnit.SECONDS).qtdAtendimentosHoje());
+            assertEquals(1, cargas.get());
+        } finally {
+            pedidos.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("4. Mudança na agenda deve recalcular em segundo plano, só para médico em cache")
+    void recargaAntecipada() throws Exception {
+        cache.obter(medicoId, carregador);
+
+        cache.recarregar(medicoId, carregador);
+        cache.recarregar(UUID.randomUUID(), carregador); // Ninguém olhando: ignorado
+        aguardarExecutor();
+
+        assertEquals(2, cargas.get());
+        assertEquals(2, cache.obter(medicoId, carregador).qtdAtendimentosHoje());
+        assertEquals(1, cache.tamanho());
+    }
+
+    @Test
+    @DisplayName("5. Rajada de mudanças durante uma carga deve gerar uma única carga extra ao fim dela")
+    void rajadaDuranteCarga() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        CountDownLatch carregando = new CountDownLatch(1);
+        Function<UUID, DashboardResumoDTO> lentoNaPrimeira = id -> {
+            if (cargas.get() == 0) {
+                carregando.countDown();
+                aguardar(liberar);
+            }
+            return resumo(cargas.incrementAndGet());
+        };
+        ExecutorService pedidos = Executors.newSingleThreadExecutor();
+        try {
+            Future<DashboardResumoDTO> pedido = pedidos.submit(() -> cache.obter(medicoId, lentoNaPrimeira));
+            assertTrue(carregando.await(5, TimeUnit.SECONDS));
+            for (int i = 0; i < 5; i++) cache.recarregar(medicoId, lentoNaPrimeira);
+            liberar.countDown();
+            pedido.get(5, TimeUnit.SECONDS);
+            aguardarExecutor();
+
+            assertEquals(2, cargas.get());
+            assertEquals(2, cache.obter(medicoId, lentoNaPrimeira).qtdAtendimentosHoje());
+        } finally {
+            pedidos.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("6. Falha na carga deve chegar ao pedido e não ficar em cache")
+    void falhaNaoFicaEmCache() {
+        assertThrows(IllegalStateException.class, () -> cache.obter(medicoId, id -> {
+            throw new IllegalStateException("banco fora do ar");
+        }));
+
+        cache.obter(medicoId, carregador);
+        assertEquals(1, cargas.get());
+    }
+
+    private void aguardarExecutor() throws Exception {
+        executor.submit(() -> {}).get(5, TimeUnit.SECONDS);
+    }
+
+    private static void aguardar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static DashboardResumoDTO resumo(long atendimentos) {
+        return new DashboardResumoDTO(atendimentos, 0, 0, BigDecimal.ZERO, BigDecimal.ZERO);
+    }
+}
@@ -0,0 +1,128 @@
+package com.clinic.api.dashboard;
+
+import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import com.clinic.api.agendamento.dto.ResumoAgendaMedicoDTO;
+import com.clinic.api.dashboard.dto.DashboardClinicaDTO;
+import com.clinic.api.dashboard.service.DashboardClinicaService;
+import com.clinic.api.documento.domain.DocumentoRepository;
+import com.clinic.api.documento.domain.NaoVistosMedico;
+import com.clinic.api.medico.domain.MedicoRepository;
+import com.clinic.api.medico.dto.MedicoResumoDTO;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DashboardClinicaServiceTest {
+
+    @Mock private MedicoRepository medicoRepository;
+    @Mock private AgendamentoRepository agendamentoRepository;
+    @Mock private DocumentoRepository documentoRepository;
+
+    private ExecutorService executor;
+    private DashboardClinicaService service;
+    private final CountDownLatch liberar = new CountDownLatch(1); // Segura as consultas "lentas"
+
+    private final UUID clinicaId = UUID.randomUUID();
+    private final UUID ana = UUID.randomUUID();
+    private final UUID bruno = UUID.randomUUID();
+
+    @BeforeEach
+    void setup() {
+        executor = Executors.newFixedThreadPool(3);
+        service = new DashboardClinicaService(medicoRepository, agendamentoRepository, documentoRepository, executor, 300);
+    }
+
+    @AfterEach
+    void tearDown() {
+        liberar.countDown();
+        executor.shutdownNow();
+    }
+
+    @Test
+    @DisplayName("1. Deve montar o resumo de cada médico e os totais com uma consulta agrupada por métrica")
+    void resumoPorMedicoETotais() {
+        when(medicoRepository.findResumoByClinicaId(clinicaId)).thenReturn(List.of(
+                new MedicoResumoDTO(ana, "Ana", 30), new MedicoResumoDTO(bruno, "Bruno", 30)));
+        when(agendamentoRepository.findResumoDoDiaPorMedico(eq(clinicaId), any(), any())).thenReturn(List.of(
+                new ResumoAgendaMedicoDTO(ana, 4L, 1L, new BigDecimal("1200"), new BigDecimal("600"))));
+        List<NaoVistosMedico> exames = List.of(naoVistos(ana, 2L), naoVistos(bruno, 3L));
+        when(documentoRepository.contarNaoVistosDosMedicosDaClinica(clinicaId)).thenReturn(exames);
+
+        DashboardClinicaDTO dashboard = service.buscarResumoDoDia(clinicaId);
+
+        assertFalse(dashboard.parcial());
+        assertEquals(2, dashboard.medicos().size());
+        assertEquals(4, dashboard.medicos().get(0).resumo().qtdAtendimentosHoje());
+        assertEquals(0, dashboard.medicos().get(1).resumo().qtdAtendimentosHoje()); // Sem agenda hoje: zerado
+        assertEquals(3, dashboard.medicos().get(1).resumo().qtdExamesNaoLidos());
+        assertEquals(5, dashboard.totais().qtdExamesNaoLidos());
+        assertEquals(0, new BigDecimal("600").compareTo(dashboard.totais().faturamentoRealizado()));
+        verify(agendamentoRepository, times(1)).findResumoDoDiaPorMedico(any(), any(), any());
+        verify(agendamentoRepository, never()).findByMedicoIdAndDataConsultaBetweenOrderByDataConsultaAsc(any(), any(), any());
+    }
+
+    @Test
+    @DisplayName("2. Métrica que estoura o tempo limite deve vir zerada, com a resposta marcada como parcial")
+    void metricaAtrasada() {
+        when(medicoRepository.findResumoByClinicaId(clinicaId)).thenReturn(List.of(new MedicoResumoDTO(ana, "Ana", 30)));
+        when(agendamentoRepository.findResumoDoDiaPorMedico(eq(clinicaId), any(), any())).thenReturn(List.of(
+                new ResumoAgendaMedicoDTO(ana, 2L, 0L, new BigDecimal("500"), BigDecimal.ZERO)));
+        when(documentoRepository.contarNaoVistosDosMedicosDaClinica(clinicaId)).thenAnswer(i -> {
+            liberar.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        long inicio = System.nanoTime();
+        DashboardClinicaDTO dashboard = service.buscarResumoDoDia(clinicaId);
+        long decorridoMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+
+        assertTrue(dashboard.parcial());
+        assertEquals(2, dashboard.totais().qtdAtendimentosHoje());
+        assertEquals(0, dashboard.totais().qtdExamesNaoLidos());
+        assertTrue(decorridoMs < 2_000, "Deveria responder perto do limite de 300 ms, levou " + decorridoMs);
+    }
+
+    @Test
+    @DisplayName("3. Sem a lista de médicos no tempo limite deve falhar, sem esperar a consulta")
+    void medicosAtrasados() {
+        when(medicoRepository.findResumoByClinicaId(clinicaId)).thenAnswer(i -> {
+            liberar.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        assertThrows(RuntimeException.class, () -> service.buscarResumoDoDia(clinicaId));
+    }
+
+    @Test
+    @DisplayName("4. Clínica sem médicos deve ser recusada")
+    void clinicaSemMedicos() {
+        when(medicoRepository.findResumoByClinicaId(clinicaId)).thenReturn(List.of());
+
+        assertThrows(RuntimeException.class, () -> service.buscarResumoDoDia(clinicaId));
+    }
+
+    private static NaoVistosMedico naoVistos(UUID medicoId, Long qtd) {
+        return new NaoVistosMedico() {
+            @Override public UUID getMedicoId() { return medicoId; }
+            @Override public Long getQtd() { return qtd; }
+        };
+    }
+}
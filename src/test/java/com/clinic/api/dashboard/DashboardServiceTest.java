@@ -0,0 +1,137 @@
+package com.clinic.api.dashboard;
+
+import com.clinic.api.agendamento.domain.AgendamentoAlteradoEvent;
+import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import com.clinic.api.agendamento.domain.TipoEventoAgendamento;
+import com.clinic.api.dashboard.domain.Agrupamento;
+import com.clinic.api.dashboard.domain.FaturamentoDiario;
+import com.clinic.api.dashboard.domain.FaturamentoDiarioRepository;
+import com.clinic.api.dashboard.domain.LinhaFaturamento;
+import com.clinic.api.dashboard.dto.FaturamentoPeriodoDTO;
+import com.clinic.api.dashboard.dto.GraficoFaturamentoDTO;
+import com.clinic.api.dashboard.service.CacheResumoDia;
+import com.clinic.api.dashboard.service.DashboardService;
+import com.clinic.api.documento.domain.DocumentoRepository;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class DashboardServiceTest {
+
+    @Mock private AgendamentoRepository agendamentoRepository;
+    @Mock private DocumentoRepository documentoRepository;
+    @Mock private FaturamentoDiarioRepository faturamentoRepository;
+    @Mock private CacheResumoDia cacheResumo;
+
+    @InjectMocks
+    private DashboardService service;
+
+    private final UUID medicoId = UUID.randomUUID();
+
+    @Test
+    @DisplayName("1. Gráfico deve ler o rollup uma única vez, na janela dos 6 meses")
+    void graficoUmaLeitura() {
+        YearMonth atual = YearMonth.now();
+        when(faturamentoRepository.findByMedicoIdAndDiaBetween(any(), any(), any())).thenReturn(List.of());
+
+        service.gerarDadosGrafico(medicoId);
+
+        verify(faturamentoRepository, times(1))
+                .findByMedicoIdAndDiaBetween(medicoId, atual.minusMonths(5).atDay(1), atual.atEndOfMonth());
+        verifyNoInteractions(agendamentoRepository);
+    }
+
+    @Test
+    @DisplayName("2. Gráfico deve somar pago + convênio por mês e zerar os meses sem movimento")
+    void graficoSomaPorMes() {
+        YearMonth atual = YearMonth.now();
+        when(faturamentoRepository.findByMedicoIdAndDiaBetween(any(), any(), any())).thenReturn(List.of(
+                new FaturamentoDiario(medicoId, atual.atDay(1), new BigDecimal("300"), new BigDecimal("150")),
+                new FaturamentoDiario(medicoId, atual.atDay(2), new BigDecimal("100"), BigDecimal.ZERO),
+                new FaturamentoDiario(medicoId, atual.minusMonths(5).atDay(10), BigDecimal.ZERO, new BigDecimal("80"))));
+
+        List<GraficoFaturamentoDTO> grafico = service.gerarDadosGrafico(medicoId);
+
+        assertEquals(6, grafico.size());
+        assertEquals(0, new BigDecimal("80").compareTo(grafico.get(0).valorTotal()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(grafico.get(3).valorTotal()));
+        assertEquals(0, new BigDecimal("550").compareTo(grafico.get(5).valorTotal()));
+    }
+
+    @Test
+    @DisplayName("3. Série deve ir ao banco com a unidade do agrupamento e devolver os pontos na ordem")
+    void serieAgregadaNoBanco() {
+        LocalDate inicio = LocalDate.of(2026, 1, 5);
+        LocalDate fim = LocalDate.of(2026, 1, 18);
+        List<LinhaFaturamento> linhas = List.of(linha("2026-01-05", "200", "50"), linha("2026-01-12", "0", "0"));
+        when(faturamentoRepository.agregarPorPeriodo(anyCollection(), any(), any(), anyString(), anyString())).thenReturn(linhas);
+
+        List<FaturamentoPeriodoDTO> serie = service.gerarSerieFaturamento(List.of(medicoId), inicio, fim, Agrupamento.SEMANA);
+
+        verify(faturamentoRepository).agregarPorPeriodo(Set.of(medicoId), inicio, fim, "week", "1 week");
+        assertEquals(2, serie.size());
+        assertEquals(LocalDate.of(2026, 1, 5), serie.get(0).inicioPeriodo());
+        assertEquals(0, new BigDecimal("250").compareTo(serie.get(0).valorRealizado()));
+        assertEquals(0, BigDecimal.ZERO.compareTo(serie.get(1).valorRealizado()));
+        verifyNoInteractions(agendamentoRepository);
+    }
+
+    @Test
+    @DisplayName("4. Período com pontos demais para o agrupamento deve ser recusado sem consultar")
+    void seriePontosDemais() {
+        LocalDate inicio = LocalDate.of(2024, 1, 1);
+
+        assertThrows(RuntimeException.class, () ->
+                service.gerarSerieFaturamento(List.of(medicoId), inicio, inicio.plusYears(2), Agrupamento.DIA));
+        assertThrows(RuntimeException.class, () ->
+                service.gerarSerieFaturamento(List.of(), inicio, inicio.plusMonths(1), Agrupamento.DIA));
+        assertThrows(RuntimeException.class, () ->
+                service.gerarSerieFaturamento(List.of(medicoId), inicio, inicio.minusDays(1), Agrupamento.DIA));
+        verifyNoInteractions(faturamentoRepository);
+    }
+
+    @Test
+    @DisplayName("5. Mudança num agendamento de hoje deve recarregar o resumo do médico; de outro dia, não")
+    void eventoRecarregaResumo() {
+        service.aoAlterarAgendamento(evento(LocalDate.now().atTime(15, 0)));
+        service.aoAlterarAgendamento(evento(LocalDate.now().plusDays(1).atTime(15, 0)));
+
+        verify(cacheResumo, times(1)).recarregar(eq(medicoId), any());
+    }
+
+    private AgendamentoAlteradoEvent evento(LocalDateTime dataConsulta) {
+        return new AgendamentoAlteradoEvent(1L, TipoEventoAgendamento.CANCELADO, UUID.randomUUID(), medicoId,
+                UUID.randomUUID(), dataConsulta, LocalDateTime.now());
+    }
+
+    private LinhaFaturamento linha(String periodo, String pago, String convenio) {
+        LinhaFaturamento linha = mock(LinhaFaturamento.class);
+        when(linha.getPeriodo()).thenReturn(periodo);
+        when(linha.getQtdAgendadas()).thenReturn(1L);
+        when(linha.getValorAgendado()).thenReturn(new BigDecimal(pago).add(new BigDecimal(convenio)));
+        when(linha.getQtdPagas()).thenReturn(1L);
+        when(linha.getValorPago()).thenReturn(new BigDecimal(pago));
+        when(linha.getQtdConvenio()).thenReturn(1L);
+        when(linha.getValorConvenio()).thenReturn(new BigDecimal(convenio));
+        return linha;
+    }
+}
@@ -0,0 +1,34 @@
+package com.clinic.api.dashboard;
+
+import com.clinic.api.dashboard.domain.FaturamentoDiarioRepository;
+import com.clinic.api.dashboard.service.FaturamentoDiarioService;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class FaturamentoDiarioServiceTest {
+
+    @Mock private FaturamentoDiarioRepository repository;
+
+    @Test
+    @DisplayName("1. Reconciliação deve recalcular a partir da janela configurada")
+    void reconciliaJanela() {
+        new FaturamentoDiarioService(repository, 190).reconciliar();
+
+        verify(repository).reconciliarDesde(LocalDate.now().minusDays(190));
+    }
+
+    @Test
+    @DisplayName("2. Janela vazia deve ser recusada na subida")
+    void configuracaoInvalida() {
+        assertThrows(IllegalArgumentException.class, () -> new FaturamentoDiarioService(repository, 0));
+    }
+}
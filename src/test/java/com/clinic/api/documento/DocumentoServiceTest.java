@@ -21,7 +21,9 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.any;
@@ -182,4 +184,35 @@ class DocumentoServiceTest {
         assertDoesNotThrow(() -> service.salvarDocumento(id, "T1", "O1", pdf));
         assertDoesNotThrow(() -> service.salvarDocumento(id, "T2", "O2", img));
     }
-}
\ No newline at end of file
+
+    @Test
+    @DisplayName("11. Marcar em lote deve ir ao banco uma vez, sem ids repetidos")
+    void marcarComoVistosEmLote() {
+        UUID id = UUID.randomUUID();
+        when(repository.marcarComoVistos(any())).thenReturn(1);
+
+        assertEquals(1, service.marcarComoVistos(List.of(id, id)));
+        verify(repository).marcarComoVistos(Set.of(id));
+    }
+
+    @Test
+    @DisplayName("12. Lote vazio ou grande demais deve ser recusado sem atualizar nada")
+    void marcarComoVistosLoteInvalido() {
+        List<UUID> grande = Stream.generate(UUID::randomUUID).limit(501).toList();
+
+        assertThrows(RuntimeException.class, () -> service.marcarComoVistos(List.of()));
+        assertThrows(RuntimeException.class, () -> service.marcarComoVistos(grande));
+        verify(repository, never()).marcarComoVistos(any());
+    }
+
+    @Test
+    @DisplayName("13. Marcar todos do paciente deve exigir paciente existente")
+    void marcarComoVistosDoPaciente() {
+        UUID pacienteId = UUID.randomUUID();
+        when(pacienteRepository.existsById(pacienteId)).thenReturn(true);
+        when(repository.marcarComoVistosDoPaciente(pacienteId)).thenReturn(3);
+
+        assertEquals(3, service.marcarComoVistosDoPaciente(pacienteId));
+        assertThrows(RuntimeException.class, () -> service.marcarComoVistosDoPaciente(UUID.randomUUID()));
+    }
+}
@@ -0,0 +1,240 @@
+package com.clinic.api.infra;
+
+import com.clinic.api.infra.idempotencia.ChaveIdempotenciaReutilizadaException;
+import com.clinic.api.infra.idempotencia.RegistroIdempotencia;
+import com.clinic.api.infra.idempotencia.RegistroIdempotenciaCheioException;
+import com.clinic.api.infra.idempotencia.RequisicaoEmAndamentoException;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RegistroIdempotenciaTest {
+
+    @Test
+    @DisplayName("1. Repetição com a mesma chave deve devolver a resposta original sem executar de novo")
+    void repeticao() {
+        RegistroIdempotencia registro = new RegistroIdempotencia(100, 60, 30);
+        AtomicInteger execucoes = new AtomicInteger();
+
+        Integer primeira = registro.executar("agendamento", "chave-1", "pedido", execucoes::incrementAndGet);
+        Integer segunda = registro.executar("agendamento", "chave-1", "pedido", execucoes::incrementAndGet);
+
+        assertEquals(1, (int) primeira);
+        assertEquals(1, (int) segunda);
+        assertEquals(1, execucoes.get());
+
+        // Mesma chave em outro endpoint não se mistura
+        assertEquals(2, (int) registro.executar("documento", "chave-1", "pedido", execucoes::incrementAndGet));
+    }
+
+    @Test
+    @DisplayName("2. Mesma chave com outro conteúdo deve ser rejeitada (422)")
+    void chaveReutilizada() {
+        RegistroIdempotencia registro = new RegistroIdempotencia(100, 60, 30);
+        registro.executar("agendamento", "chave-1", "pedido A", () -> "ok");
+
+        assertThrows(ChaveIdempotenciaReutilizadaException.class,
+                () -> registro.executar("agendamento", "chave-1", "pedido B", () -> "outro"));
+    }
+
+    @Test
+    @DisplayName("3. Duplicatas simultâneas devem esperar a primeira: só uma executa")
+    void duplicatasSimultaneas() throws Exception {
+        RegistroIdempotencia registro = new RegistroIdempotencia(100, 60, 30);
+        AtomicInteger execucoes = new AtomicInteger();
+        CountDownLatch emExecucao = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+
+        try {
+            Future<Integer> original = executor.submit(() -> registro.executar("agendamento", "chave-1", "pedido", () -> {
+                emExecucao.countDown();
+                aguardar(liberar);
+                return execucoes.incrementAndGet();
+            }));
+            emExecucao.await(5, TimeUnit.SECONDS);
+
+            List<Future<Integer>> duplicatas = new ArrayList<>();
+            for (int i = 0; i < 7; i++) {
+                duplicatas.add(executor.submit(() ->
+                        registro.executar("agendamento", "chave-1", "pedido", execucoes::incrementAndGet)));
+            }
+            liberar.countDown();
+
+            assertEquals(1, (int) original.get(5, TimeUnit.SECONDS));
+            for (Future<Integer> f : duplicatas) assertEquals(1, (int) f.get(5, TimeUnit.SECONDS));
+            assertEquals(1, execucoes.get());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("4. Erro não deve ficar gravado: nova tentativa com a mesma chave executa")
+    void erroNaoGravado() {
+        RegistroIdempotencia registro = new RegistroIdempotencia(100, 60, 30);
+
+        assertThrows(RuntimeException.class, () -> registro.executar("agendamento", "chave-1", "pedido", () -> {
+            throw new RuntimeException("Horário ocupado");
+        }));
+        assertEquals("ok", registro.executar("agendamento", "chave-1", "pedido", () -> "ok"));
+    }
+
+    @Test
+    @DisplayName("5. Memória limitada: acima da capacidade a chave mais antiga sai")
+    void capacidadeLimitada() {
+        RegistroIdempotencia registro = new RegistroIdempotencia(2, 60, 30);
+        AtomicInteger execucoes = new AtomicInteger();
+
+        registro.executar("agendamento", "a", "p", execucoes::incrementAndGet);
+        registro.executar("agendamento", "b", "p", execucoes::incrementAndGet);
+        registro.executar("agendamento", "c", "p", execucoes::incrementAndGet);
+        assertEquals(2, registro.tamanho());
+
+        registro.executar("agendamento", "a", "p", execucoes::incrementAndGet); // "a" saiu: executa de novo
+        assertEquals(4, execucoes.get());
+    }
+
+    @Test
+    @DisplayName("6. Sem chave deve executar sempre, sem guardar nada")
+    void semChave() {
+        RegistroIdempotencia registro = new RegistroIdempotencia(100, 60, 30);
+        AtomicInteger execucoes = new AtomicInteger();
+
+        registro.executar("agendamento", null, "p", execucoes::incrementAndGet);
+        registro.executar("agendamento", " ", "p", execucoes::incrementAndGet);
+
+        assertEquals(2, execucoes.get());
+        assertEquals(0, registro.tamanho());
+    }
+
+    @Test
+    @DisplayName("7. Error na original deve chegar às duplicatas e liberar a chave, sem deixá-las presas")
+    void errorNaOriginal() throws Exception {
+        RegistroIdempotencia registro = new RegistroIdempotencia(100, 60, 30);
+        CountDownLatch emExecucao = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+
+        try {
+            Future<Integer> original = executor.submit(() -> registro.executar("agendamento", "chave-1", "pedido", () -> {
+                emExecucao.countDown();
+                aguardar(liberar);
+                throw new OutOfMemoryError("simulado");
+            }));
+            emExecucao.await(5, TimeUnit.SECONDS);
+            Future<Object> duplicata = executor.submit(() -> registro.executar("agendamento", "chave-1", "pedido", () -> "outra"));
+            liberar.countDown();
+
+            ExecutionException erroOriginal = assertThrows(ExecutionException.class, () -> original.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(OutOfMemoryError.class, erroOriginal.getCause());
+            // Esperando: recebe o mesmo erro; chegou depois da falha: a chave já estava livre e executou
+            try {
+                assertEquals("outra", duplicata.get(5, TimeUnit.SECONDS));
+            } catch (ExecutionException e) {
+                assertInstanceOf(OutOfMemoryError.class, e.getCause());
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("8. Duplicata deve esperar a original por tempo limitado e receber 409")
+    void esperaLimitada() throws Exception {
+        RegistroIdempotencia registro = new RegistroIdempotencia(100, 60, 1);
+        CountDownLatch emExecucao = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            executor.submit(() -> registro.executar("agendamento", "chave-1", "pedido", () -> {
+                emExecucao.countDown();
+                aguardar(liberar);
+                return "original";
+            }));
+            emExecucao.await(5, TimeUnit.SECONDS);
+
+            assertThrows(RequisicaoEmAndamentoException.class,
+                    () -> registro.executar("agendamento", "chave-1", "pedido", () -> "duplicata"));
+        } finally {
+            liberar.countDown();
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    @DisplayName("9. Acima da capacidade, chave em execução não deve sair; cheio só de execuções, a nova recebe 503")
+    void capacidadePreservaEmExecucao() throws Exception {
+        RegistroIdempotencia registro = new RegistroIdempotencia(2, 60, 30);
+        AtomicInteger execucoes = new AtomicInteger();
+        CountDownLatch emExecucao = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+
+        try {
+            // "a" (a mais antiga) fica em execução
+            Future<Integer> original = executor.submit(() -> registro.executar("agendamento", "a", "p", () -> {
+                emExecucao.countDown();
+                aguardar(liberar);
+                return execucoes.incrementAndGet();
+            }));
+            emExecucao.await(5, TimeUnit.SECONDS);
+
+            registro.executar("agendamento", "b", "p", execucoes::incrementAndGet);
+            registro.executar("agendamento", "c", "p", execucoes::incrementAndGet); // Sai "b", concluída
+            assertEquals(2, registro.tamanho());
+
+            // Só "a" e "c" guardadas, "c" concluída: ela sai, "a" continua protegendo a repetição
+            registro.executar("agendamento", "d", "p", execucoes::incrementAndGet);
+            liberar.countDown();
+            int resultadoOriginal = original.get(5, TimeUnit.SECONDS);
+            assertEquals(4, execucoes.get());
+            assertEquals(resultadoOriginal, registro.executar("agendamento", "a", "p", execucoes::incrementAndGet));
+            assertEquals(4, execucoes.get()); // A repetição de "a" não executou de novo
+        } finally {
+            liberar.countDown();
+            executor.shutdownNow();
+        }
+
+        // Capacidade 1 ocupada por uma execução: a chave nova é recusada e não fica guardada
+        RegistroIdempotencia cheio = new RegistroIdempotencia(1, 60, 30);
+        CountDownLatch ocupado = new CountDownLatch(1);
+        CountDownLatch soltar = new CountDownLatch(1);
+        ExecutorService outro = Executors.newSingleThreadExecutor();
+        try {
+            outro.submit(() -> cheio.executar("agendamento", "x", "p", () -> {
+                ocupado.countDown();
+                aguardar(soltar);
+                return "x";
+            }));
+            ocupado.await(5, TimeUnit.SECONDS);
+
+            assertThrows(RegistroIdempotenciaCheioException.class,
+                    () -> cheio.executar("agendamento", "y", "p", () -> fail("Não deveria executar")));
+            assertEquals(1, cheio.tamanho());
+        } finally {
+            soltar.countDown();
+            outro.shutdownNow();
+        }
+    }
+
+    private static void aguardar(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
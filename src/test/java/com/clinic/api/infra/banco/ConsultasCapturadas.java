@@ -0,0 +1,32 @@
+package com.clinic.api.infra.banco;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Guarda o SQL que o Hibernate manda ao banco (repositórios derivados, JPQL e nativos), sem alterá-lo
+public class ConsultasCapturadas implements StatementInspector {
+
+    private static final List<String> SQLS = new ArrayList<>();
+
+    @Override
+    public String inspect(String sql) {
+        synchronized (SQLS) {
+            SQLS.add(sql);
+        }
+        return sql;
+    }
+
+    static void limpar() {
+        synchronized (SQLS) {
+            SQLS.clear();
+        }
+    }
+
+    static List<String> capturadas() {
+        synchronized (SQLS) {
+            return List.copyOf(SQLS);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package com.clinic.api.infra.banco;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Rollup tb_faturamento_diario (V13) x arquivamento de partições de tb_agendamento (V11), nas funções
+ * das migrações: o DETACH não passa pelo gatilho, então a reconciliação não pode tratar o mês arquivado
+ * como "sem agendamentos". Sem Docker, a classe é pulada.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class FaturamentoArquivamentoTest {
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static JdbcTemplate jdbc;
+
+    @BeforeAll
+    static void migrar() {
+        DriverManagerDataSource dataSource =
+                new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        Flyway.configure().dataSource(dataSource).load().migrate();
+        jdbc = new JdbcTemplate(dataSource);
+    }
+
+    @Test
+    @DisplayName("1. Reconciliação com janela maior que o arquivamento não deve apagar o faturamento dos meses arquivados")
+    void mesArquivadoPreservado() {
+        UUID medicoId = medico();
+        UUID pacienteId = paciente();
+        LocalDate mesAntigo = LocalDate.now().withDayOfMonth(1).minusMonths(8);
+        jdbc.queryForObject("SELECT criar_particao_agendamento(?)", Boolean.class, mesAntigo);
+
+        LocalDateTime consultaAntiga = mesAntigo.plusDays(9).atTime(10, 0);
+        LocalDateTime consultaFutura = LocalDate.now().plusDays(10).atTime(10, 0);
+        agendamento(medicoId, pacienteId, consultaAntiga, "CONCLUIDO", "PAGO", "300.00");
+        agendamento(medicoId, pacienteId, consultaFutura, "AGENDADO", "PAGO", "200.00");
+        assertEquals(new BigDecimal("300.00"), valorPago(medicoId, consultaAntiga.toLocalDate()));
+
+        // Arquiva tudo antes de 6 meses atrás (o mês antigo sai de tb_agendamento sem passar pelo gatilho)
+        int arquivadas = jdbc.queryForObject("SELECT arquivar_particoes_agendamento(?)", Integer.class,
+                LocalDate.now().withDayOfMonth(1).minusMonths(6));
+        assertTrue(arquivadas >= 1);
+
+        // Janela de reconciliação que alcança o mês arquivado
+        int corrigidas = jdbc.queryForObject("SELECT reconciliar_faturamento_diario(?)", Integer.class,
+                LocalDate.now().minusDays(400));
+
+        assertEquals(0, corrigidas);
+        assertEquals(new BigDecimal("300.00"), valorPago(medicoId, consultaAntiga.toLocalDate()));
+        assertEquals(new BigDecimal("200.00"), valorPago(medicoId, consultaFutura.toLocalDate()));
+    }
+
+    @Test
+    @DisplayName("2. Nos meses anexados a reconciliação continua corrigindo o que divergiu")
+    void mesAnexadoCorrigido() {
+        UUID medicoId = medico();
+        LocalDateTime consulta = LocalDate.now().plusDays(12).atTime(15, 0);
+        agendamento(medicoId, paciente(), consulta, "AGENDADO", "PAGO", "150.00");
+        // Escrita por fora do gatilho
+        jdbc.update("UPDATE tb_faturamento_diario SET valor_pago = 0 WHERE medico_id = ?", medicoId);
+
+        int corrigidas = jdbc.queryForObject("SELECT reconciliar_faturamento_diario(?)", Integer.class,
+                LocalDate.now().minusDays(400));
+
+        assertTrue(corrigidas >= 1);
+        assertEquals(new BigDecimal("150.00"), valorPago(medicoId, consulta.toLocalDate()));
+    }
+
+    private static UUID medico() {
+        UUID usuarioId = UUID.randomUUID();
+        UUID medicoId = UUID.randomUUID();
+        jdbc.update("INSERT INTO tb_usuario (id, email, senha, role, ativo) VALUES (?, ?, 'x', 'MEDICO', true)",
+                usuarioId, usuarioId + "@teste.com");
+        jdbc.update("INSERT INTO tb_medico (id, usuario_id, nome, crm, especialidade, ativo, duracao_consulta) " +
+                "VALUES (?, ?, 'Dra. Arquivo', ?, 'CARDIOLOGIA', true, 30)", medicoId, usuarioId, "CRM" + medicoId);
+        return medicoId;
+    }
+
+    private static UUID paciente() {
+        UUID pacienteId = UUID.randomUUID();
+        jdbc.update("INSERT INTO tb_paciente (id, nome) VALUES (?, 'Paciente Arquivo')", pacienteId);
+        return pacienteId;
+    }
+
+    private static void agendamento(UUID medicoId, UUID pacienteId, LocalDateTime inicio,
+                                    String status, String statusPagamento, String valor) {
+        jdbc.update("INSERT INTO tb_agendamento (id, medico_id, paciente_id, data_consulta, data_fim_consulta, " +
+                        "status, status_pagamento, valor_consulta, data_cadastro) VALUES (?, ?, ?, ?, ?, ?, ?, ?, now())",
+                UUID.randomUUID(), medicoId, pacienteId, inicio, inicio.plusMinutes(30),
+                status, statusPagamento, new BigDecimal(valor));
+    }
+
+    private static BigDecimal valorPago(UUID medicoId, LocalDate dia) {
+        return jdbc.queryForObject("SELECT valor_pago FROM tb_faturamento_diario WHERE medico_id = ? AND dia = ?",
+                BigDecimal.class, medicoId, dia);
+    }
+}
@@ -0,0 +1,267 @@
+package com.clinic.api.infra.banco;
+
+import com.clinic.api.agenda.domain.BloqueioAgendaRepository;
+import com.clinic.api.agenda.domain.ConfiguracaoAgendaRepository;
+import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import com.clinic.api.agendamento.domain.StatusAgendamento;
+import com.clinic.api.documento.domain.DocumentoRepository;
+import com.clinic.api.paciente.domain.PacienteRepository;
+import com.clinic.api.prontuario.domain.ProntuarioRepository;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.testcontainers.service.connection.ServiceConnection;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import javax.sql.DataSource;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Planos de consulta dos repositórios contra PostgreSQL real, com as migrações Flyway e tabelas populadas.
+ * Cada teste chama o método do repositório, captura o SQL gerado pelo Hibernate e roda
+ * EXPLAIN (GENERIC_PLAN) nele: falha se o plano tiver Seq Scan numa tabela grande.
+ * Sem Docker, a classe é pulada.
+ */
+@DataJpaTest(properties = {
+        "spring.jpa.hibernate.ddl-auto=none", // O schema é o das migrações, como em produção
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.clinic.api.infra.banco.ConsultasCapturadas"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Testcontainers(disabledWithoutDocker = true)
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class IndicesConsultasTest {
+
+    // Abaixo disso, Seq Scan é escolha legítima do planner (tabela cabe em poucas páginas)
+    static final long LINHAS_TABELA_GRANDE = 10_000;
+
+    static final int MEDICOS = 2_000;
+    static final int PACIENTES = 20_000;
+    static final int CONSULTAS_POR_MEDICO = 25;
+
+    @Container
+    @ServiceConnection
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine"); // GENERIC_PLAN: 16+
+
+    @Autowired private DataSource dataSource;
+    @Autowired private AgendamentoRepository agendamentoRepository;
+    @Autowired private DocumentoRepository documentoRepository;
+    @Autowired private ProntuarioRepository prontuarioRepository;
+    @Autowired private ConfiguracaoAgendaRepository configuracaoRepository;
+    @Autowired private BloqueioAgendaRepository bloqueioRepository;
+    @Autowired private PacienteRepository pacienteRepository;
+
+    private JdbcTemplate jdbc;
+    private final ObjectMapper json = new ObjectMapper();
+
+    private final UUID medicoId = uuid("medico", 7);
+    private final UUID pacienteId = uuid("paciente", 7);
+    private final LocalDateTime inicioConsultas = LocalDateTime.now().withDayOfMonth(1).plusMonths(1)
+            .plusDays(9).withHour(8).withMinute(0).withSecond(0).withNano(0);
+
+    // Fora da transação dos testes: a massa fica gravada para todos
+    @BeforeAll
+    void popular() {
+        jdbc = new JdbcTemplate(dataSource);
+        jdbc.update("INSERT INTO tb_usuario (id, email, senha, role, ativo) " +
+                "SELECT md5('usuario' || i)::uuid, 'medico' || i || '@teste.com', 'x', 'MEDICO', true " +
+                "FROM generate_series(1, ?) i", MEDICOS);
+        jdbc.update("INSERT INTO tb_clinica (id, razao_social, cnpj, ativo) " +
+                "SELECT md5('clinica' || c)::uuid, 'Clínica ' || c, 'cnpj' || c, true FROM generate_series(0, 99) c");
+        jdbc.update("INSERT INTO tb_medico (id, usuario_id, clinica_id, nome, crm, especialidade, ativo, duracao_consulta) " +
+                "SELECT md5('medico' || i)::uuid, md5('usuario' || i)::uuid, md5('clinica' || (i % 100))::uuid, " +
+                "'Médico ' || i, 'CRM' || i, 'CARDIOLOGIA', true, 30 FROM generate_series(1, ?) i", MEDICOS);
+        jdbc.update("INSERT INTO tb_paciente (id, nome, cpf, telefone, medico_id) " +
+                "SELECT md5('paciente' || p)::uuid, 'Paciente ' || p, lpad(p::text, 11, '0'), '11' || lpad(p::text, 9, '0'), " +
+                "md5('medico' || (p % ? + 1))::uuid FROM generate_series(0, ? - 1) p", MEDICOS, PACIENTES);
+        // Horários distintos por consulta do médico; no mesmo horário, pacientes distintos (sem choque nas EXCLUDE)
+        jdbc.update("INSERT INTO tb_agendamento (id, medico_id, paciente_id, data_consulta, data_fim_consulta, " +
+                "status, status_pagamento, valor_consulta, data_cadastro) " +
+                "SELECT md5('agendamento' || i || '-' || j)::uuid, md5('medico' || i)::uuid, " +
+                "md5('paciente' || ((i + j * ?) % ?))::uuid, " +
+                "?::timestamp + j * interval '30 minutes', ?::timestamp + (j + 1) * interval '30 minutes', " +
+                "'AGENDADO', 'PENDENTE', 300, now() " +
+                "FROM generate_series(1, ?) i, generate_series(0, ? - 1) j",
+                MEDICOS, PACIENTES, inicioConsultas, inicioConsultas, MEDICOS, CONSULTAS_POR_MEDICO);
+        jdbc.update("INSERT INTO tb_prontuario (id, agendamento_id, diagnostico, data_registro) " +
+                "SELECT md5('prontuario' || i || '-' || j)::uuid, md5('agendamento' || i || '-' || j)::uuid, 'ok', now() " +
+                "FROM generate_series(1, ?) i, generate_series(0, ? - 1, 2) j", MEDICOS, CONSULTAS_POR_MEDICO);
+        jdbc.update("INSERT INTO tb_documento (id, nome_original, caminho_arquivo, tipo_content_type, categoria, origem, " +
+                "visto_pelo_medico, data_upload, paciente_id) " +
+                "SELECT md5('documento' || d)::uuid, 'exame.pdf', '/arquivos/' || d, 'application/pdf', 'EXAME', " +
+                "CASE WHEN d % 2 = 0 THEN 'PACIENTE' ELSE 'MEDICO' END, d % 100 <> 0, now() - d * interval '1 minute', " +
+                "md5('paciente' || (d % ?))::uuid FROM generate_series(1, 50000) d", PACIENTES);
+        jdbc.update("INSERT INTO tb_configuracao_agenda (id, medico_id, dia_semana, hora_inicio, hora_fim, intervalo_minutos, ativo) " +
+                "SELECT md5('configuracao' || i || '-' || d)::uuid, md5('medico' || i)::uuid, " +
+                "(ARRAY['MONDAY','TUESDAY','WEDNESDAY','THURSDAY','FRIDAY','SATURDAY','SUNDAY'])[d], " +
+                "'08:00', '18:00', 30, true FROM generate_series(1, ?) i, generate_series(1, 7) d", MEDICOS);
+        jdbc.update("INSERT INTO tb_bloqueio_agenda (id, medico_id, inicio_bloqueio, fim_bloqueio, motivo) " +
+                "SELECT md5('bloqueio' || i || '-' || b)::uuid, md5('medico' || i)::uuid, " +
+                "now()::date + (b * 7 - 35) * interval '1 day' + interval '12 hours', " +
+                "now()::date + (b * 7 - 35) * interval '1 day' + interval '13 hours', 'Almoço' " +
+                "FROM generate_series(1, ?) i, generate_series(0, 9) b", MEDICOS);
+        jdbc.execute("ANALYZE");
+    }
+
+    @BeforeEach
+    void limparCaptura() {
+        ConsultasCapturadas.limpar();
+    }
+
+    @Test
+    @DisplayName("1. Agenda do médico no período (findByMedicoIdAndDataConsultaBetween...)")
+    void agendaDoMedico() {
+        agendamentoRepository.findByMedicoIdAndDataConsultaBetweenOrderByDataConsultaAsc(
+                medicoId, inicioConsultas, inicioConsultas.plusDays(1));
+        assertSemSeqScanEmTabelaGrande();
+    }
+
+    @Test
+    @DisplayName("2. Paciente já tem consulta no horário (existsByPacienteIdAndDataConsultaAndStatusNot)")
+    void pacienteNoHorario() {
+        agendamentoRepository.existsByPacienteIdAndDataConsultaAndStatusNot(
+                pacienteId, inicioConsultas, StatusAgendamento.CANCELADO_PACIENTE);
+        assertSemSeqScanEmTabelaGrande();
+    }
+
+    @Test
+    @DisplayName("3. Documentos do paciente, mais recentes primeiro (findByPacienteIdOrderByDataUploadDesc)")
+    void documentosDoPaciente() {
+        documentoRepository.findByPacienteIdOrderByDataUploadDesc(pacienteId);
+        assertSemSeqScanEmTabelaGrande();
+    }
+
+    @Test
+    @DisplayName("4. Documentos não vistos do médico (contarNaoVistosDoMedico)")
+    void documentosNaoVistos() {
+        documentoRepository.contarNaoVistosDoMedico(medicoId);
+        assertSemSeqScanEmTabelaGrande();
+    }
+
+    @Test
+    @DisplayName("5. Prontuário do agendamento (findByAgendamentoId)")
+    void prontuarioDoAgendamento() {
+        prontuarioRepository.findByAgendamentoId(uuid("agendamento", 7, 0));
+        assertSemSeqScanEmTabelaGrande();
+    }
+
+    @Test
+    @DisplayName("6. Grade do médico no dia da semana (findByMedicoIdAndDiaSemana)")
+    void gradeDoDia() {
+        configuracaoRepository.findByMedicoIdAndDiaSemana(medicoId, DayOfWeek.MONDAY);
+        assertSemSeqScanEmTabelaGrande();
+    }
+
+    @Test
+    @DisplayName("7. Bloqueios que tocam o intervalo (consulta de sobreposição)")
+    void bloqueiosNoIntervalo() {
+        LocalDateTime inicio = LocalDateTime.now().withHour(0);
+        bloqueioRepository.findBloqueiosNoIntervalo(medicoId, inicio, inicio.plusDays(1));
+        assertSemSeqScanEmTabelaGrande();
+    }
+
+    @Test
+    @DisplayName("8. Carga do índice de bloqueios a partir de agora (findPeriodosAPartirDe)")
+    void bloqueiosAPartirDe() {
+        bloqueioRepository.findPeriodosAPartirDe(medicoId, LocalDateTime.now());
+        assertSemSeqScanEmTabelaGrande();
+    }
+
+    @Test
+    @DisplayName("9. Pacientes do médico (findByMedicoId)")
+    void pacientesDoMedico() {
+        pacienteRepository.findByMedicoId(medicoId);
+        assertSemSeqScanEmTabelaGrande();
+    }
+
+    // --- EXPLAIN de tudo o que o método mandou ao banco ---
+
+    private void assertSemSeqScanEmTabelaGrande() {
+        List<String> sqls = ConsultasCapturadas.capturadas();
+        assertFalse(sqls.isEmpty(), "Nenhum SQL capturado");
+        for (String sql : sqls) {
+            JsonNode plano = explicar(sql);
+            List<String> varreduras = new ArrayList<>();
+            coletarSeqScans(plano, varreduras);
+            for (String tabela : varreduras) {
+                long linhas = linhasEstimadas(tabela);
+                assertTrue(linhas < LINHAS_TABELA_GRANDE,
+                        "Seq Scan em " + tabela + " (" + linhas + " linhas) para:\n" + sql + "\nPlano:\n" + plano.toPrettyString());
+            }
+        }
+    }
+
+    // Parâmetros JDBC (?) viram $1..$n: com GENERIC_PLAN o Postgres planeja sem valores, como um prepared statement
+    private JsonNode explicar(String sql) {
+        StringBuilder numerado = new StringBuilder();
+        int parametro = 0;
+        for (char c : sql.toCharArray()) {
+            if (c == '?') {
+                numerado.append('$').append(++parametro);
+            } else {
+                numerado.append(c);
+            }
+        }
+        String saida = jdbc.queryForObject("EXPLAIN (GENERIC_PLAN, FORMAT JSON) " + numerado, String.class);
+        try {
+            return json.readTree(saida).get(0).get("Plan");
+        } catch (Exception e) {
+            throw new IllegalStateException("Plano ilegível: " + saida, e);
+        }
+    }
+
+    private void coletarSeqScans(JsonNode no, List<String> tabelas) {
+        if ("Seq Scan".equals(no.path("Node Type").asText())) {
+            tabelas.add(no.path("Relation Name").asText());
+        }
+        for (JsonNode filho : no.path("Plans")) {
+            coletarSeqScans(filho, tabelas);
+        }
+    }
+
+    // Partições contam individualmente: meses vazios de tb_agendamento podem ser lidos inteiros
+    private long linhasEstimadas(String tabela) {
+        Double linhas = jdbc.queryForObject("SELECT reltuples FROM pg_class WHERE relname = ?", Double.class, tabela);
+        return linhas == null ? 0 : linhas.longValue();
+    }
+
+    private static UUID uuid(String prefixo, int i) {
+        return md5Uuid(prefixo + i);
+    }
+
+    private static UUID uuid(String prefixo, int i, int j) {
+        return md5Uuid(prefixo + i + "-" + j);
+    }
+
+    // Mesmo valor de md5(texto)::uuid no Postgres
+    private static UUID md5Uuid(String texto) {
+        try {
+            byte[] hash = MessageDigest.getInstance("MD5").digest(texto.getBytes(StandardCharsets.UTF_8));
+            long alto = 0;
+            long baixo = 0;
+            for (int b = 0; b < 8; b++) alto = (alto << 8) | (hash[b] & 0xff);
+            for (int b = 8; b < 16; b++) baixo = (baixo << 8) | (hash[b] & 0xff);
+            return new UUID(alto, baixo);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
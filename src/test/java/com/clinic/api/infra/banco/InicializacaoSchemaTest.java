@@ -0,0 +1,108 @@
+package com.clinic.api.infra.banco;
+
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.orm.jpa.LocalContainerEntityManagerFactoryBean;
+import org.springframework.orm.jpa.vendor.HibernateJpaVendorAdapter;
+import org.testcontainers.containers.PostgreSQLContainer;
+import org.testcontainers.junit.jupiter.Container;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Schema das migrações x entidades, e quanto o ddl-auto custa na subida.
+ * Mede só a construção do EntityManagerFactory (a parte do boot que o ddl-auto afeta),
+ * num banco já migrado pelo Flyway, como fica em produção depois do primeiro deploy.
+ * Sem Docker, a classe é pulada. A comparação de tempos só roda sob demanda
+ * ({@code mvn test -Dbenchmark=true}): medida de relógio na suíte normal falha à toa em CI carregado.
+ */
+@Testcontainers(disabledWithoutDocker = true)
+class InicializacaoSchemaTest {
+
+    private static final Logger log = LoggerFactory.getLogger(InicializacaoSchemaTest.class);
+
+    static final int RODADAS = 5;
+
+    @Container
+    static final PostgreSQLContainer<?> POSTGRES = new PostgreSQLContainer<>("postgres:16-alpine");
+
+    private static DriverManagerDataSource dataSource;
+
+    @BeforeAll
+    static void migrar() {
+        dataSource = new DriverManagerDataSource(POSTGRES.getJdbcUrl(), POSTGRES.getUsername(), POSTGRES.getPassword());
+        Flyway.configure().dataSource(dataSource).load().migrate();
+    }
+
+    @Test
+    @DisplayName("1. ddl-auto=validate deve aceitar o schema criado só pelas migrações")
+    void validateAceitaMigracoes() {
+        assertDoesNotThrow(() -> subir(Map.of("hibernate.hbm2ddl.auto", "validate")));
+    }
+
+    @Test
+    @DisplayName("2. Sem ddl-auto (perfil production) o JPA deve subir sobre o schema das migrações")
+    void noneSobe() {
+        assertDoesNotThrow(() -> subir(Map.of("hibernate.hbm2ddl.auto", "none")));
+        assertDoesNotThrow(() -> subir(Map.of("hibernate.hbm2ddl.auto", "none",
+                "hibernate.temp.use_jdbc_metadata_defaults", "false")));
+    }
+
+    @Test
+    @EnabledIfSystemProperty(named = "benchmark", matches = "true")
+    @DisplayName("3. Sem ddl-auto (perfil production) a subida do JPA deve ser mais rápida que com update")
+    void benchmarkSubida() {
+        Map<String, Map<String, Object>> cenarios = new LinkedHashMap<>();
+        cenarios.put("update", Map.of("hibernate.hbm2ddl.auto", "update"));
+        cenarios.put("validate", Map.of("hibernate.hbm2ddl.auto", "validate"));
+        cenarios.put("none", Map.of("hibernate.hbm2ddl.auto", "none"));
+        cenarios.put("none, sem metadata JDBC", Map.of("hibernate.hbm2ddl.auto", "none",
+                "hibernate.temp.use_jdbc_metadata_defaults", "false"));
+
+        cenarios.values().forEach(this::subir); // Aquecimento: classes carregadas e JIT fora da medição
+
+        Map<String, Long> medianas = new LinkedHashMap<>();
+        cenarios.forEach((nome, propriedades) -> {
+            long[] tempos = new long[RODADAS];
+            for (int i = 0; i < RODADAS; i++) {
+                tempos[i] = subir(propriedades);
+            }
+            Arrays.sort(tempos);
+            medianas.put(nome, tempos[RODADAS / 2]);
+        });
+
+        medianas.forEach((nome, ms) -> log.info("ddl-auto {}: mediana de {} ms", nome, ms));
+        assertTrue(medianas.get("none") < medianas.get("update"),
+                "Sem ddl-auto deveria subir mais rápido: " + medianas);
+    }
+
+    // Milissegundos para montar (e fechar) o EntityManagerFactory com as entidades da aplicação
+    private long subir(Map<String, Object> propriedades) {
+        Map<String, Object> jpa = new HashMap<>(propriedades);
+        jpa.put("hibernate.dialect", "org.hibernate.dialect.PostgreSQLDialect");
+
+        LocalContainerEntityManagerFactoryBean fabrica = new LocalContainerEntityManagerFactoryBean();
+        fabrica.setDataSource(dataSource);
+        fabrica.setPackagesToScan("com.clinic.api");
+        fabrica.setJpaVendorAdapter(new HibernateJpaVendorAdapter());
+        fabrica.setJpaPropertyMap(jpa);
+
+        long inicio = System.nanoTime();
+        fabrica.afterPropertiesSet();
+        long ms = (System.nanoTime() - inicio) / 1_000_000;
+        fabrica.destroy();
+        return ms;
+    }
+}
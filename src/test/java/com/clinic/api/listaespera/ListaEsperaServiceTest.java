@@ -0,0 +1,254 @@
+package com.clinic.api.listaespera;
+
+import com.clinic.api.agenda.domain.HorarioLiberadoEvent;
+import com.clinic.api.agenda.service.AgendaService;
+import com.clinic.api.agendamento.domain.ConflitoAgendamentoException;
+import com.clinic.api.agendamento.dto.AgendamentoResponse;
+import com.clinic.api.agendamento.service.ReservaHorarioService;
+import com.clinic.api.listaespera.domain.EntradaListaEsperaRepository;
+import com.clinic.api.listaespera.domain.StatusListaEspera;
+import com.clinic.api.listaespera.dto.ListaEsperaRequest;
+import com.clinic.api.listaespera.service.FilaEspera;
+import com.clinic.api.listaespera.service.ListaEsperaService;
+import com.clinic.api.medico.domain.MedicoRepository;
+import com.clinic.api.paciente.domain.PacienteRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.DisplayName;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ListaEsperaServiceTest {
+
+    @Mock private EntradaListaEsperaRepository repository;
+    @Mock private MedicoRepository medicoRepository;
+    @Mock private PacienteRepository pacienteRepository;
+    @Mock private AgendaService agendaService;
+    @Mock private ReservaHorarioService reservaService;
+    @Mock private PlatformTransactionManager transactionManager; // Sem transação real: AposCommit roda na hora
+
+    private FilaEspera fila;
+    private ListaEsperaService service;
+
+    private final UUID medicoId = UUID.randomUUID();
+    private final LocalDate amanha = LocalDate.now().plusDays(1);
+
+    @BeforeEach
+    void setup() {
+        fila = new FilaEspera(repository, 5);
+        service = new ListaEsperaService(repository, medicoRepository, pacienteRepository, fila,
+                agendaService, reservaService, transactionManager, Runnable::run); // Oferta na mesma thread
+    }
+
+    @Test
+    @DisplayName("1. Deve rejeitar janela invertida ou maior que o limite sem gravar")
+    void janelaInvalida() {
+        UUID pacienteId = UUID.randomUUID();
+
+        assertThrows(RuntimeException.class, () -> service.entrar(
+                new ListaEsperaRequest(medicoId, pacienteId, amanha.atTime(12, 0), amanha.atTime(8, 0), 0)));
+        assertThrows(RuntimeException.class, () -> service.entrar(
+                new ListaEsperaRequest(medicoId, pacienteId, amanha.atStartOfDay(), amanha.plusDays(90).atStartOfDay(), 0)));
+        verify(repository, never()).save(any());
+    }
+
+    @Test
+    @DisplayName("2. Entrar na fila deve gravar AGUARDANDO e refletir na fila em memória já carregada")
+    void entrar() {
+        UUID pacienteId = UUID.randomUUID();
+        when(medicoRepository.existsById(medicoId)).thenReturn(true);
+        when(pacienteRepository.existsById(pacienteId)).thenReturn(true);
+        when(repository.save(any(EntradaListaEspera.class))).thenAnswer(i -> {
+            EntradaListaEspera e = i.getArgument(0);
+            e.setId(UUID.randomUUID());
+            e.prePersist();
+            return e;
+        });
+        assertFalse(fila.temCandidatos(medicoId)); // Carrega a fila (vazia) do médico
+
+        var response = service.entrar(new ListaEsperaRequest(medicoId, pacienteId, amanha.atTime(8, 0), amanha.atTime(12, 0), null));
+
+        assertEquals(StatusListaEspera.AGUARDANDO, response.status());
+        assertEquals(0, (int) response.prioridade());
+        assertEquals(1, fila.tamanho(medicoId));
+        verify(repository, times(1)).findByMedicoIdAndStatusAndFimJanelaAfter(eq(medicoId), eq(StatusListaEspera.AGUARDANDO), any());
+    }
+
+    @Test
+    @DisplayName("3. Fila deve escolher maior prioridade, depois quem chegou antes, pulando janelas que não cobrem o horário")
+    void ordemDaFila() {
+        LocalDateTime cedo = LocalDateTime.now().minusDays(2);
+        EntradaListaEspera tarde = entrada(amanha.atTime(13, 0), amanha.atTime(18, 0), 9, cedo); // Não cobre 09h
+        EntradaListaEspera antiga = entrada(amanha.atTime(8, 0), amanha.atTime(12, 0), 1, cedo);
+        EntradaListaEspera nova = entrada(amanha.atTime(8, 0), amanha.atTime(12, 0), 1, cedo.plusHours(1));
+        EntradaListaEspera semana = entrada(amanha.atStartOfDay(), amanha.plusDays(7).atStartOfDay(), 0, cedo);
+        when(repository.findByMedicoIdAndStatusAndFimJanelaAfter(eq(medicoId), any(), any()))
+                .thenReturn(List.of(nova, semana, tarde, antiga));
+
+        var melhor = fila.melhorPara(medicoId, amanha.atTime(9, 0), amanha.atTime(10, 0), Set.of());
+        assertEquals(antiga.getId(), melhor.orElseThrow().entradaId());
+
+        var proximo = fila.melhorPara(medicoId, amanha.atTime(9, 0), amanha.atTime(10, 0), Set.of(antiga.getId()));
+        assertEquals(nova.getId(), proximo.orElseThrow().entradaId());
+
+        // Dias depois, só a janela de uma semana cobre
+        var depois = fila.melhorPara(medicoId, amanha.plusDays(3).atTime(9, 0), amanha.plusDays(3).atTime(10, 0), Set.of());
+        assertEquals(semana.getId(), depois.orElseThrow().entradaId());
+    }
+
+    @Test
+    @DisplayName("4. Horário liberado deve virar reserva temporária do primeiro da fila")
+    void ofertaAoLiberar() {
+        EntradaListaEspera entrada = entrada(amanha.atTime(8, 0), amanha.atTime(12, 0), 0, LocalDateTime.now().minusDays(1));
+        UUID reservaId = UUID.randomUUID();
+        AgendamentoResponse reserva = mock(AgendamentoResponse.class);
+        when(reserva.getId()).thenReturn(reservaId);
+
+        when(repository.findByMedicoIdAndStatusAndFimJanelaAfter(eq(medicoId), any(), any())).thenReturn(List.of(entrada));
+        when(repository.findById(entrada.getId())).thenReturn(Optional.of(entrada));
+        when(medicoRepository.findDuracaoConsulta(medicoId)).thenReturn(Optional.of(60));
+        when(agendaService.listarHorariosDisponiveis(medicoId, amanha))
+                .thenReturn(List.of(amanha.atTime(9, 0), amanha.atTime(14, 0)));
+        when(reservaService.reservar(any())).thenReturn(reserva);
+
+        service.aoLiberarHorario(new HorarioLiberadoEvent(medicoId, amanha.atTime(9, 0), amanha.atTime(10, 0)));
+
+        assertEquals(StatusListaEspera.OFERTADO, entrada.getStatus());
+        assertEquals(reservaId, entrada.getAgendamentoOfertadoId());
+        assertEquals(0, fila.tamanho(medicoId));
+        verify(reservaService, times(1)).reservar(argThat(r ->
+                r.getPacienteId().equals(entrada.getPacienteId()) && r.getDataConsulta().equals(amanha.atTime(9, 0))));
+    }
+
+    @Test
+    @DisplayName("5. Choque com o primeiro candidato deve ofertar ao próximo da fila")
+    void conflitoPassaAoProximo() {
+        LocalDateTime cadastro = LocalDateTime.now().minusDays(1);
+        EntradaListaEspera primeiro = entrada(amanha.atTime(8, 0), amanha.atTime(12, 0), 5, cadastro);
+        EntradaListaEspera segundo = entrada(amanha.atTime(8, 0), amanha.atTime(12, 0), 0, cadastro);
+        AgendamentoResponse reserva = mock(AgendamentoResponse.class);
+
+        when(repository.findByMedicoIdAndStatusAndFimJanelaAfter(eq(medicoId), any(), any())).thenReturn(List.of(primeiro, segundo));
+        when(repository.findById(primeiro.getId())).thenReturn(Optional.of(primeiro));
+        when(repository.findById(segundo.getId())).thenReturn(Optional.of(segundo));
+        when(medicoRepository.findDuracaoConsulta(medicoId)).thenReturn(Optional.of(60));
+        when(agendaService.listarHorariosDisponiveis(medicoId, amanha)).thenReturn(List.of(amanha.atTime(9, 0)));
+        when(reservaService.reservar(any()))
+                .thenThrow(new ConflitoAgendamentoException("Paciente já possui consulta neste horário."))
+                .thenReturn(reserva);
+
+        assertEquals(1, service.ofertarHorariosLivres(medicoId, amanha.atTime(9, 0), amanha.atTime(10, 0)));
+
+        assertEquals(StatusListaEspera.AGUARDANDO, primeiro.getStatus());
+        assertEquals(StatusListaEspera.OFERTADO, segundo.getStatus());
+        assertEquals(1, fila.tamanho(medicoId)); // O primeiro continua esperando
+        verify(transactionManager, times(1)).rollback(any());
+    }
+
+    @Test
+    @DisplayName("6. Sem ninguém na fila, não deve consultar a agenda")
+    void filaVazia() {
+        when(repository.findByMedicoIdAndStatusAndFimJanelaAfter(eq(medicoId), any(), any())).thenReturn(List.of());
+
+        service.aoLiberarHorario(new HorarioLiberadoEvent(medicoId, amanha.atTime(9, 0), amanha.atTime(10, 0)));
+
+        verifyNoInteractions(agendaService, reservaService, medicoRepository);
+    }
+
+    @Test
+    @DisplayName("7. Falha ao ofertar não deve propagar para quem liberou o horário")
+    void falhaNaoPropaga() {
+        EntradaListaEspera entrada = entrada(amanha.atTime(8, 0), amanha.atTime(12, 0), 0, LocalDateTime.now());
+        when(repository.findByMedicoIdAndStatusAndFimJanelaAfter(eq(medicoId), any(), any())).thenReturn(List.of(entrada));
+        when(medicoRepository.findDuracaoConsulta(medicoId)).thenReturn(Optional.empty());
+
+        assertDoesNotThrow(() -> service.aoLiberarHorario(
+                new HorarioLiberadoEvent(medicoId, amanha.atTime(9, 0), amanha.atTime(10, 0))));
+        assertEquals(StatusListaEspera.AGUARDANDO, entrada.getStatus());
+    }
+
+    @Test
+    @DisplayName("8. A oferta deve sair no executor da lista de espera, não na thread de quem liberou o horário")
+    void ofertaForaDaThreadDeQuemLiberou() {
+        List<Runnable> pendentes = new ArrayList<>();
+        ListaEsperaService assincrono = new ListaEsperaService(repository, medicoRepository, pacienteRepository, fila,
+                agendaService, reservaService, transactionManager, pendentes::add);
+        when(repository.findByMedicoIdAndStatusAndFimJanelaAfter(eq(medicoId), any(), any())).thenReturn(List.of());
+
+        assincrono.aoLiberarHorario(new HorarioLiberadoEvent(medicoId, amanha.atTime(9, 0), amanha.atTime(10, 0)));
+
+        verifyNoInteractions(repository); // Nem a fila foi consultada ainda
+        assertEquals(1, pendentes.size());
+        pendentes.get(0).run();
+        verify(repository).findByMedicoIdAndStatusAndFimJanelaAfter(eq(medicoId), any(), any());
+    }
+
+    @Test
+    @DisplayName("9. Expiração deve encerrar janelas vencidas e ofertas que o paciente não respondeu")
+    void expiracao() {
+        when(repository.expirarVencidas(any())).thenReturn(2);
+        when(repository.encerrarOfertasVencidas(any())).thenReturn(1);
+
+        assertEquals(3, service.expirarVencidas());
+    }
+
+    @Test
+    @DisplayName("10. Fila vencida pelo TTL deve ser relida do banco (entradas de outra instância)")
+    void recargaPorTtl() {
+        FilaEspera semTtl = new FilaEspera(repository, 0);
+        EntradaListaEspera deOutraInstancia = entrada(amanha.atTime(8, 0), amanha.atTime(12, 0), 0, LocalDateTime.now());
+        when(repository.findByMedicoIdAndStatusAndFimJanelaAfter(eq(medicoId), any(), any()))
+                .thenReturn(List.of())
+                .thenReturn(List.of(deOutraInstancia));
+
+        assertFalse(semTtl.temCandidatos(medicoId));
+        assertEquals(1, semTtl.tamanho(medicoId));
+
+        // Dentro do TTL a fila carregada continua valendo
+        reset(repository);
+        assertEquals(0, fila.tamanho(medicoId));
+        assertEquals(0, fila.tamanho(medicoId));
+        verify(repository, times(1)).findByMedicoIdAndStatusAndFimJanelaAfter(eq(medicoId), any(), any());
+    }
+
+    @Test
+    @DisplayName("11. Carga que cruzou com uma escrita do mesmo médico não deve ser guardada")
+    void cargaCruzaComEscrita() {
+        EntradaListaEspera nova = entrada(amanha.atTime(8, 0), amanha.atTime(12, 0), 0, LocalDateTime.now());
+        when(repository.findByMedicoIdAndStatusAndFimJanelaAfter(eq(medicoId), any(), any()))
+                .thenAnswer(i -> {
+                    fila.registrar(nova); // Commit de outra requisição enquanto a carga lia o banco "antigo"
+                    return List.of();
+                })
+                .thenReturn(List.of(nova));
+
+        assertEquals(0, fila.tamanho(medicoId));
+        assertEquals(1, fila.tamanho(medicoId)); // Recarregou em vez de guardar a carga desatualizada
+        verify(repository, times(2)).findByMedicoIdAndStatusAndFimJanelaAfter(eq(medicoId), any(), any());
+    }
+
+    private EntradaListaEspera entrada(LocalDateTime inicio, LocalDateTime fim, int prioridade, LocalDateTime cadastro) {
+        EntradaListaEspera entrada = new EntradaListaEspera(medicoId, UUID.randomUUID(), inicio, fim, prioridade);
+        entrada.setId(UUID.randomUUID());
+        entrada.setStatus(StatusListaEspera.AGUARDANDO);
+        entrada.setDataCadastro(cadastro);
+        return entrada;
+    }
+}
@@ -2,7 +2,11 @@ package com.clinic.api.prontuario;
 
 import com.clinic.api.agendamento.Agendamento;
 import com.clinic.api.agendamento.domain.AgendamentoRepository;
+import com.clinic.api.agendamento.domain.ConflitoAgendamentoException;
 import com.clinic.api.agendamento.domain.StatusAgendamento; // <--- Import Adicionado
+import com.clinic.api.agendamento.domain.TipoEventoAgendamento;
+import com.clinic.api.agendamento.service.OutboxAgendamento;
+import com.clinic.api.agendamento.service.TransicaoAgendamento;
 import com.clinic.api.medico.Medico;
 import com.clinic.api.medico.enun.Especialidade;
 import com.clinic.api.paciente.Paciente;
@@ -38,6 +42,8 @@ class ProntuarioServiceTest {
     @Mock private DadosClinicosFixosRepository dadosFixosRepository;
     @Mock private PacienteRepository pacienteRepository;
     @Mock private DeepSeekService deepSeekService;
+    @Mock private OutboxAgendamento outbox;
+    @Mock private TransicaoAgendamento transicao;
 
     @InjectMocks private ProntuarioService service;
 
@@ -67,10 +73,47 @@ class ProntuarioServiceTest {
         assertNotNull(response.getId());
         assertEquals("Dor de cabeça", response.getQueixaPrincipal());
 
-        // CORREÇÃO AQUI: Usando o Enum em vez da String
-        assertEquals(StatusAgendamento.CONCLUIDO, agendamento.getStatus());
+        // Transição guardada (UPDATE condicional), sem regravar a entidade inteira
+        verify(transicao).mudarStatus(agendamento, StatusAgendamento.CONCLUIDO);
+        verify(agendamentoRepository, never()).save(any());
+        verify(outbox).registrar(agendamento, TipoEventoAgendamento.CONCLUIDO);
+    }
+
+    @Test
+    @DisplayName("11. Editar prontuário de consulta já concluída não deve repetir a transição nem o evento")
+    void salvarEdicaoConcluido() {
+        UUID medicoId = UUID.randomUUID();
+        UUID agendamentoId = UUID.randomUUID();
+        Agendamento agendamento = criarAgendamentoMock(agendamentoId, medicoId);
+        agendamento.setStatus(StatusAgendamento.CONCLUIDO);
+        ProntuarioRequest request = new ProntuarioRequest();
+        request.setAgendamentoId(agendamentoId);
+
+        when(agendamentoRepository.findById(agendamentoId)).thenReturn(Optional.of(agendamento));
+        when(repository.findByAgendamentoId(agendamentoId)).thenReturn(Optional.of(new Prontuario(agendamento)));
+        when(repository.save(any(Prontuario.class))).thenAnswer(i -> i.getArgument(0));
+
+        service.salvar(request, medicoId);
 
-        verify(agendamentoRepository).save(agendamento);
+        verifyNoInteractions(transicao, outbox);
+    }
+
+    @Test
+    @DisplayName("12. Conclusão que perde a corrida (ex: cancelada ao mesmo tempo) deve propagar o 409 sem gravar o prontuário")
+    void salvarConflito() {
+        UUID medicoId = UUID.randomUUID();
+        UUID agendamentoId = UUID.randomUUID();
+        Agendamento agendamento = criarAgendamentoMock(agendamentoId, medicoId);
+        ProntuarioRequest request = new ProntuarioRequest();
+        request.setAgendamentoId(agendamentoId);
+
+        when(agendamentoRepository.findById(agendamentoId)).thenReturn(Optional.of(agendamento));
+        doThrow(new ConflitoAgendamentoException("alterado"))
+                .when(transicao).mudarStatus(agendamento, StatusAgendamento.CONCLUIDO);
+
+        assertThrows(ConflitoAgendamentoException.class, () -> service.salvar(request, medicoId));
+        verify(repository, never()).save(any());
+        verifyNoInteractions(outbox);
     }
 
     @Test